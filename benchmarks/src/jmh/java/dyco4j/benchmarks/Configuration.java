@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Instrumentation configurations, i.e., a tool along with its command-line options, to be benchmarked.
+ */
+public enum Configuration {
+    baseline(Tool.none),
+    entry(Tool.entry, "--method-name-regex", "^applyAsInt$"),
+    method_entry_exit(Tool.internals),
+    method_arguments(Tool.internals, "--trace-method-arguments"),
+    method_return_values(Tool.internals, "--trace-method-return-value"),
+    method_calls(Tool.internals, "--trace-method-call"),
+    field_access_with_values(Tool.internals, "--trace-field-access=with_values"),
+    field_access_without_values(Tool.internals, "--trace-field-access=without_values"),
+    array_access_with_values(Tool.internals, "--trace-array-access=with_values"),
+    array_access_without_values(Tool.internals, "--trace-array-access=without_values");
+
+    private final Tool tool;
+    private final List<String> options;
+
+    Configuration(final Tool tool, final String... options) {
+        this.tool = tool;
+        this.options = Arrays.asList(options);
+    }
+
+    /**
+     * @param inFolder   containing the classes to be instrumented.
+     * @param workFolder in which the instrumented classes and the program data file should be created.
+     * @return the folder containing the classes to be used in this configuration.
+     */
+    Path instrument(final Path inFolder, final Path workFolder) throws IOException {
+        if (tool == Tool.none)
+            return inFolder;
+
+        final Path _outFolder = Files.createDirectories(workFolder.resolve("out"));
+        final List<String> _args = new ArrayList<>(List.of("--in-folder", inFolder.toString(), "--out-folder",
+                _outFolder.toString()));
+        _args.addAll(options);
+        if (tool == Tool.entry)
+            dyco4j.instrumentation.entry.CLI.main(_args.toArray(String[]::new));
+        else {
+            _args.addAll(List.of("--program-data", workFolder.resolve("program-data.json").toString()));
+            dyco4j.instrumentation.internals.CLI.main(_args.toArray(String[]::new));
+        }
+        return _outFolder;
+    }
+
+    private enum Tool {
+        none,
+        entry,
+        internals
+    }
+}
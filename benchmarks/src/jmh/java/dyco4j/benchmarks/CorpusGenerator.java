@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+
+/**
+ * Generates a corpus of synthetic classes to benchmark the instrumentation tools.  The classes form chains of
+ * subclasses, and each class has
+ * <ul>
+ * <li>constructors that delegate to each other (and the constructor of the superclass),</li>
+ * <li>big methods with loops, field and array accesses, object creations, and calls (including calls to the
+ * overridden method),</li>
+ * <li>a method that creates a lambda (invokedynamic via <code>LambdaMetafactory</code>), and</li>
+ * <li>string concatenations (invokedynamic via <code>StringConcatFactory</code>).</li>
+ * </ul>
+ * Classes are written as they are generated; hence, the size of the corpus is limited only by the disk.
+ */
+public final class CorpusGenerator {
+    public static final String OUT_FOLDER_OPTION = "out-folder";
+    public static final String NUM_OF_CLASSES_OPTION = "num-of-classes";
+    static final String HIERARCHY_DEPTH_OPTION = "hierarchy-depth";
+    static final String NUM_OF_CONSTRUCTORS_OPTION = "num-of-constructors";
+    static final String NUM_OF_METHODS_OPTION = "num-of-methods";
+    static final String METHOD_SIZE_OPTION = "method-size";
+    private static final int NUM_OF_CLASSES = 1000;
+    private static final int HIERARCHY_DEPTH = 8;
+    private static final int NUM_OF_CONSTRUCTORS = 4;
+    private static final int NUM_OF_METHODS = 8;
+    private static final int METHOD_SIZE = 100;
+    private static final int CLASSES_PER_PACKAGE = 1000;
+    private static final int NUM_OF_FIELDS = 4;
+    private static final String OBJECT = "java/lang/Object";
+    private static final Handle LAMBDA_METAFACTORY = new Handle(Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory", "metafactory", "(Ljava/lang/invoke/MethodHandles$Lookup;" +
+            "Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;" +
+            "Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+    private static final Handle STRING_CONCAT_FACTORY = new Handle(Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/StringConcatFactory", "makeConcatWithConstants",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+            "Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;", false);
+
+    private final int hierarchyDepth;
+    private final int numOfConstructors;
+    private final int numOfMethods;
+    private final int methodSize;
+
+    CorpusGenerator(final int hierarchyDepth, final int numOfConstructors, final int numOfMethods,
+                    final int methodSize) {
+        this.hierarchyDepth = hierarchyDepth;
+        this.numOfConstructors = numOfConstructors;
+        this.numOfMethods = numOfMethods;
+        this.methodSize = methodSize;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Options _options = new Options();
+        _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).required().hasArg(true)
+                .desc("Folder in which the classes should be generated.").build());
+        _options.addOption(Option.builder().longOpt(NUM_OF_CLASSES_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Number of classes.  Default: {0}.", NUM_OF_CLASSES)).build());
+        _options.addOption(Option.builder().longOpt(HIERARCHY_DEPTH_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Length of chains of subclasses.  Default: {0}.", HIERARCHY_DEPTH))
+                .build());
+        _options.addOption(Option.builder().longOpt(NUM_OF_CONSTRUCTORS_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Number of constructors per class.  Default: {0}.",
+                        NUM_OF_CONSTRUCTORS)).build());
+        _options.addOption(Option.builder().longOpt(NUM_OF_METHODS_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Number of big methods per class.  Default: {0}.", NUM_OF_METHODS))
+                .build());
+        _options.addOption(Option.builder().longOpt(METHOD_SIZE_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Number of statements per big method.  Default: {0}.", METHOD_SIZE))
+                .build());
+
+        try {
+            final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
+            final CorpusGenerator _generator = new CorpusGenerator(
+                    getIntOptionValue(_cmdLine, HIERARCHY_DEPTH_OPTION, HIERARCHY_DEPTH),
+                    getIntOptionValue(_cmdLine, NUM_OF_CONSTRUCTORS_OPTION, NUM_OF_CONSTRUCTORS),
+                    getIntOptionValue(_cmdLine, NUM_OF_METHODS_OPTION, NUM_OF_METHODS),
+                    getIntOptionValue(_cmdLine, METHOD_SIZE_OPTION, METHOD_SIZE));
+            _generator.generate(Paths.get(_cmdLine.getOptionValue(OUT_FOLDER_OPTION)),
+                    getIntOptionValue(_cmdLine, NUM_OF_CLASSES_OPTION, NUM_OF_CLASSES));
+        } catch (final ParseException _ex) {
+            new HelpFormatter().printHelp(CorpusGenerator.class.getName(), _options);
+        }
+    }
+
+    private static int getIntOptionValue(final CommandLine cmdLine, final String option, final int defaultValue) {
+        return Integer.parseInt(cmdLine.getOptionValue(option, String.valueOf(defaultValue)));
+    }
+
+    private static String getClassName(final int index) {
+        return "corpus/p" + index / CLASSES_PER_PACKAGE + "/C" + index;
+    }
+
+    private static String getConstructorDesc(final int numOfParams) {
+        return "(" + "I".repeat(numOfParams) + ")V";
+    }
+
+    /**
+     * @return the number of generated classes.
+     */
+    int generate(final Path outFolder, final int numOfClasses) throws IOException {
+        for (int _i = 0; _i < numOfClasses; _i++) {
+            final String _name = getClassName(_i);
+            final Path _file = outFolder.resolve(_name + ".class");
+            Files.createDirectories(_file.getParent());
+            Files.write(_file, generateClass(_i));
+        }
+        return numOfClasses;
+    }
+
+    byte[] generateClass(final int index) {
+        final String _name = getClassName(index);
+        final String _superName = index % hierarchyDepth == 0 ? OBJECT : getClassName(index - 1);
+
+        // INFO: Locals and operands of reference types are never merged; hence, common super classes are not needed
+        final ClassWriter _cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(final String type1, final String type2) {
+                return OBJECT;
+            }
+        };
+        _cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, _name, null, _superName, null);
+        for (int _i = 0; _i < NUM_OF_FIELDS; _i++)
+            _cw.visitField(Opcodes.ACC_PROTECTED, "f" + _i, "I", null, null).visitEnd();
+        _cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "instances", "I", null, null).visitEnd();
+
+        for (int _i = 0; _i < numOfConstructors; _i++)
+            generateConstructor(_cw, _name, _superName, _i);
+        for (int _i = 0; _i < numOfMethods; _i++)
+            generateMethod(_cw, _name, _superName, _i);
+        generateHelper(_cw);
+        generateLambda(_cw, _name);
+        _cw.visitEnd();
+        return _cw.toByteArray();
+    }
+
+    /*
+     * INFO
+     *
+     * Constructor i takes i int parameters.  Constructor 0 invokes the constructor of the super class while other
+     * constructors delegate to the previous constructor with an argument computed from the parameters.
+     */
+    private void generateConstructor(final ClassWriter cw, final String name, final String superName,
+                                     final int numOfParams) {
+        final MethodVisitor _mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", getConstructorDesc(numOfParams),
+                null, null);
+        _mv.visitCode();
+        _mv.visitVarInsn(Opcodes.ALOAD, 0);
+        if (numOfParams == 0)
+            _mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        else {
+            for (int _i = 1; _i < numOfParams; _i++)
+                _mv.visitVarInsn(Opcodes.ILOAD, _i);
+            if (numOfParams > 1) {
+                _mv.visitVarInsn(Opcodes.ILOAD, numOfParams);
+                _mv.visitInsn(Opcodes.IADD);
+            }
+            _mv.visitMethodInsn(Opcodes.INVOKESPECIAL, name, "<init>", getConstructorDesc(numOfParams - 1),
+                    false);
+            _mv.visitVarInsn(Opcodes.ALOAD, 0);
+            _mv.visitVarInsn(Opcodes.ILOAD, numOfParams);
+            _mv.visitFieldInsn(Opcodes.PUTFIELD, name, "f" + numOfParams % NUM_OF_FIELDS, "I");
+        }
+        _mv.visitFieldInsn(Opcodes.GETSTATIC, name, "instances", "I");
+        _mv.visitInsn(Opcodes.ICONST_1);
+        _mv.visitInsn(Opcodes.IADD);
+        _mv.visitFieldInsn(Opcodes.PUTSTATIC, name, "instances", "I");
+        _mv.visitInsn(Opcodes.RETURN);
+        _mv.visitMaxs(0, 0);
+        _mv.visitEnd();
+    }
+
+    /*
+     * INFO
+     *
+     * Locals: 0 = this, 1 = int x, 2 = int[] array, 3 = int i (loop counter)
+     */
+    private void generateMethod(final ClassWriter cw, final String name, final String superName,
+                                final int index) {
+        final String _methodName = "m" + index;
+        final MethodVisitor _mv = cw.visitMethod(Opcodes.ACC_PUBLIC, _methodName, "(I)I", null, null);
+        _mv.visitCode();
+        if (!superName.equals(OBJECT)) {
+            _mv.visitVarInsn(Opcodes.ALOAD, 0);
+            _mv.visitVarInsn(Opcodes.ILOAD, 1);
+            _mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, _methodName, "(I)I", false);
+            _mv.visitVarInsn(Opcodes.ISTORE, 1);
+        }
+        // INFO: The previous method is called non-virtually and once to keep the execution time polynomial
+        if (index > 0) {
+            _mv.visitVarInsn(Opcodes.ALOAD, 0);
+            _mv.visitVarInsn(Opcodes.ILOAD, 1);
+            _mv.visitMethodInsn(Opcodes.INVOKESPECIAL, name, "m" + (index - 1), "(I)I", false);
+            _mv.visitVarInsn(Opcodes.ISTORE, 1);
+        }
+        _mv.visitIntInsn(Opcodes.BIPUSH, 16);
+        _mv.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_INT);
+        _mv.visitVarInsn(Opcodes.ASTORE, 2);
+        _mv.visitInsn(Opcodes.ICONST_0);
+        _mv.visitVarInsn(Opcodes.ISTORE, 3);
+        final Label _loopHead = new Label();
+        _mv.visitLabel(_loopHead);
+        for (int _i = 0; _i < methodSize; _i++)
+            generateStatement(_mv, name, _i);
+        _mv.visitIincInsn(3, 1);
+        _mv.visitVarInsn(Opcodes.ILOAD, 3);
+        _mv.visitIntInsn(Opcodes.BIPUSH, 16);
+        _mv.visitJumpInsn(Opcodes.IF_ICMPLT, _loopHead);
+        _mv.visitVarInsn(Opcodes.ILOAD, 1);
+        _mv.visitInsn(Opcodes.IRETURN);
+        _mv.visitMaxs(0, 0);
+        _mv.visitEnd();
+    }
+
+    private static void generateStatement(final MethodVisitor mv, final String name, final int index) {
+        final String _field = "f" + index % NUM_OF_FIELDS;
+        switch (index % 7) {
+            case 0 -> {
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitFieldInsn(Opcodes.GETFIELD, name, _field, "I");
+                mv.visitInsn(Opcodes.IADD);
+                mv.visitVarInsn(Opcodes.ISTORE, 1);
+            }
+            case 1 -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitFieldInsn(Opcodes.PUTFIELD, name, _field, "I");
+            }
+            case 2 -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitVarInsn(Opcodes.ILOAD, 3);
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitInsn(Opcodes.IASTORE);
+            }
+            case 3 -> {
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitVarInsn(Opcodes.ILOAD, 3);
+                mv.visitInsn(Opcodes.IALOAD);
+                mv.visitInsn(Opcodes.IADD);
+                mv.visitVarInsn(Opcodes.ISTORE, 1);
+            }
+            case 4 -> {
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, name, "helper", "(I)I", false);
+                mv.visitVarInsn(Opcodes.ISTORE, 1);
+            }
+            case 5 -> {
+                mv.visitTypeInsn(Opcodes.NEW, name);
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, name, "<init>", getConstructorDesc(0), false);
+                mv.visitInsn(Opcodes.POP);
+            }
+            default -> {
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitInvokeDynamicInsn("makeConcatWithConstants", "(I)Ljava/lang/String;",
+                        STRING_CONCAT_FACTORY, "v=\u0001");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+                mv.visitVarInsn(Opcodes.ISTORE, 1);
+            }
+        }
+    }
+
+    private static void generateHelper(final ClassWriter cw) {
+        final MethodVisitor _mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "helper", "(I)I", null,
+                null);
+        _mv.visitCode();
+        _mv.visitVarInsn(Opcodes.ILOAD, 0);
+        _mv.visitInsn(Opcodes.ICONST_1);
+        _mv.visitInsn(Opcodes.IADD);
+        _mv.visitInsn(Opcodes.IRETURN);
+        _mv.visitMaxs(0, 0);
+        _mv.visitEnd();
+    }
+
+    private static void generateLambda(final ClassWriter cw, final String name) {
+        final String _lambdaName = "lambda$operator$0";
+        final MethodVisitor _mv1 = cw.visitMethod(Opcodes.ACC_PUBLIC, "operator",
+                "()Ljava/util/function/IntUnaryOperator;", null, null);
+        _mv1.visitCode();
+        final Type _desc = Type.getMethodType("(I)I");
+        _mv1.visitInvokeDynamicInsn("applyAsInt", "()Ljava/util/function/IntUnaryOperator;", LAMBDA_METAFACTORY,
+                _desc, new Handle(Opcodes.H_INVOKESTATIC, name, _lambdaName, "(I)I", false), _desc);
+        _mv1.visitInsn(Opcodes.ARETURN);
+        _mv1.visitMaxs(0, 0);
+        _mv1.visitEnd();
+
+        final MethodVisitor _mv2 = cw.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                _lambdaName, "(I)I", null, null);
+        _mv2.visitCode();
+        _mv2.visitVarInsn(Opcodes.ILOAD, 0);
+        _mv2.visitInsn(Opcodes.ICONST_2);
+        _mv2.visitInsn(Opcodes.IMUL);
+        _mv2.visitInsn(Opcodes.IRETURN);
+        _mv2.visitMaxs(0, 0);
+        _mv2.visitEnd();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Measures the cost of executing workloads instrumented in various configurations.  Compare each configuration
+ * against <code>baseline</code> configuration to get the cost of instrumentation, and compare <code>file</code>
+ * trace sink against <code>null</code> trace sink to get the cost of writing traces.
+ * <p>
+ * As each fork uses a single combination of parameters, the logger of a fork is used by a single configuration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationOverheadBenchmark {
+    @Param({"ArrayAccessWorkload", "FieldAccessWorkload", "MethodCallWorkload"})
+    public String workload;
+
+    @Param
+    public Configuration configuration;
+
+    @Param({"null", "file"})
+    public String traceSink;
+
+    @Param({"64"})
+    public int size;
+
+    private Workloads workloads;
+    private IntUnaryOperator operator;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ReflectiveOperationException {
+        workloads = new Workloads(configuration, List.of(workload), traceSink);
+        operator = workloads.create(workload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workloads.close();
+    }
+
+    @Benchmark
+    public int execute() {
+        return operator.applyAsInt(size);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks;
+
+import dyco4j.logging.LoggerInitializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Loads the workloads (classes implementing <code>IntUnaryOperator</code> in <code>dyco4j.benchmarks.workloads</code>
+ * package) instrumented in a configuration.
+ * <p>
+ * Workloads and the logging library are loaded via a new class loader (with the platform class loader as its
+ * parent); hence, each instance of this class uses its own logger.
+ */
+final class Workloads implements AutoCloseable {
+    static final String WORKLOADS_PACKAGE = "dyco4j.benchmarks.workloads";
+    private final Path workFolder;
+    private final URLClassLoader classLoader;
+
+    /**
+     * @param workloads to be loaded.
+     * @param traceSink to be used by the logging library, i.e., <code>file</code> or <code>null</code>.
+     */
+    Workloads(final Configuration configuration, final List<String> workloads, final String traceSink)
+            throws IOException {
+        this.workFolder = Files.createTempDirectory("dyco4j-benchmarks");
+        final Path _inFolder = workFolder.resolve("in");
+        for (final String _workload : workloads)
+            copyClassFile(WORKLOADS_PACKAGE + "." + _workload, _inFolder);
+
+        final Path _classFolder = configuration.instrument(_inFolder, workFolder);
+        final Properties _properties = new Properties();
+        _properties.setProperty("traceFolder", workFolder.resolve("traces").toString());
+        _properties.setProperty("traceSink", traceSink);
+        final Path _propertiesFile = _classFolder.resolve("dyco4j/logging/logging.properties");
+        Files.createDirectories(_propertiesFile.getParent());
+        try (final OutputStream _out = Files.newOutputStream(_propertiesFile)) {
+            _properties.store(_out, null);
+        }
+
+        final URL _loggingJar = LoggerInitializer.class.getProtectionDomain().getCodeSource().getLocation();
+        this.classLoader = new URLClassLoader(new URL[]{_classFolder.toUri().toURL(), _loggingJar},
+                ClassLoader.getPlatformClassLoader());
+    }
+
+    private static void copyClassFile(final String className, final Path folder) throws IOException {
+        final String _resource = className.replace('.', '/') + ".class";
+        final Path _file = folder.resolve(_resource);
+        Files.createDirectories(_file.getParent());
+        try (final InputStream _in = Workloads.class.getClassLoader().getResourceAsStream(_resource)) {
+            if (_in == null)
+                throw new IOException("Could not find " + _resource);
+            Files.copy(_in, _file);
+        }
+    }
+
+    IntUnaryOperator create(final String workload) throws ReflectiveOperationException {
+        return (IntUnaryOperator) classLoader.loadClass(WORKLOADS_PACKAGE + "." + workload).getConstructor()
+                .newInstance();
+    }
+
+    /**
+     * Terminates the logger (if it was initialized) and deletes the work folder including the traces.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            classLoader.loadClass(LoggerInitializer.class.getName()).getMethod("terminate").invoke(null);
+        } catch (final ReflectiveOperationException _ex) {
+            throw new IOException(_ex);
+        } finally {
+            classLoader.close();
+        }
+
+        try (final Stream<Path> _paths = Files.walk(workFolder)) {
+            for (final Path _path : _paths.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(_path);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks.workloads;
+
+import java.util.function.IntUnaryOperator;
+
+public final class ArrayAccessWorkload implements IntUnaryOperator {
+    @Override
+    public int applyAsInt(final int size) {
+        final int[] _tmp = new int[size];
+        for (int _i = 0; _i < size; _i++)
+            _tmp[_i] = _i * 31;
+
+        // INFO: Insertion sort in reverse order to touch the array repeatedly
+        for (int _i = 1; _i < size; _i++) {
+            final int _key = _tmp[_i];
+            int _j = _i - 1;
+            while (_j >= 0 && _tmp[_j] < _key) {
+                _tmp[_j + 1] = _tmp[_j];
+                _j--;
+            }
+            _tmp[_j + 1] = _key;
+        }
+        return _tmp[0] + _tmp[size - 1];
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks.workloads;
+
+import java.util.function.IntUnaryOperator;
+
+public final class FieldAccessWorkload implements IntUnaryOperator {
+    private static int instances;
+    private int count;
+    private long total;
+    private Object last;
+
+    @Override
+    public int applyAsInt(final int size) {
+        instances++;
+        for (int _i = 0; _i < size; _i++) {
+            count++;
+            total += count;
+            last = this.last == null ? this : null;
+        }
+        return count + (int) total + (last == null ? 0 : instances);
+    }
+}
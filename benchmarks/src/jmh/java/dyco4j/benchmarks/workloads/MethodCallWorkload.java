@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.benchmarks.workloads;
+
+import java.util.function.IntUnaryOperator;
+
+public final class MethodCallWorkload implements IntUnaryOperator {
+    private static int add(final int x, final int y) {
+        return x + y;
+    }
+
+    private static String describe(final int x) {
+        return x % 2 == 0 ? "even" : "odd";
+    }
+
+    @Override
+    public int applyAsInt(final int size) {
+        int _tmp = 0;
+        for (int _i = 0; _i < size; _i++)
+            _tmp = add(_tmp, describe(_i).length()) + fibonacci(_i % 8);
+        return _tmp;
+    }
+
+    private int fibonacci(final int n) {
+        return n < 2 ? n : fibonacci(n - 1) + fibonacci(n - 2);
+    }
+}
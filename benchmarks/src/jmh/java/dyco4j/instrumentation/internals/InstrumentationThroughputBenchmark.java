@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.benchmarks.CorpusGenerator;
+import dyco4j.instrumentation.Filter;
+import dyco4j.instrumentation.Helper;
+import dyco4j.utility.ProgramData;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput (classes per second) and the peak heap usage of the entry and internals tools on a corpus
+ * of classes (generated by <code>CorpusGenerator</code> unless provided).  For the internals tool, it also reports the
+ * split of time (in a sequential execution) across collecting program data (<code>getMemberId2NameMapping</code>),
+ * transforming classes, and reading and writing class files.
+ * <p>
+ * When a baseline file is provided, the execution fails if the throughput of a tool is lower than its baseline
+ * throughput by more than the given tolerance.
+ * <p>
+ * As this class is in <code>dyco4j.instrumentation.internals</code> package, it uses the phases of the internals
+ * tool directly to measure them.
+ */
+public final class InstrumentationThroughputBenchmark {
+    private static final String CORPUS_FOLDER_OPTION = "corpus-folder";
+    private static final String BASELINE_OPTION = "baseline";
+    private static final String TOLERANCE_OPTION = "tolerance";
+    private static final String UPDATE_BASELINE_OPTION = "update-baseline";
+    private static final String NUM_OF_CLASSES = "1000";
+    private static final String TOLERANCE = "0.2";
+    private static final List<String> INTERNALS_OPTIONS = List.of("--trace-method-arguments",
+            "--trace-method-return-value", "--trace-method-call", "--trace-field-access=with_values",
+            "--trace-array-access=with_values");
+
+    private InstrumentationThroughputBenchmark() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Options _options = new Options();
+        _options.addOption(Option.builder().longOpt(CORPUS_FOLDER_OPTION).hasArg(true)
+                .desc("Folder containing the classes to be instrumented.  If absent, a corpus is generated.")
+                .build());
+        _options.addOption(Option.builder().longOpt(CorpusGenerator.NUM_OF_CLASSES_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Number of classes to generate.  Default: {0}.", NUM_OF_CLASSES))
+                .build());
+        _options.addOption(Option.builder().longOpt(BASELINE_OPTION).hasArg(true)
+                .desc("Properties file with the baseline throughput (classes/second) of the tools.").build());
+        _options.addOption(Option.builder().longOpt(TOLERANCE_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Tolerated fraction of regression in throughput.  Default: {0}.",
+                        TOLERANCE)).build());
+        _options.addOption(Option.builder().longOpt(UPDATE_BASELINE_OPTION).hasArg(false)
+                .desc("Write the measured throughput into the baseline file.").build());
+
+        try {
+            final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
+            if (!run(_cmdLine))
+                System.exit(1);
+        } catch (final ParseException _ex) {
+            new HelpFormatter().printHelp(InstrumentationThroughputBenchmark.class.getName(), _options);
+        }
+    }
+
+    /**
+     * @return false if throughput regressed.
+     */
+    private static boolean run(final CommandLine cmdLine) throws IOException, ParseException {
+        final Path _workFolder = Files.createTempDirectory("dyco4j-benchmarks");
+        try {
+            final Path _corpusFolder;
+            if (cmdLine.hasOption(CORPUS_FOLDER_OPTION))
+                _corpusFolder = Paths.get(cmdLine.getOptionValue(CORPUS_FOLDER_OPTION));
+            else {
+                _corpusFolder = _workFolder.resolve("corpus");
+                CorpusGenerator.main(new String[]{"--" + CorpusGenerator.OUT_FOLDER_OPTION,
+                        _corpusFolder.toString(), "--" + CorpusGenerator.NUM_OF_CLASSES_OPTION,
+                        cmdLine.getOptionValue(CorpusGenerator.NUM_OF_CLASSES_OPTION, NUM_OF_CLASSES)});
+            }
+            final List<Path> _classFiles = getClassFiles(_corpusFolder);
+            System.out.println(MessageFormat.format("Corpus: {0} classes in {1}", _classFiles.size(),
+                    _corpusFolder));
+
+            final Properties _throughputs = new Properties();
+            final List<String> _entryArgs = List.of("--method-name-regex", "^m0$");
+            _throughputs.setProperty("entry", measureTool("entry", _classFiles.size(),
+                    () -> dyco4j.instrumentation.entry.CLI.main(createArgs(_corpusFolder, _workFolder, "entry",
+                            _entryArgs))));
+            _throughputs.setProperty("internals", measureTool("internals", _classFiles.size(),
+                    () -> CLI.main(createArgs(_corpusFolder, _workFolder, "internals", INTERNALS_OPTIONS))));
+            measurePhases(_corpusFolder, _classFiles, _workFolder);
+
+            return checkAgainstBaseline(cmdLine, _throughputs);
+        } finally {
+            try (final Stream<Path> _paths = Files.walk(_workFolder)) {
+                for (final Path _path : _paths.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(_path);
+            }
+        }
+    }
+
+    private static String[] createArgs(final Path corpusFolder, final Path workFolder, final String tool,
+                                       final List<String> options) {
+        final List<String> _args = new ArrayList<>(List.of("--in-folder", corpusFolder.toString(),
+                "--out-folder", workFolder.resolve(tool).toString()));
+        if (tool.equals("internals"))
+            _args.addAll(List.of("--program-data", workFolder.resolve(CLI.PROGRAM_DATA_FILE_NAME).toString()));
+        _args.addAll(options);
+        return _args.toArray(String[]::new);
+    }
+
+    private static List<Path> getClassFiles(final Path folder) throws IOException {
+        try (final Stream<Path> _paths = Files.walk(folder)) {
+            return _paths.filter(Helper::isClassFile).toList();
+        }
+    }
+
+    private static String measureTool(final String tool, final int numOfClasses, final Task task)
+            throws IOException {
+        final List<MemoryPoolMXBean> _heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP).toList();
+        System.gc();
+        _heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        final long _start = System.nanoTime();
+        task.run();
+        final double _seconds = (System.nanoTime() - _start) / 1e9;
+
+        // INFO: Sum of peaks of heap memory pools is an upper bound of the peak heap usage
+        final long _peakHeap = _heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+        final double _throughput = numOfClasses / _seconds;
+        System.out.println(MessageFormat.format("{0}: {1,number,#.##} seconds, {2,number,#} classes/second, " +
+                "{3,number,#} MB peak heap", tool, _seconds, _throughput, _peakHeap / (1024 * 1024)));
+        return String.valueOf(_throughput);
+    }
+
+    /*
+     * INFO
+     *
+     * Phases are measured in a sequential execution as the internals tool instruments classes in parallel.  Like
+     * the internals tool, program data is collected from all classes before any class is transformed.
+     */
+    private static void measurePhases(final Path corpusFolder, final List<Path> classFiles, final Path workFolder)
+            throws IOException, ParseException {
+        final Options _options = new Options();
+        CLI.addInstrumentationOptions(_options);
+        final CommandLine _cmdLine = new DefaultParser().parse(_options, INTERNALS_OPTIONS.toArray(String[]::new));
+        final CLI.CommandLineOptions _cmdLineOptions = CLI.getCommandLineOptionsFrom(_cmdLine);
+        final Filter _filter = CLI.getFilterFrom(_cmdLine);
+        final ProgramData _programData = ProgramData.loadData(workFolder.resolve("phases-program-data.json"));
+        final Path _outFolder = workFolder.resolve("phases");
+
+        long _ioTime = 0;
+        long _mappingTime = 0;
+        for (final Path _file : classFiles) {
+            final long _start = System.nanoTime();
+            final byte[] _bytecode = Files.readAllBytes(_file);
+            final long _read = System.nanoTime();
+            CLI.getMemberId2NameMapping(_bytecode, _programData, _cmdLineOptions);
+            _mappingTime += System.nanoTime() - _read;
+            _ioTime += _read - _start;
+        }
+
+        long _transformTime = 0;
+        try (final URLClassLoader _classFileLocator = new URLClassLoader(new URL[]{corpusFolder.toUri().toURL()},
+                ClassLoader.getPlatformClassLoader())) {
+            final ClassHierarchy _classHierarchy = new ClassHierarchy(_classFileLocator);
+            final MemberIdResolver _memberIdResolver = new MemberIdResolver(_programData);
+            for (final Path _file : classFiles) {
+                final long _start = System.nanoTime();
+                final byte[] _bytecode = Files.readAllBytes(_file);
+                final long _read = System.nanoTime();
+                final byte[] _result = CLI.instrumentClass(new ClassReader(_bytecode), _programData,
+                        _memberIdResolver, _filter, _cmdLineOptions, _classHierarchy);
+                final long _transformed = System.nanoTime();
+                final Path _target = _outFolder.resolve(corpusFolder.relativize(_file).toString());
+                Files.createDirectories(_target.getParent());
+                Files.write(_target, _result);
+                _ioTime += _read - _start + System.nanoTime() - _transformed;
+                _transformTime += _transformed - _read;
+            }
+        }
+
+        final double _total = _ioTime + _mappingTime + _transformTime;
+        System.out.println(MessageFormat.format("internals (sequential): getMemberId2NameMapping {0,number,#.##}s " +
+                        "({1,number,percent}), transform {2,number,#.##}s ({3,number,percent}), I/O " +
+                        "{4,number,#.##}s ({5,number,percent})", _mappingTime / 1e9, _mappingTime / _total,
+                _transformTime / 1e9, _transformTime / _total, _ioTime / 1e9, _ioTime / _total));
+    }
+
+    private static boolean checkAgainstBaseline(final CommandLine cmdLine, final Properties throughputs)
+            throws IOException {
+        if (!cmdLine.hasOption(BASELINE_OPTION))
+            return true;
+
+        final Path _baselineFile = Paths.get(cmdLine.getOptionValue(BASELINE_OPTION));
+        if (cmdLine.hasOption(UPDATE_BASELINE_OPTION)) {
+            try (final OutputStream _out = Files.newOutputStream(_baselineFile)) {
+                throughputs.store(_out, "Throughput (classes/second) of the instrumentation tools");
+            }
+            return true;
+        }
+
+        final Properties _baseline = new Properties();
+        try (final InputStream _in = Files.newInputStream(_baselineFile)) {
+            _baseline.load(_in);
+        }
+        final double _tolerance = Double.parseDouble(cmdLine.getOptionValue(TOLERANCE_OPTION, TOLERANCE));
+        boolean _result = true;
+        for (final String _tool : throughputs.stringPropertyNames()) {
+            final String _expected = _baseline.getProperty(_tool);
+            final double _actual = Double.parseDouble(throughputs.getProperty(_tool));
+            if (_expected != null && _actual < Double.parseDouble(_expected) * (1 - _tolerance)) {
+                System.out.println(MessageFormat.format("Throughput of {0} regressed: {1,number,#} classes/second" +
+                        " (baseline: {2,number,#})", _tool, _actual, Double.parseDouble(_expected)));
+                _result = false;
+            }
+        }
+        return _result;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Measures the throughput and latency of logging an event via <code>Logger</code> when events are logged by one or
+ * more threads.  Each operation logs one event; hence, <code>gc.alloc.rate.norm</code> reported by the gc profiler is
+ * the number of bytes allocated per event.
+ * <p>
+ * Events are drawn from an event stream that is either <code>synthetic</code> (a mix of events logged by code
+ * instrumented by the internals tool with all options) or recorded in a trace file (path given as the value of
+ * <code>eventStream</code> parameter).  Recorded events are replayed via <code>Logger.log(String)</code> after
+ * removing the thread ids.
+ * <p>
+ * As this class is in <code>dyco4j.logging</code> package, it configures the logger directly instead of via
+ * <code>logging.properties</code> file.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+    private static final int MAX_REPLAYED_EVENTS = 1_000_000;
+
+    @Benchmark
+    @Threads(1)
+    public void oneThread(final EventStream eventStream, final Cursor cursor) {
+        eventStream.logNext(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreads(final EventStream eventStream, final Cursor cursor) {
+        eventStream.logNext(cursor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void maxThreads(final EventStream eventStream, final Cursor cursor) {
+        eventStream.logNext(cursor);
+    }
+
+    @State(Scope.Benchmark)
+    public static class EventStream {
+        @Param({"synthetic"})
+        public String eventStream;
+
+        @Param({"null", "file"})
+        public String traceSink;
+
+        @Param({"8192", "10000000"})
+        public int bufferLength;
+
+        private final Object receiver = new Object();
+        private final int[] array = new int[8];
+        private Path traceFolder;
+        private String[] recordedEvents;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            if (!eventStream.equals("synthetic"))
+                recordedEvents = readEvents(Paths.get(eventStream));
+
+            traceFolder = Files.createTempDirectory("dyco4j-benchmarks");
+            final Properties _properties = new Properties();
+            _properties.setProperty("traceFolder", traceFolder.toString());
+            _properties.setProperty("traceSink", traceSink);
+            _properties.setProperty("bufferLength", String.valueOf(bufferLength));
+            LoggerInitializer.initialize(_properties);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            LoggerInitializer.terminate();
+            try (final Stream<Path> _paths = Files.walk(traceFolder)) {
+                for (final Path _path : _paths.sorted(Comparator.reverseOrder()).toList())
+                    Files.delete(_path);
+            }
+        }
+
+        private static String[] readEvents(final Path traceFile) throws IOException {
+            final List<String> _events = new ArrayList<>();
+            try (final BufferedReader _reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(traceFile))))) {
+                // INFO: The first line of a trace file is the time when the trace file was created
+                _reader.readLine();
+                String _line;
+                while ((_line = _reader.readLine()) != null && _events.size() < MAX_REPLAYED_EVENTS)
+                    _events.add(_line.substring(_line.indexOf(',') + 1));
+            }
+            if (_events.isEmpty())
+                throw new IllegalStateException("No events in " + traceFile);
+            return _events.toArray(String[]::new);
+        }
+
+        void logNext(final Cursor cursor) {
+            final int _next = cursor.next++;
+            if (recordedEvents != null)
+                Logger.log(recordedEvents[Math.floorMod(_next, recordedEvents.length)]);
+            else
+                logSyntheticEvent(_next);
+        }
+
+        // INFO: Events of a method invocation that reads a field and an array element and calls another method
+        private void logSyntheticEvent(final int next) {
+            final int _value = next & 0xFF;
+            switch (Math.floorMod(next, 9)) {
+                case 0 -> Logger.logMethodEntry("m12");
+                case 1 -> Logger.logArgument((byte) 0, Logger.toString(receiver));
+                case 2 -> Logger.logArgument((byte) 1, Logger.toString(_value));
+                case 3 -> Logger.logField(receiver, Logger.toString(_value), "f3",
+                        Logger.FieldAction.GETF.toString());
+                case 4 -> Logger.logArray(array, _value & 7, Logger.toString(_value),
+                        Logger.ArrayAction.GETA.toString());
+                case 5 -> Logger.logMethodCall("m5");
+                case 6 -> Logger.logField(receiver, Logger.toString(_value + 1), "f3",
+                        Logger.FieldAction.PUTF.toString());
+                case 7 -> Logger.logReturn(Logger.toString(_value + 1L));
+                default -> Logger.logMethodExit("m12", "N");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = (int) Thread.currentThread().threadId() * 7919;
+    }
+}
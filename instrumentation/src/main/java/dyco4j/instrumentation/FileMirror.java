@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Mirrors the selected files under a source root into a target root.  A target file that has the same size and
+ * modification time (or the same content) as its source file is left untouched.  Otherwise, if linking is enabled,
+ * the target file is created as a hard link to the source file when both are on the same (default) file system.  If
+ * linking is disabled or not possible, then the source file is copied via <code>FileChannel.transferTo</code> and
+ * the modification time of the source file is set on the copy.  Target files (selected or not, e.g., instrumented
+ * class files) without source files are deleted.
+ * <p>
+ * A linked target file and its source file are the same file.  So, modifying either of them in place modifies the
+ * other.
+ */
+final class FileMirror {
+    static final int MIRROR_CONCURRENCY = 16;
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMirror.class);
+    private final Path srcRoot;
+    private final Path trgRoot;
+    private final Predicate<Path> relativePathSelector;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final LongAdder linked = new LongAdder();
+    private final LongAdder copied = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private volatile boolean linkable;
+
+    /**
+     * @param relativePathSelector selects the files (identified by their path relative to the root) to be mirrored.
+     * @param linkFiles            enables hard linking target files to source files.
+     */
+    FileMirror(final Path srcRoot, final Path trgRoot, final Predicate<Path> relativePathSelector,
+               final boolean linkFiles) {
+        this.srcRoot = srcRoot;
+        this.trgRoot = trgRoot;
+        this.relativePathSelector = relativePathSelector;
+        this.linkable = linkFiles && srcRoot.getFileSystem() == FileSystems.getDefault() &&
+                trgRoot.getFileSystem() == FileSystems.getDefault();
+    }
+
+    void mirror() throws IOException {
+        if (Files.exists(trgRoot)) {
+            try (final Stream<Path> _trgPaths = Files.walk(trgRoot)) {
+                forEach(_trgPaths.filter(Files::isRegularFile), this::deleteIfOrphan);
+            }
+        }
+        try (final Stream<Path> _srcPaths = Files.walk(srcRoot)) {
+            forEach(_srcPaths.filter(p -> isSelected(srcRoot, p)), this::mirror);
+        }
+
+        LOGGER.info(MessageFormat.format("Mirrored files: {0} linked, {1} copied, {2} unchanged, {3} deleted",
+                linked.sum(), copied.sum(), unchanged.sum(), deleted.sum()));
+    }
+
+    private boolean isSelected(final Path root, final Path path) {
+        return Files.isRegularFile(path) && relativePathSelector.test(root.relativize(path));
+    }
+
+    private void forEach(final Stream<Path> paths, final Action action) throws IOException {
+        final Semaphore _permits = new Semaphore(MIRROR_CONCURRENCY);
+        try (final ExecutorService _executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Iterator<Path> _iter = paths.iterator();
+            while (failure.get() == null && _iter.hasNext()) {
+                final Path _path = _iter.next();
+                _permits.acquire();
+                _executor.execute(() -> {
+                    try {
+                        action.apply(_path);
+                    } catch (final Throwable _ex) {
+                        failure.compareAndSet(null, _ex);
+                    } finally {
+                        _permits.release();
+                    }
+                });
+            }
+        } catch (final InterruptedException _ex) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException().initCause(_ex);
+        }
+
+        final Throwable _failure = failure.get();
+        if (_failure instanceof IOException _ex)
+            throw _ex;
+        else if (_failure instanceof RuntimeException _ex)
+            throw _ex;
+        else if (_failure instanceof Error _ex)
+            throw _ex;
+    }
+
+    private void deleteIfOrphan(final Path trgPath) throws IOException {
+        if (!Files.exists(Helper.resolve(srcRoot, trgRoot.relativize(trgPath)))) {
+            Files.delete(trgPath);
+            deleted.increment();
+        }
+    }
+
+    private void mirror(final Path srcPath) throws IOException {
+        final Path _trgPath = Helper.resolve(trgRoot, srcRoot.relativize(srcPath));
+        final BasicFileAttributes _srcAttrs = Files.readAttributes(srcPath, BasicFileAttributes.class);
+        if (Files.exists(_trgPath)) {
+            if (isUnchanged(srcPath, _srcAttrs, _trgPath)) {
+                unchanged.increment();
+                return;
+            }
+            Files.delete(_trgPath);
+        } else {
+            final Path _parent = _trgPath.getParent();
+            if (_parent != null && !Files.exists(_parent))
+                Files.createDirectories(_parent);
+        }
+
+        if (linkable) {
+            try {
+                Files.createLink(_trgPath, srcPath);
+                linked.increment();
+                return;
+            } catch (final UnsupportedOperationException | IOException _ex) {
+                // INFO: Links are not attempted again as the roots are on file stores that do not support them
+                linkable = false;
+            }
+        }
+
+        try (final FileChannel _in = FileChannel.open(srcPath, StandardOpenOption.READ);
+             final FileChannel _out = FileChannel.open(_trgPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final long _size = _in.size();
+            long _pos = 0;
+            while (_pos < _size)
+                _pos += _in.transferTo(_pos, _size - _pos, _out);
+        }
+        Files.setLastModifiedTime(_trgPath, _srcAttrs.lastModifiedTime());
+        copied.increment();
+    }
+
+    /*
+     * INFO
+     *
+     * Contents are compared only if the sizes match but the modification times do not.  If the contents match, then
+     * the modification time of the source file is set on the target file so that the contents are not compared in
+     * subsequent runs.
+     */
+    private boolean isUnchanged(final Path srcPath, final BasicFileAttributes srcAttrs, final Path trgPath)
+            throws IOException {
+        final BasicFileAttributes _trgAttrs = Files.readAttributes(trgPath, BasicFileAttributes.class);
+        if (_trgAttrs.size() != srcAttrs.size())
+            return false;
+        if (_trgAttrs.lastModifiedTime().equals(srcAttrs.lastModifiedTime()))
+            return true;
+        if (Files.mismatch(srcPath, trgPath) != -1)
+            return false;
+
+        Files.setLastModifiedTime(trgPath, srcAttrs.lastModifiedTime());
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void apply(Path path) throws IOException;
+    }
+}
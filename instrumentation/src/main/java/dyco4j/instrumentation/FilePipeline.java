@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Processes files in three stages: read, transform, and write.  The stages are connected by bounded queues and each
+ * stage is executed by its own set of threads.  Since the read and write stages are I/O-bound, they are executed by
+ * virtual threads.  Since the transform stage is CPU-bound, it is executed by a platform thread per core.  The bounded
+ * queues limit the number of files held in memory.
+ */
+final class FilePipeline {
+    static final int READ_STAGE_SIZE = 16;
+    static final int TRANSFORM_STAGE_SIZE = Runtime.getRuntime().availableProcessors();
+    static final int WRITE_STAGE_SIZE = 16;
+    static final int QUEUE_CAPACITY = 4 * TRANSFORM_STAGE_SIZE;
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilePipeline.class);
+    private static final FileData END = new FileData(null, null, null);
+    private final UnaryOperator<byte[]> transformer;
+    private final BlockingQueue<FileData> pathQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<FileData> readQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<FileData> writeQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final AtomicLong filesWritten = new AtomicLong();
+
+    FilePipeline(final UnaryOperator<byte[]> transformer) {
+        this.transformer = transformer;
+    }
+
+    /**
+     * Processes the given source files and writes the results into the corresponding target files.
+     *
+     * @param srcAndTrgPaths pairs of source files to be processed and their target files.
+     * @throws IOException if a file cannot be read or written.  If the transformation fails, then the failure is
+     *                     rethrown.
+     */
+    void process(final Stream<Helper.PathPair> srcAndTrgPaths) throws IOException {
+        final long _start = System.nanoTime();
+        startStage(Thread.ofVirtual().name("dyco4j-reader-", 0), READ_STAGE_SIZE, pathQueue, readQueue,
+                this::read);
+        startStage(Thread.ofPlatform().daemon().name("dyco4j-transformer-", 0), TRANSFORM_STAGE_SIZE, readQueue,
+                writeQueue, this::transform);
+        startStage(Thread.ofVirtual().name("dyco4j-writer-", 0), WRITE_STAGE_SIZE, writeQueue, null, this::write);
+
+        try {
+            final Iterator<Helper.PathPair> _iter = srcAndTrgPaths.iterator();
+            while (failure.get() == null && _iter.hasNext()) {
+                final Helper.PathPair _paths = _iter.next();
+                pathQueue.put(new FileData(_paths.src(), _paths.trg(), null));
+            }
+        } catch (final RuntimeException | InterruptedException _ex) {
+            failure.compareAndSet(null, _ex);
+        } finally {
+            awaitCompletion();
+        }
+
+        final Throwable _failure = failure.get();
+        if (_failure instanceof IOException _ex)
+            throw _ex;
+        else if (_failure instanceof RuntimeException _ex)
+            throw _ex;
+        else if (_failure instanceof Error _ex)
+            throw _ex;
+        else if (_failure != null)
+            throw (IOException) new InterruptedIOException().initCause(_failure);
+
+        final long _millis = Math.max(1, (System.nanoTime() - _start) / 1_000_000);
+        LOGGER.info(MessageFormat.format("Processed {0} files ({1} bytes read, {2} bytes written) in {3} ms " +
+                        "({4} files/s)", filesWritten.get(), bytesRead.sum(), bytesWritten.sum(), _millis,
+                filesWritten.get() * 1000 / _millis));
+    }
+
+    /*
+     * INFO
+     *
+     * When a thread of a stage reads END, it puts END back into the input queue (so other threads of the stage can
+     * read it) and the last thread of the stage to complete puts END into the output queue.  After a failure, threads
+     * continue to drain their input queue (without processing the files) so that upstream stages are not blocked.
+     */
+    private void startStage(final Thread.Builder builder, final int size, final BlockingQueue<FileData> in,
+                            final BlockingQueue<FileData> out, final Stage stage) {
+        final AtomicInteger _running = new AtomicInteger(size);
+        for (int _i = 0; _i < size; _i++) {
+            threads.add(builder.start(() -> {
+                try {
+                    FileData _data;
+                    while ((_data = in.take()) != END) {
+                        if (failure.get() != null)
+                            continue;
+
+                        try {
+                            final FileData _result = stage.process(_data);
+                            if (out != null)
+                                out.put(_result);
+                        } catch (final Throwable _ex) {
+                            failure.compareAndSet(null, _ex);
+                        }
+                    }
+                    in.put(END);
+                    if (_running.decrementAndGet() == 0 && out != null)
+                        out.put(END);
+                } catch (final InterruptedException _ex) {
+                    failure.compareAndSet(null, _ex);
+                }
+            }));
+        }
+    }
+
+    private void awaitCompletion() throws InterruptedIOException {
+        try {
+            pathQueue.put(END);
+            for (final Thread _thread : threads)
+                _thread.join();
+        } catch (final InterruptedException _ex) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException().initCause(_ex);
+        }
+    }
+
+    private FileData read(final FileData data) throws IOException {
+        final byte[] _content = Files.readAllBytes(data.srcPath());
+        bytesRead.add(_content.length);
+        return new FileData(data.srcPath(), data.trgPath(), _content);
+    }
+
+    private FileData transform(final FileData data) {
+        return new FileData(data.srcPath(), data.trgPath(), transformer.apply(data.content()));
+    }
+
+    // INFO: An existing target file is deleted (and not truncated) as it may be a hard link to the source file
+    private FileData write(final FileData data) throws IOException {
+        final Path _parent = data.trgPath().getParent();
+        if (_parent != null && !Files.exists(_parent))
+            Files.createDirectories(_parent);
+        Files.deleteIfExists(data.trgPath());
+        Files.write(data.trgPath(), data.content());
+        bytesWritten.add(data.content().length);
+        final long _filesWritten = filesWritten.incrementAndGet();
+        if (_filesWritten % PROGRESS_INTERVAL == 0)
+            LOGGER.info(MessageFormat.format("Processed {0} files", _filesWritten));
+        return data;
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        FileData process(FileData data) throws IOException;
+    }
+
+    private record FileData(Path srcPath, Path trgPath, byte[] content) {
+    }
+}
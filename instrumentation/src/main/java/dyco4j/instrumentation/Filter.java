@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Ordered include (+) and exclude (-) rules that identify the code to be instrumented.  Each rule is a conjunction
+ * of criteria of the form <code>key=value</code> with the following keys.
+ * <ul>
+ * <li><code>package</code>: the package (in JVM or Java format) or an ancestor package of the class.</li>
+ * <li><code>class</code>: regex matching the name of the class (in JVM format).</li>
+ * <li><code>member</code>: regex matching the name of the method qualified by the name of the class (in Java
+ * format).</li>
+ * <li><code>method</code>: regex matching the name of the method.</li>
+ * <li><code>desc</code>: regex matching the descriptor of the method.</li>
+ * <li><code>annotation</code>: an annotation (as a type descriptor or in Java format) of the method.</li>
+ * <li><code>kind</code>: the kind of instrumentation, i.e., one of {@link Kind} values.</li>
+ * </ul>
+ * The first matching rule decides if a method is instrumented.  If no rule matches, then the method is instrumented
+ * only if there are no include rules.  A rule without <code>kind</code> applies to every kind of instrumentation.
+ * <p>
+ * Rules are compiled once: package criteria are stored in a trie and regexes are compiled into (cached) patterns
+ * except when they are literals or literal prefixes.  Further, {@link #forClass(String)} prunes the rules that do
+ * not apply to a class; so, only the method-specific criteria of the remaining rules are checked per method.
+ */
+public final class Filter {
+    private static final Predicate<String> ANY = s -> true;
+    private static final Pattern REGEX_META_CHARS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+    private final List<Rule> rules;
+    private final List<CompiledRule> compiledRules;
+    private final PackageTrie packageTrie = new PackageTrie();
+    private final boolean includeByDefault;
+
+    public Filter(final List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        this.includeByDefault = this.rules.stream().noneMatch(Rule::include);
+
+        final Map<String, Predicate<String>> _regex2predicate = new HashMap<>();
+        final List<CompiledRule> _tmp = new ArrayList<>();
+        for (int _i = 0; _i < this.rules.size(); _i++) {
+            final Rule _rule = this.rules.get(_i);
+            _tmp.add(new CompiledRule(_rule, _regex2predicate));
+            final String _package = _rule.criteria().get(Criterion.PACKAGE);
+            if (_package != null)
+                packageTrie.add(_package.replace('.', '/'), _i);
+        }
+        this.compiledRules = List.copyOf(_tmp);
+    }
+
+    /**
+     * Loads rules from the given file.  Each non-empty line that does not start with # is a rule, e.g.,
+     * <code>- package=org.foo.internal kind=field</code>.
+     */
+    public static List<Rule> loadRules(final Path file) throws IOException {
+        final List<Rule> _rules = new ArrayList<>();
+        final List<String> _lines = Files.readAllLines(file);
+        for (int _i = 0; _i < _lines.size(); _i++) {
+            final String _line = _lines.get(_i).strip();
+            if (_line.isEmpty() || _line.startsWith("#"))
+                continue;
+
+            try {
+                _rules.add(Rule.parse(_line));
+            } catch (final IllegalArgumentException _ex) {
+                final String _msg = MessageFormat.format("{0}:{1}: {2}", file, _i + 1, _ex.getMessage());
+                throw new IllegalArgumentException(_msg, _ex);
+            }
+        }
+        return _rules;
+    }
+
+    private static Predicate<String> compileRegex(final String regex, final Map<String, Predicate<String>> cache) {
+        if (regex == null)
+            return ANY;
+
+        return cache.computeIfAbsent(regex, r -> {
+            // INFO: As the whole input is matched, leading ^ and trailing $ are redundant
+            final String _tmp = r.replaceFirst("^\\^", "").replaceFirst("(?<!\\\\)\\$$", "");
+            if (_tmp.equals(".*"))
+                return ANY;
+            if (!REGEX_META_CHARS.matcher(_tmp).find())
+                return _tmp::equals;
+            if (_tmp.endsWith(".*")) {
+                final String _prefix = _tmp.substring(0, _tmp.length() - 2);
+                if (!REGEX_META_CHARS.matcher(_prefix).find())
+                    return s -> s.startsWith(_prefix);
+            }
+
+            final Pattern _pattern = Pattern.compile(r);
+            return s -> _pattern.matcher(s).matches();
+        });
+    }
+
+    public ClassFilter forClass(final String className) {
+        final BitSet _packageRules = packageTrie.getMatchingRules(className);
+        final List<CompiledRule> _rules = new ArrayList<>();
+        for (int _i = 0; _i < compiledRules.size(); _i++) {
+            final CompiledRule _rule = compiledRules.get(_i);
+            if ((!_rule.hasPackage || _packageRules.get(_i)) && _rule.classPredicate.test(className))
+                _rules.add(_rule);
+        }
+        return new ClassFilter(className.replace('/', '.'), _rules, includeByDefault);
+    }
+
+    @Override
+    public String toString() {
+        return rules.toString();
+    }
+
+    public enum Kind {
+        method,
+        call,
+        field,
+        array,
+        allocation,
+        lock,
+    }
+
+    public enum Criterion {
+        PACKAGE("package"),
+        CLASS("class"),
+        MEMBER("member"),
+        METHOD("method"),
+        DESC("desc"),
+        ANNOTATION("annotation"),
+        KIND("kind");
+
+        private final String key;
+
+        Criterion(final String key) {
+            this.key = key;
+        }
+
+        static Criterion fromKey(final String key) {
+            for (final Criterion _c : values()) {
+                if (_c.key.equals(key))
+                    return _c;
+            }
+            throw new IllegalArgumentException(key + " is an unrecognized criterion");
+        }
+    }
+
+    public record Rule(boolean include, Map<Criterion, String> criteria) {
+        public Rule {
+            criteria = criteria.isEmpty() ? Map.of() : Collections.unmodifiableMap(new EnumMap<>(criteria));
+            final String _kind = criteria.get(Criterion.KIND);
+            if (_kind != null && Arrays.stream(Kind.values()).noneMatch(k -> k.name().equals(_kind)))
+                throw new IllegalArgumentException(_kind + " is an unrecognized kind");
+        }
+
+        static Rule parse(final String line) {
+            final boolean _include;
+            if (line.startsWith("+"))
+                _include = true;
+            else if (line.startsWith("-"))
+                _include = false;
+            else
+                throw new IllegalArgumentException("Rule should start with + or -");
+
+            final Map<Criterion, String> _criteria = new EnumMap<>(Criterion.class);
+            final String _tmp = line.substring(1).strip();
+            for (final String _s : _tmp.isEmpty() ? new String[0] : _tmp.split("\\s+")) {
+                final int _i = _s.indexOf('=');
+                if (_i < 1 || _i == _s.length() - 1)
+                    throw new IllegalArgumentException(_s + " is not of the form key=value");
+                if (_criteria.put(Criterion.fromKey(_s.substring(0, _i)), _s.substring(_i + 1)) != null)
+                    throw new IllegalArgumentException(_s + " repeats a criterion");
+            }
+            return new Rule(_include, _criteria);
+        }
+
+        @Override
+        public String toString() {
+            final StringJoiner _tmp = new StringJoiner(" ");
+            _tmp.add(include ? "+" : "-");
+            criteria.forEach((k, v) -> _tmp.add(k.key + "=" + v));
+            return _tmp.toString();
+        }
+    }
+
+    /**
+     * View of the filter for a class.  It is not thread-safe.
+     */
+    public static final class ClassFilter {
+        private final String javaClassName;
+        private final List<CompiledRule> rules;
+        private final boolean includeByDefault;
+
+        private ClassFilter(final String javaClassName, final List<CompiledRule> rules,
+                            final boolean includeByDefault) {
+            this.javaClassName = javaClassName;
+            this.rules = rules;
+            this.includeByDefault = includeByDefault;
+        }
+
+        /**
+         * @return true if no method of the class will be instrumented.
+         */
+        public boolean isExcluded() {
+            for (final CompiledRule _rule : rules) {
+                if (_rule.isClassLevel)
+                    return !_rule.include;
+                if (_rule.include)
+                    return false;
+            }
+            return !includeByDefault;
+        }
+
+        /**
+         * @return true if annotations of methods are required to decide if they should be instrumented.
+         */
+        public boolean dependsOnAnnotations() {
+            return rules.stream().anyMatch(r -> r.annotation != null);
+        }
+
+        public boolean includes(final Kind kind, final String methodName, final String desc,
+                                final Set<String> annotations) {
+            String _memberName = null;
+            for (final CompiledRule _rule : rules) {
+                if (_rule.kind != null && _rule.kind != kind)
+                    continue;
+                if (!_rule.methodPredicate.test(methodName) || !_rule.descPredicate.test(desc))
+                    continue;
+                if (_rule.annotation != null && !annotations.contains(_rule.annotation))
+                    continue;
+                if (_rule.memberPredicate != ANY) {
+                    if (_memberName == null)
+                        _memberName = javaClassName + "." + methodName;
+                    if (!_rule.memberPredicate.test(_memberName))
+                        continue;
+                }
+                return _rule.include;
+            }
+            return includeByDefault;
+        }
+    }
+
+    private static final class CompiledRule {
+        final boolean include;
+        final boolean hasPackage;
+        final Predicate<String> classPredicate;
+        final Predicate<String> memberPredicate;
+        final Predicate<String> methodPredicate;
+        final Predicate<String> descPredicate;
+        final String annotation;
+        final Kind kind;
+        final boolean isClassLevel;
+
+        CompiledRule(final Rule rule, final Map<String, Predicate<String>> regex2predicate) {
+            final Map<Criterion, String> _criteria = rule.criteria();
+            this.include = rule.include();
+            this.hasPackage = _criteria.containsKey(Criterion.PACKAGE);
+            this.classPredicate = compileRegex(_criteria.get(Criterion.CLASS), regex2predicate);
+            this.memberPredicate = compileRegex(_criteria.get(Criterion.MEMBER), regex2predicate);
+            this.methodPredicate = compileRegex(_criteria.get(Criterion.METHOD), regex2predicate);
+            this.descPredicate = compileRegex(_criteria.get(Criterion.DESC), regex2predicate);
+            final String _annotation = _criteria.get(Criterion.ANNOTATION);
+            this.annotation = _annotation == null || _annotation.endsWith(";") ? _annotation :
+                    "L" + _annotation.replace('.', '/') + ";";
+            final String _kind = _criteria.get(Criterion.KIND);
+            this.kind = _kind == null ? null : Kind.valueOf(_kind);
+            this.isClassLevel = memberPredicate == ANY && methodPredicate == ANY && descPredicate == ANY &&
+                    annotation == null && kind == null;
+        }
+    }
+
+    private static final class PackageTrie {
+        private final Map<String, PackageTrie> segment2child = new HashMap<>();
+        private final BitSet rules = new BitSet();
+
+        void add(final String pkg, final int rule) {
+            PackageTrie _node = this;
+            for (final String _segment : pkg.split("/")) {
+                if (!_segment.isEmpty())
+                    _node = _node.segment2child.computeIfAbsent(_segment, k -> new PackageTrie());
+            }
+            _node.rules.set(rule);
+        }
+
+        BitSet getMatchingRules(final String className) {
+            final BitSet _result = (BitSet) rules.clone();
+            PackageTrie _node = this;
+            int _begin = 0;
+            int _end = className.indexOf('/');
+            while (_end != -1 && _node != null) {
+                _node = _node.segment2child.get(className.substring(_begin, _end));
+                if (_node != null)
+                    _result.or(_node.rules);
+                _begin = _end + 1;
+                _end = className.indexOf('/', _begin);
+            }
+            return _result;
+        }
+    }
+}
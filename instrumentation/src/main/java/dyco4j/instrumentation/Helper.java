@@ -12,52 +12,182 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.MessageFormat;
-import java.util.function.BiConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 public class Helper {
     private static final Logger LOGGER = LoggerFactory.getLogger(Helper.class);
+    private static final String CLASS_FILE_SUFFIX = ".class";
+    private static final String JAR_FILE_SUFFIX = ".jar";
+    private static final String MODULE_INFO_FILE_NAME = "module-info.class";
+    private static final Pattern SIGNATURE_FILE_PATTERN =
+            Pattern.compile("^META-INF/[^/]+\\.(SF|DSA|RSA|EC)$", Pattern.CASE_INSENSITIVE);
 
     private Helper() {
     }
 
+    /**
+     * Executes the processor with roots of the given source and target.  A source/target that is a jar file is
+     * processed via a zip file system, i.e., its entries are streamed without extracting them to the disk.  An
+     * existing target jar file is replaced.
+     */
+    public static void processRoots(final Path src, final Path trg, final RootsProcessor processor)
+            throws IOException {
+        processRoots(List.of(new PathPair(src, trg)), roots -> processor.process(roots.get(0).src(),
+                roots.get(0).trg()));
+    }
+
+    /**
+     * Executes the processor with the roots of all given sources and targets (in the given order).  The sources and
+     * targets are handled as in {@link #processRoots(Path, Path, RootsProcessor)}, and the roots of all of them are
+     * available until the processor completes.
+     */
+    public static void processRoots(final List<PathPair> srcsAndTrgs, final MultiRootsProcessor processor)
+            throws IOException {
+        processRoots(srcsAndTrgs, new ArrayList<>(), processor);
+    }
+
+    /**
+     * Transforms the selected files under the source root into the corresponding files under the target root.  The
+     * files are read, transformed, and written in a pipeline (see {@link FilePipeline}).
+     */
     public static void processFiles(final Path srcRoot, final Path trgRoot, final Predicate<Path> pathSelector,
-                                    final BiConsumer<Path, Path> transformer) throws IOException {
-        try (final Stream<Path> _srcPaths = Files.walk(srcRoot).filter(pathSelector)) {
-            _srcPaths.parallel().forEach(_srcPath -> {
-                try {
-                    final Path _relativeSrcPath = srcRoot.relativize(_srcPath);
-                    final Path _trgPath = trgRoot.resolve(_relativeSrcPath);
-                    final Path _parent = _trgPath.getParent();
-                    if (!Files.exists(_parent))
-                        Files.createDirectories(_parent);
-
-                    if (Files.exists(_trgPath))
-                        LOGGER.info(MessageFormat.format("Overwriting {0}", _trgPath));
-                    else
-                        LOGGER.info(MessageFormat.format("Writing {0}", _trgPath));
-
-                    transformer.accept(_srcPath, _trgPath);
-                } catch (final IOException _ex) {
-                    throw new RuntimeException(_ex);
-                }
-            });
+                                    final UnaryOperator<byte[]> transformer) throws IOException {
+        processFiles(List.of(new PathPair(srcRoot, trgRoot)), pathSelector, transformer);
+    }
+
+    /**
+     * Transforms the selected files under each source root into the corresponding files under its target root.  The
+     * files of all roots are processed (concurrently) in a single pipeline.
+     */
+    public static void processFiles(final List<PathPair> roots, final Predicate<Path> pathSelector,
+                                    final UnaryOperator<byte[]> transformer) throws IOException {
+        try (final Stream<PathPair> _srcAndTrgPaths = roots.stream().flatMap(r -> walk(r.src()).filter(pathSelector)
+                .map(p -> new PathPair(p, resolve(r.trg(), r.src().relativize(p)))))) {
+            new FilePipeline(transformer).process(_srcAndTrgPaths);
+        } catch (final UncheckedIOException _ex) {
+            throw _ex.getCause();
         }
     }
 
     public static void copyFiles(final Path srcRoot, final Path trgRoot) throws IOException {
-        final Predicate<Path> _nonClassFileSelector = p -> !p.toString().endsWith(".class") && Files.isRegularFile(p);
-        final BiConsumer<Path, Path> _fileCopier = (srcPath, trgPath) -> {
-            try {
-                Files.copy(srcPath, trgPath);
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        processFiles(srcRoot, trgRoot, _nonClassFileSelector, _fileCopier);
+        processFiles(srcRoot, trgRoot, p -> Files.isRegularFile(p) && isCopyable(srcRoot.relativize(p)),
+                UnaryOperator.identity());
+    }
+
+    /**
+     * Mirrors the files (except class files) under the source root into the target root (see {@link FileMirror}).
+     * So, unchanged files are not copied again, and files (including class files) that are absent under the source
+     * root are deleted from the target root.
+     *
+     * @param linkFiles if true, then target files are hard links to source files (when possible).
+     */
+    public static void mirrorFiles(final Path srcRoot, final Path trgRoot, final boolean linkFiles)
+            throws IOException {
+        new FileMirror(srcRoot, trgRoot, Helper::isCopyable, linkFiles).mirror();
+    }
+
+    /*
+     * INFO
+     *
+     * Signature files are not copied as instrumentation invalidates the signatures of the classes.
+     */
+    private static boolean isCopyable(final Path relativePath) {
+        return !isClassFile(relativePath) &&
+                !SIGNATURE_FILE_PATTERN.matcher(relativePath.toString().replace('\\', '/')).matches();
+    }
+
+    /**
+     * Identifies class files that can be instrumented.  Module descriptors are not such class files; hence, they are
+     * treated as resources.
+     *
+     * INFO: Versioned classes in multi-release jars (META-INF/versions/N/) are plain class files.  So, they are
+     * instrumented like any other class file.
+     */
+    public static boolean isClassFile(final Path path) {
+        final Path _fileName = path.getFileName();
+        if (_fileName == null)
+            return false;
+
+        final String _tmp = _fileName.toString();
+        return _tmp.endsWith(CLASS_FILE_SUFFIX) && !_tmp.equals(MODULE_INFO_FILE_NAME);
+    }
+
+    // INFO: Roots are opened recursively so that all of them are closed (in the reverse order) even upon failures
+    private static void processRoots(final List<PathPair> srcsAndTrgs, final List<PathPair> roots,
+                                     final MultiRootsProcessor processor) throws IOException {
+        if (roots.size() == srcsAndTrgs.size()) {
+            processor.process(List.copyOf(roots));
+            return;
+        }
+
+        final Path _src = srcsAndTrgs.get(roots.size()).src();
+        final Path _trg = srcsAndTrgs.get(roots.size()).trg();
+        try (final FileSystem _srcFS = isJarFile(_src) ? FileSystems.newFileSystem(_src) : null;
+             final FileSystem _trgFS = isJarFile(_trg) ? createJarFileSystem(_trg) : null) {
+            final Path _srcRoot = _srcFS == null ? _src : _srcFS.getPath("/");
+            final Path _trgRoot = _trgFS == null ? _trg : _trgFS.getPath("/");
+            roots.add(new PathPair(_srcRoot, _trgRoot));
+            processRoots(srcsAndTrgs, roots, processor);
+        }
+    }
+
+    private static Stream<Path> walk(final Path root) {
+        try {
+            return Files.walk(root);
+        } catch (final IOException _ex) {
+            throw new UncheckedIOException(_ex);
+        }
+    }
+
+    private static boolean isJarFile(final Path path) {
+        return path.toString().endsWith(JAR_FILE_SUFFIX) && !Files.isDirectory(path);
+    }
+
+    private static FileSystem createJarFileSystem(final Path jarFile) throws IOException {
+        final Path _parent = jarFile.toAbsolutePath().getParent();
+        if (_parent != null && !Files.exists(_parent))
+            Files.createDirectories(_parent);
+
+        if (Files.deleteIfExists(jarFile))
+            LOGGER.info(MessageFormat.format("Overwriting {0}", jarFile));
+
+        return FileSystems.newFileSystem(jarFile, Map.of("create", "true"));
+    }
+
+    // Resolves name by name as the root and the relative path may belong to different file systems
+    static Path resolve(final Path root, final Path relativePath) {
+        Path _result = root;
+        for (final Path _name : relativePath)
+            _result = _result.resolve(_name.toString());
+        return _result;
+    }
+
+    @FunctionalInterface
+    public interface RootsProcessor {
+        void process(Path srcRoot, Path trgRoot) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface MultiRootsProcessor {
+        void process(List<PathPair> roots) throws IOException;
+    }
+
+    /**
+     * A source and its target, e.g., a folder (or jar) with classes and the folder (or jar) with their instrumented
+     * versions, or a source file and its target file.
+     */
+    public record PathPair(Path src, Path trg) {
     }
 }
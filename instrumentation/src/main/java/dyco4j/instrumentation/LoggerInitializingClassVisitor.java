@@ -23,7 +23,10 @@ public final class LoggerInitializingClassVisitor extends ClassVisitor {
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature,
                                      final String[] exceptions) {
         final MethodVisitor _mv = super.visitMethod(access, name, desc, signature, exceptions);
-        return _mv == null ? null : new LoggerInitializingMethodVisitor(api, _mv, this, name);
+        // INFO: Other methods are not wrapped so that they can be copied as is when they are not instrumented
+        if (_mv == null || !name.equals("<clinit>"))
+            return _mv;
+        return new LoggerInitializingMethodVisitor(api, _mv, this, name);
     }
 
     public void visitEnd() {
@@ -24,8 +24,22 @@ public class LoggingHelper {
     private static final String LOGGER;
     private static final String LOGGER_INITIALIZER;
     private static final Method LOGGER_INITIALIZER_INITIALIZE;
+    private static final Method COUNT_ALLOCATION;
+    private static final Method COUNT_ARRAY_ALLOCATION;
+    private static final Method LOG_ALLOCATION;
+    private static final Method LOG_ARRAY_ALLOCATION;
+    private static final Method LOG_LOCK_ACQUIRE;
+    private static final Method LOG_LOCK_ATTEMPT;
+    private static final Method LOG_LOCK_RELEASE;
+    private static final Method LOG_LOCK_REQUEST;
+    private static final Method LOG_METHOD_LOCK_RELEASE;
+    private static final Method LOG_PARK;
     private static final Method LOG_ARGUMENT;
     private static final Method LOG_ARRAY;
+    private static final Method LOG_ARRAY_ACCESS_IN_LOOP;
+    private static final Method LOG_ARRAY_COPY;
+    private static final Method LOG_ARRAY_COPY_OF;
+    private static final Method LOG_ARRAY_RANGE;
     private static final Method LOG_EXCEPTION;
     private static final Method LOG_FIELD;
     private static final Method LOG_FIELD_RAW;
@@ -34,6 +48,8 @@ public class LoggingHelper {
     private static final Method LOG_METHOD_EXIT;
     private static final Method LOG_RETURN;
     private static final Method LOG_STRING;
+    private static final Method LOG_TEST_ENTRY;
+    private static final Method LOG_TEST_EXIT;
 
     static {
         try {
@@ -51,7 +67,34 @@ public class LoggingHelper {
                     String.class, String.class));
             LOG_ARRAY = Method.getMethod(Logger.class.getMethod("logArray", Object.class, Integer.TYPE,
                     String.class, String.class));
+            LOG_ARRAY_ACCESS_IN_LOOP = Method.getMethod(Logger.class.getMethod("logArrayAccessInLoop", Object.class,
+                    Integer.TYPE, String.class, String.class));
+            LOG_ARRAY_COPY = Method.getMethod(Logger.class.getMethod("logArrayCopy", Object.class, Integer.TYPE,
+                    Object.class, Integer.TYPE, Integer.TYPE));
+            LOG_ARRAY_COPY_OF = Method.getMethod(Logger.class.getMethod("logArrayCopyOf", Object.class, Integer.TYPE,
+                    Integer.TYPE, Object.class));
+            LOG_ARRAY_RANGE = Method.getMethod(Logger.class.getMethod("logArrayRange", Object.class, Integer.TYPE,
+                    Integer.TYPE, String.class));
             LOG_EXCEPTION = Method.getMethod(Logger.class.getMethod("logException", Throwable.class));
+            LOG_ALLOCATION = Method.getMethod(Logger.class.getMethod("logAllocation", String.class));
+            LOG_ARRAY_ALLOCATION = Method.getMethod(Logger.class.getMethod("logArrayAllocation", Object.class,
+                    String.class));
+            COUNT_ALLOCATION = Method.getMethod(Logger.class.getMethod("countAllocation", String.class));
+            COUNT_ARRAY_ALLOCATION = Method.getMethod(Logger.class.getMethod("countArrayAllocation", Object.class,
+                    String.class));
+            LOG_LOCK_REQUEST = Method.getMethod(Logger.class.getMethod("logLockRequest"));
+            LOG_LOCK_ACQUIRE = Method.getMethod(Logger.class.getMethod("logLockAcquire", Object.class, String.class,
+                    Boolean.TYPE));
+            LOG_LOCK_ATTEMPT = Method.getMethod(Logger.class.getMethod("logLockAttempt", Object.class, Boolean.TYPE,
+                    String.class, Boolean.TYPE));
+            LOG_LOCK_RELEASE = Method.getMethod(Logger.class.getMethod("logLockRelease", Object.class,
+                    Boolean.TYPE));
+            LOG_METHOD_LOCK_RELEASE = Method.getMethod(Logger.class.getMethod("logMethodLockRelease", String.class,
+                    Boolean.TYPE));
+            LOG_PARK = Method.getMethod(Logger.class.getMethod("logPark", String.class, Boolean.TYPE));
+            LOG_TEST_ENTRY = Method.getMethod(Logger.class.getMethod("logTestEntry", String.class));
+            LOG_TEST_EXIT = Method.getMethod(Logger.class.getMethod("logTestExit", String.class, String.class,
+                    String.class));
             LOGGER_INITIALIZER = LoggerInitializer.class.getName().replace(".", "/");
             LOGGER_INITIALIZER_INITIALIZE = Method.getMethod(LoggerInitializer.class.getMethod("initialize"));
         } catch (final NoSuchMethodException | SecurityException _ex) {
@@ -97,6 +140,62 @@ public class LoggingHelper {
         }
     }
 
+    public static void emitLogAllocation(final MethodVisitor mv, final String siteId, final boolean count) {
+        mv.visitLdcInsn(siteId);
+        emitInvokeLog(mv, count ? COUNT_ALLOCATION : LOG_ALLOCATION);
+    }
+
+    public static void emitLogArrayAllocation(final MethodVisitor mv, final String siteId, final boolean count) {
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn(siteId);
+        emitInvokeLog(mv, count ? COUNT_ARRAY_ALLOCATION : LOG_ARRAY_ALLOCATION);
+    }
+
+    public static void emitLogLockRequest(final MethodVisitor mv) {
+        emitInvokeLog(mv, LOG_LOCK_REQUEST);
+    }
+
+    /**
+     * Expects the acquired lock on the stack.
+     */
+    public static void emitLogLockAcquire(final MethodVisitor mv, final String siteId, final boolean logEvent) {
+        mv.visitLdcInsn(siteId);
+        mv.visitInsn(logEvent ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        emitInvokeLog(mv, LOG_LOCK_ACQUIRE);
+    }
+
+    /**
+     * Expects the lock and the outcome of the attempt to acquire the lock on the stack and leaves the outcome on
+     * the stack.
+     */
+    public static void emitLogLockAttempt(final MethodVisitor mv, final String siteId, final boolean logEvent) {
+        mv.visitInsn(Opcodes.DUP_X1);
+        mv.visitLdcInsn(siteId);
+        mv.visitInsn(logEvent ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        emitInvokeLog(mv, LOG_LOCK_ATTEMPT);
+    }
+
+    /**
+     * Expects the lock to be released on the stack.
+     */
+    public static void emitLogLockRelease(final MethodVisitor mv, final boolean logEvent) {
+        mv.visitInsn(logEvent ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        emitInvokeLog(mv, LOG_LOCK_RELEASE);
+    }
+
+    public static void emitLogMethodLockRelease(final MethodVisitor mv, final String siteId,
+                                                final boolean logEvent) {
+        mv.visitLdcInsn(siteId);
+        mv.visitInsn(logEvent ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        emitInvokeLog(mv, LOG_METHOD_LOCK_RELEASE);
+    }
+
+    public static void emitLogPark(final MethodVisitor mv, final String siteId, final boolean logEvent) {
+        mv.visitLdcInsn(siteId);
+        mv.visitInsn(logEvent ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+        emitInvokeLog(mv, LOG_PARK);
+    }
+
     public static int emitLogArgument(final MethodVisitor mv, final int position, final OptionalInt localVarIndex,
                                       final Type argType) {
         mv.visitLdcInsn(position);
@@ -138,6 +237,26 @@ public class LoggingHelper {
         emitInvokeLog(mv, LOG_ARRAY);
     }
 
+    public static void emitLogArrayAccessInLoop(final MethodVisitor mv, final Logger.ArrayRangeAction action,
+                                                final String loopId) {
+        mv.visitLdcInsn(action.toString());
+        mv.visitLdcInsn(loopId);
+        emitInvokeLog(mv, LOG_ARRAY_ACCESS_IN_LOOP);
+    }
+
+    public static void emitLogArrayCopy(final MethodVisitor mv) {
+        emitInvokeLog(mv, LOG_ARRAY_COPY);
+    }
+
+    public static void emitLogArrayCopyOf(final MethodVisitor mv) {
+        emitInvokeLog(mv, LOG_ARRAY_COPY_OF);
+    }
+
+    public static void emitLogArrayRange(final MethodVisitor mv, final Logger.ArrayRangeAction action) {
+        mv.visitLdcInsn(action.toString());
+        emitInvokeLog(mv, LOG_ARRAY_RANGE);
+    }
+
     public static void emitLogException(final MethodVisitor mv) {
         mv.visitInsn(Opcodes.DUP);
         LoggingHelper.emitInvokeLog(mv, LoggingHelper.LOG_EXCEPTION);
@@ -175,11 +294,21 @@ public class LoggingHelper {
 
     public static void emitLogMethodEntry(final MethodVisitor mv, final String methodId) {
         mv.visitLdcInsn(methodId);
+        emitLogMethodEntry(mv);
+    }
+
+    // INFO: Method id is expected on the stack
+    public static void emitLogMethodEntry(final MethodVisitor mv) {
         emitInvokeLog(mv, LOG_METHOD_ENTRY);
     }
 
     public static void emitLogMethodExit(final MethodVisitor mv, final String methodId, final ExitKind exitKind) {
         mv.visitLdcInsn(methodId);
+        emitLogMethodExit(mv, exitKind);
+    }
+
+    // INFO: Method id is expected on the stack
+    public static void emitLogMethodExit(final MethodVisitor mv, final ExitKind exitKind) {
         mv.visitLdcInsn(exitKind.getAbbreviatedName());
         emitInvokeLog(mv, LOG_METHOD_EXIT);
     }
@@ -202,6 +331,19 @@ public class LoggingHelper {
         emitInvokeLog(mv, LOG_STRING);
     }
 
+    public static void emitLogTestEntry(final MethodVisitor mv, final String test) {
+        mv.visitLdcInsn(test);
+        emitInvokeLog(mv, LOG_TEST_ENTRY);
+    }
+
+    public static void emitLogTestExit(final MethodVisitor mv, final String test, final ExitKind exitKind,
+                                       final TestKind testKind) {
+        mv.visitLdcInsn(test);
+        mv.visitLdcInsn(exitKind.getAbbreviatedName());
+        mv.visitLdcInsn(testKind.getAbbreviatedName());
+        emitInvokeLog(mv, LOG_TEST_EXIT);
+    }
+
     public static void emitSwapOneWordAndTwoWords(final MethodVisitor mv, final Type tos) {
         if (tos.getSort() == Type.LONG || tos.getSort() == Type.DOUBLE) {
             mv.visitInsn(Opcodes.DUP_X2);
@@ -237,4 +379,13 @@ public class LoggingHelper {
             return name().substring(0, 1);
         }
     }
+
+    public enum TestKind {
+        TEST,
+        FIXTURE;
+
+        public String getAbbreviatedName() {
+            return name().substring(0, 1);
+        }
+    }
 }
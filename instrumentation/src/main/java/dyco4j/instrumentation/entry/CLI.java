@@ -7,6 +7,7 @@
  */
 package dyco4j.instrumentation.entry;
 
+import dyco4j.instrumentation.Filter;
 import dyco4j.instrumentation.Helper;
 import dyco4j.instrumentation.LoggerInitializingClassVisitor;
 import org.apache.commons.cli.*;
@@ -15,12 +16,14 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
-import java.util.function.BiConsumer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import static org.objectweb.asm.Opcodes.ASM5;
 
@@ -31,21 +34,41 @@ public final class CLI {
     static final String CLASS_NAME_REGEX_OPTION = "class-name-regex";
     static final String METHOD_NAME_REGEX_OPTION = "method-name-regex";
     static final String ONLY_ANNOTATED_TESTS_OPTION = "only-annotated-tests";
+    static final String FILTER_RULES_OPTION = "filter-rules";
+    static final String TRACE_EXITS_OPTION = "trace-exits";
+    static final String MIRROR_OPTION = "mirror";
+    static final String HARD_LINK_FILES_OPTION = "hard-link-files";
     private final static String CLASS_NAME_REGEX = ".*";
     private final static String METHOD_NAME_REGEX = "^test.*";
 
     public static void main(final String[] args) throws IOException {
         final Options _options = new Options();
         _options.addOption(Option.builder().longOpt(IN_FOLDER_OPTION).required().hasArg()
-                .desc("Folder containing the classes (as descendants) to be instrumented.").build());
+                .desc("Folder (or jar) containing the classes (as descendants) to be instrumented.").build());
         _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).required().hasArg()
-                .desc("Folder containing the classes (as descendants) with instrumentation.").build());
+                .desc("Folder (or jar) containing the classes (as descendants) with instrumentation.").build());
         final String _msg = MessageFormat
                 .format("Regex identifying the methods to be instrumented. Default: {0}.", METHOD_NAME_REGEX);
         _options.addOption(Option.builder().longOpt(CLASS_NAME_REGEX_OPTION).hasArg(true).desc(_msg).build());
         _options.addOption(Option.builder().longOpt(METHOD_NAME_REGEX_OPTION).hasArg(true).desc(_msg).build());
         _options.addOption(Option.builder().longOpt(ONLY_ANNOTATED_TESTS_OPTION).hasArg(false)
                 .desc("Instrument only tests identified by annotations.").build());
+        _options.addOption(Option.builder().longOpt(FILTER_RULES_OPTION).hasArg(true)
+                .desc(MessageFormat.format("File containing include/exclude rules (1 rule per line) identifying " +
+                        "the code to be instrumented.  These rules precede the rule based on {0} and {1} options.",
+                        CLASS_NAME_REGEX_OPTION, METHOD_NAME_REGEX_OPTION)).build());
+        _options.addOption(Option.builder().longOpt(TRACE_EXITS_OPTION).hasArg(false)
+                .desc("Trace exits (normal and exceptional) from instrumented methods along with the time spent in " +
+                        "the methods.").build());
+        _options.addOption(Option.builder().longOpt(MIRROR_OPTION).hasArg(false)
+                .desc("Mirror the files other than class files into the output folder (or jar).  So, unchanged " +
+                        "files are not copied again, and files (including class files) that are absent in the input " +
+                        "folder (or jar) are deleted from the output folder (or jar).").build());
+        _options.addOption(Option.builder().longOpt(HARD_LINK_FILES_OPTION).hasArg(false)
+                .desc(MessageFormat.format("Hard link the mirrored files to the files in the input folder " +
+                        "(when possible) instead of copying them.  A linked file in the output folder and its " +
+                        "counterpart in the input folder are the same file; so, modifying either of them in place " +
+                        "modifies the other.  Requires {0} option.", MIRROR_OPTION)).build());
 
         try {
             processCommandLine(new DefaultParser().parse(_options, args));
@@ -55,29 +78,41 @@ public final class CLI {
     }
 
     private static void processCommandLine(final CommandLine cmdLine) throws IOException {
-        final Path _srcRoot = Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION));
-        final Path _trgRoot = Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION));
+        final Path _src = Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION));
+        final Path _trg = Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION));
+        Helper.processRoots(_src, _trg, (srcRoot, trgRoot) -> processRoots(cmdLine, srcRoot, trgRoot));
+    }
 
-        Helper.copyFiles(_srcRoot, _trgRoot);
+    private static void processRoots(final CommandLine cmdLine, final Path srcRoot, final Path trgRoot)
+            throws IOException {
+        if (cmdLine.hasOption(MIRROR_OPTION))
+            Helper.mirrorFiles(srcRoot, trgRoot, cmdLine.hasOption(HARD_LINK_FILES_OPTION));
+        else
+            Helper.copyFiles(srcRoot, trgRoot);
 
-        final Predicate<Path> _classFileSelector = p -> p.toString().endsWith(".class");
-        final String _classNameRegex = cmdLine.getOptionValue(CLASS_NAME_REGEX_OPTION, CLASS_NAME_REGEX);
-        final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
+        final Predicate<Path> _classFileSelector = Helper::isClassFile;
+        final Filter _filter = getFilterFrom(cmdLine);
         final boolean _onlyAnnotatedTests = cmdLine.hasOption(ONLY_ANNOTATED_TESTS_OPTION);
-        final BiConsumer<Path, Path> _classInstrumenter = (srcPath, trgPath) -> {
-            try {
-                final byte[] _bytecode = Files.readAllBytes(srcPath);
-                final ClassReader _cr = new ClassReader(_bytecode);
-                final ClassWriter _cw = new ClassWriter(_cr, ClassWriter.COMPUTE_MAXS);
-                final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
-                final ClassVisitor _cv2 = new TracingClassVisitor(_cv1, _classNameRegex, _methodNameRegex, _onlyAnnotatedTests);
-                _cr.accept(_cv2, 0);
-                final byte[] _out = _cw.toByteArray();
-                Files.write(trgPath, _out);
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
+        final boolean _traceExits = cmdLine.hasOption(TRACE_EXITS_OPTION);
+        final UnaryOperator<byte[]> _classInstrumenter = bytecode -> {
+            final ClassReader _cr = new ClassReader(bytecode);
+            final ClassWriter _cw = new ClassWriter(_cr, ClassWriter.COMPUTE_MAXS);
+            final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
+            final ClassVisitor _cv2 = new TracingClassVisitor(_cv1, _filter, _onlyAnnotatedTests, _traceExits);
+            _cr.accept(_cv2, 0);
+            return _cw.toByteArray();
         };
-        Helper.processFiles(_srcRoot, _trgRoot, _classFileSelector, _classInstrumenter);
+        Helper.processFiles(srcRoot, trgRoot, _classFileSelector, _classInstrumenter);
+    }
+
+    private static Filter getFilterFrom(final CommandLine cmdLine) throws IOException {
+        final List<Filter.Rule> _rules = new ArrayList<>();
+        if (cmdLine.hasOption(FILTER_RULES_OPTION))
+            _rules.addAll(Filter.loadRules(Paths.get(cmdLine.getOptionValue(FILTER_RULES_OPTION))));
+        final String _classNameRegex = cmdLine.getOptionValue(CLASS_NAME_REGEX_OPTION, CLASS_NAME_REGEX);
+        final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
+        _rules.add(new Filter.Rule(true, Map.of(Filter.Criterion.CLASS, _classNameRegex,
+                Filter.Criterion.METHOD, _methodNameRegex)));
+        return new Filter(_rules);
     }
 }
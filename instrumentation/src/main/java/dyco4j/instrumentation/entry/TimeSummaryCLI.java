@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.entry;
+
+import dyco4j.instrumentation.LoggingHelper;
+import dyco4j.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ranks tests and fixtures by the time spent in them based on the exits traced by {@link CLI} with
+ * <code>trace-exits</code> option.
+ */
+public final class TimeSummaryCLI {
+    static final String TRACE_FOLDER_OPTION = "trace-folder";
+    static final String TOP_OPTION = "top";
+    static final String HEADER = "kind,test,executions,exceptional executions,total time (ns),max time (ns)";
+
+    public static void main(final String[] args) throws IOException {
+        final Options _options = new Options();
+        _options.addOption(Option.builder().longOpt(TRACE_FOLDER_OPTION).required().hasArg()
+                .desc("Folder containing the traces (as descendants) to be summarized.").build());
+        _options.addOption(Option.builder().longOpt(TOP_OPTION).hasArg(true)
+                .desc("Number of tests and fixtures to be reported. Default: all.").build());
+
+        try {
+            final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
+            final Path _traceFolder = Paths.get(_cmdLine.getOptionValue(TRACE_FOLDER_OPTION));
+            final long _top = Long.parseLong(_cmdLine.getOptionValue(TOP_OPTION, String.valueOf(Long.MAX_VALUE)));
+            report(summarize(_traceFolder), _top, System.out);
+        } catch (final ParseException _ex) {
+            new HelpFormatter().printHelp(TimeSummaryCLI.class.getName(), _options);
+        }
+    }
+
+    static Map<String, TimeSummary> summarize(final Path traceFolder) throws IOException {
+        final List<Path> _traces;
+        try (final Stream<Path> _paths = Files.walk(traceFolder)) {
+            _traces = _paths.filter(p -> p.getFileName().toString().endsWith(".gz")).collect(Collectors.toList());
+        }
+
+        final Map<String, TimeSummary> _test2summary = new HashMap<>();
+        try {
+            _traces.parallelStream().map(TimeSummaryCLI::summarizeTrace).collect(Collectors.toList())
+                    .forEach(m -> m.forEach((k, v) -> _test2summary.merge(k, v, TimeSummary::merge)));
+        } catch (final UncheckedIOException _ex) {
+            throw _ex.getCause();
+        }
+        return _test2summary;
+    }
+
+    static void report(final Map<String, TimeSummary> test2summary, final long top, final PrintStream out) {
+        out.println(HEADER);
+        test2summary.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, TimeSummary> e) -> e.getValue().totalTime)
+                        .reversed().thenComparing(Map.Entry::getKey))
+                .limit(top)
+                .forEach(e -> {
+                    final TimeSummary _s = e.getValue();
+                    out.println(MessageFormat.format("{0},{1},{2,number,#},{3,number,#},{4,number,#},{5,number,#}",
+                            _s.testKind, e.getKey(), _s.executions, _s.exceptionalExecutions, _s.totalTime,
+                            _s.maxTime));
+                });
+    }
+
+    /*
+     * INFO
+     *
+     * An exit is logged as "<thread id>,marker-exit:<test>,<exit kind>,<time>,<test kind>".  If the logger collapsed
+     * consecutive identical exits, then the line of the first exit is followed by the same line suffixed with the
+     * number of the collapsed exits (which may contain grouping separators).  Exits with unknown time (-1) are
+     * counted but not timed.
+     */
+    private static Map<String, TimeSummary> summarizeTrace(final Path trace) {
+        final Map<String, TimeSummary> _test2summary = new HashMap<>();
+        try (final BufferedReader _reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(trace)), StandardCharsets.UTF_8))) {
+            String _line;
+            while ((_line = _reader.readLine()) != null) {
+                final int _i = _line.indexOf(Logger.MARKER_EXIT_PREFIX);
+                if (_i < 0)
+                    continue;
+
+                final String[] _tmp = _line.substring(_i + Logger.MARKER_EXIT_PREFIX.length()).split(",");
+                final long _times = _tmp.length > 4 ? Long.parseLong(String.join("", List.of(_tmp).subList(4,
+                        _tmp.length))) : 1;
+                final long _time = Long.parseLong(_tmp[2]);
+                final TimeSummary _s = _test2summary.computeIfAbsent(_tmp[0], k -> new TimeSummary(_tmp[3]));
+                _s.executions += _times;
+                if (_tmp[1].equals(LoggingHelper.ExitKind.EXCEPTIONAL.getAbbreviatedName()))
+                    _s.exceptionalExecutions += _times;
+                if (_time >= 0) {
+                    _s.totalTime += _time * _times;
+                    _s.maxTime = Math.max(_s.maxTime, _time);
+                }
+            }
+        } catch (final IOException _ex) {
+            throw new UncheckedIOException(_ex);
+        }
+        return _test2summary;
+    }
+
+    static final class TimeSummary {
+        final String testKind;
+        long executions;
+        long exceptionalExecutions;
+        long totalTime;
+        long maxTime;
+
+        TimeSummary(final String testKind) {
+            this.testKind = testKind;
+        }
+
+        TimeSummary merge(final TimeSummary other) {
+            executions += other.executions;
+            exceptionalExecutions += other.exceptionalExecutions;
+            totalTime += other.totalTime;
+            maxTime = Math.max(maxTime, other.maxTime);
+            return this;
+        }
+    }
+}
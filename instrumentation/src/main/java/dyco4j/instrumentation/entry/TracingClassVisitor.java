@@ -8,50 +8,64 @@
 
 package dyco4j.instrumentation.entry;
 
+import dyco4j.instrumentation.Filter;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
+import java.util.Set;
+
 final class TracingClassVisitor extends ClassVisitor {
-    private final String classNameRegex;
-    private final String methodNameRegex;
+    private final Filter filter;
     private final boolean onlyAnnotatedTests;
+    private final boolean traceExits;
+    private Filter.ClassFilter classFilter;
     private String className;
+    private int classVersion;
 
-    TracingClassVisitor(final ClassVisitor cv,
-                        final String classNameRegex,
-                        final String methodNameRegex,
-                        final boolean onlyAnnotatedTests) {
+    TracingClassVisitor(final ClassVisitor cv, final Filter filter, final boolean onlyAnnotatedTests,
+                        final boolean traceExits) {
         super(CLI.ASM_VERSION, cv);
-        this.classNameRegex = classNameRegex;
-        this.methodNameRegex = methodNameRegex;
+        this.filter = filter;
         this.onlyAnnotatedTests = onlyAnnotatedTests;
+        this.traceExits = traceExits;
     }
 
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
         className = name;
+        // INFO: The minor version is in the upper 16 bits of the version, e.g., of Java 1.1 classes
+        classVersion = version & 0xFFFF;
+        classFilter = filter.forClass(name);
     }
 
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc,
                                      final String signature, final String[] exceptions) {
         final MethodVisitor _mv = super.visitMethod(access, name, desc, signature, exceptions);
-        if (_mv != null && (access & Opcodes.ACC_PUBLIC) != 0 && className.matches(classNameRegex))
+        if (_mv != null && (access & Opcodes.ACC_PUBLIC) != 0 && !classFilter.isExcluded())
             return new TracingMethodVisitor(name, desc, _mv, this);
         else
             return _mv;
     }
 
-    String getMethodNameRegex() {
-        return methodNameRegex;
+    boolean includes(final String name, final String desc, final Set<String> annotations) {
+        return classFilter.includes(Filter.Kind.method, name, desc, annotations);
     }
 
     boolean instrumentOnlyAnnotatedTests() {
         return onlyAnnotatedTests;
     }
 
+    boolean traceExits() {
+        return traceExits;
+    }
+
+    boolean shouldEmitFrames() {
+        return classVersion > Opcodes.V1_6;
+    }
+
     String getClassName() {
         return className;
     }
@@ -9,14 +9,31 @@
 package dyco4j.instrumentation.entry;
 
 import dyco4j.instrumentation.LoggingHelper;
+import dyco4j.logging.Logger;
 import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashSet;
+import java.util.Set;
 
 final class TracingMethodVisitor extends MethodVisitor {
+    private static final Set<String> TEST_ANNOTATIONS = Set.of(
+            "Lorg/junit/Test;", "Lorg/junit/jupiter/api/Test;", "Lorg/testng/annotations/Test;");
+    private static final Set<String> FIXTURE_ANNOTATIONS = Set.of(
+            "Lorg/junit/After;", "Lorg/junit/Before;", "Lorg/junit/AfterClass;", "Lorg/junit/BeforeClass;",
+            "Lorg/junit/jupiter/api/AfterEach;", "Lorg/junit/jupiter/api/BeforeEach;",
+            "Lorg/junit/jupiter/api/AfterAll;", "Lorg/junit/jupiter/api/BeforeAll;",
+            "Lorg/testng/annotations/AfterTest;", "Lorg/testng/annotations/BeforeTest;",
+            "Lorg/testng/annotations/AfterClass;", "Lorg/testng/annotations/BeforeClass;",
+            "Lorg/testng/annotations/AfterMethod;", "Lorg/testng/annotations/BeforeMethod;");
     private final String desc;
     private final TracingClassVisitor cv;
     private final String name;
-    private boolean isAnnotatedAsTest;
+    private final Set<String> annotations = new HashSet<>();
+    private final Label beginLabel = new Label();
+    private boolean tracingExits = false;
 
     TracingMethodVisitor(final String name, final String descriptor, final MethodVisitor mv,
                          final TracingClassVisitor owner) {
@@ -28,36 +45,71 @@ final class TracingMethodVisitor extends MethodVisitor {
 
     @Override
     public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
-        isAnnotatedAsTest = desc.matches("Lorg/junit/Test;") ||
-                desc.matches("Lorg/junit/After;") || desc.matches("Lorg/junit/Before;") ||
-                desc.matches("Lorg/junit/AfterClass;") ||
-                desc.matches("Lorg/junit/BeforeClass;") ||
-                desc.matches("Lorg/junit/jupiter/apiTest;") ||
-                desc.matches("Lorg/junit/jupiter/api/AfterEach;") || desc.matches("Lorg/junit/jupiter/api/BeforeEach;") ||
-                desc.matches("Lorg/junit/jupiter/api/AfterAll;") ||
-                desc.matches("Lorg/junit/jupiter/api/BeforeAll;") ||
-                desc.matches("Lorg/testng/annotations/Test") ||
-                desc.matches("Lorg/testng/annotations/AfterTest") ||
-                desc.matches("Lorg/testng/annotations/BeforeTest") ||
-                desc.matches("Lorg/testng/annotations/AfterClass") ||
-                desc.matches("Lorg/testng/annotations/BeforeClass") ||
-                desc.matches("Lorg/testng/annotations/AfterMethod") ||
-                desc.matches("Lorg/testng/annotations/BeforeMethod");
+        annotations.add(desc);
         return super.visitAnnotation(desc, visible);
     }
 
+    /*
+     * ASSUMPTION
+     *
+     * Constructors are not wrapped as the handler of a constructor cannot be described by a frame when the
+     * exception is thrown before the super constructor is invoked.
+     */
     @Override
     public void visitCode() {
         super.visitCode();
 
         if (shouldInstrument()) {
-            final String _msg = "marker:" + cv.getClassName() + "/" + name + desc;
-            LoggingHelper.emitLogString(mv, _msg);
+            tracingExits = cv.traceExits() && !name.equals("<init>");
+            if (tracingExits) {
+                LoggingHelper.emitLogTestEntry(mv, getTest());
+                super.visitLabel(beginLabel);
+            } else
+                LoggingHelper.emitLogString(mv, Logger.MARKER_PREFIX + getTest());
+        }
+    }
+
+    @Override
+    public void visitInsn(final int opcode) {
+        if (tracingExits && opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+            LoggingHelper.emitLogTestExit(mv, getTest(), LoggingHelper.ExitKind.NORMAL, getTestKind());
+        super.visitInsn(opcode);
+    }
+
+    /*
+     * INFO
+     *
+     * The handler added to log exceptional exits is the last entry in the exception table.  So, it is used only if
+     * no handler of the method handles the exception.
+     */
+    @Override
+    public void visitMaxs(final int maxStack, final int maxLocals) {
+        if (tracingExits) {
+            final Label _endLabel = new Label();
+            super.visitLabel(_endLabel);
+            final Label _handlerLabel = new Label();
+            super.visitLabel(_handlerLabel);
+            if (cv.shouldEmitFrames())
+                super.visitFrame(Opcodes.F_FULL, 0, new Object[0], 1, new Object[]{"java/lang/Throwable"});
+            super.visitTryCatchBlock(beginLabel, _endLabel, _handlerLabel, "java/lang/Throwable");
+            LoggingHelper.emitLogTestExit(mv, getTest(), LoggingHelper.ExitKind.EXCEPTIONAL, getTestKind());
+            super.visitInsn(Opcodes.ATHROW);
         }
+        super.visitMaxs(maxStack, maxLocals);
     }
 
     private boolean shouldInstrument() {
-        return name.matches(cv.getMethodNameRegex()) &&
-                (!cv.instrumentOnlyAnnotatedTests() || isAnnotatedAsTest);
+        return cv.includes(name, desc, annotations) &&
+                (!cv.instrumentOnlyAnnotatedTests() || annotations.stream().anyMatch(
+                        a -> TEST_ANNOTATIONS.contains(a) || FIXTURE_ANNOTATIONS.contains(a)));
+    }
+
+    private String getTest() {
+        return cv.getClassName() + "/" + name + desc;
+    }
+
+    private LoggingHelper.TestKind getTestKind() {
+        return annotations.stream().anyMatch(FIXTURE_ANNOTATIONS::contains) ? LoggingHelper.TestKind.FIXTURE :
+                LoggingHelper.TestKind.TEST;
     }
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.instrumentation.Filter;
+import dyco4j.logging.LoggerInitializer;
+import dyco4j.utility.ProgramData;
+import org.apache.commons.cli.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Java agent to instrument the internals of classes as they are loaded.
+ * <p>
+ * The agent is configured via comma separated list of options of the form <code>option[=value]</code> where option
+ * is the long name of an option of {@link CLI} or one of the agent-specific options, e.g.,
+ * <code>-javaagent:dyco4j-internals-X.Y.Z-cli.jar=include-class-regex=^org\.foo\..*,trace-method-call</code>.
+ * So, regexes provided to the agent cannot contain commas.
+ * <p>
+ * Transformed classes can be cached in a folder.  As the cached classes refer to ids in the program data, the cache
+ * is updated only after the program data is saved (at shutdown) along with a stamp (hash) of the saved program data
+ * file.  The cache is cleared when the program data file is absent or does not match the stamp, e.g., when it was
+ * regenerated.
+ * <p>
+ * When attached to a running JVM (via {@link AttachCLI}), the agent retransforms the matching loaded classes, traces
+ * them for the given duration, and then restores their original bytecode.
+ */
+public final class Agent implements ClassFileTransformer {
+    static final String INCLUDE_CLASS_REGEX_OPTION = "include-class-regex";
+    static final String EXCLUDE_CLASS_REGEX_OPTION = "exclude-class-regex";
+    static final String CACHE_FOLDER_OPTION = "cache-folder";
+    static final String DURATION_OPTION = "duration";
+    static final int DURATION = 60;
+    private static final String CACHED_CLASS_FILE_SUFFIX = ".class";
+    private static final String PROGRAM_DATA_STAMP_FILE_NAME = "program-data.sha256";
+    private static final Logger LOGGER = LoggerFactory.getLogger(Agent.class);
+    private static final String[] EXCLUDED_PACKAGE_PREFIXES = {"java/", "javax/", "jdk/", "sun/", "com/sun/",
+            "dyco4j/logging/", "dyco4j/utility/", "org/objectweb/asm/", "org/apache/commons/cli/", "org/slf4j/",
+            "com/google/gson/"};
+    private final Pattern includeClassPattern;
+    private final Optional<Pattern> excludeClassPattern;
+    private final Filter filter;
+    private final Instrumenter instrumenter;
+    private final Path programDataFile;
+    private final Optional<Path> cacheFolder;
+    private final byte[] optionsFingerprint;
+    private final boolean attached;
+    private final Map<String, byte[]> classHash2NewTransformedClass = new ConcurrentHashMap<>();
+    private final ClassHierarchy platformClassHierarchy =
+            new ClassHierarchy(ClassLoader.getPlatformClassLoader());
+    /*
+     * INFO
+     *
+     * Type hierarchy of platform classes is shared across class loaders while that of other classes is cached per
+     * class loader.  As the hierarchies refer to their class loaders weakly, the cache does not retain class loaders.
+     */
+    private final Map<ClassLoader, ClassHierarchy> loader2classHierarchy =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private Agent(final CommandLine cmdLine, final boolean attached) throws IOException {
+        this.includeClassPattern = Pattern.compile(cmdLine.getOptionValue(INCLUDE_CLASS_REGEX_OPTION, ".*"));
+        this.excludeClassPattern = Optional.ofNullable(cmdLine.getOptionValue(EXCLUDE_CLASS_REGEX_OPTION))
+                .map(Pattern::compile);
+        this.filter = CLI.getFilterFrom(cmdLine);
+        // INFO: Retransformation cannot add fields and methods, e.g., outlined logging helpers, to classes
+        final CLI.CommandLineOptions _cmdLineOptions = CLI.getCommandLineOptionsFrom(cmdLine);
+        if (attached && _cmdLineOptions.coverage())
+            throw new IllegalArgumentException(MessageFormat.format("{0} option is not supported when attached",
+                    CLI.COVERAGE_OPTION));
+        final Instrumenter.Options _options = new Instrumenter.Options(
+                attached ? _cmdLineOptions.withoutOutlinedLogging() : _cmdLineOptions, filter);
+        this.programDataFile = CLI.getProgramDataFileFrom(cmdLine);
+        this.cacheFolder = Optional.ofNullable(cmdLine.getOptionValue(CACHE_FOLDER_OPTION)).map(Paths::get);
+        this.optionsFingerprint = _options.toString().getBytes(StandardCharsets.UTF_8);
+        this.attached = attached;
+
+        if (cacheFolder.isPresent()) {
+            final Path _tmp = cacheFolder.get();
+            Files.createDirectories(_tmp);
+            if (!isCacheOfProgramDataFile(_tmp))
+                clearCache(_tmp);
+        }
+        this.instrumenter = new Instrumenter(_options, ProgramData.loadData(programDataFile), platformClassHierarchy,
+                !attached);
+    }
+
+    public static void premain(final String agentArgs, final Instrumentation instrumentation)
+            throws IOException {
+        final Options _options = createOptions();
+        _options.addOption(Option.builder().longOpt(CACHE_FOLDER_OPTION).hasArg(true)
+                .desc("Folder to cache transformed classes across executions.").build());
+        final Agent _agent = new Agent(parseAgentArgs(agentArgs, _options), false);
+        Runtime.getRuntime().addShutdownHook(new Thread(_agent::saveData));
+        instrumentation.addTransformer(_agent, false);
+    }
+
+    public static void agentmain(final String agentArgs, final Instrumentation instrumentation)
+            throws IOException {
+        final Options _options = createOptions();
+        addDurationOption(_options);
+        final CommandLine _cmdLine = parseAgentArgs(agentArgs, _options);
+        final long _duration = Long.parseLong(_cmdLine.getOptionValue(DURATION_OPTION, String.valueOf(DURATION)));
+
+        /*
+         * INFO
+         *
+         * Retransformation cannot add methods, e.g., static initializers to initialize the logger.  So, the logger is
+         * initialized by the agent and the classes are instrumented without initializing the logger.
+         */
+        final Agent _agent = new Agent(_cmdLine, true);
+        final Class<?>[] _classes = Arrays.stream(instrumentation.getAllLoadedClasses())
+                .filter(instrumentation::isModifiableClass)
+                .filter(c -> _agent.shouldInstrumentClass(c.getClassLoader(), c.getName().replace('.', '/'),
+                        c.getProtectionDomain()))
+                .toArray(Class<?>[]::new);
+        LOGGER.info(MessageFormat.format("Tracing {0} classes for {1} seconds", _classes.length, _duration));
+
+        LoggerInitializer.initialize();
+        instrumentation.addTransformer(_agent, true);
+        retransformClasses(instrumentation, _classes);
+
+        // Program data is saved even if the JVM exits before the end of tracing
+        final Thread _shutdownHook = new Thread(_agent::saveData);
+        Runtime.getRuntime().addShutdownHook(_shutdownHook);
+        final Thread _thread = new Thread(() -> {
+            try {
+                Thread.sleep(Duration.ofSeconds(_duration));
+            } catch (final InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            // INFO: Retransformation without the agent restores the original bytecode
+            instrumentation.removeTransformer(_agent);
+            retransformClasses(instrumentation, _classes);
+            LoggerInitializer.terminate();
+            try {
+                if (Runtime.getRuntime().removeShutdownHook(_shutdownHook))
+                    _agent.saveData();
+            } catch (final IllegalStateException _ex) {
+                // INFO: The JVM is shutting down, and the shutdown hook will save the program data
+            }
+            LOGGER.info(MessageFormat.format("Stopped tracing {0} classes", _classes.length));
+        });
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    static Options createOptions() {
+        final Options _options = new Options();
+        CLI.addInstrumentationOptions(_options);
+        _options.addOption(Option.builder().longOpt(INCLUDE_CLASS_REGEX_OPTION).hasArg(true)
+                .desc("Regex identifying the classes (Java names) to be instrumented. Default: .*").build());
+        _options.addOption(Option.builder().longOpt(EXCLUDE_CLASS_REGEX_OPTION).hasArg(true)
+                .desc("Regex identifying the classes (Java names) to not be instrumented.").build());
+        return _options;
+    }
+
+    static void addDurationOption(final Options options) {
+        options.addOption(Option.builder().longOpt(DURATION_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Duration (in seconds) of tracing. Default: {0}.", DURATION)).build());
+    }
+
+    private static CommandLine parseAgentArgs(final String agentArgs, final Options options) {
+        final String[] _args = agentArgs == null || agentArgs.isBlank() ? new String[0] :
+                Arrays.stream(agentArgs.split(",")).map(s -> "--" + s.trim()).toArray(String[]::new);
+        try {
+            return new DefaultParser().parse(options, _args);
+        } catch (final ParseException _ex) {
+            new HelpFormatter().printHelp(Agent.class.getName(), options);
+            throw new IllegalArgumentException(_ex);
+        }
+    }
+
+    private static void retransformClasses(final Instrumentation instrumentation, final Class<?>[] classes) {
+        for (final Class<?> _class : classes) {
+            try {
+                instrumentation.retransformClasses(_class);
+            } catch (final UnmodifiableClassException | InternalError _ex) {
+                LOGGER.warn(MessageFormat.format("Could not retransform {0}", _class.getName()), _ex);
+            }
+        }
+    }
+
+    private static void clearCache(final Path cacheFolder) throws IOException {
+        Files.deleteIfExists(cacheFolder.resolve(PROGRAM_DATA_STAMP_FILE_NAME));
+        try (final Stream<Path> _files = Files.list(cacheFolder)) {
+            for (final Path _file : (Iterable<Path>) _files::iterator) {
+                if (_file.toString().endsWith(CACHED_CLASS_FILE_SUFFIX))
+                    Files.delete(_file);
+            }
+        }
+    }
+
+    private static String calculateHash(final byte[]... contents) {
+        try {
+            final MessageDigest _digest = MessageDigest.getInstance("SHA-256");
+            for (final byte[] _content : contents)
+                _digest.update(_content);
+            return HexFormat.of().formatHex(_digest.digest());
+        } catch (final NoSuchAlgorithmException _ex) {
+            throw new RuntimeException(_ex);
+        }
+    }
+
+    private boolean isCacheOfProgramDataFile(final Path cacheFolder) throws IOException {
+        final Path _stamp = cacheFolder.resolve(PROGRAM_DATA_STAMP_FILE_NAME);
+        return Files.exists(programDataFile) && Files.exists(_stamp) &&
+                Files.readString(_stamp).equals(calculateHash(Files.readAllBytes(programDataFile)));
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        // When attached, only the classes being retransformed are instrumented
+        if ((attached && classBeingRedefined == null) || !shouldInstrumentClass(loader, className, protectionDomain))
+            return null;
+
+        try {
+            final Optional<String> _classHash = cacheFolder.map(f -> calculateHash(optionsFingerprint,
+                    classfileBuffer));
+            if (_classHash.isPresent()) {
+                final Path _cachedClass = cacheFolder.get().resolve(_classHash.get() + CACHED_CLASS_FILE_SUFFIX);
+                if (Files.exists(_cachedClass))
+                    return Files.readAllBytes(_cachedClass);
+            }
+
+            final byte[] _result = instrumentClass(loader, classfileBuffer);
+            _classHash.ifPresent(h -> classHash2NewTransformedClass.put(h, _result));
+            return _result;
+        } catch (final Throwable _ex) {
+            // INFO: Exceptions thrown by transformers are silently ignored by the JVM
+            LOGGER.error(MessageFormat.format("Could not instrument {0}", className), _ex);
+            return null;
+        }
+    }
+
+    private boolean shouldInstrumentClass(final ClassLoader loader, final String className,
+                                          final ProtectionDomain protectionDomain) {
+        if (loader == null || loader == ClassLoader.getPlatformClassLoader() || className == null ||
+                className.equals("module-info"))
+            return false;
+
+        // Classes of the agent are not instrumented
+        if (protectionDomain != null &&
+                Objects.equals(protectionDomain.getCodeSource(), Agent.class.getProtectionDomain().getCodeSource()))
+            return false;
+
+        for (final String _prefix : EXCLUDED_PACKAGE_PREFIXES) {
+            if (className.startsWith(_prefix))
+                return false;
+        }
+
+        final String _javaName = className.replace('/', '.');
+        return includeClassPattern.matcher(_javaName).matches() &&
+                excludeClassPattern.map(p -> !p.matcher(_javaName).matches()).orElse(true) &&
+                !filter.forClass(className).isExcluded();
+    }
+
+    /*
+     * INFO
+     *
+     * The class being transformed is added to the type hierarchy (by the instrumenter) as it may not be locatable as
+     * a resource, e.g., generated classes.
+     */
+    private byte[] instrumentClass(final ClassLoader loader, final byte[] classfileBuffer) {
+        final ClassHierarchy _classHierarchy = loader2classHierarchy.computeIfAbsent(loader,
+                l -> ClassHierarchy.withWeakResourceLoader(l, platformClassHierarchy));
+        return instrumenter.instrument(classfileBuffer, _classHierarchy);
+    }
+
+    private void saveData() {
+        try {
+            instrumenter.saveProgramData(programDataFile);
+
+            if (cacheFolder.isPresent()) {
+                for (final Map.Entry<String, byte[]> _e : classHash2NewTransformedClass.entrySet()) {
+                    final Path _tmp = cacheFolder.get().resolve(_e.getKey() + CACHED_CLASS_FILE_SUFFIX);
+                    Files.write(_tmp, _e.getValue());
+                }
+                Files.writeString(cacheFolder.get().resolve(PROGRAM_DATA_STAMP_FILE_NAME),
+                        calculateHash(Files.readAllBytes(programDataFile)));
+            }
+        } catch (final IOException _ex) {
+            throw new RuntimeException(_ex);
+        }
+    }
+}
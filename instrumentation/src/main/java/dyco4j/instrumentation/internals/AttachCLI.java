@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import com.sun.tools.attach.AgentInitializationException;
+import com.sun.tools.attach.AgentLoadException;
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+import org.apache.commons.cli.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Attaches {@link Agent} to a running JVM to trace the internals of the matching loaded classes for a while.
+ */
+public final class AttachCLI {
+    static final String PID_OPTION = "pid";
+    static final String AGENT_JAR_OPTION = "agent-jar";
+
+    public static void main(final String[] args) throws IOException {
+        final Options _options = Agent.createOptions();
+        Agent.addDurationOption(_options);
+        _options.addOption(Option.builder().longOpt(PID_OPTION).required().hasArg(true)
+                .desc("Id of the JVM process to attach to.").build());
+        _options.addOption(Option.builder().longOpt(AGENT_JAR_OPTION).hasArg(true)
+                .desc("Jar containing the agent. Default: jar containing this tool.").build());
+
+        try {
+            process(new DefaultParser().parse(_options, args));
+        } catch (final ParseException _ex) {
+            new HelpFormatter().printHelp(AttachCLI.class.getName(), _options);
+        }
+    }
+
+    private static void process(final CommandLine cmdLine) throws IOException {
+        // INFO: Agent options are passed as is (without "--" prefix) except for the options of this tool
+        final String _agentArgs = Arrays.stream(cmdLine.getOptions())
+                .filter(o -> !o.getLongOpt().equals(PID_OPTION) && !o.getLongOpt().equals(AGENT_JAR_OPTION))
+                .map(o -> o.hasArg() ? o.getLongOpt() + "=" + o.getValue() : o.getLongOpt())
+                .collect(Collectors.joining(","));
+
+        try {
+            final String _agentJar = cmdLine.hasOption(AGENT_JAR_OPTION) ? cmdLine.getOptionValue(AGENT_JAR_OPTION) :
+                    Paths.get(Agent.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            final VirtualMachine _vm = VirtualMachine.attach(cmdLine.getOptionValue(PID_OPTION));
+            try {
+                _vm.loadAgent(_agentJar, _agentArgs);
+            } finally {
+                _vm.detach();
+            }
+        } catch (final AttachNotSupportedException | AgentLoadException | AgentInitializationException |
+                       URISyntaxException _ex) {
+            throw new RuntimeException(_ex);
+        }
+    }
+}
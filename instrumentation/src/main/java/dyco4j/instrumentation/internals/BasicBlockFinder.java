@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the basic blocks in the code of a method.  A basic block starts at the first instruction of the method, at
+ * the target of a jump, at an exception handler, and after a jump, a return, or a throw.  Invocations do not end
+ * basic blocks.
+ * <p>
+ * As frames, labels, and line numbers are not instructions, basic blocks found in a method are the same irrespective
+ * of how the method was read, e.g., with or without frames.
+ */
+final class BasicBlockFinder {
+    private BasicBlockFinder() {
+    }
+
+    /**
+     * @return the first instruction of each basic block in the order of occurrence.
+     */
+    static List<AbstractInsnNode> find(final MethodNode methodNode) {
+        final Set<LabelNode> _leaders = getLeaderLabels(methodNode);
+        final List<AbstractInsnNode> _result = new ArrayList<>();
+        boolean _startsBlock = true;
+        for (final AbstractInsnNode _insn : methodNode.instructions) {
+            if (_insn instanceof LabelNode && _leaders.contains(_insn))
+                _startsBlock = true;
+            else if (_insn.getOpcode() >= 0) {
+                if (_startsBlock)
+                    _result.add(_insn);
+                _startsBlock = endsBlock(_insn);
+            }
+        }
+        return _result;
+    }
+
+    /**
+     * @return the line of the nearest line number node preceding the instruction.  -1 if there is no such node.
+     */
+    static int getLine(final AbstractInsnNode insn) {
+        for (AbstractInsnNode _tmp = insn; _tmp != null; _tmp = _tmp.getPrevious()) {
+            if (_tmp instanceof LineNumberNode _lineNumber)
+                return _lineNumber.line;
+        }
+        return -1;
+    }
+
+    private static boolean endsBlock(final AbstractInsnNode insn) {
+        return switch (insn.getType()) {
+            case AbstractInsnNode.JUMP_INSN, AbstractInsnNode.TABLESWITCH_INSN,
+                    AbstractInsnNode.LOOKUPSWITCH_INSN -> true;
+            default -> switch (insn.getOpcode()) {
+                case Opcodes.ATHROW, Opcodes.RET, Opcodes.IRETURN, Opcodes.LRETURN, Opcodes.FRETURN,
+                        Opcodes.DRETURN, Opcodes.ARETURN, Opcodes.RETURN -> true;
+                default -> false;
+            };
+        };
+    }
+
+    /**
+     * @return labels that start basic blocks, i.e., targets of jumps and exception handlers.
+     */
+    static Set<LabelNode> getLeaderLabels(final MethodNode methodNode) {
+        final Set<LabelNode> _result = new HashSet<>();
+        for (final AbstractInsnNode _insn : methodNode.instructions) {
+            if (_insn instanceof JumpInsnNode _jump)
+                _result.add(_jump.label);
+            else if (_insn instanceof TableSwitchInsnNode _switch) {
+                _result.add(_switch.dflt);
+                _result.addAll(_switch.labels);
+            } else if (_insn instanceof LookupSwitchInsnNode _switch) {
+                _result.add(_switch.dflt);
+                _result.addAll(_switch.labels);
+            }
+        }
+        for (final TryCatchBlockNode _tryCatchBlock : methodNode.tryCatchBlocks)
+            _result.add(_tryCatchBlock.handler);
+        return _result;
+    }
+}
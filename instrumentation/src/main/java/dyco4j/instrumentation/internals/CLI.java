@@ -8,6 +8,7 @@
 
 package dyco4j.instrumentation.internals;
 
+import dyco4j.instrumentation.Filter;
 import dyco4j.instrumentation.Helper;
 import dyco4j.instrumentation.LoggerInitializingClassVisitor;
 import dyco4j.utility.ProgramData;
@@ -25,8 +26,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
 import java.util.*;
-import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,55 +38,234 @@ public final class CLI {
     static final int ASM_VERSION = ASM5;
     static final String IN_FOLDER_OPTION = "in-folder";
     static final String OUT_FOLDER_OPTION = "out-folder";
+    static final String ROOTS_MANIFEST_OPTION = "roots-manifest";
     static final String CLASSPATH_CONFIG_OPTION = "classpath-config";
+    static final String MIRROR_OPTION = "mirror";
+    static final String HARD_LINK_FILES_OPTION = "hard-link-files";
     static final String PROGRAM_DATA_OPTION = "program-data";
     static final String METHOD_NAME_REGEX_OPTION = "method-name-regex";
+    static final String FILTER_RULES_OPTION = "filter-rules";
     static final String TRACE_ARRAY_ACCESS_OPTION = "trace-array-access";
+    static final String AGGREGATE_ARRAY_ACCESS_OPTION = "aggregate-array-access";
     static final String TRACE_FIELD_ACCESS_OPTION = "trace-field-access";
+    static final String ELIDE_REDUNDANT_FIELD_READS_OPTION = "elide-redundant-field-reads";
     static final String TRACE_METHOD_ARGUMENTS_OPTION = "trace-method-arguments";
     static final String TRACE_METHOD_CALL_OPTION = "trace-method-call";
     static final String TRACE_METHOD_RETURN_VALUE_OPTION = "trace-method-return-value";
+    static final String PRESERVE_FRAMES_OPTION = "preserve-frames";
+    static final String OUTLINE_LOGGING_OPTION = "outline-logging";
+    static final String TOGGLEABLE_LOGGING_OPTION = "toggleable-logging";
+    static final String TRACE_ALLOCATIONS_OPTION = "trace-allocations";
+    static final String TRACE_LOCKS_OPTION = "trace-locks";
+    static final String COVERAGE_OPTION = "coverage";
+    static final String SKIP_TRIVIAL_METHODS_OPTION = "skip-trivial-methods";
+    static final String TRIVIAL_METHOD_SIZE_OPTION = "trivial-method-size";
     private static final String METHOD_NAME_REGEX = ".*";
+    private static final int TRIVIAL_METHOD_SIZE = 8;
 
     public static void main(final String[] args) throws IOException {
         final Options _options = new Options();
-        _options.addOption(Option.builder().longOpt(IN_FOLDER_OPTION).required().hasArg(true)
-                .desc("Folder containing the classes to be instrumented.").build());
-        _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).required().hasArg(true)
-                .desc("Folder containing the classes (as descendants) with instrumentation.").build());
+        _options.addOption(Option.builder().longOpt(IN_FOLDER_OPTION).hasArg(true)
+                .desc("Folder (or jar) containing the classes to be instrumented.").build());
+        _options.addOption(Option.builder().longOpt(OUT_FOLDER_OPTION).hasArg(true)
+                .desc("Folder (or jar) containing the classes (as descendants) with instrumentation.").build());
+        _options.addOption(Option.builder().longOpt(ROOTS_MANIFEST_OPTION).hasArg(true)
+                .desc(MessageFormat.format("File containing pairs of values of {0} and {1} options (1 pair per " +
+                        "line as <in>=<out>).  The classes in all pairs (and in the pair given via {0} and {1} " +
+                        "options) are instrumented in a single invocation with shared program data.",
+                        IN_FOLDER_OPTION, OUT_FOLDER_OPTION)).build());
         _options.addOption(Option.builder().longOpt(CLASSPATH_CONFIG_OPTION).hasArg(true)
                 .desc("File containing class path (1 entry per line) used by classes to be instrumented.")
                 .build());
-        _options.addOption(Option.builder().longOpt(PROGRAM_DATA_OPTION).hasArg(true)
+        _options.addOption(Option.builder().longOpt(MIRROR_OPTION).hasArg(false)
+                .desc("Mirror the files other than class files into the output folder (or jar).  So, unchanged " +
+                        "files are not copied again, and files (including class files) that are absent in the input " +
+                        "folder (or jar) are deleted from the output folder (or jar).").build());
+        _options.addOption(Option.builder().longOpt(HARD_LINK_FILES_OPTION).hasArg(false)
+                .desc(MessageFormat.format("Hard link the mirrored files to the files in the input folder " +
+                        "(when possible) instead of copying them.  A linked file in the output folder and its " +
+                        "counterpart in the input folder are the same file; so, modifying either of them in place " +
+                        "modifies the other.  Requires {0} option.", MIRROR_OPTION)).build());
+        addInstrumentationOptions(_options);
+
+        try {
+            final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
+            process(_cmdLine, getSrcsAndTrgsFrom(_cmdLine));
+        } catch (final ParseException _ex1) {
+            new HelpFormatter().printHelp(CLI.class.getName(), _options);
+        }
+    }
+
+    static void addInstrumentationOptions(final Options options) {
+        options.addOption(Option.builder().longOpt(PROGRAM_DATA_OPTION).hasArg(true)
                 .desc("File containing program data to be used/extended.")
                 .build());
         final String _msg = MessageFormat.format("Regex identifying the methods to be instrumented. Default: {0}.",
                 METHOD_NAME_REGEX);
-        _options.addOption(Option.builder().longOpt(METHOD_NAME_REGEX_OPTION).hasArg(true).desc(_msg).build());
-        _options.addOption(Option.builder().longOpt(TRACE_ARRAY_ACCESS_OPTION).hasArg(true)
+        options.addOption(Option.builder().longOpt(METHOD_NAME_REGEX_OPTION).hasArg(true).desc(_msg).build());
+        options.addOption(Option.builder().longOpt(FILTER_RULES_OPTION).hasArg(true)
+                .desc(MessageFormat.format("File containing include/exclude rules (1 rule per line) identifying " +
+                        "the code to be instrumented.  These rules precede the rule based on {0} option.",
+                        METHOD_NAME_REGEX_OPTION)).build());
+        options.addOption(Option.builder().longOpt(TRACE_ARRAY_ACCESS_OPTION).hasArg(true)
                 .desc(MessageFormat.format("Instrument to trace array access: {0}.", accessOptionValuesString()
                 )).build());
-        _options.addOption(Option.builder().longOpt(TRACE_FIELD_ACCESS_OPTION).hasArg(true)
+        options.addOption(Option.builder().longOpt(AGGREGATE_ARRAY_ACCESS_OPTION).hasArg(false)
+                .desc(MessageFormat.format("Trace array accesses in counted loops (and by System.arraycopy, " +
+                        "Arrays.fill, Arrays.copyOf, and Arrays.copyOfRange) as index ranges (without values).  " +
+                        "Requires {0} option.", TRACE_ARRAY_ACCESS_OPTION)).build());
+        options.addOption(Option.builder().longOpt(TRACE_FIELD_ACCESS_OPTION).hasArg(true)
                 .desc(MessageFormat.format("Instrument to trace field access: {0}.", accessOptionValuesString()
                 )).build());
-        _options.addOption(Option.builder().longOpt(TRACE_METHOD_ARGUMENTS_OPTION).hasArg(false)
+        options.addOption(Option.builder().longOpt(ELIDE_REDUNDANT_FIELD_READS_OPTION).hasArg(false)
+                .desc(MessageFormat.format("Do not trace reads of non-volatile fields of a class in its methods " +
+                        "when the field was read earlier in the same basic block (without intervening writes, " +
+                        "calls, or synchronization).  Requires {0} option.", TRACE_FIELD_ACCESS_OPTION)).build());
+        options.addOption(Option.builder().longOpt(TRACE_METHOD_ARGUMENTS_OPTION).hasArg(false)
                 .desc("Instrument to trace method arguments.").build());
-        _options.addOption(Option.builder().longOpt(TRACE_METHOD_CALL_OPTION).hasArg(false)
+        options.addOption(Option.builder().longOpt(TRACE_METHOD_CALL_OPTION).hasArg(false)
                 .desc("Instrument to trace method calls (compile-time signatures).").build());
-        _options.addOption(Option.builder().longOpt(TRACE_METHOD_RETURN_VALUE_OPTION).hasArg(false)
+        options.addOption(Option.builder().longOpt(TRACE_METHOD_RETURN_VALUE_OPTION).hasArg(false)
                 .desc("Instrument to trace method return values.").build());
+        options.addOption(Option.builder().longOpt(PRESERVE_FRAMES_OPTION).hasArg(false)
+                .desc("Adjust existing stack map frames instead of recomputing them.  Frames are recomputed for " +
+                        "classes in which they cannot be adjusted.").build());
+        options.addOption(Option.builder().longOpt(OUTLINE_LOGGING_OPTION).hasArg(false)
+                .desc("Log via static helper methods added to instrumented classes (one per distinct logging " +
+                        "statement) to keep instrumented methods small.").build());
+        options.addOption(Option.builder().longOpt(TOGGLEABLE_LOGGING_OPTION).hasArg(false)
+                .desc("Log via invokedynamic call sites so that logging can be enabled and disabled at run time " +
+                        "(see dyco4j.logging.LoggingControl).  Ignored for classes older than Java 7.").build());
+        options.addOption(Option.builder().longOpt(TRACE_ALLOCATIONS_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Instrument to trace object and array allocations: {0}.  Allocation " +
+                        "sites are recorded in program data.  With {1}, every allocation is logged.  With {2}, " +
+                        "allocations are counted per site and the counts are logged at shutdown.",
+                        allocationOptionValuesString(), AllocationOption.events, AllocationOption.counts))
+                .build());
+        options.addOption(Option.builder().longOpt(TRACE_LOCKS_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Instrument to trace acquisitions and releases of monitors (by " +
+                        "synchronized blocks and methods) and locks (by Lock methods) and parks (by LockSupport " +
+                        "methods): {0}.  With {1}, the durations of waiting for and holding locks are aggregated " +
+                        "per lock and site and logged at shutdown.  With {2}, every acquisition and release is " +
+                        "logged as well.", lockOptionValuesString(), LockOption.tables, LockOption.events))
+                .build());
+        options.addOption(Option.builder().longOpt(COVERAGE_OPTION).hasArg(false)
+                .desc("Instrument to record the basic blocks executed in classes (other than interfaces) instead " +
+                        "of tracing.  Basic blocks are recorded in program data.  The executed blocks are logged " +
+                        "at shutdown and at markers (e.g., injected by entry instrumentation).  Other trace options " +
+                        "are ignored.").build());
+        options.addOption(Option.builder().longOpt(SKIP_TRIVIAL_METHODS_OPTION).hasArg(false)
+                .desc("Do not instrument bridge methods, synthetic methods, field accessors, and small methods " +
+                        "that do not invoke methods.  Skipped methods are recorded in program data.").build());
+        options.addOption(Option.builder().longOpt(TRIVIAL_METHOD_SIZE_OPTION).hasArg(true)
+                .desc(MessageFormat.format("Methods with fewer bytes of code than this size are small.  " +
+                        "Default: {0}.", TRIVIAL_METHOD_SIZE)).build());
+    }
 
-        try {
-            final CommandLine _cmdLine = new DefaultParser().parse(_options, args);
-            process(_cmdLine);
-        } catch (final ParseException _ex1) {
-            new HelpFormatter().printHelp(CLI.class.getName(), _options);
+    static CommandLineOptions getCommandLineOptionsFrom(final CommandLine cmdLine) {
+        return new CommandLineOptions(
+                getAccessOptionFrom(cmdLine, TRACE_ARRAY_ACCESS_OPTION),
+                cmdLine.hasOption(AGGREGATE_ARRAY_ACCESS_OPTION),
+                getAccessOptionFrom(cmdLine, TRACE_FIELD_ACCESS_OPTION),
+                cmdLine.hasOption(ELIDE_REDUNDANT_FIELD_READS_OPTION),
+                cmdLine.hasOption(TRACE_METHOD_ARGUMENTS_OPTION),
+                cmdLine.hasOption(TRACE_METHOD_CALL_OPTION),
+                cmdLine.hasOption(TRACE_METHOD_RETURN_VALUE_OPTION),
+                cmdLine.hasOption(PRESERVE_FRAMES_OPTION),
+                cmdLine.hasOption(OUTLINE_LOGGING_OPTION),
+                cmdLine.hasOption(TOGGLEABLE_LOGGING_OPTION),
+                getAllocationOptionFrom(cmdLine),
+                getLockOptionFrom(cmdLine),
+                cmdLine.hasOption(COVERAGE_OPTION),
+                cmdLine.hasOption(SKIP_TRIVIAL_METHODS_OPTION),
+                Integer.parseInt(cmdLine.getOptionValue(TRIVIAL_METHOD_SIZE_OPTION,
+                        String.valueOf(TRIVIAL_METHOD_SIZE))));
+    }
+
+    static Path getProgramDataFileFrom(final CommandLine cmdLine) {
+        return Paths.get(cmdLine.hasOption(PROGRAM_DATA_OPTION) ?
+                cmdLine.getOptionValue(PROGRAM_DATA_OPTION) : PROGRAM_DATA_FILE_NAME);
+    }
+
+    static Filter getFilterFrom(final CommandLine cmdLine) throws IOException {
+        final List<Filter.Rule> _rules = new ArrayList<>();
+        if (cmdLine.hasOption(FILTER_RULES_OPTION))
+            _rules.addAll(Filter.loadRules(Paths.get(cmdLine.getOptionValue(FILTER_RULES_OPTION))));
+        final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
+        _rules.add(new Filter.Rule(true, Map.of(Filter.Criterion.MEMBER, _methodNameRegex)));
+        return new Filter(_rules);
+    }
+
+    static TracingClassVisitor createTracingClassVisitor(final ClassVisitor cv, final ProgramData programData,
+                                                         final MemberIdResolver memberIdResolver,
+                                                         final Filter filter,
+                                                         final CommandLineOptions cmdLineOptions) {
+        final Map<String, String> _skippedMethodId2Reason = programData.getViewOfSkippedMethodId2Reason();
+        return new TracingClassVisitor(cv, memberIdResolver, _skippedMethodId2Reason, filter, cmdLineOptions);
+    }
+
+    static CoverageClassVisitor createCoverageClassVisitor(final ClassVisitor cv, final ProgramData programData,
+                                                           final Filter filter,
+                                                           final CommandLineOptions cmdLineOptions) {
+        return new CoverageClassVisitor(cv, programData.getViewOfShortMethodName2Id(),
+                programData.getViewOfSkippedMethodId2Reason(), filter, cmdLineOptions);
+    }
+
+    /*
+     * INFO
+     *
+     * Blank lines and lines starting with # in the manifest are ignored.  Targets should neither overlap each other
+     * nor contain sources as mirroring a root deletes the files in its target that are absent in its source.
+     */
+    static List<Helper.PathPair> getSrcsAndTrgsFrom(final CommandLine cmdLine) throws IOException, ParseException {
+        final List<Helper.PathPair> _result = new ArrayList<>();
+        if (cmdLine.hasOption(IN_FOLDER_OPTION) || cmdLine.hasOption(OUT_FOLDER_OPTION)) {
+            if (!cmdLine.hasOption(IN_FOLDER_OPTION) || !cmdLine.hasOption(OUT_FOLDER_OPTION))
+                throw new MissingOptionException(List.of(IN_FOLDER_OPTION, OUT_FOLDER_OPTION));
+            _result.add(new Helper.PathPair(Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION)),
+                    Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION))));
+        }
+
+        if (cmdLine.hasOption(ROOTS_MANIFEST_OPTION)) {
+            final Path _manifest = Paths.get(cmdLine.getOptionValue(ROOTS_MANIFEST_OPTION));
+            for (final String _line : Files.readAllLines(_manifest)) {
+                final String _tmp = _line.strip();
+                if (_tmp.isEmpty() || _tmp.startsWith("#"))
+                    continue;
+
+                final int _i = _tmp.indexOf('=');
+                if (_i <= 0 || _i == _tmp.length() - 1)
+                    throw new ParseException(MessageFormat.format("{0} in {1} is not of the form <in>=<out>",
+                            _line, _manifest));
+                _result.add(new Helper.PathPair(Paths.get(_tmp.substring(0, _i).strip()),
+                        Paths.get(_tmp.substring(_i + 1).strip())));
+            }
         }
+
+        if (_result.isEmpty())
+            throw new MissingOptionException(MessageFormat.format("Either {0} and {1} options or {2} option is " +
+                    "required", IN_FOLDER_OPTION, OUT_FOLDER_OPTION, ROOTS_MANIFEST_OPTION));
+        for (final Helper.PathPair _srcAndTrg1 : _result) {
+            final Path _src = _srcAndTrg1.src().toAbsolutePath().normalize();
+            final Path _trg = _srcAndTrg1.trg().toAbsolutePath().normalize();
+            for (final Helper.PathPair _srcAndTrg2 : _result) {
+                final Path _otherTrg = _srcAndTrg2.trg().toAbsolutePath().normalize();
+                if (_src.startsWith(_otherTrg))
+                    throw new ParseException(MessageFormat.format("Source {0} is in target {1}", _srcAndTrg1.src(),
+                            _srcAndTrg2.trg()));
+                if (_srcAndTrg1 != _srcAndTrg2 && _trg.startsWith(_otherTrg))
+                    throw new ParseException(MessageFormat.format("Target {0} overlaps target {1}",
+                            _srcAndTrg1.trg(), _srcAndTrg2.trg()));
+            }
+        }
+        return _result;
     }
 
-    private static ClassLoader createCustomClassLoader(final CommandLine cmdLine) throws IOException {
+    static URLClassLoader createClassFileLocator(final CommandLine cmdLine,
+                                                 final List<Helper.PathPair> srcsAndTrgs) throws IOException {
         final List<URL> _urls = new ArrayList<>();
-        _urls.add(new File(cmdLine.getOptionValue(IN_FOLDER_OPTION)).toURI().toURL());
+        for (final Helper.PathPair _srcAndTrg : srcsAndTrgs)
+            _urls.add(_srcAndTrg.src().toUri().toURL());
         final String _classpathConfig = cmdLine.getOptionValue(CLASSPATH_CONFIG_OPTION);
         if (_classpathConfig != null) {
             for (String _s : Files.readAllLines(Paths.get(_classpathConfig))) {
@@ -95,49 +275,87 @@ public final class CLI {
         return new URLClassLoader(_urls.toArray(URL[]::new), ClassLoader.getPlatformClassLoader());
     }
 
-    private static void process(final CommandLine cmdLine) throws IOException {
-        final Path _srcRoot = Paths.get(cmdLine.getOptionValue(IN_FOLDER_OPTION));
-        final Path _trgRoot = Paths.get(cmdLine.getOptionValue(OUT_FOLDER_OPTION));
-        Helper.copyFiles(_srcRoot, _trgRoot);
+    private static void process(final CommandLine cmdLine, final List<Helper.PathPair> srcsAndTrgs)
+            throws IOException {
+        Helper.processRoots(srcsAndTrgs, roots -> process(cmdLine, srcsAndTrgs, roots));
+    }
 
-        final CommandLineOptions _cmdLineOptions = new CommandLineOptions(
-                getAccessOptionFrom(cmdLine, TRACE_ARRAY_ACCESS_OPTION),
-                getAccessOptionFrom(cmdLine, TRACE_FIELD_ACCESS_OPTION),
-                cmdLine.hasOption(TRACE_METHOD_ARGUMENTS_OPTION),
-                cmdLine.hasOption(TRACE_METHOD_CALL_OPTION),
-                cmdLine.hasOption(TRACE_METHOD_RETURN_VALUE_OPTION));
-        final Set<Path> _filenames = getFilenames(_srcRoot);
-        final Path _programDataFile = Paths.get(cmdLine.hasOption(PROGRAM_DATA_OPTION) ?
-                cmdLine.getOptionValue(PROGRAM_DATA_OPTION) : PROGRAM_DATA_FILE_NAME);
+    /*
+     * INFO
+     *
+     * Program data is collected from the classes of all roots (in the order of roots and paths) before any class is
+     * instrumented.  So, ids of members are consistent across roots and the classes of all roots are instrumented
+     * concurrently with a shared type hierarchy.
+     */
+    private static void process(final CommandLine cmdLine, final List<Helper.PathPair> srcsAndTrgs,
+                                final List<Helper.PathPair> roots) throws IOException {
+        for (final Helper.PathPair _root : roots) {
+            if (cmdLine.hasOption(MIRROR_OPTION))
+                Helper.mirrorFiles(_root.src(), _root.trg(), cmdLine.hasOption(HARD_LINK_FILES_OPTION));
+            else
+                Helper.copyFiles(_root.src(), _root.trg());
+        }
+
+        final CommandLineOptions _cmdLineOptions = getCommandLineOptionsFrom(cmdLine);
+        final Path _programDataFile = getProgramDataFileFrom(cmdLine);
         final ProgramData _programData = ProgramData.loadData(_programDataFile);
-        getMemberId2NameMapping(_filenames, _programData);
+        for (final Helper.PathPair _root : roots)
+            getMemberId2NameMapping(getFilenames(_root.src()), _programData, _cmdLineOptions);
 
-        final Predicate<Path> _classFileSelector = p -> p.toString().endsWith(".class");
-        final String _methodNameRegex = cmdLine.getOptionValue(METHOD_NAME_REGEX_OPTION, METHOD_NAME_REGEX);
-        final ClassLoader _customClassLoader = createCustomClassLoader(cmdLine);
-        final BiConsumer<Path, Path> _classInstrumenter = (srcPath, trgPath) -> {
-            try {
-                final ClassReader _cr = new ClassReader(Files.readAllBytes(srcPath));
-                final ClassWriter _cw = new CustomClassLoadingClassWriter(_cr, ClassWriter.COMPUTE_FRAMES, _customClassLoader);
-                final Map<String, String> _shortFieldName2Id = _programData.getViewOfShortFieldName2Id();
-                final Map<String, String> _shortMethodName2Id = _programData.getViewOfShortMethodName2Id();
-                final Map<String, String> _class2superClass = _programData.getViewOfClass2SuperClass();
-                final ClassVisitor _cv1 = new LoggerInitializingClassVisitor(CLI.ASM_VERSION, _cw);
-                final ClassVisitor _cv2 =
-                        new TracingClassVisitor(_cv1, _shortFieldName2Id, _shortMethodName2Id, _class2superClass,
-                                _methodNameRegex, _cmdLineOptions);
-                _cr.accept(_cv2, ClassReader.SKIP_FRAMES);
-
-                Files.write(trgPath, _cw.toByteArray());
-            } catch (final IOException _ex) {
-                throw new RuntimeException(_ex);
-            }
-        };
-        Helper.processFiles(_srcRoot, _trgRoot, _classFileSelector, _classInstrumenter);
+        final Predicate<Path> _classFileSelector = Helper::isClassFile;
+        final Filter _filter = getFilterFrom(cmdLine);
+        try (final URLClassLoader _classFileLocator = createClassFileLocator(cmdLine, srcsAndTrgs)) {
+            // INFO: The class loader is used only to locate class files; classes are never loaded via it
+            final ClassHierarchy _classHierarchy = new ClassHierarchy(_classFileLocator);
+            // INFO: Program data is complete at this point; so, the resolver is shared by all worker threads
+            final MemberIdResolver _memberIdResolver = new MemberIdResolver(_programData);
+            final UnaryOperator<byte[]> _classInstrumenter = bytecode -> instrumentClass(new ClassReader(bytecode),
+                    _programData, _memberIdResolver, _filter, _cmdLineOptions, _classHierarchy);
+            Helper.processFiles(roots, _classFileSelector, _classInstrumenter);
+        }
 
         ProgramData.saveData(_programData, _programDataFile);
     }
 
+    static byte[] instrumentClass(final ClassReader cr, final ProgramData programData,
+                                  final MemberIdResolver memberIdResolver, final Filter filter,
+                                  final CommandLineOptions cmdLineOptions, final ClassHierarchy classHierarchy) {
+        return instrumentClass(cr, programData, memberIdResolver, filter, cmdLineOptions, classHierarchy, true);
+    }
+
+    // INFO: Logger is not initialized by classes that are retransformed as retransformation cannot add methods
+    static byte[] instrumentClass(final ClassReader cr, final ProgramData programData,
+                                  final MemberIdResolver memberIdResolver, final Filter filter,
+                                  final CommandLineOptions cmdLineOptions, final ClassHierarchy classHierarchy,
+                                  final boolean initializeLogger) {
+        final UnaryOperator<ClassVisitor> _wrapper = cv -> initializeLogger ?
+                new LoggerInitializingClassVisitor(CLI.ASM_VERSION, cv) : cv;
+
+        // INFO: Frames of classes with coverage probes are always recomputed
+        if (cmdLineOptions.coverage()) {
+            final ClassWriter _cw = new ClassHierarchyBasedClassWriter(cr, ClassWriter.COMPUTE_FRAMES,
+                    classHierarchy);
+            cr.accept(createCoverageClassVisitor(_wrapper.apply(_cw), programData, filter, cmdLineOptions),
+                    ClassReader.SKIP_FRAMES);
+            return _cw.toByteArray();
+        }
+
+        if (cmdLineOptions.preserveFrames()) {
+            final ClassWriter _cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+            final TracingClassVisitor _cv = createTracingClassVisitor(_wrapper.apply(_cw), programData,
+                    memberIdResolver, filter, cmdLineOptions);
+            cr.accept(_cv, ClassReader.EXPAND_FRAMES);
+            if (_cv.areFramesPreservable())
+                return _cw.toByteArray();
+        }
+
+        final ClassWriter _cw = new ClassHierarchyBasedClassWriter(cr, ClassWriter.COMPUTE_FRAMES, classHierarchy);
+        final ClassVisitor _cv = createTracingClassVisitor(_wrapper.apply(_cw), programData, memberIdResolver,
+                filter, cmdLineOptions);
+        cr.accept(_cv, ClassReader.SKIP_FRAMES);
+        return _cw.toByteArray();
+    }
+
     private static Optional<AccessOption> getAccessOptionFrom(final CommandLine cmdLine,
                                                               final String optionName) {
         final Optional<AccessOption> _result = cmdLine.hasOption(optionName) ?
@@ -151,19 +369,35 @@ public final class CLI {
         return _result;
     }
 
-    private static Set<Path> getFilenames(final Path folder) throws IOException {
+    private static Optional<AllocationOption> getAllocationOptionFrom(final CommandLine cmdLine) {
+        return cmdLine.hasOption(TRACE_ALLOCATIONS_OPTION) ?
+                Optional.of(AllocationOption.valueOf(cmdLine.getOptionValue(TRACE_ALLOCATIONS_OPTION))) :
+                Optional.empty();
+    }
+
+    private static Optional<LockOption> getLockOptionFrom(final CommandLine cmdLine) {
+        return cmdLine.hasOption(TRACE_LOCKS_OPTION) ?
+                Optional.of(LockOption.valueOf(cmdLine.getOptionValue(TRACE_LOCKS_OPTION))) : Optional.empty();
+    }
+
+    private static List<Path> getFilenames(final Path folder) throws IOException {
         try (Stream<Path> walker = Files.walk(folder)) {
-            return walker.filter(p -> p.toString().endsWith(".class")).collect(Collectors.toSet());
+            return walker.filter(Helper::isClassFile).sorted().collect(Collectors.toList());
         }
     }
 
-    private static void getMemberId2NameMapping(final Collection<Path> filenames, final ProgramData programData) {
+    static void getMemberId2NameMapping(final byte[] bytecode, final ProgramData programData,
+                                        final CommandLineOptions cmdLineOptions) {
+        final ClassReader _cr = new ClassReader(bytecode);
+        final ClassVisitor _cv = new ProgramDataCollectingClassVisitor(programData, cmdLineOptions);
+        _cr.accept(_cv, 0);
+    }
+
+    private static void getMemberId2NameMapping(final Collection<Path> filenames, final ProgramData programData,
+                                                final CommandLineOptions cmdLineOptions) {
         try {
-            for (final Path _arg : filenames) {
-                final ClassReader _cr = new ClassReader(Files.readAllBytes(_arg));
-                final ClassVisitor _cv = new ProgramDataCollectingClassVisitor(programData);
-                _cr.accept(_cv, 0);
-            }
+            for (final Path _arg : filenames)
+                getMemberId2NameMapping(Files.readAllBytes(_arg), programData, cmdLineOptions);
         } catch (final Exception _ex) {
             throw new RuntimeException(_ex);
         }
@@ -174,28 +408,57 @@ public final class CLI {
                 .map(Object::toString).toList());
     }
 
+    private static String allocationOptionValuesString() {
+        return String.join(",", Arrays.stream(AllocationOption.values())
+                .map(Object::toString).toList());
+    }
+
+    private static String lockOptionValuesString() {
+        return String.join(",", Arrays.stream(LockOption.values())
+                .map(Object::toString).toList());
+    }
+
     enum AccessOption {
         with_values,
         without_values,
     }
 
-    record CommandLineOptions(Optional<AccessOption> traceArrayAccess,
-                              Optional<AccessOption> traceFieldAccess,
-                              boolean traceMethodArgs, boolean traceMethodCall, boolean traceMethodRetValue) {
+    enum AllocationOption {
+        events,
+        counts,
     }
 
-    private static class CustomClassLoadingClassWriter extends ClassWriter {
-        private final ClassLoader customClassLoader;
+    enum LockOption {
+        tables,
+        events,
+    }
 
-        CustomClassLoadingClassWriter(final ClassReader reader, final int flags, final ClassLoader customClassLoader) {
+    record CommandLineOptions(Optional<AccessOption> traceArrayAccess, boolean aggregateArrayAccess,
+                              Optional<AccessOption> traceFieldAccess, boolean elideRedundantFieldReads,
+                              boolean traceMethodArgs, boolean traceMethodCall, boolean traceMethodRetValue,
+                              boolean preserveFrames, boolean outlineLogging, boolean toggleableLogging,
+                              Optional<AllocationOption> traceAllocations, Optional<LockOption> traceLocks,
+                              boolean coverage, boolean skipTrivialMethods, int trivialMethodSize) {
+        CommandLineOptions withoutOutlinedLogging() {
+            return new CommandLineOptions(traceArrayAccess, aggregateArrayAccess, traceFieldAccess,
+                    elideRedundantFieldReads, traceMethodArgs, traceMethodCall, traceMethodRetValue, preserveFrames,
+                    false, toggleableLogging, traceAllocations, traceLocks, coverage, skipTrivialMethods,
+                    trivialMethodSize);
+        }
+    }
+
+    static class ClassHierarchyBasedClassWriter extends ClassWriter {
+        private final ClassHierarchy classHierarchy;
+
+        ClassHierarchyBasedClassWriter(final ClassReader reader, final int flags,
+                                       final ClassHierarchy classHierarchy) {
             super(reader, flags);
-            this.customClassLoader = customClassLoader;
+            this.classHierarchy = classHierarchy;
         }
 
         @Override
-        protected ClassLoader getClassLoader() {
-            return customClassLoader;
+        protected String getCommonSuperClass(final String type1, final String type2) {
+            return classHierarchy.getCommonSuperClass(type1, type2);
         }
-
     }
 }
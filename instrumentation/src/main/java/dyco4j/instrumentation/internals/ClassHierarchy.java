@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Type hierarchy built by reading only the headers of class files (located as resources via a class loader).  So,
+ * unlike <code>ClassWriter.getCommonSuperClass</code>, it neither loads classes nor executes their static
+ * initializers.
+ * <p>
+ * It is thread-safe, and it consults the parent hierarchy (if any) before locating class files.
+ */
+final class ClassHierarchy {
+    private static final String OBJECT = "java/lang/Object";
+    private static final TypeInfo ABSENT_TYPE = new TypeInfo(null, List.of(), false);
+    private final Supplier<ClassLoader> resourceLoader;
+    private final ClassHierarchy parent;
+    private final Map<String, TypeInfo> type2info = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> type2supertypes = new ConcurrentHashMap<>();
+
+    ClassHierarchy(final ClassLoader resourceLoader) {
+        this(() -> resourceLoader, null);
+    }
+
+    private ClassHierarchy(final Supplier<ClassLoader> resourceLoader, final ClassHierarchy parent) {
+        this.resourceLoader = resourceLoader;
+        this.parent = parent;
+    }
+
+    /**
+     * @return a hierarchy that does not retain the resource loader, e.g., to cache hierarchies per class loader.
+     */
+    static ClassHierarchy withWeakResourceLoader(final ClassLoader resourceLoader, final ClassHierarchy parent) {
+        final WeakReference<ClassLoader> _tmp = new WeakReference<>(resourceLoader);
+        return new ClassHierarchy(_tmp::get, parent);
+    }
+
+    // INFO: A class may be added after it was found to be absent, e.g., a class generated after its subclass
+    void addClass(final ClassReader classReader) {
+        final TypeInfo _info = new TypeInfo(classReader);
+        type2info.merge(classReader.getClassName(), _info, (o, n) -> o == ABSENT_TYPE ? n : o);
+    }
+
+    String getCommonSuperClass(final String type1, final String type2) {
+        if (isAssignableFrom(type1, type2))
+            return type1;
+        if (isAssignableFrom(type2, type1))
+            return type2;
+        if (getTypeInfo(type1).isInterface() || getTypeInfo(type2).isInterface())
+            return OBJECT;
+
+        String _tmp = type1;
+        do {
+            _tmp = getTypeInfo(_tmp).superName();
+        } while (!isAssignableFrom(_tmp, type2));
+        return _tmp;
+    }
+
+    private boolean isAssignableFrom(final String supertype, final String type) {
+        return supertype.equals(OBJECT) || getSupertypes(type).contains(supertype);
+    }
+
+    private Set<String> getSupertypes(final String type) {
+        final Set<String> _supertypes = type2supertypes.get(type);
+        if (_supertypes != null)
+            return _supertypes;
+
+        // INFO: Supertypes are collected without holding locks as ConcurrentHashMap does not support recursive updates
+        final TypeInfo _info = getTypeInfo(type);
+        final Set<String> _tmp = new HashSet<>();
+        _tmp.add(type);
+        if (_info.superName() != null)
+            _tmp.addAll(getSupertypes(_info.superName()));
+        for (final String _interface : _info.interfaces())
+            _tmp.addAll(getSupertypes(_interface));
+
+        final Set<String> _result = Set.copyOf(_tmp);
+        final Set<String> _prev = type2supertypes.putIfAbsent(type, _result);
+        return _prev == null ? _result : _prev;
+    }
+
+    private TypeInfo getTypeInfo(final String type) {
+        final TypeInfo _info = findTypeInfo(type);
+        if (_info == null)
+            throw new TypeNotPresentException(type, null);
+        return _info;
+    }
+
+    private TypeInfo findTypeInfo(final String type) {
+        if (parent != null) {
+            final TypeInfo _info = parent.findTypeInfo(type);
+            if (_info != null)
+                return _info;
+        }
+
+        TypeInfo _info = type2info.get(type);
+        if (_info == null) {
+            _info = readTypeInfo(type);
+            final TypeInfo _prev = type2info.putIfAbsent(type, _info);
+            if (_prev != null)
+                _info = _prev;
+        }
+        return _info == ABSENT_TYPE ? null : _info;
+    }
+
+    private TypeInfo readTypeInfo(final String type) {
+        final ClassLoader _resourceLoader = resourceLoader.get();
+        if (_resourceLoader == null)
+            throw new IllegalStateException("Resource loader of the hierarchy has been collected");
+
+        try (final InputStream _in = _resourceLoader.getResourceAsStream(type + ".class")) {
+            return _in == null ? ABSENT_TYPE : new TypeInfo(new ClassReader(_in));
+        } catch (final IOException _ex) {
+            throw new UncheckedIOException(_ex);
+        }
+    }
+
+    private record TypeInfo(String superName, List<String> interfaces, boolean isInterface) {
+        TypeInfo(final ClassReader classReader) {
+            this(classReader.getSuperName(), List.of(classReader.getInterfaces()),
+                    (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        }
+    }
+}
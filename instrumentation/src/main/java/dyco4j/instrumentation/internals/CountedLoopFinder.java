@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds counted loops in the code of a method.  A loop is the code between a label and the last (conditional or
+ * unconditional) jump back to the label.  Such a loop is counted if it increments a local variable via IINC, e.g.,
+ * <code>for (int i = 0; i &lt; n; i++)</code>.
+ * <p>
+ * As the loops are tracked while the code is visited in order, only loops that are either disjoint or nested are
+ * reported.
+ */
+final class CountedLoopFinder {
+    private CountedLoopFinder() {
+    }
+
+    /**
+     * @return a map from the head of each counted loop to the number of jumps back to it.
+     */
+    static Map<Label, Integer> find(final MethodNode methodNode) {
+        final InsnList _insns = methodNode.instructions;
+        final Map<LabelNode, Loop> _head2loop = new HashMap<>();
+        for (final AbstractInsnNode _insn : _insns) {
+            if (_insn instanceof JumpInsnNode _jump) {
+                final int _begin = _insns.indexOf(_jump.label);
+                final int _end = _insns.indexOf(_jump);
+                if (_begin < _end) {
+                    final Loop _loop = _head2loop.computeIfAbsent(_jump.label, k -> new Loop(_begin));
+                    _loop.end = _end;
+                    _loop.numOfBackEdges++;
+                }
+            }
+        }
+
+        final List<Loop> _loops = new ArrayList<>(_head2loop.values());
+        _loops.removeIf(l -> !isCounted(_insns, l));
+        final Map<Label, Integer> _result = new HashMap<>();
+        for (final Map.Entry<LabelNode, Loop> _e : _head2loop.entrySet()) {
+            final Loop _loop = _e.getValue();
+            if (_loops.contains(_loop) && _loops.stream().noneMatch(l -> l.crosses(_loop)))
+                _result.put(_e.getKey().getLabel(), _loop.numOfBackEdges);
+        }
+        return _result;
+    }
+
+    private static boolean isCounted(final InsnList insns, final Loop loop) {
+        for (int _i = loop.begin; _i < loop.end; _i++) {
+            if (insns.get(_i) instanceof IincInsnNode _iinc && _iinc.incr != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static final class Loop {
+        final int begin;
+        int end;
+        int numOfBackEdges;
+
+        Loop(final int begin) {
+            this.begin = begin;
+        }
+
+        boolean crosses(final Loop other) {
+            return (begin < other.begin && other.begin <= end && end < other.end) ||
+                    (other.begin < begin && begin <= other.end && other.end < end);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.instrumentation.Filter;
+import dyco4j.logging.Logger;
+import dyco4j.utility.ClassNameHelper;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Injects a probe at the beginning of each basic block of the methods of a class.  A probe sets an element of a
+ * boolean array that is shared by the methods of the class.  The array is registered with <code>Logger</code> when
+ * it is first used, and it is cached in a static field added to the class.  So, probes do not invoke
+ * <code>Logger</code>.
+ * <p>
+ * Basic blocks of all methods of a class (in the order of occurrence) are numbered in the same way as in
+ * ProgramDataCollectingClassVisitor; hence, the number of a basic block is the index of its probe.  Basic blocks of
+ * methods that are not instrumented are numbered, but they are never covered.  Interfaces are not instrumented as
+ * they cannot have non-final static fields.
+ */
+final class CoverageClassVisitor extends ClassVisitor {
+    private static final String PROBES_NAME = "dyco4j$probes";
+    private static final String PROBES_DESC = "[Z";
+    private static final String PROBES_METHOD_DESC = Type.getMethodDescriptor(Type.getType(PROBES_DESC));
+    private static final String LOGGER = Type.getInternalName(Logger.class);
+    private static final String REGISTER_PROBES_DESC = Type.getMethodDescriptor(Type.getType(PROBES_DESC),
+            Type.getType(String.class), Type.INT_TYPE);
+    private final Map<String, String> shortMethodName2Id;
+    private final Map<String, String> skippedMethodId2Reason;
+    private final Filter filter;
+    private final CLI.CommandLineOptions cmdLineOptions;
+    private Filter.ClassFilter classFilter;
+    private String className;
+    private boolean isInterface;
+    private int numOfProbes;
+
+    CoverageClassVisitor(final ClassVisitor cv, final Map<String, String> shortMethodName2Id,
+                         final Map<String, String> skippedMethodId2Reason, final Filter filter,
+                         final CLI.CommandLineOptions clo) {
+        super(CLI.ASM_VERSION, cv);
+        this.shortMethodName2Id = shortMethodName2Id;
+        this.skippedMethodId2Reason = skippedMethodId2Reason;
+        this.filter = filter;
+        this.cmdLineOptions = clo;
+    }
+
+    private static Set<String> getAnnotations(final MethodNode methodNode) {
+        final Set<String> _result = new HashSet<>();
+        if (methodNode.visibleAnnotations != null)
+            methodNode.visibleAnnotations.forEach(a -> _result.add(a.desc));
+        if (methodNode.invisibleAnnotations != null)
+            methodNode.invisibleAnnotations.forEach(a -> _result.add(a.desc));
+        return _result;
+    }
+
+    private static AbstractInsnNode createIntConstant(final int value) {
+        if (value <= 5)
+            return new InsnNode(Opcodes.ICONST_0 + value);
+        else if (value <= Byte.MAX_VALUE)
+            return new IntInsnNode(Opcodes.BIPUSH, value);
+        else if (value <= Short.MAX_VALUE)
+            return new IntInsnNode(Opcodes.SIPUSH, value);
+        else
+            return new LdcInsnNode(value);
+    }
+
+    @Override
+    public void visit(final int version, final int access, final String name, final String signature,
+                      final String superName, final String[] interfaces) {
+        super.visit(version, access, name, signature, superName, interfaces);
+        className = name;
+        classFilter = filter.forClass(name);
+        isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature,
+                                     final String[] exceptions) {
+        final MethodVisitor _mv = super.visitMethod(access, name, desc, signature, exceptions);
+        if (_mv == null || isInterface || classFilter.isExcluded())
+            return _mv;
+
+        return new MethodNode(CLI.ASM_VERSION, access, name, desc, signature, exceptions) {
+            @Override
+            public void visitEnd() {
+                final List<AbstractInsnNode> _leaders = BasicBlockFinder.find(this);
+                final int _firstProbe = numOfProbes;
+                numOfProbes += _leaders.size();
+                if (!_leaders.isEmpty() && shouldInstrument(this))
+                    injectProbes(this, _leaders, _firstProbe);
+                accept(_mv);
+            }
+        };
+    }
+
+    @Override
+    public void visitEnd() {
+        if (numOfProbes > 0) {
+            final int _access = Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
+            super.visitField(_access | Opcodes.ACC_TRANSIENT, PROBES_NAME, PROBES_DESC, null, null).visitEnd();
+            emitProbesMethod(super.visitMethod(_access, PROBES_NAME, PROBES_METHOD_DESC, null, null));
+        }
+        super.visitEnd();
+    }
+
+    private boolean shouldInstrument(final MethodNode methodNode) {
+        final String _shortName = ClassNameHelper.createShortNameDesc(methodNode.name, Optional.of(className),
+                methodNode.desc);
+        final String _methodId = shortMethodName2Id.get(_shortName);
+        final Set<String> _annotations = classFilter.dependsOnAnnotations() ? getAnnotations(methodNode) : Set.of();
+        return !(cmdLineOptions.skipTrivialMethods() && skippedMethodId2Reason.containsKey(_methodId)) &&
+                classFilter.includes(Filter.Kind.method, methodNode.name, methodNode.desc, _annotations);
+    }
+
+    /*
+     * INFO
+     *
+     * The probes are loaded into a new local variable at the beginning of the method.  As the probes of a block are
+     * set before the first instruction of the block, the probe of a block is set only if the block is entered.
+     */
+    private void injectProbes(final MethodNode methodNode, final List<AbstractInsnNode> leaders,
+                              final int firstProbe) {
+        final InsnList _insns = methodNode.instructions;
+        final int _local = methodNode.maxLocals;
+        for (int _i = 0; _i < leaders.size(); _i++) {
+            final InsnList _probe = new InsnList();
+            _probe.add(new VarInsnNode(Opcodes.ALOAD, _local));
+            _probe.add(createIntConstant(firstProbe + _i));
+            _probe.add(new InsnNode(Opcodes.ICONST_1));
+            _probe.add(new InsnNode(Opcodes.BASTORE));
+            _insns.insertBefore(leaders.get(_i), _probe);
+        }
+
+        final InsnList _init = new InsnList();
+        _init.add(new MethodInsnNode(Opcodes.INVOKESTATIC, className, PROBES_NAME, PROBES_METHOD_DESC, false));
+        _init.add(new VarInsnNode(Opcodes.ASTORE, _local));
+        _insns.insert(_init);
+        methodNode.maxLocals += 1;
+        methodNode.maxStack += 3;
+    }
+
+    /*
+     * INFO
+     *
+     * The probes are registered lazily (instead of in the static initializer) as methods of the class may be
+     * executed before the static initializer completes.  Concurrent registrations yield the same probes.
+     */
+    private void emitProbesMethod(final MethodVisitor mv) {
+        final Label _label = new Label();
+        mv.visitCode();
+        mv.visitFieldInsn(Opcodes.GETSTATIC, className, PROBES_NAME, PROBES_DESC);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitJumpInsn(Opcodes.IFNONNULL, _label);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitLdcInsn(className);
+        mv.visitLdcInsn(numOfProbes);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, LOGGER, "registerProbes", REGISTER_PROBES_DESC, false);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitFieldInsn(Opcodes.PUTSTATIC, className, PROBES_NAME, PROBES_DESC);
+        mv.visitLabel(_label);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(2, 0);
+        mv.visitEnd();
+    }
+}
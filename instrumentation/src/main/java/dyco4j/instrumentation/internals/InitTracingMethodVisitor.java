@@ -23,6 +23,7 @@ final class InitTracingMethodVisitor extends MethodVisitor {
     private static final Object OTHER = new Object();
     private final Map<Label, Stack<Object>> branchTarget2frame = new HashMap<>();
     private boolean thisIsInitialized;
+    private int numOfThisInitializations;
     private Stack<Object> stackFrame = new Stack<>();
 
     InitTracingMethodVisitor(final String name, final TracingMethodVisitor mv) {
@@ -321,7 +322,10 @@ final class InitTracingMethodVisitor extends MethodVisitor {
                 stackFrame.pop(); // objectref
                 break;
             case Opcodes.INVOKESPECIAL:
-                _flag = stackFrame.pop() == THIS && !thisIsInitialized;  // objectref
+                final boolean _isThis = stackFrame.pop() == THIS;  // objectref
+                if (_isThis && name.equals("<init>"))
+                    numOfThisInitializations++;
+                _flag = _isThis && !thisIsInitialized;
                 break;
         }
 
@@ -403,6 +407,14 @@ final class InitTracingMethodVisitor extends MethodVisitor {
             addBranch(l);
     }
 
+    @Override
+    public void visitMaxs(final int maxStack, final int maxLocals) {
+        // INFO: Handler frames cannot be determined if this is initialized on multiple paths or not at all
+        if (numOfThisInitializations != 1)
+            ((TracingMethodVisitor) mv).markFramesAsNotPreservable();
+        super.visitMaxs(maxStack, maxLocals);
+    }
+
     private void addBranch(final Label label) {
         if (!branchTarget2frame.containsKey(label)) {
             final Stack<Object> _frame = new Stack<>();
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.instrumentation.Filter;
+import dyco4j.utility.ProgramData;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Instruments the internals of classes in memory, e.g., in build tools and class loaders.  The instrumentation is
+ * configured via {@link Options}, and the instrumented classes refer to the ids in the given program data, which is
+ * extended with the members of the instrumented classes.
+ * <p>
+ * An instrumenter is thread-safe, and it is intended to be reused across calls as it retains the type hierarchy
+ * (required to compute frames) of the classes it has seen.  The classes used by instrumented classes are located via
+ * the given class loader (without loading them).
+ */
+public final class Instrumenter {
+    private final Options options;
+    private final ProgramData programData;
+    private final ClassHierarchy classHierarchy;
+    private final MemberIdResolver memberIdResolver;
+    private final boolean initializeLogger;
+    /*
+     * INFO
+     *
+     * Program data is not thread-safe.  So, ids are assigned to members under the write lock while classes are
+     * instrumented (which only reads ids) under the read lock.  Likewise, memoized ids are refreshed under the write
+     * lock.
+     */
+    private final ReadWriteLock programDataLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param classFileLocator locates the class files of the classes used by the classes to be instrumented.
+     */
+    public Instrumenter(final Options options, final ProgramData programData, final ClassLoader classFileLocator) {
+        this(options, programData, new ClassHierarchy(classFileLocator), true);
+    }
+
+    /**
+     * @param classHierarchy   of the classes used by the classes to be instrumented when no class hierarchy is given
+     *                         to {@link #instrument(byte[], ClassHierarchy)}.
+     * @param initializeLogger if true, then the logger is initialized by instrumented classes.
+     */
+    Instrumenter(final Options options, final ProgramData programData, final ClassHierarchy classHierarchy,
+                 final boolean initializeLogger) {
+        this.options = options;
+        this.programData = programData;
+        this.classHierarchy = classHierarchy;
+        this.memberIdResolver = new MemberIdResolver(programData);
+        this.initializeLogger = initializeLogger;
+    }
+
+    /**
+     * @param bytecode of the class to be instrumented.
+     * @return the bytecode of the instrumented class.
+     */
+    public byte[] instrument(final byte[] bytecode) {
+        return instrument(bytecode, classHierarchy);
+    }
+
+    /**
+     * @param classHierarchy of the classes used by the class to be instrumented, e.g., the classes of its class
+     *                       loader.
+     */
+    byte[] instrument(final byte[] bytecode, final ClassHierarchy classHierarchy) {
+        collectProgramData(bytecode, classHierarchy);
+        return instrumentClass(bytecode, classHierarchy);
+    }
+
+    /**
+     * Instruments a set of classes, e.g., the classes of a module.  Ids are assigned to the members of all classes
+     * (in the order of their names) before the classes are instrumented in parallel.
+     *
+     * @param name2bytecode maps the names of the classes to their bytecode.
+     * @return a map from the names of the classes to the bytecode of the instrumented classes.
+     */
+    public Map<String, byte[]> instrument(final Map<String, byte[]> name2bytecode) {
+        final Map<String, byte[]> _sortedName2bytecode = new TreeMap<>(name2bytecode);
+        _sortedName2bytecode.values().forEach(b -> collectProgramData(b, classHierarchy));
+
+        final Map<String, byte[]> _result = new ConcurrentHashMap<>();
+        _sortedName2bytecode.entrySet().parallelStream()
+                .forEach(e -> _result.put(e.getKey(), instrumentClass(e.getValue(), classHierarchy)));
+        return new TreeMap<>(_result);
+    }
+
+    /**
+     * @return the program data extended with the members of the instrumented classes.  It should not be accessed
+     * while classes are being instrumented.
+     */
+    public ProgramData getProgramData() {
+        return programData;
+    }
+
+    public void saveProgramData(final Path programDataFile) throws IOException {
+        programDataLock.writeLock().lock();
+        try {
+            ProgramData.saveData(programData, programDataFile);
+        } finally {
+            programDataLock.writeLock().unlock();
+        }
+    }
+
+    private void collectProgramData(final byte[] bytecode, final ClassHierarchy classHierarchy) {
+        classHierarchy.addClass(new ClassReader(bytecode));
+        programDataLock.writeLock().lock();
+        try {
+            CLI.getMemberId2NameMapping(bytecode, programData, options.cmdLineOptions);
+            memberIdResolver.refresh();
+        } finally {
+            programDataLock.writeLock().unlock();
+        }
+    }
+
+    private byte[] instrumentClass(final byte[] bytecode, final ClassHierarchy classHierarchy) {
+        programDataLock.readLock().lock();
+        try {
+            return CLI.instrumentClass(new ClassReader(bytecode), programData, memberIdResolver, options.filter,
+                    options.cmdLineOptions, classHierarchy, initializeLogger);
+        } finally {
+            programDataLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Options of the instrumentation.  The filter rules are loaded (and compiled) once, and the options can be shared
+     * by instrumenters.
+     */
+    public static final class Options {
+        private final CLI.CommandLineOptions cmdLineOptions;
+        private final Filter filter;
+
+        Options(final CLI.CommandLineOptions cmdLineOptions, final Filter filter) {
+            this.cmdLineOptions = cmdLineOptions;
+            this.filter = filter;
+        }
+
+        /**
+         * @param options of the form <code>option[=value]</code> where option is the long name of an
+         *                instrumentation option of {@link CLI}, e.g., <code>trace-method-call</code> and
+         *                <code>trace-field-access=with_values</code>.
+         * @throws IllegalArgumentException if the options are invalid.
+         * @throws UncheckedIOException     if the filter rules cannot be loaded.
+         */
+        public static Options parse(final String... options) {
+            final org.apache.commons.cli.Options _options = new org.apache.commons.cli.Options();
+            CLI.addInstrumentationOptions(_options);
+            final String[] _args = Arrays.stream(options).map(s -> "--" + s.trim()).toArray(String[]::new);
+            try {
+                final CommandLine _cmdLine = new DefaultParser().parse(_options, _args);
+                return new Options(CLI.getCommandLineOptionsFrom(_cmdLine), CLI.getFilterFrom(_cmdLine));
+            } catch (final ParseException _ex) {
+                throw new IllegalArgumentException(_ex);
+            } catch (final IOException _ex) {
+                throw new UncheckedIOException(_ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return filter.toString() + cmdLineOptions;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.utility.ClassNameHelper;
+import dyco4j.utility.ProgramData;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the ids of fields and methods referred to by (owner, name, descriptor) triples.  If the owner does not
+ * declare the member, then the member is resolved in the supertypes of the owner as in the JVM, i.e., fields are
+ * resolved in the superinterfaces before the superclass (JVMS 5.4.3.2) while methods are resolved in the superclasses
+ * before the superinterfaces (JVMS 5.4.3.3).  Resolved ids are memoized.
+ * <p>
+ * It is thread-safe as long as program data is not modified while ids are being resolved.  So, it can be shared by
+ * the visitors instrumenting classes on different threads.
+ */
+final class MemberIdResolver {
+    private final Map<String, String> shortFieldName2Id;
+    private final Map<String, String> shortMethodName2Id;
+    private final Map<String, String> class2superClass;
+    private final Map<String, List<String>> class2interfaces;
+    private final Map<Member, String> field2id = new ConcurrentHashMap<>();
+    private final Map<Member, String> method2id = new ConcurrentHashMap<>();
+    private long numOfNamesAndClasses;
+
+    MemberIdResolver(final ProgramData programData) {
+        this.shortFieldName2Id = programData.getViewOfShortFieldName2Id();
+        this.shortMethodName2Id = programData.getViewOfShortMethodName2Id();
+        this.class2superClass = programData.getViewOfClass2SuperClass();
+        this.class2interfaces = programData.getViewOfClass2Interfaces();
+        this.numOfNamesAndClasses = getNumOfNamesAndClasses();
+    }
+
+    /*
+     * INFO
+     *
+     * Memoized ids may be stale after members or classes are added to program data, e.g., a member resolved in a
+     * superclass may be later referred to (and assigned an id) via its owner.  So, memoized ids are discarded when
+     * program data grows.  It should be invoked after program data is modified and before ids are resolved.
+     */
+    void refresh() {
+        final long _tmp = getNumOfNamesAndClasses();
+        if (_tmp != numOfNamesAndClasses) {
+            field2id.clear();
+            method2id.clear();
+            numOfNamesAndClasses = _tmp;
+        }
+    }
+
+    String getFieldId(final String name, final String owner, final String desc) {
+        final Member _field = new Member(owner, name, desc);
+        final String _id = field2id.get(_field);
+        return _id != null ? _id : memoize(field2id, _field, resolveField(_field).orElseThrow(() ->
+                new IllegalStateException(MessageFormat.format("Incomplete information: name={0}, owner={1}, " +
+                        "desc={2} _shortName={3}", name, owner, desc, _field.getShortNameDesc(owner)))));
+    }
+
+    String getMethodId(final String name, final String owner, final String desc) {
+        final Member _method = new Member(owner, name, desc);
+        final String _id = method2id.get(_method);
+        return _id != null ? _id : memoize(method2id, _method, resolveMethod(_method).orElseThrow(() ->
+                new IllegalStateException("Could not find methodId for " + _method.getShortNameDesc(owner))));
+    }
+
+    private static String memoize(final Map<Member, String> member2id, final Member member, final String id) {
+        final String _prev = member2id.putIfAbsent(member, id);
+        return _prev == null ? id : _prev;
+    }
+
+    private long getNumOfNamesAndClasses() {
+        return (long) shortFieldName2Id.size() + shortMethodName2Id.size() + class2superClass.size() +
+                class2interfaces.size();
+    }
+
+    // INFO: As in field resolution of JVM, direct superinterfaces (recursively) are searched before the superclass
+    private Optional<String> resolveField(final Member member) {
+        return resolveField(member, member.owner(), new HashSet<>());
+    }
+
+    private Optional<String> resolveField(final Member member, final String type, final Set<String> visited) {
+        if (!visited.add(type))
+            return Optional.empty();
+
+        final String _id = shortFieldName2Id.get(member.getShortNameDesc(type));
+        if (_id != null)
+            return Optional.of(_id);
+
+        for (final String _interface : class2interfaces.getOrDefault(type, List.of())) {
+            final Optional<String> _tmp = resolveField(member, _interface, visited);
+            if (_tmp.isPresent())
+                return _tmp;
+        }
+
+        final String _superClass = class2superClass.get(type);
+        return _superClass == null ? Optional.empty() : resolveField(member, _superClass, visited);
+    }
+
+    // INFO: As in method resolution of JVM, superclasses are searched before superinterfaces
+    private Optional<String> resolveMethod(final Member member) {
+        final Deque<String> _interfaces = new ArrayDeque<>();
+        for (String _class = member.owner(); _class != null; _class = class2superClass.get(_class)) {
+            final String _id = shortMethodName2Id.get(member.getShortNameDesc(_class));
+            if (_id != null)
+                return Optional.of(_id);
+            _interfaces.addAll(class2interfaces.getOrDefault(_class, List.of()));
+        }
+
+        final Set<String> _visited = new HashSet<>();
+        while (!_interfaces.isEmpty()) {
+            final String _interface = _interfaces.remove();
+            if (!_visited.add(_interface))
+                continue;
+
+            final String _id = shortMethodName2Id.get(member.getShortNameDesc(_interface));
+            if (_id != null)
+                return Optional.of(_id);
+            _interfaces.addAll(class2interfaces.getOrDefault(_interface, List.of()));
+        }
+        return Optional.empty();
+    }
+
+    private record Member(String owner, String name, String desc) {
+        String getShortNameDesc(final String declaringClass) {
+            return ClassNameHelper.createShortNameDesc(name, Optional.of(declaringClass), desc);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Static helper methods that are added to an instrumented class to log events.  Each helper corresponds to a
+ * distinct log shape (e.g., the entry of a method along with its arguments or the read of a field along with its
+ * value), and each logging site is reduced to an invocation of a helper.  So, instrumented methods stay small enough
+ * to be inlined by JIT compilers.
+ */
+final class OutlinedLoggingHelpers {
+    private static final String HELPER_NAME_PREFIX = "dyco4j$log$";
+    private final String className;
+    private final boolean isInterface;
+    private final Map<String, Helper> key2helper = new LinkedHashMap<>();
+
+    OutlinedLoggingHelpers(final String className, final boolean isInterface) {
+        this.className = className;
+        this.isInterface = isInterface;
+    }
+
+    /**
+     * Emits an invocation of the helper identified by the key.  The helper is created if it does not exist.
+     *
+     * @param key         identifies the log shape including the constants logged by the helper.
+     * @param desc        of the helper.
+     * @param methodId    of the method whose events are logged by the helper.  Empty if the helper is shared by
+     *                    methods.
+     * @param bodyEmitter emits the code of the helper (including the return instruction) when the helper is added
+     *                    to the class.
+     */
+    void emitInvocation(final MethodVisitor mv, final String key, final String desc, final Optional<String> methodId,
+                        final Consumer<MethodVisitor> bodyEmitter) {
+        final Helper _helper = key2helper.computeIfAbsent(key + desc,
+                k -> new Helper(HELPER_NAME_PREFIX + key2helper.size(), desc, methodId, bodyEmitter));
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, className, _helper.name, _helper.desc, isInterface);
+    }
+
+    void addHelpersTo(final TracingClassVisitor cv) {
+        for (final Helper _helper : key2helper.values()) {
+            final MethodVisitor _mv = cv.visitLoggingHelper(_helper.name, _helper.desc, _helper.methodId);
+            _mv.visitCode();
+            _helper.bodyEmitter.accept(_mv);
+            _mv.visitMaxs(0, 0);
+            _mv.visitEnd();
+        }
+    }
+
+    private record Helper(String name, String desc, Optional<String> methodId, Consumer<MethodVisitor> bodyEmitter) {
+    }
+}
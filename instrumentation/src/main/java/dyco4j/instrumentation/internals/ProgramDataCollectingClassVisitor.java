@@ -8,19 +8,32 @@
 
 package dyco4j.instrumentation.internals;
 
+import dyco4j.utility.AllocationSite;
+import dyco4j.utility.BasicBlock;
 import dyco4j.utility.ClassNameHelper;
 import dyco4j.utility.ProgramData;
 import org.objectweb.asm.*;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 final class ProgramDataCollectingClassVisitor extends ClassVisitor {
     private final ProgramData programData;
+    private final CLI.CommandLineOptions cmdLineOptions;
+    private final Set<String> nonVolatileFields = new HashSet<>();
+    private final List<BasicBlock> basicBlocks = new ArrayList<>();
     private String name;
+    private boolean isInterface;
 
-    ProgramDataCollectingClassVisitor(final ProgramData programData) {
+    ProgramDataCollectingClassVisitor(final ProgramData programData, final CLI.CommandLineOptions cmdLineOptions) {
         super(CLI.ASM_VERSION);
         this.programData = programData;
+        this.cmdLineOptions = cmdLineOptions;
     }
 
     private static void collectMemberInfo(final Optional<Integer> access, final String name, final String desc,
@@ -37,7 +50,9 @@ final class ProgramDataCollectingClassVisitor extends ClassVisitor {
     public void visit(final int version, final int access, final String className, final String signature,
                       final String superName, final String[] interfaces) {
         name = className;
+        isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
         programData.addClass2SuperClassMapping(className, superName);
+        programData.setInterfaces(className, List.of(interfaces));
     }
 
     @Override
@@ -45,25 +60,141 @@ final class ProgramDataCollectingClassVisitor extends ClassVisitor {
                                      final String[] exceptions) {
         collectMemberInfo(Optional.of(access), methodName, desc, Optional.of(name), "m",
                 programData::addNewMethod);
-        return new ProgramDataCollectionMethodVisitor(super.visitMethod(access, methodName, desc, signature, exceptions));
+        final String _shortName = ClassNameHelper.createShortNameDesc(methodName, Optional.of(name), desc);
+        final String _methodId = programData.getViewOfShortMethodName2Id().get(_shortName);
+        final MethodVisitor _mv0 = new ProgramDataCollectionMethodVisitor(_methodId,
+                super.visitMethod(access, methodName, desc, signature, exceptions));
+        final MethodVisitor _mv = cmdLineOptions.coverage() && !isInterface ?
+                createBasicBlockCollector(access, methodName, desc, _methodId, _mv0) : _mv0;
+        final MethodVisitor _mv1;
+        if (cmdLineOptions.skipTrivialMethods())
+            _mv1 = new TrivialMethodAnalyzer(access, methodName, name, desc, cmdLineOptions.trivialMethodSize(), _mv,
+                    r -> r.ifPresentOrElse(v -> programData.addSkippedMethod(_methodId, v.name()),
+                            () -> programData.removeSkippedMethod(_methodId)));
+        else {
+            programData.removeSkippedMethod(_methodId);
+            _mv1 = _mv;
+        }
+
+        if (!cmdLineOptions.elideRedundantFieldReads() || cmdLineOptions.traceFieldAccess().isEmpty()) {
+            programData.setNumOfElidedFieldReads(_methodId, 0);
+            return _mv1;
+        }
+
+        // INFO: Fields are visited before methods; hence, nonVolatileFields is complete at this point
+        final String _className = name;
+        return new MethodNode(CLI.ASM_VERSION, access, methodName, desc, signature, exceptions) {
+            @Override
+            public void visitEnd() {
+                final int _numOfElidedReads = RedundantFieldReadFinder.find(this, _className, nonVolatileFields)
+                        .cardinality();
+                programData.setNumOfElidedFieldReads(_methodId, _numOfElidedReads);
+                accept(_mv1);
+            }
+        };
+    }
+
+    @Override
+    public void visitEnd() {
+        programData.setBasicBlocks(name, basicBlocks);
+        super.visitEnd();
+    }
+
+    /*
+     * INFO
+     *
+     * The index of a basic block in the list of blocks of a class is used as the id of the block.  So,
+     * CoverageClassVisitor should number the basic blocks in the same order.
+     */
+    private MethodVisitor createBasicBlockCollector(final int access, final String methodName, final String desc,
+                                                    final String methodId, final MethodVisitor target) {
+        return new MethodNode(CLI.ASM_VERSION, access, methodName, desc, null, null) {
+            @Override
+            public void visitEnd() {
+                for (final AbstractInsnNode _leader : BasicBlockFinder.find(this))
+                    basicBlocks.add(new BasicBlock(methodId, BasicBlockFinder.getLine(_leader)));
+                accept(target);
+            }
+        };
     }
 
     @Override
     public FieldVisitor visitField(final int access, final String methodName, final String desc, final String signature,
                                    final Object value) {
         collectMemberInfo(Optional.of(access), methodName, desc, Optional.of(name), "f", programData::addNewField);
+        if ((access & Opcodes.ACC_VOLATILE) == 0)
+            nonVolatileFields.add(methodName + desc);
         return super.visitField(access, methodName, desc, signature, value);
     }
 
+    private static String getPrimitiveArrayElementDescriptor(final int operand) {
+        return switch (operand) {
+            case Opcodes.T_BOOLEAN -> "Z";
+            case Opcodes.T_BYTE -> "B";
+            case Opcodes.T_CHAR -> "C";
+            case Opcodes.T_DOUBLE -> "D";
+            case Opcodes.T_FLOAT -> "F";
+            case Opcodes.T_INT -> "I";
+            case Opcodes.T_LONG -> "J";
+            case Opcodes.T_SHORT -> "S";
+            default -> throw new IllegalStateException("Unknown array element type: " + operand);
+        };
+    }
+
     @FunctionalInterface
     private interface NameAdder {
         Optional<String> add(String shortName, String name, String prefix);
     }
 
     private class ProgramDataCollectionMethodVisitor extends MethodVisitor {
+        private final String methodId;
+        private final List<AllocationSite> allocationSites = new ArrayList<>();
+        private int line = -1;
 
-        ProgramDataCollectionMethodVisitor(final MethodVisitor mv) {
+        ProgramDataCollectionMethodVisitor(final String methodId, final MethodVisitor mv) {
             super(CLI.ASM_VERSION, mv);
+            this.methodId = methodId;
+        }
+
+        @Override
+        public void visitLineNumber(final int line, final Label start) {
+            this.line = line;
+            super.visitLineNumber(line, start);
+        }
+
+        /*
+         * INFO
+         *
+         * The index of an allocation site in the list of sites of a method is used (along with the id of the method)
+         * as the id of the site.  So, TracingMethodVisitor should number the allocation sites in the same order.
+         */
+        @Override
+        public void visitTypeInsn(final int opcode, final String type) {
+            if (opcode == Opcodes.NEW)
+                allocationSites.add(new AllocationSite(line, type, 0));
+            else if (opcode == Opcodes.ANEWARRAY)
+                allocationSites.add(new AllocationSite(line, "[" + Type.getObjectType(type).getDescriptor(), 1));
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitIntInsn(final int opcode, final int operand) {
+            if (opcode == Opcodes.NEWARRAY)
+                allocationSites.add(new AllocationSite(line, "[" + getPrimitiveArrayElementDescriptor(operand), 1));
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(final String desc, final int numDimensions) {
+            allocationSites.add(new AllocationSite(line, desc, numDimensions));
+            super.visitMultiANewArrayInsn(desc, numDimensions);
+        }
+
+        @Override
+        public void visitEnd() {
+            programData.setAllocationSites(methodId, cmdLineOptions.traceAllocations().isPresent() ?
+                    allocationSites : List.of());
+            super.visitEnd();
         }
 
         @Override
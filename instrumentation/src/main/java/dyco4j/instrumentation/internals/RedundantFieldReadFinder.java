@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds reads of fields that are redundant in a basic block, i.e., reads of a field that was read earlier in the
+ * basic block with no intervening write of the field, invocation, or monitor operation.
+ * <p>
+ * Only non-volatile fields declared in the class of the method are considered.  Further, the receiver of an
+ * instance field read is identified only when it is loaded from a local variable just before the read; hence, the
+ * receiver is the same as long as the local variable is not assigned.
+ */
+final class RedundantFieldReadFinder {
+    private static final int STATIC_RECEIVER = -1;
+    private static final int UNKNOWN_RECEIVER = -2;
+
+    private RedundantFieldReadFinder() {
+    }
+
+    /**
+     * @param nonVolatileFields of the class identified by name concatenated with descriptor.
+     * @return ordinals of the redundant reads among the reads (GETFIELD and GETSTATIC) in the method.
+     */
+    static BitSet find(final MethodNode methodNode, final String className, final Set<String> nonVolatileFields) {
+        final Set<LabelNode> _leaders = BasicBlockFinder.getLeaderLabels(methodNode);
+        final Map<String, Set<Integer>> _field2receivers = new HashMap<>();
+        final BitSet _result = new BitSet();
+        int _ordinal = 0;
+        AbstractInsnNode _prev = null;
+        for (final AbstractInsnNode _insn : methodNode.instructions) {
+            final int _opcode = _insn.getOpcode();
+            if (_insn instanceof LabelNode && _leaders.contains(_insn))
+                _field2receivers.clear();
+            else if (_insn instanceof FieldInsnNode _fieldInsn) {
+                final String _field = _fieldInsn.name + _fieldInsn.desc;
+                if (_opcode == Opcodes.GETSTATIC || _opcode == Opcodes.GETFIELD) {
+                    final boolean _isCandidate = _fieldInsn.owner.equals(className) &&
+                            nonVolatileFields.contains(_field);
+                    final int _receiver = _opcode == Opcodes.GETSTATIC ? STATIC_RECEIVER :
+                            _prev instanceof VarInsnNode _var && _var.getOpcode() == Opcodes.ALOAD ? _var.var :
+                            UNKNOWN_RECEIVER;
+                    if (_isCandidate && _receiver != UNKNOWN_RECEIVER &&
+                            !_field2receivers.computeIfAbsent(_field, k -> new HashSet<>()).add(_receiver))
+                        _result.set(_ordinal);
+                    _ordinal++;
+                } else
+                    _field2receivers.remove(_field);
+            } else if (_insn instanceof VarInsnNode _var && _opcode == Opcodes.ASTORE) {
+                for (final Set<Integer> _receivers : _field2receivers.values())
+                    _receivers.remove(_var.var);
+            } else if (endsAvailability(_insn))
+                _field2receivers.clear();
+
+            if (_opcode >= 0)
+                _prev = _insn;
+        }
+        return _result;
+    }
+
+    private static boolean endsAvailability(final AbstractInsnNode insn) {
+        return switch (insn.getType()) {
+            case AbstractInsnNode.METHOD_INSN, AbstractInsnNode.INVOKE_DYNAMIC_INSN, AbstractInsnNode.JUMP_INSN,
+                    AbstractInsnNode.TABLESWITCH_INSN, AbstractInsnNode.LOOKUPSWITCH_INSN -> true;
+            default -> switch (insn.getOpcode()) {
+                case Opcodes.MONITORENTER, Opcodes.MONITOREXIT, Opcodes.ATHROW, Opcodes.IRETURN, Opcodes.LRETURN,
+                        Opcodes.FRETURN, Opcodes.DRETURN, Opcodes.ARETURN, Opcodes.RETURN -> true;
+                default -> false;
+            };
+        };
+    }
+}
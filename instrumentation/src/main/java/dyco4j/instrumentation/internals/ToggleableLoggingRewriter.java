@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import dyco4j.logging.Logger;
+import dyco4j.logging.LoggingControl;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+
+/**
+ * Rewrites the invocations of the methods of <code>Logger</code> in a method into <code>invokedynamic</code>
+ * instructions bound by <code>LoggingControl.bootstrap</code> so that logging can be toggled at run time.
+ */
+final class ToggleableLoggingRewriter {
+    private static final String LOGGER = Type.getInternalName(Logger.class);
+    private static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+            Type.getInternalName(LoggingControl.class), "bootstrap",
+            MethodType.methodType(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class,
+                    String.class, String.class).toMethodDescriptorString(), false);
+
+    private ToggleableLoggingRewriter() {
+    }
+
+    /**
+     * @param methodId of the method to be visited.  Empty if the method is a logging helper that is not specific to a
+     *                 method.
+     * @return a visitor that rewrites the method before visiting it with the target visitor.
+     */
+    static MethodVisitor create(final int access, final String name, final String desc, final MethodVisitor target,
+                                final Optional<String> methodId) {
+        return new MethodNode(CLI.ASM_VERSION, access, name, desc, null, null) {
+            @Override
+            public void visitEnd() {
+                rewrite(instructions, methodId.orElse(""));
+                accept(target);
+            }
+        };
+    }
+
+    /*
+     * INFO
+     *
+     * A value is converted into a string (via Logger.toString) only to be logged by the next invocation of a
+     * logging method.  So, the conversion is associated with the kind of events logged by that invocation, which is
+     * identified by visiting the instructions in reverse order.
+     */
+    private static void rewrite(final InsnList instructions, final String methodId) {
+        LoggingControl.EventKind _eventKind = null;
+        AbstractInsnNode _insn = instructions.getLast();
+        while (_insn != null) {
+            final AbstractInsnNode _prev = _insn.getPrevious();
+            if (_insn instanceof MethodInsnNode _call && _call.getOpcode() == Opcodes.INVOKESTATIC &&
+                    _call.owner.equals(LOGGER)) {
+                if (!_call.name.equals("toString"))
+                    _eventKind = LoggingControl.getEventKind(_call.name);
+                if (_eventKind != null)
+                    instructions.set(_call, new InvokeDynamicInsnNode(_call.name, _call.desc, BOOTSTRAP,
+                            _eventKind.name(), methodId));
+            }
+            _insn = _prev;
+        }
+    }
+}
@@ -8,30 +8,40 @@
 
 package dyco4j.instrumentation.internals;
 
-import dyco4j.utility.ClassNameHelper;
+import dyco4j.instrumentation.Filter;
+import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodNode;
 
-import java.text.MessageFormat;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 final class TracingClassVisitor extends ClassVisitor {
     final CLI.CommandLineOptions cmdLineOptions;
-    private final Map<String, String> shortMethodName2Id;
-    private final Map<String, String> shortFieldName2Id;
-    private final Map<String, String> class2superClass;
-    private final String methodNameRegex;
+    private final MemberIdResolver memberIdResolver;
+    private final Map<String, String> skippedMethodId2Reason;
+    private final Filter filter;
+    private final Set<String> nonVolatileFields = new HashSet<>();
+    private Optional<OutlinedLoggingHelpers> loggingHelpers = Optional.empty();
+    private Filter.ClassFilter classFilter;
     private String className;
+    private int classVersion;
+    private boolean framesPreservable;
 
-    TracingClassVisitor(final ClassVisitor cv, final Map<String, String> shortFieldName2Id,
-                        final Map<String, String> shortMethodName2Id, final Map<String, String> class2superClass,
-                        final String methodNameRegex, final CLI.CommandLineOptions clo) {
+    TracingClassVisitor(final ClassVisitor cv, final MemberIdResolver memberIdResolver,
+                        final Map<String, String> skippedMethodId2Reason, final Filter filter,
+                        final CLI.CommandLineOptions clo) {
         super(CLI.ASM_VERSION, cv);
-        this.shortFieldName2Id = shortFieldName2Id;
-        this.shortMethodName2Id = shortMethodName2Id;
-        this.class2superClass = class2superClass;
-        this.methodNameRegex = methodNameRegex;
+        this.memberIdResolver = memberIdResolver;
+        this.skippedMethodId2Reason = skippedMethodId2Reason;
+        this.filter = filter;
         this.cmdLineOptions = clo;
     }
 
@@ -40,56 +50,155 @@ final class TracingClassVisitor extends ClassVisitor {
                       final String superName, final String[] interfaces) {
         super.visit(version, access, name, signature, superName, interfaces);
         className = name;
+        classFilter = filter.forClass(name);
+        classVersion = version & 0xFFFF;
+        // INFO: Stack map frames are optional in Java 6 classes, and they may be absent
+        framesPreservable = classVersion != Opcodes.V1_6;
+        // INFO: Private methods are allowed in interfaces only since Java 9
+        final boolean _isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+        if (cmdLineOptions.outlineLogging() && (!_isInterface || classVersion >= Opcodes.V9))
+            loggingHelpers = Optional.of(new OutlinedLoggingHelpers(name, _isInterface));
+    }
+
+    @Override
+    public FieldVisitor visitField(final int access, final String name, final String desc, final String signature,
+                                   final Object value) {
+        if ((access & Opcodes.ACC_VOLATILE) == 0)
+            nonVolatileFields.add(name + desc);
+        return super.visitField(access, name, desc, signature, value);
     }
 
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature,
                                      final String[] exceptions) {
         final MethodVisitor _mv1 = super.visitMethod(access, name, desc, signature, exceptions);
-        if (_mv1 != null && shouldInstrumentMethod(name)) {
-            final boolean _isInit = name.equals("<init>");
-            final TracingMethodVisitor _mv2 = new TracingMethodVisitor(access, name, desc, _mv1, this, !_isInit);
-            return _isInit ? new InitTracingMethodVisitor(name, _mv2) : _mv2;
-        } else
+        if (_mv1 == null || classFilter.isExcluded())
+            return _mv1;
+        else if (cmdLineOptions.skipTrivialMethods() && skippedMethodId2Reason.containsKey(getMethodId(name, desc)))
+            return _mv1;
+        else if (classFilter.dependsOnAnnotations())
+            return new AnnotationCollectingMethodVisitor(access, name, desc, _mv1);
+        else if (classFilter.includes(Filter.Kind.method, name, desc, Set.of()))
+            return createTracingMethodVisitor(access, name, desc, _mv1, Set.of());
+        else
             return _mv1;
     }
 
+    @Override
+    public void visitEnd() {
+        loggingHelpers.ifPresent(h -> h.addHelpersTo(this));
+        super.visitEnd();
+    }
+
+    boolean includes(final Filter.Kind kind, final String name, final String desc, final Set<String> annotations) {
+        return classFilter.includes(kind, name, desc, annotations);
+    }
+
+    Optional<OutlinedLoggingHelpers> getLoggingHelpers() {
+        return loggingHelpers;
+    }
+
+    MethodVisitor visitLoggingHelper(final String name, final String desc, final Optional<String> methodId) {
+        final int _access = Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
+        final MethodVisitor _mv = super.visitMethod(_access, name, desc, null, null);
+        return isLoggingToggleable() ? ToggleableLoggingRewriter.create(_access, name, desc, _mv, methodId) : _mv;
+    }
+
+    // INFO: invokedynamic instruction is supported only since Java 7
+    boolean isLoggingToggleable() {
+        return cmdLineOptions.toggleableLogging() && classVersion >= Opcodes.V1_7;
+    }
+
+    // INFO: ldc of class constants is supported only since Java 5
+    Optional<Type> getClassConstant() {
+        return classVersion >= Opcodes.V1_5 ? Optional.of(Type.getObjectType(className)) : Optional.empty();
+    }
+
+    boolean shouldEmitFrames() {
+        return cmdLineOptions.preserveFrames() && classVersion > Opcodes.V1_6;
+    }
+
+    boolean areFramesPreservable() {
+        return framesPreservable;
+    }
+
+    void markFramesAsNotPreservable() {
+        framesPreservable = false;
+    }
+
     String getFieldId(final String name, final String owner, final String desc) {
         assert cmdLineOptions.traceFieldAccess().isPresent() :
                 "Should be invoked only when traceFieldAccess is true";
-        final String _shortName = ClassNameHelper.createShortNameDesc(name, Optional.of(owner), desc);
-        final String _id = shortFieldName2Id.get(_shortName);
-        if (_id == null) {
-            final String _superClass = class2superClass.get(owner);
-            if (_superClass == null) {
-                final String _msg = MessageFormat.format("Incomplete information: name={0}, owner={1}, desc={2} " +
-                        "_shortName={3}", name, owner, desc, _shortName);
-                throw new IllegalStateException(_msg);
-            } else
-                return getFieldId(name, _superClass, desc);
-        }
-        return _id;
+        return memberIdResolver.getFieldId(name, owner, desc);
     }
 
     String getMethodId(final String name, final String desc) {
-        assert shouldInstrumentMethod(name) : "Should be invoked only when the method matches methodNameRegex";
         return getMethodId(name, className, desc);
     }
 
+    BitSet findRedundantFieldReads(final MethodNode methodNode) {
+        return RedundantFieldReadFinder.find(methodNode, className, nonVolatileFields);
+    }
+
     String getMethodId(final String name, final String owner, final String desc) {
-        final String _shortName = ClassNameHelper.createShortNameDesc(name, Optional.of(owner), desc);
-        final String _id = shortMethodName2Id.get(_shortName);
-        if (_id == null) {
-            final String _superClass = class2superClass.get(owner);
-            if (_superClass == null)
-                throw new IllegalStateException("Could not find methodId for " + _shortName);
-            else
-                return getMethodId(name, _superClass, desc);
-        }
-        return _id;
+        return memberIdResolver.getMethodId(name, owner, desc);
     }
 
-    private boolean shouldInstrumentMethod(final String name) {
-        return ClassNameHelper.createJavaName(name, className).matches(methodNameRegex);
+    private MethodVisitor createTracingMethodVisitor(final int access, final String name, final String desc,
+                                                     final MethodVisitor mv, final Set<String> annotations) {
+        final boolean _isInit = name.equals("<init>");
+        final MethodVisitor _mv1 = isLoggingToggleable() ?
+                ToggleableLoggingRewriter.create(access, name, desc, mv, Optional.of(getMethodId(name, desc))) : mv;
+        final TracingMethodVisitor _mv = new TracingMethodVisitor(access, name, desc, _mv1, this, !_isInit,
+                annotations);
+        final MethodVisitor _tmp = _isInit ? new InitTracingMethodVisitor(name, _mv) : _mv;
+        if (!_mv.requiresAnalysis())
+            return _tmp;
+
+        /*
+         * INFO: Counted loops and redundant field reads are identified before the method is instrumented as they
+         * are known only at back edges and at the ends of basic blocks, respectively.
+         */
+        return new MethodNode(CLI.ASM_VERSION, access, name, desc, null, null) {
+            @Override
+            public void visitEnd() {
+                _mv.analyze(this);
+                accept(_tmp);
+            }
+        };
+    }
+
+    /*
+     * INFO
+     *
+     * Annotations are visited before the code of a method.  So, this visitor defers the decision to instrument the
+     * method until its code is visited.
+     */
+    private final class AnnotationCollectingMethodVisitor extends MethodVisitor {
+        private final int access;
+        private final String name;
+        private final String desc;
+        private final Set<String> annotations = new HashSet<>();
+
+        AnnotationCollectingMethodVisitor(final int access, final String name, final String desc,
+                                          final MethodVisitor mv) {
+            super(CLI.ASM_VERSION, mv);
+            this.access = access;
+            this.name = name;
+            this.desc = desc;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
+            annotations.add(desc);
+            return super.visitAnnotation(desc, visible);
+        }
+
+        @Override
+        public void visitCode() {
+            if (classFilter.includes(Filter.Kind.method, name, desc, annotations))
+                mv = createTracingMethodVisitor(access, name, desc, mv, annotations);
+            super.visitCode();
+        }
     }
 }
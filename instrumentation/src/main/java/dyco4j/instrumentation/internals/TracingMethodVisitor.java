@@ -8,36 +8,88 @@
 
 package dyco4j.instrumentation.internals;
 
+import dyco4j.instrumentation.Filter;
 import dyco4j.instrumentation.LoggingHelper;
 import dyco4j.logging.Logger;
 import dyco4j.utility.ClassNameHelper;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.Method;
-
-import java.util.HashMap;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 
 final class TracingMethodVisitor extends MethodVisitor {
+    private static final String LOCK_SUPPORT = "java/util/concurrent/locks/LockSupport";
+    private static final Set<String> LOCKS = Set.of("java/util/concurrent/locks/Lock",
+            "java/util/concurrent/locks/ReentrantLock", "java/util/concurrent/locks/ReentrantReadWriteLock$ReadLock",
+            "java/util/concurrent/locks/ReentrantReadWriteLock$WriteLock");
     private final String methodId;
     private final Method method;
     private final boolean isStatic;
+    private final boolean isSynchronized;
     private final TracingClassVisitor cv;
     private final Map<Label, Label> beginLabel2endLabel;
+    private final Set<Label> beginLabelsWithUninitializedThis;
+    private final Optional<CLI.AccessOption> arrayAccessOption;
+    private final boolean aggregateArrayAccess;
+    private final Optional<CLI.AccessOption> fieldAccessOption;
+    private final boolean elideRedundantFieldReads;
+    private final boolean traceMethodCall;
+    private final Optional<CLI.AllocationOption> allocationOption;
+    private final Optional<CLI.LockOption> lockOption;
+    private final Optional<OutlinedLoggingHelpers> loggingHelpers;
+    private final Deque<Loop> enclosingLoops;
+    private Map<Label, Integer> loopHead2numOfBackEdges;
+    private BitSet redundantFieldReads;
+    private int numOfFieldReads;
+    private int firstTempLocal;
+    private int numOfTempLocals;
+    private int numOfLoops;
     private int callsiteId;
+    private int allocationSiteIndex;
+    private int lockSiteIndex;
     private boolean thisInitialized;
     private Label outermostExceptionHandlerBeginLabel;
 
     TracingMethodVisitor(final int access, final String name, final String desc, final MethodVisitor mv,
-                         final TracingClassVisitor owner, final boolean thisInitialized) {
+                         final TracingClassVisitor owner, final boolean thisInitialized,
+                         final Set<String> annotations) {
         super(CLI.ASM_VERSION, mv);
         this.method = new Method(name, desc);
         this.isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        this.isSynchronized = (access & Opcodes.ACC_SYNCHRONIZED) != 0;
         this.methodId = owner.getMethodId(name, desc);
         this.cv = owner;
         this.thisInitialized = thisInitialized;
-        this.beginLabel2endLabel = new HashMap<>();
+        this.beginLabel2endLabel = new LinkedHashMap<>();
+        this.beginLabelsWithUninitializedThis = new HashSet<>();
+        this.arrayAccessOption = owner.cmdLineOptions.traceArrayAccess()
+                .filter(o -> owner.includes(Filter.Kind.array, name, desc, annotations));
+        this.aggregateArrayAccess = arrayAccessOption.isPresent() && owner.cmdLineOptions.aggregateArrayAccess();
+        this.enclosingLoops = new ArrayDeque<>();
+        this.loopHead2numOfBackEdges = Map.of();
+        this.fieldAccessOption = owner.cmdLineOptions.traceFieldAccess()
+                .filter(o -> owner.includes(Filter.Kind.field, name, desc, annotations));
+        this.elideRedundantFieldReads = fieldAccessOption.isPresent() &&
+                owner.cmdLineOptions.elideRedundantFieldReads();
+        this.redundantFieldReads = new BitSet();
+        this.traceMethodCall = owner.cmdLineOptions.traceMethodCall() &&
+                owner.includes(Filter.Kind.call, name, desc, annotations);
+        this.allocationOption = owner.cmdLineOptions.traceAllocations()
+                .filter(o -> owner.includes(Filter.Kind.allocation, name, desc, annotations));
+        this.lockOption = owner.cmdLineOptions.traceLocks()
+                .filter(o -> owner.includes(Filter.Kind.lock, name, desc, annotations));
+        this.loggingHelpers = owner.getLoggingHelpers();
     }
 
     private static Type getArrayElementType(int opcode) {
@@ -58,7 +110,7 @@ final class TracingMethodVisitor extends MethodVisitor {
     public void visitCode() {
         beginOutermostExceptionHandler();
         emitLogMethodEntry();
-        emitLogMethodArguments();
+        emitLogMethodLockAcquire();
     }
 
     @Override
@@ -66,9 +118,27 @@ final class TracingMethodVisitor extends MethodVisitor {
         switch (opcode) {
             case Opcodes.IRETURN, Opcodes.LRETURN, Opcodes.FRETURN, Opcodes.DRETURN, Opcodes.ARETURN,
                     Opcodes.RETURN:
-                if (cv.cmdLineOptions.traceMethodRetValue())
-                    LoggingHelper.emitLogReturn(mv, method.getReturnType());
-                LoggingHelper.emitLogMethodExit(mv, methodId, LoggingHelper.ExitKind.NORMAL);
+                emitLogMethodExit();
+                emitLogMethodLockRelease();
+                super.visitInsn(opcode);
+                break;
+
+            case Opcodes.MONITORENTER:
+                if (lockOption.isPresent()) {
+                    final String _siteId = getNextLockSiteId();
+                    super.visitInsn(Opcodes.DUP);
+                    LoggingHelper.emitLogLockRequest(mv);
+                    super.visitInsn(opcode);
+                    emitLogLockAcquire(_siteId);
+                } else
+                    super.visitInsn(opcode);
+                break;
+
+            case Opcodes.MONITOREXIT:
+                if (lockOption.isPresent()) {
+                    super.visitInsn(Opcodes.DUP);
+                    emitLogLockRelease();
+                }
                 super.visitInsn(opcode);
                 break;
 
@@ -89,8 +159,7 @@ final class TracingMethodVisitor extends MethodVisitor {
 
     @Override
     public void visitFieldInsn(final int opcode, final String owner, final String name, final String desc) {
-        final Optional<CLI.AccessOption> _fieldAccessOption = cv.cmdLineOptions.traceFieldAccess();
-        if (_fieldAccessOption.isEmpty()) {
+        if (fieldAccessOption.isEmpty()) {
             super.visitFieldInsn(opcode, owner, name, desc);
             return;
         }
@@ -98,9 +167,24 @@ final class TracingMethodVisitor extends MethodVisitor {
         final Type _fieldType = Type.getType(desc);
         final String _fieldId = cv.getFieldId(name, owner, desc);
         final boolean _isFieldStatic = opcode == Opcodes.GETSTATIC || opcode == Opcodes.PUTSTATIC;
+        final boolean _withValues = fieldAccessOption.get() == CLI.AccessOption.with_values;
         switch (opcode) {
             case Opcodes.GETSTATIC, Opcodes.GETFIELD:
-                switch (_fieldAccessOption.get()) {
+                if (elideRedundantFieldReads && redundantFieldReads.get(numOfFieldReads++)) {
+                    super.visitFieldInsn(opcode, owner, name, desc);
+                    break;
+                }
+
+                if (loggingHelpers.isPresent() && (!_withValues || _isFieldStatic || thisInitialized)) {
+                    if (_withValues && !_isFieldStatic)
+                        super.visitInsn(Opcodes.DUP);
+                    super.visitFieldInsn(opcode, owner, name, desc);
+                    emitInvocationOfFieldHelper(loggingHelpers.get(), _fieldId, _fieldType, _isFieldStatic,
+                            _withValues, Logger.FieldAction.GETF);
+                    break;
+                }
+
+                switch (fieldAccessOption.get()) {
                     case CLI.AccessOption.with_values:
                         if (_isFieldStatic)
                             super.visitInsn(Opcodes.ACONST_NULL);
@@ -120,7 +204,18 @@ final class TracingMethodVisitor extends MethodVisitor {
                 }
                 break;
             case Opcodes.PUTSTATIC, Opcodes.PUTFIELD:
-                switch (_fieldAccessOption.get()) {
+                // INFO: Stack cannot be rearranged to pass both the receiver and a long or double value to a helper
+                if (loggingHelpers.isPresent() &&
+                        (!_withValues || _isFieldStatic || thisInitialized && _fieldType.getSize() == 1)) {
+                    if (_withValues && !_isFieldStatic)
+                        super.visitInsn(Opcodes.DUP2);
+                    emitInvocationOfFieldHelper(loggingHelpers.get(), _fieldId, _fieldType, _isFieldStatic,
+                            _withValues, Logger.FieldAction.PUTF);
+                    super.visitFieldInsn(opcode, owner, name, desc);
+                    break;
+                }
+
+                switch (fieldAccessOption.get()) {
                     case CLI.AccessOption.with_values:
                         if (_isFieldStatic) {
                             super.visitInsn(Opcodes.ACONST_NULL);
@@ -146,37 +241,225 @@ final class TracingMethodVisitor extends MethodVisitor {
         }
     }
 
+    @Override
+    public void visitLabel(final Label label) {
+        super.visitLabel(label);
+        final Integer _numOfBackEdges = loopHead2numOfBackEdges.get(label);
+        if (_numOfBackEdges != null)
+            enclosingLoops.push(new Loop(label, methodId + "#" + numOfLoops++, _numOfBackEdges));
+    }
+
+    @Override
+    public void visitJumpInsn(final int opcode, final Label label) {
+        super.visitJumpInsn(opcode, label);
+        for (final Loop _loop : enclosingLoops) {
+            if (_loop.head == label)
+                _loop.numOfBackEdges--;
+        }
+        while (!enclosingLoops.isEmpty() && enclosingLoops.peek().numOfBackEdges == 0)
+            enclosingLoops.pop();
+    }
+
     @Override
     public void visitMaxs(final int maxStack, final int maxLocals) {
         endOutermostExceptionHandler();
         for (final Map.Entry<Label, Label> _e : beginLabel2endLabel.entrySet()) {
             final Label _handlerLabel = new Label();
             super.visitLabel(_handlerLabel);
+            if (cv.shouldEmitFrames())
+                emitFrameOfOutermostExceptionHandler(beginLabelsWithUninitializedThis.contains(_e.getKey()));
             super.visitTryCatchBlock(_e.getKey(), _e.getValue(), _handlerLabel, "java/lang/Throwable");
-            LoggingHelper.emitLogException(this.mv);
-            LoggingHelper.emitLogMethodExit(this.mv, this.methodId, LoggingHelper.ExitKind.EXCEPTIONAL);
+            emitLogExceptionalMethodExit();
+            emitLogMethodLockRelease();
             super.visitInsn(Opcodes.ATHROW);
         }
-        super.visitMaxs(maxStack, maxLocals);
+        super.visitMaxs(maxStack, Math.max(maxLocals, firstTempLocal + numOfTempLocals));
     }
 
     @Override
     public void visitMethodInsn(final int opcode, final String owner, final String name, final String desc,
                                 final boolean itf) {
-        if (cv.cmdLineOptions.traceMethodCall())
+        if (traceMethodCall)
             LoggingHelper.emitLogMethodCall(mv, cv.getMethodId(name, owner, desc), callsiteId++);
-        super.visitMethodInsn(opcode, owner, name, desc, itf);
+        if (aggregateArrayAccess && isArrayIntrinsic(owner, name))
+            visitArrayIntrinsicInsn(opcode, owner, name, desc, itf);
+        else if (lockOption.isPresent() && LOCKS.contains(owner))
+            visitLockInsn(opcode, owner, name, desc, itf);
+        else if (lockOption.isPresent() && owner.equals(LOCK_SUPPORT) && name.startsWith("park")) {
+            final String _siteId = getNextLockSiteId();
+            LoggingHelper.emitLogLockRequest(mv);
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+            LoggingHelper.emitLogPark(mv, _siteId, lockOption.get() == CLI.LockOption.events);
+        } else
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+    }
+
+    /*
+     * INFO
+     *
+     * Allocation sites are numbered in the order of occurrence (as in ProgramDataCollectingClassVisitor) even when
+     * they are not traced.  Allocations are logged after the allocating instruction so that labels of NEW
+     * instructions (used in frames to identify uninitialized objects) are unaffected.  Since uninitialized objects
+     * cannot be passed to methods, only arrays are logged (along with their length).
+     */
+    @Override
+    public void visitTypeInsn(final int opcode, final String type) {
+        super.visitTypeInsn(opcode, type);
+        if (opcode == Opcodes.NEW) {
+            final String _siteId = getNextAllocationSiteId();
+            allocationOption.ifPresent(o -> LoggingHelper.emitLogAllocation(mv, _siteId,
+                    o == CLI.AllocationOption.counts));
+        } else if (opcode == Opcodes.ANEWARRAY)
+            emitLogArrayAllocation(getNextAllocationSiteId());
+    }
+
+    @Override
+    public void visitIntInsn(final int opcode, final int operand) {
+        super.visitIntInsn(opcode, operand);
+        if (opcode == Opcodes.NEWARRAY)
+            emitLogArrayAllocation(getNextAllocationSiteId());
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(final String desc, final int numDimensions) {
+        super.visitMultiANewArrayInsn(desc, numDimensions);
+        emitLogArrayAllocation(getNextAllocationSiteId());
     }
 
     @Override
     public void visitInvokeDynamicInsn(final String name, final String desc, final Handle bsm,
                                        final Object... bsmArgs) {
-        if (cv.cmdLineOptions.traceMethodCall())
+        if (traceMethodCall)
             LoggingHelper.emitLogMethodCall(mv,
                     cv.getMethodId(name, ClassNameHelper.DYNAMIC_METHOD_OWNER, desc), callsiteId++);
         super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
     }
 
+    /*
+     * INFO
+     *
+     * Sites of acquisitions of locks are identified by <method id>@<index>.  The lock of a synchronized method is
+     * acquired before the method is executed; hence, the method id identifies the site and the duration of waiting to
+     * acquire the lock is not measured (reported as ~0).  Further, the lock is released via the site as the lock may
+     * not be accessible in the outermost exception handler.
+     */
+    private String getNextLockSiteId() {
+        return methodId + "@" + lockSiteIndex++;
+    }
+
+    private void emitLogMethodLockAcquire() {
+        if (!isSynchronized || lockOption.isEmpty())
+            return;
+
+        if (!isStatic)
+            super.visitVarInsn(Opcodes.ALOAD, 0);
+        else {
+            final Optional<Type> _tmp = cv.getClassConstant();
+            if (_tmp.isEmpty())
+                return;
+            super.visitLdcInsn(_tmp.get());
+        }
+        LoggingHelper.emitLogLockRequest(mv);
+        emitLogLockAcquire(methodId);
+    }
+
+    private void emitLogLockAcquire(final String siteId) {
+        LoggingHelper.emitLogLockAcquire(mv, siteId, lockOption.get() == CLI.LockOption.events);
+    }
+
+    private void emitLogLockRelease() {
+        LoggingHelper.emitLogLockRelease(mv, lockOption.get() == CLI.LockOption.events);
+    }
+
+    private void emitLogMethodLockRelease() {
+        if (isSynchronized && lockOption.isPresent())
+            LoggingHelper.emitLogMethodLockRelease(mv, methodId, lockOption.get() == CLI.LockOption.events);
+    }
+
+    /*
+     * INFO
+     *
+     * The arguments of a timed tryLock are stored in locals beyond those of the method to access the lock (receiver)
+     * below the arguments.
+     */
+    private void visitLockInsn(final int opcode, final String owner, final String name, final String desc,
+                               final boolean itf) {
+        switch (name + desc) {
+            case "lock()V", "lockInterruptibly()V":
+                final String _siteId1 = getNextLockSiteId();
+                super.visitInsn(Opcodes.DUP);
+                LoggingHelper.emitLogLockRequest(mv);
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                emitLogLockAcquire(_siteId1);
+                break;
+            case "tryLock()Z":
+                final String _siteId2 = getNextLockSiteId();
+                super.visitInsn(Opcodes.DUP);
+                LoggingHelper.emitLogLockRequest(mv);
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                LoggingHelper.emitLogLockAttempt(mv, _siteId2, lockOption.get() == CLI.LockOption.events);
+                break;
+            case "tryLock(JLjava/util/concurrent/TimeUnit;)Z":
+                final String _siteId3 = getNextLockSiteId();
+                super.visitVarInsn(Opcodes.ASTORE, firstTempLocal + 2);
+                super.visitVarInsn(Opcodes.LSTORE, firstTempLocal);
+                super.visitInsn(Opcodes.DUP);
+                super.visitVarInsn(Opcodes.LLOAD, firstTempLocal);
+                super.visitVarInsn(Opcodes.ALOAD, firstTempLocal + 2);
+                numOfTempLocals = Math.max(numOfTempLocals, 3);
+                LoggingHelper.emitLogLockRequest(mv);
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                LoggingHelper.emitLogLockAttempt(mv, _siteId3, lockOption.get() == CLI.LockOption.events);
+                break;
+            case "unlock()V":
+                super.visitInsn(Opcodes.DUP);
+                emitLogLockRelease();
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                break;
+            default:
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+    }
+
+    private String getNextAllocationSiteId() {
+        return methodId + "." + allocationSiteIndex++;
+    }
+
+    private void emitLogArrayAllocation(final String siteId) {
+        allocationOption.ifPresent(o -> LoggingHelper.emitLogArrayAllocation(mv, siteId,
+                o == CLI.AllocationOption.counts));
+    }
+
+    /*
+     * INFO
+     *
+     * As locals absent in a frame are treated as TOP, a handler frame without locals is compatible with the frame of
+     * every instruction in the handled range except when this is uninitialized.
+     */
+    private void emitFrameOfOutermostExceptionHandler(final boolean isThisUninitialized) {
+        final Object[] _locals = isThisUninitialized ? new Object[]{Opcodes.UNINITIALIZED_THIS} : new Object[0];
+        super.visitFrame(Opcodes.F_NEW, _locals.length, _locals, 1, new Object[]{"java/lang/Throwable"});
+    }
+
+    boolean requiresAnalysis() {
+        return aggregateArrayAccess || elideRedundantFieldReads || lockOption.isPresent();
+    }
+
+    /**
+     * @param methodNode is the (uninstrumented) method to be visited by this visitor.
+     */
+    void analyze(final MethodNode methodNode) {
+        this.firstTempLocal = methodNode.maxLocals;
+        if (aggregateArrayAccess)
+            this.loopHead2numOfBackEdges = CountedLoopFinder.find(methodNode);
+        if (elideRedundantFieldReads)
+            this.redundantFieldReads = cv.findRedundantFieldReads(methodNode);
+    }
+
+    void markFramesAsNotPreservable() {
+        cv.markFramesAsNotPreservable();
+    }
+
     void setThisInitialized() {
         thisInitialized = true;
     }
@@ -184,6 +467,8 @@ final class TracingMethodVisitor extends MethodVisitor {
     void beginOutermostExceptionHandler() {
         outermostExceptionHandlerBeginLabel = new Label();
         super.visitLabel(outermostExceptionHandlerBeginLabel);
+        if (!thisInitialized)
+            beginLabelsWithUninitializedThis.add(outermostExceptionHandlerBeginLabel);
     }
 
     void endOutermostExceptionHandler() {
@@ -196,23 +481,237 @@ final class TracingMethodVisitor extends MethodVisitor {
 
     private void emitLogMethodEntry() {
         super.visitCode();
-        LoggingHelper.emitLogMethodEntry(mv, methodId);
+        if (loggingHelpers.isPresent())
+            emitInvocationOfEntryHelper(loggingHelpers.get());
+        else {
+            LoggingHelper.emitLogMethodEntry(mv, methodId);
+            emitLogMethodArguments(mv, thisInitialized, isStatic ? 0 : 1);
+        }
+    }
+
+    /*
+     * INFO
+     *
+     * Helpers of method events are shared by the methods with the same log shape, and the id of the method is passed
+     * as the last argument of the helper.  When logging is toggleable, helpers are specific to a method as logging in
+     * a helper is toggled by the id of its method.
+     */
+    private Optional<String> getMethodIdOfHelper() {
+        return cv.isLoggingToggleable() ? Optional.of(methodId) : Optional.empty();
+    }
+
+    private String getKeyOfHelper(final String kind) {
+        return getMethodIdOfHelper().map(id -> kind + ":" + id).orElse(kind);
+    }
+
+    // INFO: Adds the method id to the arguments of the helper (if shared) and returns its local var index in the helper
+    private OptionalInt addMethodIdArgument(final List<Type> paramTypes) {
+        if (getMethodIdOfHelper().isPresent())
+            return OptionalInt.empty();
+
+        super.visitLdcInsn(methodId);
+        final int _localVarIndex = paramTypes.stream().mapToInt(Type::getSize).sum();
+        paramTypes.add(Type.getType(String.class));
+        return OptionalInt.of(_localVarIndex);
+    }
+
+    private void emitLoadOfMethodId(final MethodVisitor hmv, final OptionalInt methodIdLocalVarIndex) {
+        if (methodIdLocalVarIndex.isPresent())
+            hmv.visitVarInsn(Opcodes.ALOAD, methodIdLocalVarIndex.getAsInt());
+        else
+            hmv.visitLdcInsn(methodId);
+    }
+
+    // INFO: The entry helper takes this (if initialized) and the arguments of the method (if traced) as its arguments
+    private void emitInvocationOfEntryHelper(final OutlinedLoggingHelpers helpers) {
+        final boolean _tracesArgs = cv.cmdLineOptions.traceMethodArgs();
+        final boolean _passesThis = _tracesArgs && !isStatic && thisInitialized;
+        final List<Type> _paramTypes = new ArrayList<>();
+        if (_passesThis) {
+            super.visitVarInsn(Opcodes.ALOAD, 0);
+            _paramTypes.add(Type.getType(Object.class));
+        }
+        if (_tracesArgs) {
+            int _localVarIndex = isStatic ? 0 : 1;
+            for (final Type _argType : method.getArgumentTypes()) {
+                super.visitVarInsn(_argType.getOpcode(Opcodes.ILOAD), _localVarIndex);
+                _localVarIndex += _argType.getSize();
+                _paramTypes.add(_argType);
+            }
+        }
+        final OptionalInt _methodIdLocalVarIndex = addMethodIdArgument(_paramTypes);
+
+        // INFO: The receiver is part of the key as helpers with the same descriptor differ in logging the receiver
+        final String _receiver = !_tracesArgs || isStatic ? "" : thisInitialized ? "/this" : "/uninitThis";
+        final String _desc = Type.getMethodDescriptor(Type.VOID_TYPE, _paramTypes.toArray(Type[]::new));
+        helpers.emitInvocation(mv, getKeyOfHelper("entry" + _receiver), _desc, getMethodIdOfHelper(), hmv -> {
+            emitLoadOfMethodId(hmv, _methodIdLocalVarIndex);
+            LoggingHelper.emitLogMethodEntry(hmv);
+            emitLogMethodArguments(hmv, _passesThis, _passesThis ? 1 : 0);
+            hmv.visitInsn(Opcodes.RETURN);
+        });
+    }
+
+    private void emitLogMethodExit() {
+        final Type _returnType = method.getReturnType();
+        if (loggingHelpers.isEmpty()) {
+            if (cv.cmdLineOptions.traceMethodRetValue())
+                LoggingHelper.emitLogReturn(mv, _returnType);
+            LoggingHelper.emitLogMethodExit(mv, methodId, LoggingHelper.ExitKind.NORMAL);
+            return;
+        }
+
+        // INFO: The exit helper takes and returns the return value (if traced)
+        final boolean _passesValue = cv.cmdLineOptions.traceMethodRetValue() && _returnType.getSort() != Type.VOID;
+        final List<Type> _paramTypes = new ArrayList<>();
+        if (_passesValue)
+            _paramTypes.add(_returnType);
+        final OptionalInt _methodIdLocalVarIndex = addMethodIdArgument(_paramTypes);
+
+        final String _desc = Type.getMethodDescriptor(_passesValue ? _returnType : Type.VOID_TYPE,
+                _paramTypes.toArray(Type[]::new));
+        loggingHelpers.get().emitInvocation(mv, getKeyOfHelper("exit"), _desc, getMethodIdOfHelper(), hmv -> {
+            if (_passesValue) {
+                hmv.visitVarInsn(_returnType.getOpcode(Opcodes.ILOAD), 0);
+                LoggingHelper.emitLogReturn(hmv, _returnType);
+            }
+            emitLoadOfMethodId(hmv, _methodIdLocalVarIndex);
+            LoggingHelper.emitLogMethodExit(hmv, LoggingHelper.ExitKind.NORMAL);
+            hmv.visitInsn(_passesValue ? _returnType.getOpcode(Opcodes.IRETURN) : Opcodes.RETURN);
+        });
+    }
+
+    // INFO: The exception helper takes and returns the exception
+    private void emitLogExceptionalMethodExit() {
+        if (loggingHelpers.isEmpty()) {
+            LoggingHelper.emitLogException(this.mv);
+            LoggingHelper.emitLogMethodExit(this.mv, this.methodId, LoggingHelper.ExitKind.EXCEPTIONAL);
+            return;
+        }
+
+        final List<Type> _paramTypes = new ArrayList<>(List.of(Type.getType(Throwable.class)));
+        final OptionalInt _methodIdLocalVarIndex = addMethodIdArgument(_paramTypes);
+        final String _desc = Type.getMethodDescriptor(Type.getType(Throwable.class), _paramTypes.toArray(Type[]::new));
+        loggingHelpers.get().emitInvocation(mv, getKeyOfHelper("exception"), _desc, getMethodIdOfHelper(), hmv -> {
+            hmv.visitVarInsn(Opcodes.ALOAD, 0);
+            LoggingHelper.emitLogException(hmv);
+            emitLoadOfMethodId(hmv, _methodIdLocalVarIndex);
+            LoggingHelper.emitLogMethodExit(hmv, LoggingHelper.ExitKind.EXCEPTIONAL);
+            hmv.visitInsn(Opcodes.ARETURN);
+        });
+    }
+
+    /*
+     * INFO
+     *
+     * With values, the helper of a static field takes and returns the value.  The helper of a read of an instance
+     * field takes the receiver and the value and returns the value while the helper of a write of an instance field
+     * takes the receiver and the value.
+     */
+    private void emitInvocationOfFieldHelper(final OutlinedLoggingHelpers helpers, final String fieldId,
+                                             final Type fieldType, final boolean isFieldStatic,
+                                             final boolean withValues, final Logger.FieldAction action) {
+        final String _key = "field:" + action + ":" + fieldId;
+        if (!withValues) {
+            helpers.emitInvocation(mv, _key, "()V", Optional.empty(), hmv -> {
+                LoggingHelper.emitLogFieldWithoutValues(hmv, fieldId, action);
+                hmv.visitInsn(Opcodes.RETURN);
+            });
+        } else if (isFieldStatic) {
+            helpers.emitInvocation(mv, _key, Type.getMethodDescriptor(fieldType, fieldType), Optional.empty(), hmv -> {
+                hmv.visitInsn(Opcodes.ACONST_NULL);
+                hmv.visitVarInsn(fieldType.getOpcode(Opcodes.ILOAD), 0);
+                LoggingHelper.emitLogFieldWithValues(hmv, fieldId, fieldType, action);
+                hmv.visitInsn(fieldType.getOpcode(Opcodes.IRETURN));
+            });
+        } else {
+            final boolean _isRead = action == Logger.FieldAction.GETF;
+            final String _desc = Type.getMethodDescriptor(_isRead ? fieldType : Type.VOID_TYPE,
+                    Type.getType(Object.class), fieldType);
+            helpers.emitInvocation(mv, _key, _desc, Optional.empty(), hmv -> {
+                hmv.visitVarInsn(Opcodes.ALOAD, 0);
+                hmv.visitVarInsn(fieldType.getOpcode(Opcodes.ILOAD), 1);
+                LoggingHelper.emitLogFieldWithValues(hmv, fieldId, fieldType, action);
+                if (_isRead)
+                    hmv.visitInsn(fieldType.getOpcode(Opcodes.IRETURN));
+                else {
+                    hmv.visitInsn(fieldType.getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+                    hmv.visitInsn(Opcodes.RETURN);
+                }
+            });
+        }
+    }
+
+    /*
+     * INFO
+     *
+     * The helper of a read takes the array, the index, and the value (if traced).
+     */
+    private void emitInvocationOfArrayLoadHelper(final OutlinedLoggingHelpers helpers, final int opcode,
+                                                 final CLI.AccessOption arrayAccessOption) {
+        final Type _elementType = getArrayElementType(opcode);
+        final boolean _withValues = arrayAccessOption == CLI.AccessOption.with_values;
+        final Type[] _paramTypes = _withValues ? new Type[]{Type.getType(Object.class), Type.INT_TYPE, _elementType}
+                : new Type[]{Type.getType(Object.class), Type.INT_TYPE};
+        helpers.emitInvocation(mv, "array:" + opcode, Type.getMethodDescriptor(Type.VOID_TYPE, _paramTypes),
+                Optional.empty(), hmv -> {
+                    hmv.visitVarInsn(Opcodes.ALOAD, 0);
+                    hmv.visitVarInsn(Opcodes.ILOAD, 1);
+                    emitLoadOfArrayValue(hmv, _elementType, _withValues);
+                    LoggingHelper.emitLogArray(hmv, Logger.ArrayAction.GETA);
+                    hmv.visitInsn(Opcodes.RETURN);
+                });
+    }
+
+    /*
+     * INFO
+     *
+     * The helper of a write takes the array, the index, and the value, logs the write, and then writes the array.
+     * As the type of an array of bytes or booleans cannot be expressed in the descriptor of the helper, writes of
+     * such arrays are not outlined.
+     */
+    private void emitInvocationOfArrayStoreHelper(final OutlinedLoggingHelpers helpers, final int opcode,
+                                                  final CLI.AccessOption arrayAccessOption) {
+        final Type _elementType = getArrayElementType(opcode);
+        final boolean _withValues = arrayAccessOption == CLI.AccessOption.with_values;
+        final Type _arrayType = Type.getType("[" + _elementType.getDescriptor());
+        final String _desc = Type.getMethodDescriptor(Type.VOID_TYPE, _arrayType, Type.INT_TYPE, _elementType);
+        helpers.emitInvocation(mv, "array:" + opcode, _desc, Optional.empty(), hmv -> {
+            hmv.visitVarInsn(Opcodes.ALOAD, 0);
+            hmv.visitVarInsn(Opcodes.ILOAD, 1);
+            emitLoadOfArrayValue(hmv, _elementType, _withValues);
+            LoggingHelper.emitLogArray(hmv, Logger.ArrayAction.PUTA);
+            hmv.visitVarInsn(Opcodes.ALOAD, 0);
+            hmv.visitVarInsn(Opcodes.ILOAD, 1);
+            hmv.visitVarInsn(_elementType.getOpcode(Opcodes.ILOAD), 2);
+            hmv.visitInsn(opcode);
+            hmv.visitInsn(Opcodes.RETURN);
+        });
+    }
+
+    private static void emitLoadOfArrayValue(final MethodVisitor mv, final Type elementType,
+                                             final boolean withValues) {
+        if (withValues) {
+            mv.visitVarInsn(elementType.getOpcode(Opcodes.ILOAD), 2);
+            LoggingHelper.emitConvertToString(mv, elementType);
+        } else
+            mv.visitLdcInsn(LoggingHelper.UNLOGGED_VALUE);
     }
 
-    private void emitLogMethodArguments() {
+    private void emitLogMethodArguments(final MethodVisitor mv, final boolean isThisInitialized,
+                                        final int firstArgLocalVarIndex) {
         if (!cv.cmdLineOptions.traceMethodArgs())
             return;
 
         // emit code to trace each arg
         int _position = 0;
-        int _localVarIndex = 0;
         if (!isStatic) {
-            final OptionalInt _tmp1 = thisInitialized ? OptionalInt.of(_localVarIndex) : OptionalInt.empty();
-            _localVarIndex += LoggingHelper.emitLogArgument(mv, _position, _tmp1,
-                    Type.getType(Object.class));
+            final OptionalInt _tmp1 = isThisInitialized ? OptionalInt.of(0) : OptionalInt.empty();
+            LoggingHelper.emitLogArgument(mv, _position, _tmp1, Type.getType(Object.class));
             _position++;
         }
 
+        int _localVarIndex = firstArgLocalVarIndex;
         for (final Type _argType : method.getArgumentTypes()) {
             _localVarIndex += LoggingHelper.emitLogArgument(mv, _position, OptionalInt.of(_localVarIndex),
                     _argType);
@@ -220,13 +719,94 @@ final class TracingMethodVisitor extends MethodVisitor {
         }
     }
 
+    private static boolean isArrayIntrinsic(final String owner, final String name) {
+        return (owner.equals("java/lang/System") && name.equals("arraycopy")) ||
+                (owner.equals("java/util/Arrays") &&
+                        (name.equals("fill") || name.equals("copyOf") || name.equals("copyOfRange")));
+    }
+
+    /*
+     * INFO
+     *
+     * Arguments are stored in locals beyond those of the method so that they can be logged after the invocation.
+     * Invocations that throw exceptions are not logged.
+     */
+    private void visitArrayIntrinsicInsn(final int opcode, final String owner, final String name, final String desc,
+                                         final boolean itf) {
+        final Type[] _argTypes = Type.getArgumentTypes(desc);
+        final int[] _locals = new int[_argTypes.length];
+        int _local = firstTempLocal;
+        for (int _i = 0; _i < _argTypes.length; _i++) {
+            _locals[_i] = _local;
+            _local += _argTypes[_i].getSize();
+        }
+        for (int _i = _argTypes.length - 1; _i >= 0; _i--)
+            super.visitVarInsn(_argTypes[_i].getOpcode(Opcodes.ISTORE), _locals[_i]);
+        for (int _i = 0; _i < _argTypes.length; _i++)
+            super.visitVarInsn(_argTypes[_i].getOpcode(Opcodes.ILOAD), _locals[_i]);
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
+
+        switch (name) {
+            case "arraycopy":
+                for (int _i = 0; _i < _argTypes.length; _i++)
+                    super.visitVarInsn(_argTypes[_i].getOpcode(Opcodes.ILOAD), _locals[_i]);
+                LoggingHelper.emitLogArrayCopy(mv);
+                break;
+            case "fill":
+                super.visitVarInsn(Opcodes.ALOAD, _locals[0]);
+                if (_argTypes.length == 2) {
+                    super.visitInsn(Opcodes.ICONST_0);
+                    super.visitVarInsn(Opcodes.ALOAD, _locals[0]);
+                    super.visitInsn(Opcodes.ARRAYLENGTH);
+                } else {
+                    super.visitVarInsn(Opcodes.ILOAD, _locals[1]);
+                    super.visitVarInsn(Opcodes.ILOAD, _locals[2]);
+                }
+                LoggingHelper.emitLogArrayRange(mv, Logger.ArrayRangeAction.PUTR);
+                break;
+            case "copyOf", "copyOfRange":
+                super.visitInsn(Opcodes.DUP);
+                super.visitVarInsn(Opcodes.ASTORE, _local);
+                super.visitVarInsn(Opcodes.ALOAD, _locals[0]);
+                if (name.equals("copyOf"))
+                    super.visitInsn(Opcodes.ICONST_0);
+                else
+                    super.visitVarInsn(Opcodes.ILOAD, _locals[1]);
+                super.visitVarInsn(Opcodes.ILOAD, _locals[name.equals("copyOf") ? 1 : 2]);
+                super.visitVarInsn(Opcodes.ALOAD, _local);
+                LoggingHelper.emitLogArrayCopyOf(mv);
+                _local++;
+        }
+        numOfTempLocals = Math.max(numOfTempLocals, _local - firstTempLocal);
+    }
+
     private void visitArrayStoreInsn(final int opcode) {
-        final Optional<CLI.AccessOption> _arrayAccessOption = cv.cmdLineOptions.traceArrayAccess();
-        if (_arrayAccessOption.isEmpty()) {
+        if (arrayAccessOption.isEmpty()) {
             super.visitInsn(opcode);
             return;
         }
 
+        if (aggregateArrayAccess && !enclosingLoops.isEmpty()) {
+            // INFO: Stack is rearranged from [array, index, value] to [array, index, value, array, index]
+            if (opcode == Opcodes.LASTORE || opcode == Opcodes.DASTORE) {
+                super.visitInsn(Opcodes.DUP2_X2);
+                super.visitInsn(Opcodes.POP2);
+                super.visitInsn(Opcodes.DUP2_X2);
+            } else {
+                super.visitInsn(Opcodes.DUP_X2);
+                super.visitInsn(Opcodes.POP);
+                super.visitInsn(Opcodes.DUP2_X1);
+            }
+            LoggingHelper.emitLogArrayAccessInLoop(mv, Logger.ArrayRangeAction.PUTR, enclosingLoops.peek().id);
+            super.visitInsn(opcode);
+            return;
+        }
+
+        if (loggingHelpers.isPresent() && opcode != Opcodes.BASTORE) {
+            emitInvocationOfArrayStoreHelper(loggingHelpers.get(), opcode, arrayAccessOption.get());
+            return;
+        }
+
         final int _dupValue, _popValue, _dupIndexAndArray;
         if (opcode == Opcodes.LASTORE || opcode == Opcodes.DASTORE) {
             _dupValue = Opcodes.DUP2_X2;
@@ -244,7 +824,7 @@ final class TracingMethodVisitor extends MethodVisitor {
         super.visitInsn(Opcodes.POP2);
         super.visitInsn(_dupValue);
 
-        emitLogArray(_arrayAccessOption.get(), opcode, _popValue, Logger.ArrayAction.PUTA);
+        emitLogArray(arrayAccessOption.get(), opcode, _popValue, Logger.ArrayAction.PUTA);
 
         super.visitInsn(opcode);
     }
@@ -263,8 +843,14 @@ final class TracingMethodVisitor extends MethodVisitor {
     }
 
     private void visitArrayLoadInsn(final int opcode) {
-        final Optional<CLI.AccessOption> _arrayAccessOption = cv.cmdLineOptions.traceArrayAccess();
-        if (_arrayAccessOption.isEmpty()) {
+        if (arrayAccessOption.isEmpty()) {
+            super.visitInsn(opcode);
+            return;
+        }
+
+        if (aggregateArrayAccess && !enclosingLoops.isEmpty()) {
+            super.visitInsn(Opcodes.DUP2);
+            LoggingHelper.emitLogArrayAccessInLoop(mv, Logger.ArrayRangeAction.GETR, enclosingLoops.peek().id);
             super.visitInsn(opcode);
             return;
         }
@@ -282,6 +868,23 @@ final class TracingMethodVisitor extends MethodVisitor {
         super.visitInsn(opcode);
         super.visitInsn(_dupIndex);
 
-        emitLogArray(_arrayAccessOption.get(), opcode, _popValue, Logger.ArrayAction.GETA);
+        if (loggingHelpers.isPresent()) {
+            if (arrayAccessOption.get() == CLI.AccessOption.without_values)
+                super.visitInsn(_popValue);
+            emitInvocationOfArrayLoadHelper(loggingHelpers.get(), opcode, arrayAccessOption.get());
+        } else
+            emitLogArray(arrayAccessOption.get(), opcode, _popValue, Logger.ArrayAction.GETA);
+    }
+
+    private static final class Loop {
+        final Label head;
+        final String id;
+        int numOfBackEdges;
+
+        Loop(final Label head, final String id, final int numOfBackEdges) {
+            this.head = head;
+            this.id = id;
+            this.numOfBackEdges = numOfBackEdges;
+        }
     }
 }
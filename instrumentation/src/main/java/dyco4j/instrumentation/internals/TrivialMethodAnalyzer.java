@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Identifies methods that are not worth tracing, i.e., bridge methods, synthetic methods, accessors of fields of the
+ * owning class, and small leaf methods.  The reason (if any) for deeming the method trivial is reported at the end of
+ * the method.
+ */
+final class TrivialMethodAnalyzer extends MethodVisitor {
+    private static final int MAX_ACCESSOR_LENGTH = 4;
+    private final int access;
+    private final String name;
+    private final String owner;
+    private final String desc;
+    private final int sizeThreshold;
+    private final Consumer<Optional<Reason>> reasonConsumer;
+    private final List<Insn> insns = new ArrayList<>();
+    private boolean hasCode;
+    private boolean isLeaf = true;
+    private boolean accessesOnlyOwnFields = true;
+    private int codeSize;
+
+    TrivialMethodAnalyzer(final int access, final String name, final String owner, final String desc,
+                          final int sizeThreshold, final MethodVisitor mv,
+                          final Consumer<Optional<Reason>> reasonConsumer) {
+        super(CLI.ASM_VERSION, mv);
+        this.access = access;
+        this.name = name;
+        this.owner = owner;
+        this.desc = desc;
+        this.sizeThreshold = sizeThreshold;
+        this.reasonConsumer = reasonConsumer;
+    }
+
+    @Override
+    public void visitCode() {
+        hasCode = true;
+        super.visitCode();
+    }
+
+    @Override
+    public void visitInsn(final int opcode) {
+        addInsn(opcode, 0, 1);
+        super.visitInsn(opcode);
+    }
+
+    @Override
+    public void visitIntInsn(final int opcode, final int operand) {
+        addInsn(opcode, operand, opcode == Opcodes.SIPUSH ? 3 : 2);
+        super.visitIntInsn(opcode, operand);
+    }
+
+    @Override
+    public void visitVarInsn(final int opcode, final int var) {
+        addInsn(opcode, var, var < 4 ? 1 : var < 256 ? 2 : 4);
+        super.visitVarInsn(opcode, var);
+    }
+
+    @Override
+    public void visitTypeInsn(final int opcode, final String type) {
+        addInsn(opcode, 0, 3);
+        super.visitTypeInsn(opcode, type);
+    }
+
+    @Override
+    public void visitFieldInsn(final int opcode, final String owner, final String name, final String desc) {
+        accessesOnlyOwnFields &= owner.equals(this.owner);
+        addInsn(opcode, 0, 3);
+        super.visitFieldInsn(opcode, owner, name, desc);
+    }
+
+    @Override
+    public void visitMethodInsn(final int opcode, final String owner, final String name, final String desc,
+                                final boolean itf) {
+        isLeaf = false;
+        addInsn(opcode, 0, opcode == Opcodes.INVOKEINTERFACE ? 5 : 3);
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(final String name, final String desc, final Handle bsm,
+                                       final Object... bsmArgs) {
+        isLeaf = false;
+        addInsn(Opcodes.INVOKEDYNAMIC, 0, 5);
+        super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+    }
+
+    @Override
+    public void visitJumpInsn(final int opcode, final Label label) {
+        addInsn(opcode, 0, 3);
+        super.visitJumpInsn(opcode, label);
+    }
+
+    @Override
+    public void visitLdcInsn(final Object value) {
+        addInsn(Opcodes.LDC, 0, 3);
+        super.visitLdcInsn(value);
+    }
+
+    @Override
+    public void visitIincInsn(final int var, final int increment) {
+        addInsn(Opcodes.IINC, var, var < 256 && increment == (byte) increment ? 3 : 6);
+        super.visitIincInsn(var, increment);
+    }
+
+    @Override
+    public void visitTableSwitchInsn(final int min, final int max, final Label dflt, final Label... labels) {
+        addInsn(Opcodes.TABLESWITCH, 0, 16 + 4 * labels.length);
+        super.visitTableSwitchInsn(min, max, dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+        addInsn(Opcodes.LOOKUPSWITCH, 0, 12 + 8 * keys.length);
+        super.visitLookupSwitchInsn(dflt, keys, labels);
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(final String desc, final int numDimensions) {
+        addInsn(Opcodes.MULTIANEWARRAY, 0, 4);
+        super.visitMultiANewArrayInsn(desc, numDimensions);
+    }
+
+    @Override
+    public void visitEnd() {
+        reasonConsumer.accept(getReason());
+        super.visitEnd();
+    }
+
+    private void addInsn(final int opcode, final int operand, final int size) {
+        if (insns.size() <= MAX_ACCESSOR_LENGTH)
+            insns.add(new Insn(opcode, operand));
+        codeSize += size;
+    }
+
+    private Optional<Reason> getReason() {
+        if ((access & Opcodes.ACC_BRIDGE) != 0)
+            return Optional.of(Reason.bridge);
+        // INFO: Bodies of lambdas are synthetic methods but they are written by the programmer
+        if ((access & Opcodes.ACC_SYNTHETIC) != 0 && !name.startsWith("lambda$"))
+            return Optional.of(Reason.synthetic);
+        if (!hasCode)
+            return Optional.empty();
+        if (isAccessor())
+            return Optional.of(Reason.accessor);
+        if (isLeaf && codeSize < sizeThreshold)
+            return Optional.of(Reason.small);
+        return Optional.empty();
+    }
+
+    private boolean isAccessor() {
+        if (!accessesOnlyOwnFields || insns.size() > MAX_ACCESSOR_LENGTH)
+            return false;
+
+        final boolean _isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        final Type[] _argTypes = Type.getArgumentTypes(desc);
+        final Type _returnType = Type.getReturnType(desc);
+        final List<Insn> _expected = new ArrayList<>();
+        if (!_isStatic)
+            _expected.add(new Insn(Opcodes.ALOAD, 0));
+        if (_argTypes.length == 0 && _returnType.getSort() != Type.VOID) {
+            _expected.add(new Insn(_isStatic ? Opcodes.GETSTATIC : Opcodes.GETFIELD, 0));
+            _expected.add(new Insn(_returnType.getOpcode(Opcodes.IRETURN), 0));
+        } else if (_argTypes.length == 1 && _returnType.getSort() == Type.VOID) {
+            _expected.add(new Insn(_argTypes[0].getOpcode(Opcodes.ILOAD), _isStatic ? 0 : 1));
+            _expected.add(new Insn(_isStatic ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD, 0));
+            _expected.add(new Insn(Opcodes.RETURN, 0));
+        } else
+            return false;
+        return insns.equals(_expected);
+    }
+
+    enum Reason {
+        bridge,
+        synthetic,
+        accessor,
+        small,
+    }
+
+    private record Insn(int opcode, int operand) {
+    }
+}
@@ -185,14 +185,30 @@ abstract class AbstractCLITest {
      * execute instrumented code in a different process
      * @return a quadruple of process return status, standard output, standard error, and generated trace
      */
-    protected static executeInstrumentedCode(final Class clazz) {
+    protected static executeInstrumentedCode(final Class clazz, final List<String> vmArgs = []) {
+        collectExecutionResult(startInstrumentedCode(clazz, vmArgs))
+    }
+
+    /**
+     * start instrumented code in a different process
+     * @return the process executing the instrumented code
+     */
+    protected static startInstrumentedCode(final Class clazz, final List<String> vmArgs = [],
+                                           final List<String> programArgs = []) {
         final _path = Paths.get(System.getProperty("java.home"), "bin", "java").toString()
         final _cp = fixupPath([OUT_FOLDER, LOGGING_LIBRARY, TEST_CLASS_FOLDER].join(File.pathSeparator))
-        final _proc = [_path, "-cp", _cp, clazz.name].execute()
+        ([_path] + vmArgs + ["-cp", _cp, clazz.name] + programArgs).execute()
+    }
+
+    /**
+     * wait for the process executing instrumented code to complete
+     * @return a quadruple of process return status, standard output, standard error, and generated trace
+     */
+    protected static collectExecutionResult(final Process proc) {
         final _ret = new ExecutionResult(
-                _proc.waitFor(),
-                _proc.inputStream.readLines(),
-                _proc.errorStream.readLines(),
+                proc.waitFor(),
+                proc.inputStream.readLines(),
+                proc.errorStream.readLines(),
                 getTraceLines())
         deleteFiles(TRACE_FOLDER, TRACE_FILE_REGEX)
         _ret
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation
+
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+
+import static dyco4j.instrumentation.Filter.Kind.*
+import static groovy.test.GroovyAssert.shouldFail
+
+class FilterTest {
+    private static createFilter(final List<String> lines) {
+        final _file = Files.createTempFile("filter", ".rules")
+        try {
+            Files.write(_file, lines)
+            new Filter(Filter.loadRules(_file))
+        } finally {
+            Files.delete(_file)
+        }
+    }
+
+    @Test
+    void withoutRules() {
+        final _classFilter = new Filter([]).forClass("org/foo/Bar")
+        assert !_classFilter.excluded
+        assert _classFilter.includes(method, "m", "()V", [] as Set)
+    }
+
+    @Test
+    void withOnlyExcludeRules() {
+        final _filter = createFilter(["# comment", "", "- package=org.foo.internal", "- method=get.* kind=field"])
+        assert _filter.forClass("org/foo/internal/Bar").excluded
+        assert _filter.forClass("org/foo/internal/baz/Bar").excluded
+        assert !_filter.forClass("org/foo/internalBar").excluded
+        assert !_filter.forClass("org/foo/Bar").excluded
+
+        final _classFilter = _filter.forClass("org/foo/Bar")
+        assert _classFilter.includes(method, "getX", "()I", [] as Set)
+        assert !_classFilter.includes(field, "getX", "()I", [] as Set)
+        assert _classFilter.includes(field, "setX", "(I)V", [] as Set)
+    }
+
+    @Test
+    void withIncludeAndExcludeRules() {
+        final _filter = createFilter(["- class=.*Test method=helper.*", "+ package=org/foo class=.*Test",
+                                      "+ member=org\\.bar\\.Baz\\.run desc=\\(\\)V class=org/bar/Baz"])
+        final _classFilter1 = _filter.forClass("org/foo/FooTest")
+        assert !_classFilter1.excluded
+        assert _classFilter1.includes(method, "test1", "()V", [] as Set)
+        assert !_classFilter1.includes(method, "helper1", "()V", [] as Set)
+
+        assert !_filter.forClass("org/foo/Foo").includes(method, "test1", "()V", [] as Set)
+        assert !_filter.forClass("org/bar/BarTest").includes(method, "test1", "()V", [] as Set)
+        assert _filter.forClass("org/foo/internal/Bar").excluded
+
+        final _classFilter2 = _filter.forClass("org/bar/Baz")
+        assert !_classFilter2.excluded
+        assert _classFilter2.includes(call, "run", "()V", [] as Set)
+        assert !_classFilter2.includes(call, "run", "(I)V", [] as Set)
+        assert !_classFilter2.includes(call, "runs", "()V", [] as Set)
+    }
+
+    @Test
+    void withAnnotationRules() {
+        final _filter = createFilter(["- annotation=org.junit.Ignore", "+ annotation=Lorg/junit/Test;"])
+        final _classFilter = _filter.forClass("Foo")
+        assert _classFilter.dependsOnAnnotations()
+        assert _classFilter.includes(method, "m", "()V", ["Lorg/junit/Test;"] as Set)
+        assert !_classFilter.includes(method, "m", "()V", ["Lorg/junit/Test;", "Lorg/junit/Ignore;"] as Set)
+        assert !_classFilter.includes(method, "m", "()V", [] as Set)
+        assert !createFilter(["+ class=Foo"]).forClass("Foo").dependsOnAnnotations()
+    }
+
+    @Test
+    void withMalformedRules() {
+        assert shouldFail(IllegalArgumentException) { createFilter(["package=org"]) }.message ==~ /.*:1: .*/
+        assert shouldFail(IllegalArgumentException) { createFilter(["+ klass=Foo"]) }.message ==~
+                /.*:1: klass is an unrecognized criterion/
+        assert shouldFail(IllegalArgumentException) { createFilter(["+ class=Foo", "- kind=fields"]) }.message ==~
+                /.*:2: fields is an unrecognized kind/
+        assert shouldFail(IllegalArgumentException) { createFilter(["+ class=Foo class=Bar"]) }.message ==~
+                /.*:1: class=Bar repeats a criterion/
+    }
+
+    @Test
+    void toStringListsRules() {
+        assert createFilter(["+class=Foo   package=org", "-"]).toString() == "[+ package=org class=Foo, -]"
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+import static groovy.test.GroovyAssert.shouldFail
+
+class HelperTest {
+    private static final int NUM_OF_FILES = 500
+    private Path srcRoot
+    private Path trgRoot
+
+    @BeforeEach
+    void createFiles() {
+        srcRoot = Files.createTempDirectory("src")
+        trgRoot = Files.createTempDirectory("trg")
+        (0..<NUM_OF_FILES).each {
+            final _file = srcRoot.resolve("p${it % 7}").resolve("f${it}.txt")
+            Files.createDirectories(_file.parent)
+            _file.text = "file ${it}"
+        }
+    }
+
+    @AfterEach
+    void deleteFiles() {
+        srcRoot.toFile().deleteDir()
+        trgRoot.toFile().deleteDir()
+    }
+
+    @Test
+    void processFilesTransformsAllSelectedFiles() {
+        Helper.processFiles(srcRoot, trgRoot, { it.fileName.toString().endsWith(".txt") && it.toString() =~ /p[0-5]/ },
+                { new String(it).toUpperCase().bytes })
+
+        final _trgFiles = Files.walk(trgRoot).filter { Files.isRegularFile(it) }.toList()
+        assert _trgFiles.size() == (0..<NUM_OF_FILES).count { it % 7 != 6 }
+        _trgFiles.each {
+            assert it.text == srcRoot.resolve(trgRoot.relativize(it).toString()).text.toUpperCase()
+        }
+    }
+
+    @Test
+    void processFilesOverwritesTargetFiles() {
+        Helper.copyFiles(srcRoot, trgRoot)
+        Helper.processFiles(srcRoot, trgRoot, { Files.isRegularFile(it) }, { "x".bytes })
+
+        final _trgFiles = Files.walk(trgRoot).filter { Files.isRegularFile(it) }.toList()
+        assert _trgFiles.size() == NUM_OF_FILES
+        assert _trgFiles.every { it.text == "x" }
+        assert srcRoot.resolve("p0").resolve("f0.txt").text == "file 0"
+    }
+
+    @Test
+    void processFilesRethrowsFailureOfTransformer() {
+        final _ex = shouldFail(IllegalStateException) {
+            Helper.processFiles(srcRoot, trgRoot, { Files.isRegularFile(it) }, {
+                if (new String(it) == "file 42")
+                    throw new IllegalStateException("file 42")
+                it
+            })
+        }
+        assert _ex.message == "file 42"
+        assert !Files.exists(trgRoot.resolve("p0").resolve("f42.txt"))
+    }
+
+    @Test
+    void copyFilesCopiesNonClassFiles() {
+        srcRoot.resolve("p0").resolve("A.class").text = "class"
+        Files.createDirectories(srcRoot.resolve("META-INF"))
+        srcRoot.resolve("META-INF").resolve("A.SF").text = "signature"
+        final _unrelated = trgRoot.resolve("unrelated.txt")
+        _unrelated.text = "unrelated"
+        Helper.copyFiles(srcRoot, trgRoot)
+
+        final _trgFiles = Files.walk(trgRoot).filter { Files.isRegularFile(it) && it != _unrelated }.toList()
+        assert _trgFiles.size() == NUM_OF_FILES
+        _trgFiles.each {
+            final _srcFile = srcRoot.resolve(trgRoot.relativize(it).toString())
+            assert it.text == _srcFile.text
+            assert !Files.isSameFile(it, _srcFile)
+        }
+        assert _unrelated.text == "unrelated"
+    }
+
+    @Test
+    void mirrorFilesMirrorsNonClassFiles() {
+        srcRoot.resolve("p0").resolve("A.class").text = "class"
+        srcRoot.resolve("p0").resolve("B.class").text = "class"
+        Files.createDirectories(srcRoot.resolve("META-INF"))
+        srcRoot.resolve("META-INF").resolve("A.SF").text = "signature"
+        Helper.mirrorFiles(srcRoot, trgRoot, false)
+
+        final _trgFiles = Files.walk(trgRoot).filter { Files.isRegularFile(it) }.toList()
+        assert _trgFiles.size() == NUM_OF_FILES
+        _trgFiles.each {
+            final _srcFile = srcRoot.resolve(trgRoot.relativize(it).toString())
+            assert it.text == _srcFile.text
+            assert Files.getLastModifiedTime(it) == Files.getLastModifiedTime(_srcFile)
+            assert !Files.isSameFile(it, _srcFile)
+        }
+
+        // unchanged, modified, and deleted source files
+        final _trgClassFile = trgRoot.resolve("p0").resolve("A.class")
+        _trgClassFile.text = "instrumented class"
+        final _orphanedTrgClassFile = trgRoot.resolve("p0").resolve("B.class")
+        _orphanedTrgClassFile.text = "instrumented class"
+        Files.delete(srcRoot.resolve("p0").resolve("B.class"))
+        final _modified = srcRoot.resolve("p1").resolve("f1.txt")
+        _modified.text = "modified 1"
+        Files.setLastModifiedTime(_modified, FileTime.fromMillis(1000))
+        Files.delete(srcRoot.resolve("p2").resolve("f2.txt"))
+        final _trgUntouched = trgRoot.resolve("p3").resolve("f3.txt")
+        final _time = Files.getLastModifiedTime(_trgUntouched)
+        Helper.mirrorFiles(srcRoot, trgRoot, false)
+
+        assert trgRoot.resolve("p1").resolve("f1.txt").text == "modified 1"
+        assert !Files.exists(trgRoot.resolve("p2").resolve("f2.txt"))
+        assert _trgClassFile.text == "instrumented class"
+        assert !Files.exists(_orphanedTrgClassFile)
+        assert Files.getLastModifiedTime(_trgUntouched) == _time
+        assert Files.walk(trgRoot).filter { Files.isRegularFile(it) }.count() == NUM_OF_FILES
+    }
+
+    @Test
+    void mirrorFilesLinksFilesIfEnabled() {
+        Helper.mirrorFiles(srcRoot, trgRoot, true)
+
+        final _trgFile = trgRoot.resolve("p0").resolve("f0.txt")
+        final _srcFile = srcRoot.resolve("p0").resolve("f0.txt")
+        assert Files.isSameFile(_trgFile, _srcFile)
+
+        // a replaced source file is copied when linking is disabled
+        Files.delete(_srcFile)
+        _srcFile.text = "modified 0"
+        Files.setLastModifiedTime(_srcFile, FileTime.fromMillis(1000))
+        Helper.mirrorFiles(srcRoot, trgRoot, false)
+
+        assert _trgFile.text == "modified 0"
+        assert !Files.isSameFile(_trgFile, _srcFile)
+    }
+
+    @Test
+    void mirrorFilesSkipsFilesWithSameContent() {
+        Helper.mirrorFiles(srcRoot, trgRoot, false)
+        final _trgFile = trgRoot.resolve("p0").resolve("f0.txt")
+        Files.delete(_trgFile)
+        _trgFile.text = "file 0"
+        Files.setLastModifiedTime(_trgFile, FileTime.fromMillis(1000))
+        Helper.mirrorFiles(srcRoot, trgRoot, false)
+
+        assert _trgFile.text == "file 0"
+        assert Files.getLastModifiedTime(_trgFile) == Files.getLastModifiedTime(srcRoot.resolve("p0/f0.txt"))
+    }
+
+    @Test
+    void mirrorFilesIntoJar() {
+        final _jar = trgRoot.resolve("out.jar")
+        FileSystems.newFileSystem(_jar, [create: "true"]).withCloseable {
+            Helper.mirrorFiles(srcRoot, it.getPath("/"), true)
+        }
+
+        FileSystems.newFileSystem(_jar).withCloseable { _fs ->
+            final _trgFiles = Files.walk(_fs.getPath("/")).filter { Files.isRegularFile(it) }.toList()
+            assert _trgFiles.size() == NUM_OF_FILES
+            _trgFiles.each { assert it.text == srcRoot.resolve(it.toString().substring(1)).text }
+        }
+    }
+}
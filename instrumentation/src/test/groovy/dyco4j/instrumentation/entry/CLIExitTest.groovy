@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.entry
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.util.zip.GZIPOutputStream
+
+import static dyco4j.instrumentation.entry.CLITest.*
+
+class CLIExitTest extends AbstractCLITest {
+    private static final String TRACE_EXITS_OPTION = "--$CLI.TRACE_EXITS_OPTION"
+    private static final String TEST_PREFIX = 'dyco4j/instrumentation/entry/CLIExitTestSubject/'
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "entry", "CLIExitTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    // Returns the trace lines without thread ids and the header
+    private static getTraceLines(final List<String> options) {
+        final _options = [IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, METHOD_NAME_REGEX_OPTION, '.*',
+                          ONLY_ANNOTATED_TESTS_OPTION] + options
+        assert instrumentCode(CLI, _options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLIExitTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['test3', 'test2', 'test3', '4']
+        _executionResult.traceLines.tail().collect { it.split(',', 2)[1] }
+    }
+
+    private static splitExit(final String exit) {
+        final _tmp = exit.split(',')
+        assert Long.parseLong(_tmp[2]) >= 0
+        _tmp[[0, 1, 3]]
+    }
+
+    @Test
+    void withoutTraceExitsOption() {
+        assert getTraceLines([]) == ['setUp()V', 'test1()V', 'test3()V', 'test2()V', 'test3()V', 'test4(Z)J'].collect {
+            Logger.MARKER_PREFIX + TEST_PREFIX + it
+        }
+    }
+
+    @Test
+    void withTraceExitsOption() {
+        final _traceLines = getTraceLines([TRACE_EXITS_OPTION])
+        assert _traceLines.size() == 12
+
+        final _entries = _traceLines.findAll { it.startsWith(Logger.MARKER_PREFIX) }
+        assert _entries == ['setUp()V', 'test1()V', 'test3()V', 'test2()V', 'test3()V', 'test4(Z)J'].collect {
+            Logger.MARKER_PREFIX + TEST_PREFIX + it
+        }
+        final _exits = _traceLines.findAll { it.startsWith(Logger.MARKER_EXIT_PREFIX) }.collect { splitExit(it) }
+        assert _exits == [['setUp()V', 'N', 'F'], ['test3()V', 'N', 'T'], ['test1()V', 'N', 'T'],
+                          ['test2()V', 'E', 'T'], ['test3()V', 'N', 'T'], ['test4(Z)J', 'N', 'T']].collect {
+            [Logger.MARKER_EXIT_PREFIX + TEST_PREFIX + it[0], it[1], it[2]]
+        }
+    }
+
+    @Test
+    void summaryOfTraceExits() {
+        final _traceFolder = Files.createTempDirectory("traces")
+        final _trace = _traceFolder.resolve("trace.gz")
+        try {
+            final _exit = Logger.MARKER_EXIT_PREFIX + TEST_PREFIX
+            new GZIPOutputStream(Files.newOutputStream(_trace)).withPrintWriter {
+                it.println(new Date().toString())
+                it.println("1,${Logger.MARKER_PREFIX}${TEST_PREFIX}test1()V")
+                it.println("1,${_exit}test1()V,N,30,T")
+                it.println("1,${_exit}test1()V,N,30,T,2")
+                it.println("1,${_exit}setUp()V,E,50,F")
+                it.println("1,${_exit}test2()V,N,-1,T")
+                it.println("1,${_exit}test2()V,N,20,T")
+            }
+
+            final _out = new ByteArrayOutputStream()
+            TimeSummaryCLI.report(TimeSummaryCLI.summarize(_traceFolder), 2, new PrintStream(_out, true))
+            assert _out.toString().readLines() == [TimeSummaryCLI.HEADER, "T,${TEST_PREFIX}test1()V,3,0,90,30",
+                                                   "F,${TEST_PREFIX}setUp()V,1,1,50,50"]*.toString()
+        } finally {
+            Files.delete(_trace)
+            Files.delete(_traceFolder)
+        }
+    }
+}
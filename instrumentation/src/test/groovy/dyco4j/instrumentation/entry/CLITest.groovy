@@ -9,9 +9,12 @@
 package dyco4j.instrumentation.entry
 
 import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.instrumentation.Filter
 import org.junit.jupiter.api.BeforeAll
 import org.junit.jupiter.api.Test
+import org.objectweb.asm.Opcodes
 
+import java.nio.file.Files
 import java.nio.file.Paths
 
 class CLITest extends AbstractCLITest {
@@ -21,6 +24,7 @@ class CLITest extends AbstractCLITest {
     static final String CLASS_NAME_REGEX_OPTION = "--$CLI.CLASS_NAME_REGEX_OPTION"
     static final String METHOD_NAME_REGEX_OPTION = "--$CLI.METHOD_NAME_REGEX_OPTION"
     static final String ONLY_ANNOTATED_TESTS_OPTION = "--$CLI.ONLY_ANNOTATED_TESTS_OPTION"
+    static final String FILTER_RULES_OPTION = "--$CLI.FILTER_RULES_OPTION"
 
     @BeforeAll
     static void copyClassesToBeInstrumentedIntoInFolder() {
@@ -155,4 +159,36 @@ class CLITest extends AbstractCLITest {
         assert _traceLines[1] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/test2\(\)V/
         assert _traceLines[2] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/testSuffix2\(\)V/
     }
+
+    @Test
+    void withFilterRulesOption() {
+        final _rulesFile = resolveUnderRootFolder("entry_filter.rules")
+        Files.write(_rulesFile, ["- method=testSuffix.* annotation=org.junit.Test", "+ method=nonTest"])
+        try {
+            assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER,
+                                   FILTER_RULES_OPTION, _rulesFile]) == [1L, 1L]
+        } finally {
+            Files.delete(_rulesFile)
+        }
+
+        final _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        final String[] _traceLines = _executionResult.traceLines
+        assert _traceLines.length == 2
+
+        // should not raise exception
+        Date.parseToStringDate(_traceLines[0])
+
+        assert _traceLines[1] ==~ /\d+,marker:dyco4j\/instrumentation\/entry\/CLITestSubject\/test2\(\)V/
+    }
+
+    @Test
+    void framesAreEmittedOnlyForClassesAfterJava6() {
+        final _cv = new TracingClassVisitor(null, new Filter([]), false, false)
+        [(Opcodes.V1_1): false, (Opcodes.V1_6): false, (Opcodes.V1_7): true, (Opcodes.V17): true].each {
+            _cv.visit(it.key, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null)
+            assert _cv.shouldEmitFrames() == it.value
+        }
+    }
 }
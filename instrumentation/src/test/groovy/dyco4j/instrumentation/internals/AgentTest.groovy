@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import com.google.gson.Gson
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.utility.ProgramData
+import org.apache.commons.cli.CommandLine
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.commons.Method
+import org.objectweb.asm.tree.ClassNode
+import org.slf4j.LoggerFactory
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import java.util.jar.Attributes
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+
+import static dyco4j.logging.Logger.METHOD_ENTRY_TAG
+
+class AgentTest extends AbstractCLITest {
+    private static final Path AGENT_JAR = resolveUnderRootFolder("agent.jar")
+    private static final Path CACHE_FOLDER = resolveUnderRootFolder("agent_cache")
+    private static final String INCLUDE_CLASS_REGEX = ".*CLITestSubject"
+
+    @BeforeAll
+    static void createAgentJar() {
+        final _classPath = [Agent, ClassReader, Method, ClassNode, CommandLine, ProgramData, Gson, LoggerFactory,
+                            dyco4j.logging.Logger].collect {
+            it.protectionDomain.codeSource.location.toString()
+        }.unique().join(' ')
+        final _manifest = new Manifest()
+        _manifest.mainAttributes[Attributes.Name.MANIFEST_VERSION] = '1.0'
+        _manifest.mainAttributes.putValue('Premain-Class', Agent.name)
+        _manifest.mainAttributes.putValue('Agent-Class', Agent.name)
+        _manifest.mainAttributes.putValue('Can-Retransform-Classes', 'true')
+        _manifest.mainAttributes.putValue('Class-Path', _classPath)
+        new JarOutputStream(Files.newOutputStream(AGENT_JAR), _manifest).close()
+    }
+
+    @AfterAll
+    static void deleteAgentJarAndCache() {
+        Files.delete(AGENT_JAR)
+        if (Files.exists(CACHE_FOLDER)) {
+            Files.list(CACHE_FOLDER).each { Files.delete(it) }
+            Files.delete(CACHE_FOLDER)
+        }
+    }
+
+    private static executeCodeWithAgent(final List<String> agentArgs) {
+        executeInstrumentedCode(CLITestSubject, ["-javaagent:${AGENT_JAR}=${agentArgs.join(',')}".toString()])
+    }
+
+    private static getCachedClasses() {
+        Files.list(CACHE_FOLDER).withCloseable { _files ->
+            _files.filter { it.fileName.toString().endsWith('.class') }.toList()
+        }
+    }
+
+    @Test
+    void withIncludeClassRegexOption() {
+        final ExecutionResult _executionResult = executeCodeWithAgent(
+                ["$Agent.INCLUDE_CLASS_REGEX_OPTION=$INCLUDE_CLASS_REGEX"])
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 55)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs(numOfExceptionLogs: 4, _traceLines, 25)
+        assertPropertiesAboutExit(_traceLines)
+        assert Files.exists(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+
+    @Test
+    void withExcludeClassRegexOption() {
+        final ExecutionResult _executionResult = executeCodeWithAgent(
+                ["$Agent.INCLUDE_CLASS_REGEX_OPTION=$INCLUDE_CLASS_REGEX",
+                 "$Agent.EXCLUDE_CLASS_REGEX_OPTION=.*Subject"])
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 0)
+    }
+
+    @Test
+    void withCacheFolderOption() {
+        final _agentArgs = ["$Agent.INCLUDE_CLASS_REGEX_OPTION=$INCLUDE_CLASS_REGEX",
+                            "$Agent.CACHE_FOLDER_OPTION=$CACHE_FOLDER"]
+        assertTraceLengthIs(executeCodeWithAgent(_agentArgs), 55)
+        final _cachedClasses = getCachedClasses()
+        assert _cachedClasses.size() == 1
+
+        // cached class is used as is in warm runs
+        final _subjectClass = resolveUnderTestClassFolder(Paths.get("dyco4j", "instrumentation", "internals",
+                "CLITestSubject.class"))
+        Files.copy(_subjectClass, _cachedClasses[0], StandardCopyOption.REPLACE_EXISTING)
+        assertTraceLengthIs(executeCodeWithAgent(_agentArgs), 0)
+
+        // cache is cleared in the absence of program data
+        Files.delete(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        assertTraceLengthIs(executeCodeWithAgent(_agentArgs), 55)
+        assert getCachedClasses().size() == 1
+
+        // cache is cleared when program data is regenerated
+        Files.copy(_subjectClass, getCachedClasses()[0], StandardCopyOption.REPLACE_EXISTING)
+        ProgramData.saveData(new ProgramData(), Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        assertTraceLengthIs(executeCodeWithAgent(_agentArgs), 55)
+        assert getCachedClasses().size() == 1
+    }
+
+    @Test
+    void withAttachCLI() {
+        final _proc = startInstrumentedCode(AgentAttachTestSubject, [], ['4'])
+        assert _proc.inputStream.newReader().readLine() == 'started'
+
+        final _methodNameRegex = '.*exercise'
+        AttachCLI.main(["--$AttachCLI.PID_OPTION", _proc.pid(), "--$AttachCLI.AGENT_JAR_OPTION", AGENT_JAR,
+                        "--$Agent.INCLUDE_CLASS_REGEX_OPTION", '.*AgentAttachTestSubject',
+                        "--$CLI.METHOD_NAME_REGEX_OPTION", _methodNameRegex,
+                        "--$Agent.DURATION_OPTION", '1'] as String[])
+
+        final ExecutionResult _executionResult = collectExecutionResult(_proc)
+        assert _executionResult.exitCode == 0
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        final _numOfEntries = _traceLines.count { it ==~ /^$METHOD_ENTRY_TAG,.*/ }
+        assert _numOfEntries > 0
+        assert _numOfEntries < (_executionResult.stdoutLines[-1] as int)
+        assertAllAndOnlyMatchingMethodsAreTraced(_traceLines, _methodNameRegex)
+    }
+}
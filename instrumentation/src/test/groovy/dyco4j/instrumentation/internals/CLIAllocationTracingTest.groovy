@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import dyco4j.utility.AllocationSite
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIAllocationTracingTest extends AbstractCLITest {
+    private static final String TRACE_ALLOCATION_EVENTS_OPTION =
+            "--$CLI.TRACE_ALLOCATIONS_OPTION=$CLI.AllocationOption.events"
+    private static final String TRACE_ALLOCATION_COUNTS_OPTION =
+            "--$CLI.TRACE_ALLOCATIONS_OPTION=$CLI.AllocationOption.counts"
+    private static final String PRESERVE_FRAMES_OPTION = "--$CLI.PRESERVE_FRAMES_OPTION"
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "internals", "CLIAllocationTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    private static getProgramData() {
+        ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+
+    /*
+     * Returns the logs of allocations with site ids replaced by the types allocated at the sites and without ids of
+     * arrays.
+     */
+    private static getAllocationLogs(final List<String> options) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLIAllocationTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['12']
+        final _programData = getProgramData()
+        removeThreadIdFromLog(_executionResult.traceLines).tail()
+                .findAll { it ==~ /^($Logger.ALLOCATION_TAG|$Logger.ALLOCATION_COUNT_TAG),.*/ }
+                .collect { it.split(',') }
+                .collect {
+                    [it[0], _programData.getAllocationSite(it[1]).get().type()] +
+                            it.drop(2).findAll { !it.startsWith(Logger.ARRAY_TYPE_TAG) }
+                }
+    }
+
+    @Test
+    void withTraceAllocationsEventsOption() {
+        final _tag = Logger.ALLOCATION_TAG
+        // consecutive identical logs are logged as one log along with the number of repetitions
+        assert getAllocationLogs([TRACE_ALLOCATION_EVENTS_OPTION]) == [
+                [_tag, 'java/lang/StringBuilder'],
+                [_tag, 'java/lang/StringBuilder', '2'],
+                [_tag, '[I', '4'],
+                [_tag, '[Ljava/lang/String;', '2'],
+                [_tag, '[[J', '2'],
+                [_tag, '[Ljava/lang/Object;', '1'],
+                [_tag, 'java/lang/Object']]
+    }
+
+    @Test
+    void withTraceAllocationsCountsOption() {
+        final _tag = Logger.ALLOCATION_COUNT_TAG
+        assert getAllocationLogs([TRACE_ALLOCATION_COUNTS_OPTION]) as Set == [
+                [_tag, 'java/lang/StringBuilder', '3'],
+                [_tag, '[I', '1', '4'],
+                [_tag, '[Ljava/lang/String;', '1', '2'],
+                [_tag, '[[J', '1', '2'],
+                [_tag, '[Ljava/lang/Object;', '1', '1'],
+                [_tag, 'java/lang/Object', '1']] as Set
+    }
+
+    @Test
+    void withTraceAllocationsAndPreserveFramesOptions() {
+        final _expected = getAllocationLogs([TRACE_ALLOCATION_EVENTS_OPTION])
+        assert getAllocationLogs([TRACE_ALLOCATION_EVENTS_OPTION, PRESERVE_FRAMES_OPTION]) == _expected
+    }
+
+    @Test
+    void withTraceAllocationsOptionAndFilterRules() {
+        final _rules = Files.createTempFile("rules", ".txt")
+        try {
+            _rules.write("- kind=allocation method=create\n")
+            final _logs = getAllocationLogs([TRACE_ALLOCATION_COUNTS_OPTION, "$FILTER_RULES_OPTION=$_rules"])
+            assert _logs.collect { it[1] } as Set == ['java/lang/StringBuilder', '[I', '[Ljava/lang/String;',
+                                                       '[[J'] as Set
+        } finally {
+            Files.delete(_rules)
+        }
+    }
+
+    @Test
+    void allocationSitesInProgramData() {
+        getAllocationLogs([TRACE_ALLOCATION_COUNTS_OPTION])
+        final _programData = getProgramData()
+        final _methodId2Name = _programData.viewOfMethodId2Name
+        final _name2sites = _programData.viewOfMethodId2AllocationSites.collectEntries {
+            [_methodId2Name[it.key].split('[/:]')[4], it.value]
+        }
+        assert _name2sites.keySet() == ['main', 'create'] as Set
+        assert _name2sites['main'].collect { [it.type(), it.dimensions()] } ==
+                [['java/lang/StringBuilder', 0], ['[I', 1], ['[Ljava/lang/String;', 1], ['[[J', 2]]
+        assert _name2sites['create'] == [new AllocationSite(26, '[Ljava/lang/Object;', 1),
+                                         new AllocationSite(26, 'java/lang/Object', 0)]
+
+        getAllocationLogs([])
+        assert getProgramData().viewOfMethodId2AllocationSites.isEmpty()
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIArrayAccessAggregationTest extends AbstractCLITest {
+    private static final String AGGREGATE_ARRAY_ACCESS_OPTION = "--$CLI.AGGREGATE_ARRAY_ACCESS_OPTION"
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "internals", "CLIArrayAccessTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    private static getArrayAccessLogs(final List<String> options) {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLIArrayAccessTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['107']
+        removeThreadIdFromLog(_executionResult.traceLines).tail().findAll { it ==~ /^(GET|PUT)[AR],.*/ }
+    }
+
+    private static removeArrayIds(final List<String> logs) {
+        logs.collect { it.replaceAll(/,a:\d+/, '') }
+    }
+
+    @Test
+    void withAggregateArrayAccessOption() {
+        final _logs = getArrayAccessLogs([TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION, AGGREGATE_ARRAY_ACCESS_OPTION])
+        // executions of the inner loop are aggregated as there are no intervening events
+        final _expected = ['PUTR,0,99,100',
+                           'GETR,1,99,50', 'PUTR,0,49,50',
+                           'GETR,0,2,12', 'PUTR,0,3,4', 'PUTR,0,3,4', 'PUTR,0,3,4',
+                           'GETR,5,14,10', 'PUTR,0,9,10',
+                           'GETR,2,9,8', 'PUTR,0,7,8',
+                           'PUTR,1,3,3',
+                           'GETR,0,1,2', 'PUTR,0,1,2',
+                           'PUTR,0,2,3',
+                           'GETA,0,i:7', 'GETA,0,i:7,1',
+                           'GETA,1,i:7', 'PUTA,0,i:7', 'GETA,0,i:7', 'GETA,49,l:99']
+        assert removeArrayIds(_logs) == _expected
+    }
+
+    @Test
+    void withAggregateArrayAccessAndPreserveFramesOptions() {
+        final _options = [TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION, AGGREGATE_ARRAY_ACCESS_OPTION]
+        final _expected = removeArrayIds(getArrayAccessLogs(_options))
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert removeArrayIds(getArrayAccessLogs(_options + ["--$CLI.PRESERVE_FRAMES_OPTION"])) == _expected
+    }
+
+    @Test
+    void withoutAggregateArrayAccessOption() {
+        final _logs = getArrayAccessLogs([TRACE_ARRAY_ACCESS_WITHOUT_VALUES_OPTION])
+        assert _logs.every { it ==~ /^(GET|PUT)A,.*/ }
+        assert _logs.size() == 100 + 50 * 2 + 12 * 2 + 6
+    }
+}
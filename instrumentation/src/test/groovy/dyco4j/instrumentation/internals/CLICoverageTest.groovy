@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLICoverageTest extends AbstractCLITest {
+    private static final String COVERAGE_OPTION = "--$CLI.COVERAGE_OPTION"
+    private static final String CLASS_NAME = 'dyco4j/instrumentation/internals/CLICoverageTestSubject'
+    private static final COVERED_BLOCKS = [['main', 13], ['classify', 17], ['classify', 18], ['classify', 19],
+                                           ['classify', 20]]
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "internals", "CLICoverageTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    private static getProgramData() {
+        ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+
+    // Returns the name of the method and the line of each basic block
+    private static getBlocks(final programData, final blocks) {
+        final _methodId2Name = programData.viewOfMethodId2Name
+        blocks.collect { [_methodId2Name[it.methodId()].split('[/:]')[4], it.line()] }
+    }
+
+    // Returns the covered basic blocks
+    private static getCoveredBlocks(final List<String> options) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLICoverageTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['pn']
+        final _traceLines = removeThreadIdFromLog(_executionResult.traceLines).tail()
+        assert _traceLines.size() == 1
+
+        final _tmp = _traceLines[0].split(',')
+        assert _tmp[0..1] == [Logger.COVERAGE_TAG, CLASS_NAME]
+        final _programData = getProgramData()
+        final _blocks = _programData.viewOfClass2BasicBlocks[CLASS_NAME]
+        assert _blocks.size() == _tmp[2].length()
+        getBlocks(_programData, (0..<_blocks.size()).findAll { _tmp[2][it] == '1' }.collect { _blocks[it] })
+    }
+
+    @Test
+    void withCoverageOption() {
+        assert getCoveredBlocks([COVERAGE_OPTION]) == COVERED_BLOCKS
+    }
+
+    @Test
+    void withCoverageAndTraceOptions() {
+        final _options = [COVERAGE_OPTION, "--$CLI.TRACE_METHOD_CALL_OPTION", "--$CLI.PRESERVE_FRAMES_OPTION"]
+        assert getCoveredBlocks(_options.collect { it.toString() }) == COVERED_BLOCKS
+    }
+
+    @Test
+    void withCoverageOptionAndFilterRules() {
+        final _rules = Files.createTempFile("rules", ".txt")
+        try {
+            _rules.write("- method=classify\n")
+            assert getCoveredBlocks([COVERAGE_OPTION, "$FILTER_RULES_OPTION=$_rules".toString()]) == [['main', 13]]
+        } finally {
+            Files.delete(_rules)
+        }
+    }
+
+    @Test
+    void basicBlocksInProgramData() {
+        getCoveredBlocks([COVERAGE_OPTION])
+        final _programData = getProgramData()
+        assert _programData.viewOfClass2BasicBlocks.keySet() == [CLASS_NAME] as Set
+        assert getBlocks(_programData, _programData.viewOfClass2BasicBlocks[CLASS_NAME]) ==
+                [['<init>', 11], ['main', 13], ['classify', 17], ['classify', 18], ['classify', 19],
+                 ['classify', 20], ['classify', 21], ['unused', 25]]
+
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER]) == [1L, 0L]
+        assert getProgramData().viewOfClass2BasicBlocks.isEmpty()
+    }
+}
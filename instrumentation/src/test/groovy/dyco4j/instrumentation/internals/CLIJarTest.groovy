@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.IN_FOLDER_OPTION
+import static dyco4j.instrumentation.internals.CLITest.OUT_FOLDER_OPTION
+
+class CLIJarTest extends AbstractCLITest {
+    private static final Path IN_JAR = resolveUnderRootFolder("in_classes.jar")
+    private static final Path OUT_JAR = resolveUnderRootFolder("out_classes.jar")
+    private static final Path CLASS_FILE = Paths.get("dyco4j", "instrumentation", "internals",
+            "CLITestSubject.class")
+    private static final Path VERSIONED_CLASS_FILE = Paths.get("META-INF", "versions", "9").resolve(CLASS_FILE)
+    private static final Path SIGNATURE_FILE = Paths.get("META-INF", "SIGNER.SF")
+    private static final Path MODULE_INFO_FILE = Paths.get("module-info.class")
+
+    @BeforeAll
+    static void createJarWithClassesToBeInstrumented() {
+        copyClassesToBeInstrumentedIntoInFolder([CLASS_FILE])
+        copyResourcesIntoInFolder([Paths.get("dyco4j", "instrumentation", "internals", RESOURCE_FILE_NAME)])
+
+        FileSystems.newFileSystem(IN_JAR, [create: "true"]).withCloseable { fs ->
+            Files.walk(IN_FOLDER).filter { Files.isRegularFile(it) }.each {
+                final _trg = fs.getPath(IN_FOLDER.relativize(it).toString().replace('\\', '/'))
+                Files.createDirectories(_trg.parent)
+                Files.copy(it, _trg)
+            }
+            final _versioned = fs.getPath(VERSIONED_CLASS_FILE.toString().replace('\\', '/'))
+            Files.createDirectories(_versioned.parent)
+            Files.copy(IN_FOLDER.resolve(CLASS_FILE), _versioned)
+            Files.write(fs.getPath(SIGNATURE_FILE.toString().replace('\\', '/')), "signature".bytes)
+            Files.write(fs.getPath(MODULE_INFO_FILE.toString()), "not a class".bytes)
+        }
+    }
+
+    @AfterAll
+    static void deleteJars() {
+        Files.deleteIfExists(IN_JAR)
+        Files.deleteIfExists(OUT_JAR)
+    }
+
+    private static getEntries(final Path jar) {
+        FileSystems.newFileSystem(jar).withCloseable { fs ->
+            Files.walk(fs.getPath("/")).filter { Files.isRegularFile(it) }.collect { it.toString() }.toSet()
+        }
+    }
+
+    private static extractIntoOutFolder(final Path jar) {
+        FileSystems.newFileSystem(jar).withCloseable { fs ->
+            final _root = fs.getPath("/")
+            Files.walk(_root).filter { Files.isRegularFile(it) }.each {
+                final _trg = OUT_FOLDER.resolve(_root.relativize(it).toString())
+                Files.createDirectories(_trg.parent)
+                Files.copy(it, _trg)
+            }
+        }
+    }
+
+    private static assertInstrumentedCodeIsTraced() {
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLITestSubject)
+        assert _executionResult.exitCode == 0
+        assertTraceLengthIs(_executionResult, 55)
+    }
+
+    @Test
+    void withInJarAndOutJar() {
+        CLI.main([IN_FOLDER_OPTION, IN_JAR, OUT_FOLDER_OPTION, OUT_JAR] as String[])
+
+        final _inClass = FileSystems.newFileSystem(IN_JAR).withCloseable {
+            Files.readAllBytes(it.getPath(CLASS_FILE.toString().replace('\\', '/')))
+        }
+        FileSystems.newFileSystem(OUT_JAR).withCloseable {
+            assert Files.readAllBytes(it.getPath(CLASS_FILE.toString().replace('\\', '/'))) != _inClass
+            assert Files.readAllBytes(it.getPath(VERSIONED_CLASS_FILE.toString().replace('\\', '/'))) != _inClass
+            assert Files.readAllBytes(it.getPath(MODULE_INFO_FILE.toString())) == "not a class".bytes
+        }
+
+        final _outEntries = getEntries(OUT_JAR)
+        assert _outEntries == getEntries(IN_JAR) - ["/" + SIGNATURE_FILE.toString().replace('\\', '/')]
+
+        extractIntoOutFolder(OUT_JAR)
+        assertInstrumentedCodeIsTraced()
+    }
+
+    @Test
+    void withInJarAndOutFolder() {
+        CLI.main([IN_FOLDER_OPTION, IN_JAR, OUT_FOLDER_OPTION, OUT_FOLDER] as String[])
+        assert Files.exists(OUT_FOLDER.resolve(CLASS_FILE))
+        assert Files.exists(OUT_FOLDER.resolve(VERSIONED_CLASS_FILE))
+        assert !Files.exists(OUT_FOLDER.resolve(SIGNATURE_FILE))
+
+        assertInstrumentedCodeIsTraced()
+    }
+
+    @Test
+    void withInFolderAndOutJar() {
+        CLI.main([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_JAR] as String[])
+        assert getEntries(OUT_JAR).size() == 2
+
+        extractIntoOutFolder(OUT_JAR)
+        assertInstrumentedCodeIsTraced()
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLILockTracingTest extends AbstractCLITest {
+    private static final String TRACE_LOCK_TABLES_OPTION = "--$CLI.TRACE_LOCKS_OPTION=$CLI.LockOption.tables"
+    private static final String TRACE_LOCK_EVENTS_OPTION = "--$CLI.TRACE_LOCKS_OPTION=$CLI.LockOption.events"
+    private static final String PRESERVE_FRAMES_OPTION = "--$CLI.PRESERVE_FRAMES_OPTION"
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "internals", "CLILockTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    /*
+     * Returns the lock logs with method ids in site ids replaced by method names.
+     */
+    private static getLockLogs(final List<String> options) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLILockTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['6']
+        final _methodId2Name = ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME)).viewOfMethodId2Name
+        final _tags = [Logger.LOCK_ACQUIRE_TAG, Logger.LOCK_RELEASE_TAG, Logger.LOCK_PARK_TAG,
+                       Logger.LOCK_CONTENTION_TAG]
+        removeThreadIdFromLog(_executionResult.traceLines).tail()
+                .collect { it.split(',') as List }
+                .findAll { it[0] in _tags }
+                .collect {
+                    final _siteIndex = it[0] == Logger.LOCK_PARK_TAG ? 1 : 2
+                    final _tmp = it[_siteIndex].split('@')
+                    final _name = _methodId2Name[_tmp[0]].split('[/:]')[4]
+                    it[_siteIndex] = _tmp.length == 1 ? _name : "$_name@${_tmp[1]}".toString()
+                    it
+                }
+    }
+
+    // Returns the map from sites to lock ids and the number of acquisitions in the contention tables
+    private static getContentionTables(final logs) {
+        logs.findAll { it[0] == Logger.LOCK_CONTENTION_TAG }.collectEntries { [it[2], [it[1], it[3] as int]] }
+    }
+
+    @Test
+    void withTraceLocksTablesOption() {
+        final _logs = getLockLogs([TRACE_LOCK_TABLES_OPTION])
+        assert _logs.every { it[0] == Logger.LOCK_CONTENTION_TAG }
+
+        final _tables = getContentionTables(_logs)
+        assert _tables.keySet() == ['main@0', 'main@1', 'main@2', 'main@3', 'main@4', 'holdLock@0', 'increment',
+                                    'incrementTotal'] as Set
+        assert _tables.values().every { it[1] == (it == _tables['increment'] ? 3 : 1) }
+        final _lockId = _tables['main@0'][0]
+        assert ['main@2', 'main@3', 'holdLock@0'].every { _tables[it][0] == _lockId }
+        assert _tables['main@4'][0] == Logger.NULL_VALUE
+        assert _tables.values().collect { it[0] }.toSet().size() == 5
+
+        final _site2stats = _logs.collectEntries { [it[2], it.drop(4).collect { it as long }] }
+        // main waits for holdLock to release the lock, which is held for 100ms
+        assert _site2stats['main@0'][0] >= 10_000_000
+        assert _site2stats['holdLock@0'][2] >= 100_000_000
+        assert _site2stats.values().every { it[0] >= it[1] && it[2] >= it[3] }
+    }
+
+    @Test
+    void withTraceLocksEventsOption() {
+        final _logs = getLockLogs([TRACE_LOCK_EVENTS_OPTION])
+        assert getContentionTables(_logs) == getContentionTables(getLockLogs([TRACE_LOCK_TABLES_OPTION]))
+
+        final _acquisitions = _logs.findAll { it[0] == Logger.LOCK_ACQUIRE_TAG }
+        final _releases = _logs.findAll { it[0] == Logger.LOCK_RELEASE_TAG }
+        assert _acquisitions.collect { it[2] } as Set == ['main@0', 'main@1', 'main@2', 'main@3', 'holdLock@0',
+                                                          'increment', 'incrementTotal'] as Set
+        assert _acquisitions.collect { it[1..2] } as Set == _releases.collect { it[1..2] } as Set
+        assert _logs.count { it[0] == Logger.LOCK_PARK_TAG && it[1] == 'main@4' } == 1
+    }
+
+    @Test
+    void withTraceLocksAndPreserveFramesOptions() {
+        final _expected = getContentionTables(getLockLogs([TRACE_LOCK_TABLES_OPTION]))
+        assert getContentionTables(getLockLogs([TRACE_LOCK_TABLES_OPTION, PRESERVE_FRAMES_OPTION])) == _expected
+    }
+
+    @Test
+    void withoutTraceLocksOption() {
+        assert getLockLogs([]).isEmpty()
+    }
+}
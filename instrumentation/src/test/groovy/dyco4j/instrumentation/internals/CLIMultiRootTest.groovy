@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.IN_FOLDER_OPTION
+import static dyco4j.instrumentation.internals.CLITest.OUT_FOLDER_OPTION
+
+class CLIMultiRootTest extends AbstractCLITest {
+    private static final String ROOTS_MANIFEST_OPTION = "--$CLI.ROOTS_MANIFEST_OPTION"
+    private static final Path IN_FOLDER2 = resolveUnderRootFolder("in_classes2")
+    private static final Path OUT_FOLDER2 = resolveUnderRootFolder("out_classes2")
+    private static final Path MANIFEST = resolveUnderRootFolder("roots.txt")
+    private static final Path CLASS_FILE1 = Paths.get("dyco4j", "instrumentation", "internals",
+            "CLITestSubject.class")
+    private static final Path CLASS_FILE2 = Paths.get("dyco4j", "instrumentation", "internals",
+            "CLICoverageTestSubject.class")
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolders() {
+        copyClassesToBeInstrumentedIntoInFolder([CLASS_FILE1])
+        Files.createDirectories(IN_FOLDER2.resolve(CLASS_FILE2).parent)
+        Files.copy(resolveUnderTestClassFolder(CLASS_FILE2), IN_FOLDER2.resolve(CLASS_FILE2))
+    }
+
+    @AfterAll
+    static void deleteFoldersAndManifest() {
+        [IN_FOLDER2, OUT_FOLDER2].each { _folder ->
+            if (Files.exists(_folder))
+                Files.walk(_folder).sorted(Comparator.reverseOrder()).each { Files.delete(it) }
+        }
+    }
+
+    @AfterEach
+    void deleteManifest() {
+        Files.deleteIfExists(MANIFEST)
+    }
+
+    private static getInstrumentedClassNames() {
+        ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME)).viewOfClass2SuperClass.keySet()
+    }
+
+    private static assertClassesAreInstrumented() {
+        assert Files.readAllBytes(OUT_FOLDER.resolve(CLASS_FILE1)) !=
+                Files.readAllBytes(IN_FOLDER.resolve(CLASS_FILE1))
+        assert Files.readAllBytes(OUT_FOLDER2.resolve(CLASS_FILE2)) !=
+                Files.readAllBytes(IN_FOLDER2.resolve(CLASS_FILE2))
+        assert !Files.exists(OUT_FOLDER.resolve(CLASS_FILE2))
+        assert !Files.exists(OUT_FOLDER2.resolve(CLASS_FILE1))
+        assert getInstrumentedClassNames() == ['dyco4j/instrumentation/internals/CLITestSubject',
+                                               'dyco4j/instrumentation/internals/CLICoverageTestSubject'] as Set
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLITestSubject)
+        assert _executionResult.exitCode == 0
+        assertTraceLengthIs(_executionResult, 55)
+    }
+
+    @Test
+    void withRootsManifest() {
+        MANIFEST.text = "# modules\n$IN_FOLDER=$OUT_FOLDER\n\n  $IN_FOLDER2 = $OUT_FOLDER2  \n"
+        CLI.main([ROOTS_MANIFEST_OPTION, MANIFEST] as String[])
+        assertClassesAreInstrumented()
+    }
+
+    @Test
+    void withRootsManifestAndFolderOptions() {
+        MANIFEST.text = "$IN_FOLDER2=$OUT_FOLDER2\n"
+        CLI.main([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, ROOTS_MANIFEST_OPTION, MANIFEST]
+                as String[])
+        assertClassesAreInstrumented()
+    }
+
+    @Test
+    void withInvalidRootsManifest() {
+        MANIFEST.text = "$IN_FOLDER2\n"
+        CLI.main([ROOTS_MANIFEST_OPTION, MANIFEST] as String[])
+        assertNothingIsInstrumented()
+    }
+
+    @Test
+    void withOverlappingTargets() {
+        [OUT_FOLDER, OUT_FOLDER.resolve("sub")].each { _trg ->
+            MANIFEST.text = "$IN_FOLDER2=$_trg\n"
+            CLI.main([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, ROOTS_MANIFEST_OPTION, MANIFEST]
+                    as String[])
+            assertNothingIsInstrumented()
+        }
+    }
+
+    @Test
+    void withSourceInTarget() {
+        MANIFEST.text = "$IN_FOLDER2=$OUT_FOLDER2\n"
+        CLI.main([IN_FOLDER_OPTION, OUT_FOLDER2.resolve("sub"), OUT_FOLDER_OPTION, OUT_FOLDER,
+                  ROOTS_MANIFEST_OPTION, MANIFEST] as String[])
+        assertNothingIsInstrumented()
+
+        MANIFEST.text = "$IN_FOLDER2=$IN_FOLDER2\n"
+        CLI.main([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER, ROOTS_MANIFEST_OPTION, MANIFEST]
+                as String[])
+        assertNothingIsInstrumented()
+    }
+
+    private static assertNothingIsInstrumented() {
+        assert !Files.exists(OUT_FOLDER.resolve(CLASS_FILE1))
+        assert !Files.exists(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+
+    @Test
+    void withoutRoots() {
+        CLI.main([OUT_FOLDER_OPTION, OUT_FOLDER] as String[])
+        CLI.main([] as String[])
+        assert !Files.exists(OUT_FOLDER.resolve(CLASS_FILE1))
+        assert !Files.exists(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+}
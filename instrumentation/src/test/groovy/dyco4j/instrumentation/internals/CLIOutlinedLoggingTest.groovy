@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodInsnNode
+import org.objectweb.asm.tree.MethodNode
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIOutlinedLoggingTest extends AbstractCLITest {
+    private static final String OUTLINE_LOGGING_OPTION = "--$CLI.OUTLINE_LOGGING_OPTION"
+    private static final String PRESERVE_FRAMES_OPTION = "--$CLI.PRESERVE_FRAMES_OPTION"
+    private static final Path FOLDER = Paths.get('dyco4j', 'instrumentation', 'internals')
+    private static final List<String> ALL_TRACE_OPTIONS = [TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION,
+                                                           TRACE_FIELD_ACCESS_WITH_VALUES_OPTION,
+                                                           TRACE_METHOD_ARGUMENTS_OPTION,
+                                                           TRACE_METHOD_RETURN_VALUE_OPTION,
+                                                           TRACE_METHOD_CALL_OPTION]
+    private static final List<String> ALL_TRACE_WITHOUT_VALUES_OPTIONS = [TRACE_ARRAY_ACCESS_WITHOUT_VALUES_OPTION,
+                                                                          TRACE_FIELD_ACCESS_WITHOUT_VALUES_OPTION,
+                                                                          TRACE_METHOD_CALL_OPTION]
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _files = ['CLITestSubject.class', 'CLIInitializerInstrumentationTestSubject.class',
+                        'CLIInitializerInstrumentationTestSubject$X.class',
+                        'CLIInitializerInstrumentationTestSubject$Y.class',
+                        'CLIInitializerInstrumentationTestSubject$1.class'].collect { FOLDER.resolve(it) }
+        copyClassesToBeInstrumentedIntoInFolder(_files)
+    }
+
+    private static getTraceLines(final Class clazz, final List<String> options) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [5L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(clazz)
+        assert _executionResult.exitCode == 0
+        removeThreadIdFromLog(_executionResult.traceLines).tail()
+    }
+
+    private static getClassNode(final Path classFile) {
+        final _cn = new ClassNode()
+        new ClassReader(Files.readAllBytes(classFile)).accept(_cn, 0)
+        _cn
+    }
+
+    private static ClassNode assertOutliningPreservesTrace(final Class clazz, final List<String> options) {
+        final _expected = getTraceLines(clazz, options)
+        final _classFile = FOLDER.resolve("${clazz.simpleName}.class")
+        final _sizeOfMethods = getClassNode(OUT_FOLDER.resolve(_classFile)).methods.collectEntries {
+            [it.name + it.desc, it.instructions.size()]
+        }
+
+        assert getTraceLines(clazz, options + [OUTLINE_LOGGING_OPTION]) == _expected
+
+        final _cn = getClassNode(OUT_FOLDER.resolve(_classFile))
+        final _helpers = _cn.methods.findAll { it.name.startsWith('dyco4j$log$') }
+        assert _helpers
+        final _helperAccess = Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC
+        assert _helpers.every { it.access == _helperAccess }
+        assert (_cn.methods - _helpers).every { it.instructions.size() <= _sizeOfMethods[it.name + it.desc] }
+        _cn
+    }
+
+    // helpers of method entries and exits are shared by methods with the same log shape
+    private static assertMethodEventHelpersAreShared(final ClassNode cn) {
+        final _helpers = cn.methods.findAll { it.name.startsWith('dyco4j$log$') }
+        final _entryHelpers = _helpers.findAll { hasInvocationOf(it, 'dyco4j/logging/Logger', ['logMethodEntry']) }
+        final _exitHelpers = _helpers.findAll { hasInvocationOf(it, 'dyco4j/logging/Logger', ['logMethodExit']) }
+        final _methodsWithEntries = (cn.methods - _helpers).findAll {
+            hasInvocationOf(it, cn.name, _entryHelpers*.name)
+        }
+        assert _entryHelpers && _exitHelpers
+        assert _entryHelpers.size() < _methodsWithEntries.size()
+        assert _exitHelpers.size() < 2 * _methodsWithEntries.size()
+        assert (_entryHelpers + _exitHelpers).every { it.desc.contains('Ljava/lang/String;)') }
+    }
+
+    private static hasInvocationOf(final MethodNode mn, final String owner, final List<String> names) {
+        mn.instructions.any { it instanceof MethodInsnNode && it.owner == owner && it.name in names }
+    }
+
+    @Test
+    void withOutlineLoggingOption() {
+        assertMethodEventHelpersAreShared(assertOutliningPreservesTrace(CLITestSubject, ALL_TRACE_OPTIONS))
+    }
+
+    @Test
+    void withOutlineLoggingAndWithoutValuesOptions() {
+        assertMethodEventHelpersAreShared(assertOutliningPreservesTrace(CLITestSubject,
+                ALL_TRACE_WITHOUT_VALUES_OPTIONS))
+    }
+
+    @Test
+    void withOutlineLoggingAndPreserveFramesOptions() {
+        assertOutliningPreservesTrace(CLITestSubject, ALL_TRACE_OPTIONS + [PRESERVE_FRAMES_OPTION])
+    }
+
+    @Test
+    void withOutlineLoggingOptionOnInitializers() {
+        assertOutliningPreservesTrace(CLIInitializerInstrumentationTestSubject, ALL_TRACE_OPTIONS)
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.ClassNode
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIPreserveFramesTest extends AbstractCLITest {
+    private static final String PRESERVE_FRAMES_OPTION = "--$CLI.PRESERVE_FRAMES_OPTION"
+    private static final Path FOLDER = Paths.get('dyco4j', 'instrumentation', 'internals')
+    private static final List<String> ALL_TRACE_OPTIONS = [TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION,
+                                                           TRACE_FIELD_ACCESS_WITH_VALUES_OPTION,
+                                                           TRACE_METHOD_ARGUMENTS_OPTION,
+                                                           TRACE_METHOD_RETURN_VALUE_OPTION,
+                                                           TRACE_METHOD_CALL_OPTION]
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _files = ['CLITestSubject.class', 'CLIInitializerInstrumentationTestSubject.class',
+                        'CLIInitializerInstrumentationTestSubject$X.class',
+                        'CLIInitializerInstrumentationTestSubject$Y.class',
+                        'CLIInitializerInstrumentationTestSubject$1.class'].collect { FOLDER.resolve(it) }
+        copyClassesToBeInstrumentedIntoInFolder(_files)
+    }
+
+    private static getTagsOfTraceLines(final Class clazz, final List<String> options) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [5L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(clazz)
+        assert _executionResult.exitCode == 0
+        removeThreadIdFromLog(_executionResult.traceLines).tail().collect { it.split(',')[0] }
+    }
+
+    private static getMethods(final Path classFile) {
+        final _cn = new ClassNode()
+        new ClassReader(Files.readAllBytes(classFile)).accept(_cn, 0)
+        _cn.methods.collectEntries { [it.name + it.desc, it.instructions.collect { i -> i.opcode }] }
+    }
+
+    @Test
+    void withPreserveFramesOption() {
+        final _expected = getTagsOfTraceLines(CLITestSubject, ALL_TRACE_OPTIONS)
+        assert getTagsOfTraceLines(CLITestSubject, ALL_TRACE_OPTIONS + [PRESERVE_FRAMES_OPTION]) == _expected
+    }
+
+    @Test
+    void withPreserveFramesOptionOnInitializers() {
+        final _subject = CLIInitializerInstrumentationTestSubject
+        final _expected = getTagsOfTraceLines(_subject, ALL_TRACE_OPTIONS)
+        assert getTagsOfTraceLines(_subject, ALL_TRACE_OPTIONS + [PRESERVE_FRAMES_OPTION]) == _expected
+    }
+
+    @Test
+    void withPreserveFramesAndMethodNameRegexOptions() {
+        final _methodNameRegex = ".*exercise.*"
+        final _expected = getTagsOfTraceLines(CLITestSubject, [METHOD_NAME_REGEX_OPTION, _methodNameRegex])
+        assert getTagsOfTraceLines(CLITestSubject, [METHOD_NAME_REGEX_OPTION, _methodNameRegex,
+                                                    PRESERVE_FRAMES_OPTION]) == _expected
+
+        // methods that are not instrumented are copied as is
+        final _classFile = FOLDER.resolve('CLITestSubject.class')
+        final _inMethods = getMethods(IN_FOLDER.resolve(_classFile))
+        final _outMethods = getMethods(OUT_FOLDER.resolve(_classFile))
+        final _uninstrumentedMethods = _inMethods.keySet().findAll { !(it ==~ /exercise.*/) }
+        assert _uninstrumentedMethods
+        _uninstrumentedMethods.each { assert _inMethods[it] == _outMethods[it] }
+        assert _inMethods.keySet().findAll { it ==~ /exercise.*/ }.every { _inMethods[it] != _outMethods[it] }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIRedundantFieldReadEliminationTest extends AbstractCLITest {
+    private static final String ELIDE_REDUNDANT_FIELD_READS_OPTION = "--$CLI.ELIDE_REDUNDANT_FIELD_READS_OPTION"
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        final _file = Paths.get("dyco4j", "instrumentation", "internals", "CLIFieldAccessTestSubject.class")
+        copyClassesToBeInstrumentedIntoInFolder([_file])
+    }
+
+    private static getFieldReadLogs(final List<String> options) {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLIFieldAccessTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['28']
+        removeThreadIdFromLog(_executionResult.traceLines).tail().findAll { it ==~ /^GETF,.*/ }
+    }
+
+    // INFO: Identical consecutive log statements are logged as one statement along with the number of repetitions
+    private static getNumOfFieldReads(final List<String> logs) {
+        logs.sum { final _tmp = it.split(','); _tmp.length == 5 ? _tmp[4] as int : 1 }
+    }
+
+    private static getNumOfElidedFieldReads() {
+        final _programData = ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        final _methodId2Name = _programData.viewOfMethodId2Name
+        _programData.viewOfMethodId2NumOfElidedFieldReads.collectEntries {
+            [_methodId2Name[it.key].split('[/:]')[4], it.value]
+        }
+    }
+
+    @Test
+    void withElideRedundantFieldReadsOption() {
+        final _logs = getFieldReadLogs([TRACE_FIELD_ACCESS_WITH_VALUES_OPTION, ELIDE_REDUNDANT_FIELD_READS_OPTION])
+        // reads after writes, calls, and of volatile fields are not elided (System.out is read in main)
+        assert getNumOfFieldReads(_logs) == 1 + 10
+        assert getNumOfElidedFieldReads() == [readTwice: 2, readStatic: 1, readOther: 1]
+    }
+
+    @Test
+    void withElideRedundantFieldReadsAndPreserveFramesOptions() {
+        final _options = [TRACE_FIELD_ACCESS_WITHOUT_VALUES_OPTION, ELIDE_REDUNDANT_FIELD_READS_OPTION]
+        final _expected = getFieldReadLogs(_options)
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert getFieldReadLogs(_options + ["--$CLI.PRESERVE_FRAMES_OPTION"]) == _expected
+    }
+
+    @Test
+    void withoutElideRedundantFieldReadsOption() {
+        assert getNumOfFieldReads(getFieldReadLogs([TRACE_FIELD_ACCESS_WITH_VALUES_OPTION])) == 1 + 14
+        assert getNumOfElidedFieldReads().isEmpty()
+    }
+}
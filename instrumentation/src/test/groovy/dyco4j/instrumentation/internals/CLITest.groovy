@@ -9,9 +9,11 @@
 package dyco4j.instrumentation.internals
 
 import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.utility.ProgramData
 import org.junit.jupiter.api.BeforeAll
 import org.junit.jupiter.api.Test
 
+import java.nio.file.Files
 import java.nio.file.Paths
 
 import dyco4j.instrumentation.LoggingHelper
@@ -29,6 +31,9 @@ class CLITest extends AbstractCLITest {
     static final String TRACE_METHOD_ARGUMENTS_OPTION = "--$CLI.TRACE_METHOD_ARGUMENTS_OPTION"
     static final String TRACE_METHOD_RETURN_VALUE_OPTION = "--$CLI.TRACE_METHOD_RETURN_VALUE_OPTION"
     static final String TRACE_METHOD_CALL_OPTION = "--$CLI.TRACE_METHOD_CALL_OPTION"
+    static final String FILTER_RULES_OPTION = "--$CLI.FILTER_RULES_OPTION"
+    static final String SKIP_TRIVIAL_METHODS_OPTION = "--$CLI.SKIP_TRIVIAL_METHODS_OPTION"
+    static final String TRIVIAL_METHOD_SIZE_OPTION = "--$CLI.TRIVIAL_METHOD_SIZE_OPTION"
 
     @BeforeAll
     static void copyClassesToBeInstrumentedIntoInFolder() {
@@ -330,6 +335,55 @@ class CLITest extends AbstractCLITest {
         assertCallSitesOccurOnlyOnce(_traceLines)
     }
 
+    @Test
+    void withFilterRulesOption() {
+        final _rulesFile = resolveUnderRootFolder("internals_filter.rules")
+        Files.write(_rulesFile, ["- kind=array", "- kind=field method=exercise.*", "- annotation=java.lang.Deprecated",
+                                 "- member=.*CLITestSubject\\.publishedStaticMethod[1-7]"])
+        try {
+            assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER,
+                                   TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION, TRACE_FIELD_ACCESS_WITH_VALUES_OPTION,
+                                   FILTER_RULES_OPTION, _rulesFile]) == [1L, 1L]
+        } finally {
+            Files.delete(_rulesFile)
+        }
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 43)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs(numOfExceptionLogs: 4, numOfGetFieldLogs: 2, _traceLines, 18)
+
+        assertPropertiesAboutExit(_traceLines)
+    }
+
+    @Test
+    void withSkipTrivialMethodsOption() {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER,
+                               SKIP_TRIVIAL_METHODS_OPTION, TRIVIAL_METHOD_SIZE_OPTION, '7']) == [1L, 1L]
+
+        final _programData = ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        final _methodId2Name = _programData.viewOfMethodId2Name
+        final _skippedMethods = _programData.viewOfSkippedMethodId2Reason.collect {
+            "${_methodId2Name[it.key].split('[/:]')[4]}:${it.value}".toString()
+        } as Set
+        assert _skippedMethods == ['publishedInstanceMethod3:small', 'publishedInstanceMethod4:small',
+                                   'publishedInstanceMethod5:small', 'publishedStaticMethod3:small',
+                                   'publishedStaticMethod4:small', 'publishedStaticMethod5:small'] as Set
+
+        final ExecutionResult _executionResult = executeInstrumentedCode()
+        assert _executionResult.exitCode == 0
+
+        assertTraceLengthIs(_executionResult, 43)
+
+        final String[] _traceLines = removeThreadIdFromLog(_executionResult.traceLines)
+        assertFreqOfLogs(numOfExceptionLogs: 4, _traceLines, 19)
+
+        assertPropertiesAboutExit(_traceLines)
+    }
+
     @Test
     void withTraceArrayAccessWithValuesOption() {
         assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER,
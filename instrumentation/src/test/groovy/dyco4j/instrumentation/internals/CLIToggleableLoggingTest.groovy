@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.Type
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.InvokeDynamicInsnNode
+import org.objectweb.asm.tree.MethodInsnNode
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+import static dyco4j.instrumentation.internals.CLITest.*
+
+class CLIToggleableLoggingTest extends AbstractCLITest {
+    private static final String TOGGLEABLE_LOGGING_OPTION = "--$CLI.TOGGLEABLE_LOGGING_OPTION"
+    private static final String OUTLINE_LOGGING_OPTION = "--$CLI.OUTLINE_LOGGING_OPTION"
+    private static final Path FOLDER = Paths.get('dyco4j', 'instrumentation', 'internals')
+    private static final Path LOGGING_PROPERTY_FILE = resolveUnderTestClassFolder(Paths.get('dyco4j', 'logging',
+            'logging.properties'))
+    private static final List<String> METHOD_TRACE_OPTIONS = [TRACE_METHOD_ARGUMENTS_OPTION,
+                                                              TRACE_METHOD_RETURN_VALUE_OPTION,
+                                                              TRACE_METHOD_CALL_OPTION]
+    private static final List<String> ALL_TRACE_OPTIONS = [TRACE_ARRAY_ACCESS_WITH_VALUES_OPTION,
+                                                           TRACE_FIELD_ACCESS_WITH_VALUES_OPTION] +
+            METHOD_TRACE_OPTIONS
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        copyClassesToBeInstrumentedIntoInFolder([FOLDER.resolve('CLITestSubject.class')])
+    }
+
+    private static traceSubject(final List<String> options, final List<String> loggingProperties = []) {
+        deleteFiles(OUT_FOLDER, /.*class$/)
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] + options) == [1L, 0L]
+
+        final _properties = Files.readAllLines(LOGGING_PROPERTY_FILE)
+        try {
+            Files.write(LOGGING_PROPERTY_FILE, loggingProperties, StandardOpenOption.APPEND)
+            final ExecutionResult _executionResult = executeInstrumentedCode(CLITestSubject)
+            assert _executionResult.exitCode == 0
+            // INFO: Ids of objects (identity hash codes) vary with the objects hashed while linking call sites
+            removeThreadIdFromLog(_executionResult.traceLines).tail().collect { it.replaceAll(/([oast]):\d+/, '$1:') }
+        } finally {
+            Files.write(LOGGING_PROPERTY_FILE, _properties)
+        }
+    }
+
+    private static getInvocationsOfLogger() {
+        final _cn = new ClassNode()
+        new ClassReader(Files.readAllBytes(OUT_FOLDER.resolve(FOLDER.resolve('CLITestSubject.class'))))
+                .accept(_cn, 0)
+        final _insns = _cn.methods.collectMany { it.instructions.toList() }
+        final _logger = Type.getInternalName(Logger)
+        [_insns.count { it instanceof MethodInsnNode && it.owner == _logger && it.opcode == Opcodes.INVOKESTATIC },
+         _insns.count { it instanceof InvokeDynamicInsnNode && it.bsm.owner == 'dyco4j/logging/LoggingControl' }]
+    }
+
+    @Test
+    void withToggleableLoggingOption() {
+        final _expected = traceSubject(ALL_TRACE_OPTIONS)
+        assert traceSubject(ALL_TRACE_OPTIONS + [TOGGLEABLE_LOGGING_OPTION]) == _expected
+
+        final _invocations = getInvocationsOfLogger()
+        assert _invocations[0] == 0
+        assert _invocations[1] > 0
+    }
+
+    @Test
+    void withToggleableLoggingAndOutlineLoggingOptions() {
+        final _expected = traceSubject(ALL_TRACE_OPTIONS)
+        assert traceSubject(ALL_TRACE_OPTIONS + [TOGGLEABLE_LOGGING_OPTION, OUTLINE_LOGGING_OPTION]) == _expected
+        assert getInvocationsOfLogger()[0] == 0
+    }
+
+    @Test
+    void withEventKindsDisabled() {
+        final _expected = traceSubject(METHOD_TRACE_OPTIONS)
+        assert traceSubject(ALL_TRACE_OPTIONS + [TOGGLEABLE_LOGGING_OPTION],
+                ['disabledEvents=FIELD,ARRAY']) == _expected
+    }
+
+    @Test
+    void withLoggingDisabled() {
+        assert traceSubject(ALL_TRACE_OPTIONS + [TOGGLEABLE_LOGGING_OPTION], ['logging=off']) == []
+    }
+}
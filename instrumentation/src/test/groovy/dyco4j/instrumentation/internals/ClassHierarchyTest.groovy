@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.Helper
+import org.apache.commons.cli.DefaultParser
+import org.apache.commons.cli.Option
+import org.apache.commons.cli.Options
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static groovy.test.GroovyAssert.shouldFail
+
+class ClassHierarchyTest {
+    private static final String OBJECT = 'java/lang/Object'
+    private static final String CLINIT_PROPERTY = 'dyco4j.test.ClassHierarchyTest.clinit'
+    private static Path inFolder
+    private static Path extraFolder
+    private static Path classpathConfigFile
+
+    /*
+     * p/B and p/C extend p/A; p/D extends p/B and implements p/I; p/E extends p/A and its static initializer sets a
+     * system property.  p/A is available only in the extra folder.
+     */
+    @BeforeAll
+    static void createClasses() {
+        inFolder = Files.createTempDirectory('in')
+        extraFolder = Files.createTempDirectory('extra')
+        writeClass(extraFolder, 'p/A', OBJECT)
+        writeClass(inFolder, 'p/B', 'p/A')
+        writeClass(inFolder, 'p/C', 'p/A')
+        writeClass(inFolder, 'p/D', 'p/B', ['p/I'])
+        writeClass(inFolder, 'p/I', OBJECT, [], Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT)
+        writeClass(inFolder, 'p/E', 'p/A', [], 0, true)
+        classpathConfigFile = Files.createTempFile('classpath-config', '.txt')
+        classpathConfigFile.text = extraFolder.toString()
+    }
+
+    @AfterAll
+    static void deleteClasses() {
+        inFolder.deleteDir()
+        extraFolder.deleteDir()
+        Files.delete(classpathConfigFile)
+    }
+
+    private static writeClass(final Path folder, final String name, final String superName,
+                              final List<String> interfaces = [], final int access = 0,
+                              final boolean hasSideEffectingInitializer = false) {
+        final _cw = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        _cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | access, name, null, superName, interfaces as String[])
+        if (hasSideEffectingInitializer) {
+            final _mv = _cw.visitMethod(Opcodes.ACC_STATIC, '<clinit>', '()V', null, null)
+            _mv.visitCode()
+            _mv.visitLdcInsn(CLINIT_PROPERTY)
+            _mv.visitLdcInsn('executed')
+            _mv.visitMethodInsn(Opcodes.INVOKESTATIC, 'java/lang/System', 'setProperty',
+                    '(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;', false)
+            _mv.visitInsn(Opcodes.POP)
+            _mv.visitInsn(Opcodes.RETURN)
+            _mv.visitMaxs(0, 0)
+            _mv.visitEnd()
+        }
+        _cw.visitEnd()
+
+        final _file = folder.resolve("${name}.class")
+        Files.createDirectories(_file.parent)
+        _file.bytes = _cw.toByteArray()
+    }
+
+    private static URLClassLoader createClassFileLocator() {
+        final _options = new Options().addOption(Option.builder().longOpt(CLI.CLASSPATH_CONFIG_OPTION).hasArg(true)
+                .build())
+        final _cmdLine = new DefaultParser().parse(_options,
+                ["--$CLI.CLASSPATH_CONFIG_OPTION", classpathConfigFile.toString()] as String[])
+        CLI.createClassFileLocator(_cmdLine, [new Helper.PathPair(inFolder, inFolder)])
+    }
+
+    @Test
+    void commonSuperClassOfClasses() {
+        createClassFileLocator().withCloseable { _locator ->
+            final _classHierarchy = new ClassHierarchy(_locator)
+            assert _classHierarchy.getCommonSuperClass('p/B', 'p/C') == 'p/A'
+            assert _classHierarchy.getCommonSuperClass('p/D', 'p/C') == 'p/A'
+            assert _classHierarchy.getCommonSuperClass('p/B', 'p/D') == 'p/B'
+            assert _classHierarchy.getCommonSuperClass('p/A', 'java/lang/String') == OBJECT
+        }
+    }
+
+    @Test
+    void commonSuperClassOfInterfaceAndClass() {
+        createClassFileLocator().withCloseable { _locator ->
+            final _classHierarchy = new ClassHierarchy(_locator)
+            assert _classHierarchy.getCommonSuperClass('p/I', 'p/D') == 'p/I'
+            assert _classHierarchy.getCommonSuperClass('p/D', 'p/I') == 'p/I'
+            assert _classHierarchy.getCommonSuperClass('p/I', 'p/C') == OBJECT
+            assert _classHierarchy.getCommonSuperClass('p/C', 'p/I') == OBJECT
+        }
+    }
+
+    @Test
+    void typeLocatedOnlyViaClasspathConfig() {
+        new URLClassLoader([inFolder.toUri().toURL()] as URL[], ClassLoader.platformClassLoader).withCloseable {
+            final _classHierarchy = new ClassHierarchy(it)
+            assert shouldFail(TypeNotPresentException) {
+                _classHierarchy.getCommonSuperClass('p/B', 'p/C')
+            }.typeName() == 'p/A'
+        }
+
+        createClassFileLocator().withCloseable { _locator ->
+            assert new ClassHierarchy(_locator).getCommonSuperClass('p/B', 'p/C') == 'p/A'
+        }
+    }
+
+    @Test
+    void missingTypes() {
+        createClassFileLocator().withCloseable { _locator ->
+            final _classHierarchy = new ClassHierarchy(_locator)
+            assert shouldFail(TypeNotPresentException) {
+                _classHierarchy.getCommonSuperClass('p/B', 'p/Missing')
+            }.typeName() == 'p/Missing'
+            assert shouldFail(TypeNotPresentException) {
+                _classHierarchy.getCommonSuperClass('p/Missing', 'p/B')
+            }.typeName() == 'p/Missing'
+        }
+    }
+
+    @Test
+    void addedClassReplacesMissingType() {
+        createClassFileLocator().withCloseable { _locator ->
+            final _classHierarchy = new ClassHierarchy(_locator)
+            shouldFail(TypeNotPresentException) { _classHierarchy.getCommonSuperClass('p/B', 'p/F') }
+
+            final _cw = new ClassWriter(0)
+            _cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, 'p/F', null, 'p/C', null)
+            _cw.visitEnd()
+            _classHierarchy.addClass(new ClassReader(_cw.toByteArray()))
+            assert _classHierarchy.getCommonSuperClass('p/B', 'p/F') == 'p/A'
+        }
+    }
+
+    @Test
+    void classesAreNeitherLoadedNorInitialized() {
+        final _loadedClasses = [].asSynchronized()
+        final _locator = new URLClassLoader([inFolder.toUri().toURL(), extraFolder.toUri().toURL()] as URL[],
+                ClassLoader.platformClassLoader) {
+            @Override
+            protected Class<?> loadClass(final String name, final boolean resolve) {
+                _loadedClasses << name
+                super.loadClass(name, resolve)
+            }
+        }
+
+        _locator.withCloseable {
+            final _classHierarchy = new ClassHierarchy(_locator)
+            assert _classHierarchy.getCommonSuperClass('p/E', 'p/B') == 'p/A'
+            assert _classHierarchy.getCommonSuperClass('p/I', 'p/E') == OBJECT
+            assert _loadedClasses.empty
+            assert System.getProperty(CLINIT_PROPERTY) == null
+
+            // Initializing the class is observable
+            try {
+                Class.forName('p.E', true, _locator)
+                assert System.getProperty(CLINIT_PROPERTY) == 'executed'
+            } finally {
+                System.clearProperty(CLINIT_PROPERTY)
+            }
+        }
+    }
+}
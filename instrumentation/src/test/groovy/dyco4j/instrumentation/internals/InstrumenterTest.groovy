@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.instrumentation.AbstractCLITest
+import dyco4j.logging.Logger
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeAll
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import static dyco4j.instrumentation.internals.CLITest.*
+import static groovy.test.GroovyAssert.shouldFail
+
+class InstrumenterTest extends AbstractCLITest {
+    private static final CLASS_FILES = ["CLIAllocationTestSubject.class", "CLICoverageTestSubject.class"].collect {
+        Paths.get("dyco4j", "instrumentation", "internals", it)
+    }
+    private static final OPTIONS = [CLI.TRACE_METHOD_CALL_OPTION, "$CLI.TRACE_ALLOCATIONS_OPTION=events"]*.toString()
+
+    @BeforeAll
+    static void copyClassesToBeInstrumentedIntoInFolder() {
+        copyClassesToBeInstrumentedIntoInFolder(CLASS_FILES)
+    }
+
+    private static createInstrumenter(final List<String> options, final ProgramData programData = new ProgramData()) {
+        new Instrumenter(Instrumenter.Options.parse(options as String[]), programData, InstrumenterTest.classLoader)
+    }
+
+    private static getClassName(final Path classFile) {
+        classFile.toString().replace(File.separator, '/') - ".class"
+    }
+
+    @Test
+    void instrumentingInMemoryIsSameAsInstrumentingFiles() {
+        assert instrumentCode([IN_FOLDER_OPTION, IN_FOLDER, OUT_FOLDER_OPTION, OUT_FOLDER] +
+                OPTIONS.collect { "--$it".toString() }) == [2L, 0L]
+
+        // INFO: Ids assigned by the tool are reused so that the instrumented classes are identical
+        final _programData = ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        final _instrumenter = createInstrumenter(OPTIONS, _programData)
+        final _name2bytecode = CLASS_FILES.collectEntries {
+            [getClassName(it), Files.readAllBytes(IN_FOLDER.resolve(it))]
+        }
+        final _result = _instrumenter.instrument(_name2bytecode)
+        assert _result.keySet() == _name2bytecode.keySet()
+        CLASS_FILES.each { assert _result[getClassName(it)] == Files.readAllBytes(OUT_FOLDER.resolve(it)) }
+        assert _instrumenter.programData.is(_programData)
+        assert _programData == ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+    }
+
+    @Test
+    void instrumentedClassesAreExecutable() {
+        final _instrumenter = createInstrumenter(OPTIONS)
+        CLASS_FILES.each {
+            final _trgFile = OUT_FOLDER.resolve(it)
+            Files.createDirectories(_trgFile.parent)
+            _trgFile.bytes = _instrumenter.instrument(Files.readAllBytes(IN_FOLDER.resolve(it)))
+        }
+        _instrumenter.saveProgramData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+
+        final ExecutionResult _executionResult = executeInstrumentedCode(CLIAllocationTestSubject)
+        assert _executionResult.exitCode == 0
+        assert _executionResult.stdoutLines == ['12']
+        final _traceLines = removeThreadIdFromLog(_executionResult.traceLines).tail()
+        assert _traceLines.any { it.startsWith(Logger.ALLOCATION_TAG) }
+        assert _traceLines.any { it.startsWith(Logger.METHOD_CALL_TAG) }
+
+        final _programData = ProgramData.loadData(Paths.get(CLI.PROGRAM_DATA_FILE_NAME))
+        assert !_programData.viewOfMethodId2AllocationSites.isEmpty()
+    }
+
+    @Test
+    void invalidOptions() {
+        shouldFail(IllegalArgumentException) {
+            Instrumenter.Options.parse("unknown-option")
+        }
+        shouldFail(IllegalArgumentException) {
+            Instrumenter.Options.parse("$CLI.TRACE_FIELD_ACCESS_OPTION=all".toString())
+        }
+    }
+}
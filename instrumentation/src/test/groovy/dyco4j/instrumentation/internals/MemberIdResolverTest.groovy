@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals
+
+import dyco4j.utility.ClassNameHelper
+import dyco4j.utility.ProgramData
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import static groovy.test.GroovyAssert.shouldFail
+
+class MemberIdResolverTest {
+    private static final String DESC = '()V'
+    private ProgramData programData
+    private MemberIdResolver resolver
+
+    private String addMethod(final String owner, final String name) {
+        final _shortName = ClassNameHelper.createShortNameDesc(name, Optional.of(owner), DESC)
+        programData.addNewMethod(_shortName, _shortName, 'm').get()
+    }
+
+    private String addField(final String owner, final String name) {
+        final _shortName = ClassNameHelper.createShortNameDesc(name, Optional.of(owner), 'I')
+        programData.addNewField(_shortName, _shortName, 'f').get()
+    }
+
+    // C extends B extends A, B implements J, and J extends I
+    @BeforeEach
+    void createProgramData() {
+        programData = new ProgramData()
+        programData.addClass2SuperClassMapping('C', 'B')
+        programData.addClass2SuperClassMapping('B', 'A')
+        programData.addClass2SuperClassMapping('A', 'java/lang/Object')
+        programData.addClass2SuperClassMapping('J', 'java/lang/Object')
+        programData.addClass2SuperClassMapping('I', 'java/lang/Object')
+        programData.setInterfaces('B', ['J'])
+        programData.setInterfaces('J', ['I'])
+        resolver = new MemberIdResolver(programData)
+    }
+
+    @Test
+    void resolveDeclaredMember() {
+        final _methodId = addMethod('C', 'm')
+        final _fieldId = addField('C', 'f')
+        resolver.refresh()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId
+        assert resolver.getFieldId('f', 'C', 'I') == _fieldId
+    }
+
+    @Test
+    void resolveMemberInSuperclass() {
+        final _methodId = addMethod('A', 'm')
+        final _fieldId = addField('B', 'f')
+        resolver.refresh()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId
+        assert resolver.getFieldId('f', 'C', 'I') == _fieldId
+    }
+
+    @Test
+    void resolveMemberInSuperinterface() {
+        final _methodId = addMethod('I', 'm')
+        final _fieldId = addField('J', 'f')
+        resolver.refresh()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId
+        assert resolver.getMethodId('m', 'J', DESC) == _methodId
+        assert resolver.getFieldId('f', 'C', 'I') == _fieldId
+    }
+
+    @Test
+    void superclassesAreSearchedBeforeSuperinterfaces() {
+        addMethod('I', 'm')
+        final _methodId = addMethod('A', 'm')
+        resolver.refresh()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId
+    }
+
+    @Test
+    void superinterfacesAreSearchedBeforeSuperclassForFields() {
+        addField('A', 'f')
+        final _fieldId1 = addField('I', 'f')
+        resolver.refresh()
+        assert resolver.getFieldId('f', 'C', 'I') == _fieldId1
+
+        final _fieldId2 = addField('B', 'f')
+        resolver.refresh()
+        assert resolver.getFieldId('f', 'C', 'I') == _fieldId2
+    }
+
+    @Test
+    void memoizedIdsAreDiscardedWhenProgramDataGrows() {
+        final _methodId1 = addMethod('A', 'm')
+        resolver.refresh()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId1
+        assert resolver.method2id.size() == 1
+
+        resolver.refresh()
+        assert resolver.method2id.size() == 1
+
+        final _methodId2 = addMethod('C', 'm')
+        resolver.refresh()
+        assert resolver.method2id.isEmpty()
+        assert resolver.getMethodId('m', 'C', DESC) == _methodId2
+    }
+
+    @Test
+    void unresolvableMembers() {
+        addMethod('A', 'm')
+        resolver.refresh()
+        assert shouldFail(IllegalStateException) { resolver.getMethodId('n', 'C', DESC) }.message.contains('C/n:()V')
+        assert shouldFail(IllegalStateException) { resolver.getFieldId('f', 'D', 'I') }.message.contains('owner=D')
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CLIExitTestSubject {
+
+    public static void main(String[] s) {
+        final CLIExitTestSubject _t = new CLIExitTestSubject();
+        _t.setUp();
+        _t.test1();
+        try {
+            _t.test2();
+        } catch (final IllegalStateException _ex) {
+            System.out.println("test2");
+        }
+        _t.test3();
+        System.out.println(_t.test4(true));
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @Test
+    public void test1() {
+        test3();
+    }
+
+    @Test
+    public void test2() {
+        throw new IllegalStateException();
+    }
+
+    @Test
+    public void test3() {
+        try {
+            throw new IllegalStateException();
+        } catch (final IllegalStateException _ex) {
+            System.out.println("test3");
+        }
+    }
+
+    @Test
+    public long test4(final boolean flag) {
+        if (flag)
+            return 4L;
+        else
+            return 5L;
+    }
+}
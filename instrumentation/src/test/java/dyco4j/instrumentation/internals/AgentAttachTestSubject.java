@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+public class AgentAttachTestSubject {
+    private static int counter;
+
+    public static void main(final String[] args) throws InterruptedException {
+        System.out.println("started");
+        System.out.flush();
+
+        final long _end = System.currentTimeMillis() + Long.parseLong(args[0]) * 1000;
+        while (System.currentTimeMillis() < _end) {
+            exercise();
+            Thread.sleep(10);
+        }
+        System.out.println(counter);
+    }
+
+    private static void exercise() {
+        counter++;
+    }
+}
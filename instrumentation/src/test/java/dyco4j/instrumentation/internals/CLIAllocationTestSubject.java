@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+public class CLIAllocationTestSubject {
+    public static void main(String[] s) {
+        int _total = 0;
+        for (int _i = 0; _i < 3; _i++) {
+            // the argument is evaluated (with branches) while the allocated object is uninitialized
+            final StringBuilder _sb = new StringBuilder(_i % 2 == 0 ? "x" : "y");
+            _total += _sb.length();
+        }
+        final int[] _ints = new int[4];
+        final String[] _strings = new String[2];
+        final long[][] _longs = new long[2][3];
+        System.out.println(_total + _ints.length + _strings.length + _longs.length + create().length);
+    }
+
+    private static Object[] create() {
+        return new Object[]{new Object()};
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import java.util.Arrays;
+
+public class CLIArrayAccessTestSubject {
+    public static void main(String[] s) {
+        int[] _tmp1 = new int[100];
+        for (int i = 0; i < _tmp1.length; i++)
+            _tmp1[i] = i;
+
+        long[] _tmp2 = new long[50];
+        for (int i = _tmp1.length - 1; i >= 0; i -= 2)
+            _tmp2[i / 2] = _tmp1[i];
+
+        int[][] _tmp3 = new int[3][4];
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 4; j++)
+                _tmp3[i][j] = i * j;
+
+        int[] _tmp4 = new int[10];
+        System.arraycopy(_tmp1, 5, _tmp4, 0, 10);
+        int[] _tmp5 = Arrays.copyOfRange(_tmp4, 2, 20);
+        Arrays.fill(_tmp5, 1, 4, 7);
+        double[] _tmp6 = Arrays.copyOf(new double[2], 3);
+        Arrays.fill(_tmp6, 1.0);
+
+        int _tmp7 = 4;
+        while (_tmp7 > 1)
+            _tmp7 = _tmp7 / 2 + _tmp5[0] - 7;
+
+        _tmp1[0] = _tmp5[1];
+        System.out.println(_tmp1[0] + _tmp2[49] + _tmp7);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+public class CLICoverageTestSubject {
+    public static void main(String[] s) {
+        System.out.println(classify(3) + classify(-2));
+    }
+
+    private static String classify(final int i) {
+        if (i > 0)
+            return "p";
+        else if (i < 0)
+            return "n";
+        return "z";
+    }
+
+    private static void unused() {
+        System.out.println("unused");
+    }
+}
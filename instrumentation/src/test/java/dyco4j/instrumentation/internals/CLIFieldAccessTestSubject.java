@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+public class CLIFieldAccessTestSubject {
+    private static int count;
+    private volatile int version;
+    private int size;
+
+    public static void main(String[] s) {
+        final CLIFieldAccessTestSubject _tmp1 = new CLIFieldAccessTestSubject();
+        _tmp1.size = 2;
+        count = 1;
+        System.out.println(_tmp1.readTwice() + _tmp1.readAroundWrite() + _tmp1.readVolatile() +
+                _tmp1.readAroundCall() + readStatic() + _tmp1.readOther(_tmp1));
+    }
+
+    private static void doNothing() {
+    }
+
+    private static int readStatic() {
+        return count + count;
+    }
+
+    private int readTwice() {
+        return size + size * size;
+    }
+
+    private int readAroundWrite() {
+        final int _tmp = size;
+        size = _tmp + 1;
+        return _tmp + size;
+    }
+
+    private int readVolatile() {
+        return version + version;
+    }
+
+    private int readAroundCall() {
+        final int _tmp = size;
+        doNothing();
+        return _tmp + size;
+    }
+
+    private int readOther(final CLIFieldAccessTestSubject other) {
+        return size + other.size + other.size;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.instrumentation.internals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CLILockTestSubject {
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final Object MONITOR = new Object();
+    private static int total;
+    private int count;
+
+    public static void main(String[] s) throws InterruptedException {
+        final CountDownLatch _latch = new CountDownLatch(1);
+        final Thread _thread = new Thread(() -> holdLock(_latch));
+        _thread.start();
+        _latch.await();
+        // contends with holdLock
+        LOCK.lock();
+        try {
+            total++;
+        } finally {
+            LOCK.unlock();
+        }
+        _thread.join();
+
+        final CLILockTestSubject _tmp = new CLILockTestSubject();
+        for (int _i = 0; _i < 3; _i++)
+            _tmp.increment();
+        incrementTotal();
+        synchronized (MONITOR) {
+            _tmp.count++;
+        }
+        if (LOCK.tryLock())
+            LOCK.unlock();
+        if (LOCK.tryLock(1, TimeUnit.SECONDS))
+            LOCK.unlock();
+        LockSupport.parkNanos(1000);
+        System.out.println(_tmp.count + total);
+    }
+
+    private static void holdLock(final CountDownLatch latch) {
+        LOCK.lock();
+        try {
+            latch.countDown();
+            Thread.sleep(100);
+        } catch (final InterruptedException _ex) {
+            throw new RuntimeException(_ex);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static synchronized void incrementTotal() {
+        total++;
+    }
+
+    private synchronized void increment() {
+        count++;
+    }
+}
@@ -9,10 +9,22 @@
 
 package dyco4j.logging;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.Array;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 
 @SuppressWarnings("WeakerAccess")
@@ -23,6 +35,15 @@ public final class Logger {
     public static final String METHOD_ARG_TAG = "ar";
     public static final String METHOD_RETURN_TAG = "re";
     public static final String METHOD_CALL_TAG = "ca";
+    public static final String ALLOCATION_TAG = "al";
+    public static final String ALLOCATION_COUNT_TAG = "ac";
+    public static final String LOCK_ACQUIRE_TAG = "la";
+    public static final String LOCK_RELEASE_TAG = "lr";
+    public static final String LOCK_PARK_TAG = "lp";
+    public static final String LOCK_CONTENTION_TAG = "lc";
+    public static final String COVERAGE_TAG = "cv";
+    public static final String MARKER_PREFIX = "marker:";
+    public static final String MARKER_EXIT_PREFIX = "marker-exit:";
 
     public static final String ARRAY_TYPE_TAG = "a:";
     public static final String BOOLEAN_TYPE_TAG = "b:";
@@ -43,18 +64,44 @@ public final class Logger {
     public static final String UNINITIALIZED_THIS = "<uninitThis>";
     public static final String UNINITIALIZED_THIS_REP = MessageFormat.format("{0}{1}", OBJECT_TYPE_TAG,
             UNINITIALIZED_THIS);
+    private static final int MAX_PENDING_ARRAY_RANGES = 8;
+    private static final Map<String, boolean[]> class2probes = new ConcurrentHashMap<>();
+    private static volatile boolean probesRegistered = false;
+    // INFO: Array ranges are looked up (to be flushed) by log only after they are created by some thread
+    private static volatile boolean arrayRangesCreated = false;
+    private static boolean shutdownHookRegistered = false;
     private static Logger logger;
-    private final PrintWriter logWriter;
+    private final Optional<TraceSegmenter> traceSegmenter;
+    // INFO: Array ranges are created only for threads that aggregate accesses
+    private final ThreadLocal<ArrayRanges> thread2arrayRanges = new ThreadLocal<>();
+    // INFO: Only array ranges with pending ranges are registered (to be flushed at shutdown)
+    private final Set<ArrayRanges> allArrayRanges = ConcurrentHashMap.newKeySet();
+    private final Map<String, AllocationCounter> site2allocationCounter = new ConcurrentHashMap<>();
+    private final ThreadLocal<HeldLocks> thread2heldLocks = ThreadLocal.withInitial(HeldLocks::new);
+    private final Map<String, LockStats> lockAndSite2stats = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<Long>> thread2testStartTimes = ThreadLocal.withInitial(ArrayDeque::new);
     private volatile String prevMsg = null;
     private volatile boolean clean = false;
     private volatile int msgFreq = 0;
+    private PrintWriter logWriter;
 
-    private Logger(final PrintWriter pw) {
-        logWriter = pw;
+    private Logger(final PrintWriter pw, final Optional<TraceSegmenter> traceSegmenter) {
+        this.logWriter = pw;
+        this.traceSegmenter = traceSegmenter;
         writeLog((new Date()).toString());
     }
 
     public static void log(final String msg) {
+        if (arrayRangesCreated) {
+            final ArrayRanges _ranges = logger.thread2arrayRanges.get();
+            if (_ranges != null && _ranges.isPending())
+                _ranges.flush();
+        }
+        if ((probesRegistered || logger.traceSegmenter.isPresent()) && msg.startsWith(MARKER_PREFIX)) {
+            dumpProbes();
+            if (logger.traceSegmenter.isPresent())
+                logger.startSegment(msg);
+        }
         final String _sb = Thread.currentThread().getId() + "," + msg;
         logger.writeLog(_sb);
     }
@@ -63,6 +110,115 @@ public final class Logger {
         log(String.join(",", args));
     }
 
+    /**
+     * Registers the coverage probes of a class.  A probe is set when the basic block corresponding to the probe is
+     * executed.  Probes are logged (and reset) when a marker is logged and when the logger is cleaned up.
+     *
+     * @param className   in JVM format.
+     * @param numOfProbes in the class.
+     * @return the probes of the class.
+     */
+    public static boolean[] registerProbes(final String className, final int numOfProbes) {
+        final boolean[] _tmp = class2probes.computeIfAbsent(className, k -> new boolean[numOfProbes]);
+        probesRegistered = true;
+        // INFO: Probes of a class that differs from the registered class of the same name are not logged
+        return _tmp.length == numOfProbes ? _tmp : new boolean[numOfProbes];
+    }
+
+    public static void logAllocation(final String siteId) {
+        log(ALLOCATION_TAG, siteId);
+    }
+
+    public static void logArrayAllocation(final Object array, final String siteId) {
+        log(ALLOCATION_TAG, siteId, toString(array), Integer.toString(Array.getLength(array)));
+    }
+
+    public static void countAllocation(final String siteId) {
+        logger.getAllocationCounter(siteId, false).count.increment();
+    }
+
+    public static void countArrayAllocation(final Object array, final String siteId) {
+        final AllocationCounter _counter = logger.getAllocationCounter(siteId, true);
+        _counter.count.increment();
+        _counter.length.add(Array.getLength(array));
+    }
+
+    /**
+     * Marks the beginning of the wait to acquire a lock (or to be unparked) by the current thread.
+     */
+    public static void logLockRequest() {
+        logger.thread2heldLocks.get().waitStart = System.nanoTime();
+    }
+
+    /**
+     * @param lock     acquired by the current thread.
+     * @param siteId   of the acquisition.
+     * @param logEvent if the acquisition should be logged (besides being aggregated).
+     */
+    public static void logLockAcquire(final Object lock, final String siteId, final boolean logEvent) {
+        final long _now = System.nanoTime();
+        final HeldLocks _heldLocks = logger.thread2heldLocks.get();
+        final long _wait = _heldLocks.waitStart < 0 ? 0 : _now - _heldLocks.waitStart;
+        _heldLocks.waitStart = -1;
+        final String _lockId = toString(lock);
+        final LockStats _stats = logger.getLockStats(_lockId, siteId);
+        _stats.acquisitions.increment();
+        _stats.totalWait.add(_wait);
+        _stats.maxWait.accumulate(_wait);
+        _heldLocks.push(lock, _lockId, siteId, _stats, _now);
+        if (logEvent)
+            log(LOCK_ACQUIRE_TAG, _lockId, siteId, Long.toString(_wait));
+    }
+
+    /**
+     * @param acquired is the outcome of the attempt to acquire the lock.
+     */
+    public static void logLockAttempt(final Object lock, final boolean acquired, final String siteId,
+                                      final boolean logEvent) {
+        if (acquired)
+            logLockAcquire(lock, siteId, logEvent);
+        else
+            logger.thread2heldLocks.get().waitStart = -1;
+    }
+
+    /**
+     * Releases of locks not acquired in instrumented code are ignored.
+     */
+    public static void logLockRelease(final Object lock, final boolean logEvent) {
+        final long _now = System.nanoTime();
+        final HeldLocks _heldLocks = logger.thread2heldLocks.get();
+        final int _i = _heldLocks.indexOf(lock);
+        if (_i >= 0)
+            _heldLocks.release(_i, _now, logEvent);
+    }
+
+    /**
+     * Releases the lock most recently acquired at the given site.  This is used to release the lock of a
+     * synchronized method as the lock may not be accessible when the method completes abruptly.
+     */
+    public static void logMethodLockRelease(final String siteId, final boolean logEvent) {
+        final long _now = System.nanoTime();
+        final HeldLocks _heldLocks = logger.thread2heldLocks.get();
+        final int _i = _heldLocks.indexOfSite(siteId);
+        if (_i >= 0)
+            _heldLocks.release(_i, _now, logEvent);
+    }
+
+    /**
+     * Parks are aggregated as acquisitions of <code>null</code> lock.
+     */
+    public static void logPark(final String siteId, final boolean logEvent) {
+        final HeldLocks _heldLocks = logger.thread2heldLocks.get();
+        final long _wait = _heldLocks.waitStart < 0 ? 0 : System.nanoTime() - _heldLocks.waitStart;
+        _heldLocks.waitStart = -1;
+        final LockStats _stats = logger.getLockStats(NULL_VALUE, siteId);
+        _stats.acquisitions.increment();
+        _stats.totalWait.add(_wait);
+        _stats.maxWait.accumulate(_wait);
+        if (logEvent)
+            log(LOCK_PARK_TAG, siteId, Long.toString(_wait));
+    }
+
     public static void logArgument(final byte index, final String val) {
         log(METHOD_ARG_TAG, Byte.toString(index), val);
     }
@@ -71,6 +227,45 @@ public final class Logger {
         log(action, Integer.toString(index), toString(array), value);
     }
 
+    /*
+     * INFO
+     *
+     * Accesses of an array in an execution of a loop are aggregated into a range (per action) that is logged before
+     * the next event of the thread, e.g., exit of the loop.  As ranges are flushed when the loop changes, consecutive
+     * executions of a loop without intervening events are aggregated into one range.
+     *
+     * Any other event of the thread, e.g., a field access or a method call in the body of the loop, flushes the
+     * pending ranges.  So, accesses are aggregated only in loops whose bodies do not log other events, e.g., when
+     * field accesses and method calls are not traced.
+     */
+    public static void logArrayAccessInLoop(final Object array, final int index, final String action,
+                                            final String loopId) {
+        ArrayRanges _ranges = logger.thread2arrayRanges.get();
+        if (_ranges == null) {
+            _ranges = logger.new ArrayRanges();
+            logger.thread2arrayRanges.set(_ranges);
+            arrayRangesCreated = true;
+        }
+        _ranges.add(array, index, action, loopId);
+    }
+
+    public static void logArrayRange(final Object array, final int from, final int to, final String action) {
+        if (from < to) {
+            log(action, Integer.toString(from), Integer.toString(to - 1), toString(array),
+                    Integer.toString(to - from));
+        }
+    }
+
+    public static void logArrayCopy(final Object src, final int srcPos, final Object dest, final int destPos,
+                                    final int length) {
+        logArrayRange(src, srcPos, srcPos + length, ArrayRangeAction.GETR.toString());
+        logArrayRange(dest, destPos, destPos + length, ArrayRangeAction.PUTR.toString());
+    }
+
+    public static void logArrayCopyOf(final Object src, final int from, final int to, final Object copy) {
+        logArrayCopy(src, from, copy, 0, Math.min(to, Array.getLength(src)) - from);
+    }
+
     public static void logMethodCall(final String methodId) {
         log(METHOD_CALL_TAG, methodId);
     }
@@ -97,6 +292,30 @@ public final class Logger {
         log(METHOD_EXIT_TAG, methodId, returnKind);
     }
 
+    /**
+     * Logs the marker of a test (or a fixture) and records the time at which the test was entered.
+     *
+     * @param test being entered.
+     */
+    public static void logTestEntry(final String test) {
+        log(MARKER_PREFIX + test);
+        logger.thread2testStartTimes.get().push(System.nanoTime());
+    }
+
+    /**
+     * Logs the exit from a test (or a fixture) along with the time (in nanoseconds) spent in the test.  The time is
+     * -1 if the entry into the test was not logged.
+     *
+     * @param test     being exited.
+     * @param exitKind is N (normal) or E (exceptional).
+     * @param testKind is T (test) or F (fixture).
+     */
+    public static void logTestExit(final String test, final String exitKind, final String testKind) {
+        final long _now = System.nanoTime();
+        final Long _start = logger.thread2testStartTimes.get().poll();
+        log(MARKER_EXIT_PREFIX + test, exitKind, Long.toString(_start == null ? -1 : _now - _start), testKind);
+    }
+
     public static void logReturn(final String val) {
         if (val != null) {
             log(METHOD_RETURN_TAG, val);
@@ -160,15 +379,41 @@ public final class Logger {
     }
 
     static void initialize(final PrintWriter logWriter) {
-        logger = new Logger(logWriter);
+        initialize(logWriter, Optional.empty());
+    }
 
-        java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try {
-                logger.cleanup();
-            } catch (final Throwable _e) {
-                throw new RuntimeException(_e);
-            }
-        }));
+    /**
+     * @param traceSegmenter to create a new trace file for the events following each marker.
+     */
+    static void initialize(final PrintWriter logWriter, final TraceSegmenter traceSegmenter) {
+        initialize(logWriter, Optional.of(traceSegmenter));
+    }
+
+    /*
+     * INFO
+     *
+     * As the logger can be re-initialized after it is terminated (e.g., by repeated attach sessions), the shutdown
+     * hook is registered once and it cleans up the current logger.
+     */
+    private static synchronized void initialize(final PrintWriter logWriter,
+                                                final Optional<TraceSegmenter> traceSegmenter) {
+        logger = new Logger(logWriter, traceSegmenter);
+
+        if (!shutdownHookRegistered) {
+            java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    logger.cleanup();
+                } catch (final Throwable _e) {
+                    throw new RuntimeException(_e);
+                }
+            }));
+            shutdownHookRegistered = true;
+        }
+    }
+
+    static void terminate() {
+        if (logger != null)
+            logger.cleanup();
     }
 
     // This method is intended for testing purpose only.
@@ -176,15 +421,102 @@ public final class Logger {
         logger.cleanup();
     }
 
-    private synchronized void cleanup() {
+    private void cleanup() {
+        // INFO: Ranges are flushed before acquiring the lock on the logger to avoid deadlocks
+        for (final ArrayRanges _ranges : allArrayRanges)
+            _ranges.flush();
+        dumpAllocationCounters();
+        dumpLockStats();
+        dumpProbes();
+        cleanupHelper();
+    }
+
+    private AllocationCounter getAllocationCounter(final String siteId, final boolean isArraySite) {
+        final AllocationCounter _tmp = site2allocationCounter.get(siteId);
+        return _tmp != null ? _tmp :
+                site2allocationCounter.computeIfAbsent(siteId, k -> new AllocationCounter(isArraySite));
+    }
+
+    private LockStats getLockStats(final String lockId, final String siteId) {
+        final String _key = lockId + "," + siteId;
+        final LockStats _tmp = lockAndSite2stats.get(_key);
+        return _tmp != null ? _tmp : lockAndSite2stats.computeIfAbsent(_key, k -> new LockStats());
+    }
+
+    /*
+     * INFO
+     *
+     * Counters are removed as they are dumped so that they are dumped only once even if the logger is cleaned up
+     * more than once.  Array allocation sites are dumped along with the total length of the allocated arrays.
+     */
+    private void dumpAllocationCounters() {
+        for (final String _siteId : new TreeSet<>(site2allocationCounter.keySet())) {
+            final AllocationCounter _counter = site2allocationCounter.remove(_siteId);
+            if (_counter.isArraySite)
+                log(ALLOCATION_COUNT_TAG, _siteId, Long.toString(_counter.count.sum()),
+                        Long.toString(_counter.length.sum()));
+            else
+                log(ALLOCATION_COUNT_TAG, _siteId, Long.toString(_counter.count.sum()));
+        }
+    }
+
+    /*
+     * INFO
+     *
+     * Probes are logged as a string of 0s and 1s indexed by probe ids.  Only classes with at least one set probe are
+     * logged.  Probes set by other threads while being dumped may be lost.
+     */
+    private static void dumpProbes() {
+        for (final String _className : new TreeSet<>(class2probes.keySet())) {
+            final boolean[] _probes = class2probes.get(_className);
+            final StringBuilder _sb = new StringBuilder(_probes.length);
+            boolean _covered = false;
+            for (int _i = 0; _i < _probes.length; _i++) {
+                _covered |= _probes[_i];
+                _sb.append(_probes[_i] ? '1' : '0');
+            }
+            if (_covered) {
+                Arrays.fill(_probes, false);
+                log(COVERAGE_TAG, _className, _sb.toString());
+            }
+        }
+    }
+
+    private synchronized void cleanupHelper() {
         if (!clean) {
             writeLogHelper();
             logWriter.flush();
             logWriter.close();
+            traceSegmenter.ifPresent(TraceSegmenter::close);
             clean = true;
         }
     }
 
+    /*
+     * INFO
+     *
+     * Allocation counts and contention tables are dumped at the end of each segment so that they pertain to the
+     * segment.  Events logged by other threads while the segment is being switched belong to either segment.
+     */
+    private void startSegment(final String marker) {
+        dumpAllocationCounters();
+        dumpLockStats();
+        synchronized (this) {
+            if (!clean) {
+                writeLogHelper();
+                logWriter.close();
+                try {
+                    logWriter = traceSegmenter.get().startSegment(marker);
+                } catch (final IOException _ex) {
+                    throw new RuntimeException(_ex);
+                }
+                prevMsg = null;
+                msgFreq = 0;
+                writeLog((new Date()).toString());
+            }
+        }
+    }
+
     private synchronized void writeLog(final String msg) {
         if (Objects.equals(prevMsg, msg)) {
             msgFreq++;
@@ -208,8 +540,181 @@ public final class Logger {
         PUTA
     }
 
+    public enum ArrayRangeAction {
+        GETR,
+        PUTR
+    }
+
     public enum FieldAction {
         GETF,
         PUTF
     }
+
+    /*
+     * INFO
+     *
+     * As with allocation counters, contention tables are removed as they are dumped.  Hold durations of locks that
+     * are held at the time of dumping are not included.
+     */
+    private void dumpLockStats() {
+        for (final String _key : new TreeSet<>(lockAndSite2stats.keySet())) {
+            final LockStats _stats = lockAndSite2stats.remove(_key);
+            log(LOCK_CONTENTION_TAG, _key, Long.toString(_stats.acquisitions.sum()),
+                    Long.toString(_stats.totalWait.sum()), Long.toString(_stats.maxWait.get()),
+                    Long.toString(_stats.totalHold.sum()), Long.toString(_stats.maxHold.get()));
+        }
+    }
+
+    /**
+     * Number of allocations at a site and the total length of the arrays allocated at the site.
+     */
+    private static final class AllocationCounter {
+        private final boolean isArraySite;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder length = new LongAdder();
+
+        AllocationCounter(final boolean isArraySite) {
+            this.isArraySite = isArraySite;
+        }
+    }
+
+    /**
+     * Number of acquisitions of a lock at a site along with the (total and maximum) durations of waiting to acquire
+     * the lock and of holding the lock.  Durations are in nanoseconds.
+     */
+    private static final class LockStats {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder totalWait = new LongAdder();
+        private final LongAccumulator maxWait = new LongAccumulator(Long::max, 0);
+        private final LongAdder totalHold = new LongAdder();
+        private final LongAccumulator maxHold = new LongAccumulator(Long::max, 0);
+    }
+
+    /**
+     * Locks held by a thread (in the order of acquisition) along with the beginning of the pending wait (if any) of
+     * the thread to acquire a lock.  Only accessed by the thread.
+     */
+    private static final class HeldLocks {
+        private long waitStart = -1;
+        private Object[] locks = new Object[4];
+        private String[] lockIds = new String[4];
+        private String[] siteIds = new String[4];
+        private LockStats[] stats = new LockStats[4];
+        private long[] acquireTimes = new long[4];
+        private int size = 0;
+
+        void push(final Object lock, final String lockId, final String siteId, final LockStats lockStats,
+                  final long acquireTime) {
+            if (size == locks.length) {
+                locks = Arrays.copyOf(locks, size * 2);
+                lockIds = Arrays.copyOf(lockIds, size * 2);
+                siteIds = Arrays.copyOf(siteIds, size * 2);
+                stats = Arrays.copyOf(stats, size * 2);
+                acquireTimes = Arrays.copyOf(acquireTimes, size * 2);
+            }
+            locks[size] = lock;
+            lockIds[size] = lockId;
+            siteIds[size] = siteId;
+            stats[size] = lockStats;
+            acquireTimes[size] = acquireTime;
+            size++;
+        }
+
+        // INFO: Reentrant acquisitions are released in the reverse order of acquisition
+        int indexOf(final Object lock) {
+            for (int _i = size - 1; _i >= 0; _i--) {
+                if (locks[_i] == lock)
+                    return _i;
+            }
+            return -1;
+        }
+
+        int indexOfSite(final String siteId) {
+            for (int _i = size - 1; _i >= 0; _i--) {
+                if (siteIds[_i].equals(siteId))
+                    return _i;
+            }
+            return -1;
+        }
+
+        void release(final int index, final long releaseTime, final boolean logEvent) {
+            final long _hold = releaseTime - acquireTimes[index];
+            stats[index].totalHold.add(_hold);
+            stats[index].maxHold.accumulate(_hold);
+            if (logEvent)
+                log(LOCK_RELEASE_TAG, lockIds[index], siteIds[index], Long.toString(_hold));
+            remove(index);
+        }
+
+        private void remove(final int index) {
+            final int _numToMove = size - index - 1;
+            System.arraycopy(locks, index + 1, locks, index, _numToMove);
+            System.arraycopy(lockIds, index + 1, lockIds, index, _numToMove);
+            System.arraycopy(siteIds, index + 1, siteIds, index, _numToMove);
+            System.arraycopy(stats, index + 1, stats, index, _numToMove);
+            System.arraycopy(acquireTimes, index + 1, acquireTimes, index, _numToMove);
+            size--;
+            locks[size] = null;
+            stats[size] = null;
+        }
+    }
+
+    /**
+     * Pending ranges of array accesses of a thread.  It is registered (to be flushed at shutdown) only while it has
+     * pending ranges; so, threads that have ended without pending ranges are not retained.
+     */
+    private final class ArrayRanges {
+        private final String threadId = Long.toString(Thread.currentThread().getId());
+        private final Object[] arrays = new Object[MAX_PENDING_ARRAY_RANGES];
+        private final String[] actions = new String[MAX_PENDING_ARRAY_RANGES];
+        private final int[] minIndices = new int[MAX_PENDING_ARRAY_RANGES];
+        private final int[] maxIndices = new int[MAX_PENDING_ARRAY_RANGES];
+        private final long[] counts = new long[MAX_PENDING_ARRAY_RANGES];
+        private int size = 0;
+        private String loopId;
+
+        // INFO: Invoked without synchronization by the thread of the ranges; so, it may be stale for other threads
+        boolean isPending() {
+            return size > 0;
+        }
+
+        synchronized void add(final Object array, final int index, final String action, final String loopId) {
+            if (!loopId.equals(this.loopId)) {
+                flush();
+                this.loopId = loopId;
+            }
+
+            for (int _i = 0; _i < size; _i++) {
+                if (arrays[_i] == array && actions[_i].equals(action)) {
+                    minIndices[_i] = Math.min(minIndices[_i], index);
+                    maxIndices[_i] = Math.max(maxIndices[_i], index);
+                    counts[_i]++;
+                    return;
+                }
+            }
+
+            if (size == MAX_PENDING_ARRAY_RANGES)
+                flush();
+            if (size == 0)
+                allArrayRanges.add(this);
+            arrays[size] = array;
+            actions[size] = action;
+            minIndices[size] = index;
+            maxIndices[size] = index;
+            counts[size] = 1;
+            size++;
+        }
+
+        synchronized void flush() {
+            for (int _i = 0; _i < size; _i++) {
+                writeLog(String.join(",", threadId, actions[_i], Integer.toString(minIndices[_i]),
+                        Integer.toString(maxIndices[_i]), Logger.toString(arrays[_i]), Long.toString(counts[_i])));
+                arrays[_i] = null;
+            }
+            if (size > 0)
+                allArrayRanges.remove(this);
+            size = 0;
+            loopId = null;
+        }
+    }
 }
@@ -13,31 +13,72 @@ import java.io.*;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
 import java.util.Properties;
+import java.util.Set;
 import java.util.zip.GZIPOutputStream;
 
 @SuppressWarnings("unused")
 public final class LoggerInitializer {
+    private static final Set<String> LOGGING_CONTROL_PROPERTIES = Set.of("logging", "disabledEvents",
+            "disabledMethods");
     static File traceFile;
     static volatile boolean initialized;
 
     public static synchronized void initialize() throws IOException {
+        if (!initialized)
+            initialize(getProperties());
+    }
+
+    static synchronized void initialize(final Properties properties) throws IOException {
         if (!initialized) {
-            final Properties _properties = getProperties();
-            final File _folder = new File(_properties.getProperty("traceFolder", "."));
-            if (!_folder.exists() && !_folder.mkdir())
-                throw new IOException(MessageFormat.format("Cannot create {0}", _folder.toString()));
-
-            final String _prefix = "trace_" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0] + "_";
-            LoggerInitializer.traceFile = File.createTempFile(_prefix, ".gz", _folder);
-            final OutputStream _stream = new FileOutputStream(LoggerInitializer.traceFile, true);
-            final int _bufferLength = Integer.parseInt(_properties.getProperty("bufferLength", "10000000"));
-            final PrintWriter _logWriter =
-                    new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(_stream), _bufferLength));
-            Logger.initialize(_logWriter);
+            final int _bufferLength = Integer.parseInt(properties.getProperty("bufferLength", "10000000"));
+            if (properties.getProperty("traceSink", "file").equals("null")) {
+                // INFO: Log statements are created and written as usual but the written bytes are discarded
+                LoggerInitializer.traceFile = null;
+                final OutputStream _stream = new OutputStream() {
+                    @Override
+                    public void write(final int b) {
+                    }
+
+                    @Override
+                    public void write(final byte[] b, final int off, final int len) {
+                    }
+                };
+                Logger.initialize(new PrintWriter(new BufferedOutputStream(_stream, _bufferLength)));
+            } else {
+                final File _folder = new File(properties.getProperty("traceFolder", "."));
+                if (!_folder.exists() && !_folder.mkdir())
+                    throw new IOException(MessageFormat.format("Cannot create {0}", _folder.toString()));
+
+                final String _prefix = "trace_" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0] + "_";
+                LoggerInitializer.traceFile = File.createTempFile(_prefix, ".gz", _folder);
+                final PrintWriter _logWriter = createTraceWriter(LoggerInitializer.traceFile, _bufferLength);
+                if (Boolean.parseBoolean(properties.getProperty("segmentTraces", "false")))
+                    Logger.initialize(_logWriter, new TraceSegmenter(LoggerInitializer.traceFile, _bufferLength));
+                else
+                    Logger.initialize(_logWriter);
+            }
+            // INFO: LoggingControl is loaded only if needed as it registers an MXBean
+            if (properties.stringPropertyNames().stream().anyMatch(LOGGING_CONTROL_PROPERTIES::contains))
+                LoggingControl.configure(properties);
             LoggerInitializer.initialized = true;
         }
     }
 
+    /**
+     * Flushes and closes the current trace file.  A subsequent initialization will log into a new trace file.
+     */
+    public static synchronized void terminate() {
+        if (initialized) {
+            Logger.terminate();
+            LoggerInitializer.initialized = false;
+        }
+    }
+
+    static PrintWriter createTraceWriter(final File traceFile, final int bufferLength) throws IOException {
+        final OutputStream _stream = new GZIPOutputStream(new FileOutputStream(traceFile, true));
+        return new PrintWriter(new BufferedOutputStream(_stream, bufferLength));
+    }
+
     private static Properties getProperties() throws IOException {
         final Properties _tmp = new Properties();
         try (final InputStream _in1 = LoggerInitializer.class.getResourceAsStream("logging.properties")) {
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.lang.management.ManagementFactory;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Enables and disables logging at run time.  Code instrumented with toggleable logging invokes the methods of
+ * {@link Logger} via <code>invokedynamic</code> call sites bound by {@link #bootstrap}.  Each call site is linked to
+ * either the method of <code>Logger</code> or a no-op (based on the current state) and the link is guarded by a
+ * <code>SwitchPoint</code>.  Every change of the state invalidates the <code>SwitchPoint</code>, and a call site is
+ * relinked when it is executed next.  So, JIT compilers can treat disabled call sites as no-ops.
+ * <p>
+ * Logging can be disabled globally, for specific kinds of events, and for ranges of methods.  A method is identified
+ * by the number in its id (e.g., 12 in m12) as recorded in the program data file.  The state can be changed via
+ * <code>dyco4j.logging:type=LoggingControl</code> MXBean, and the initial state can be configured via
+ * <code>logging</code>, <code>disabledEvents</code>, and <code>disabledMethods</code> properties in
+ * <i>logging.properties</i>.
+ */
+public final class LoggingControl {
+    public static final String MXBEAN_NAME = "dyco4j.logging:type=LoggingControl";
+    private static final String UNLOGGED_VALUE = "*";
+    private static final MethodHandle RELINK;
+    private static final Set<EventKind> disabledEventKinds = EnumSet.noneOf(EventKind.class);
+    private static final BitSet disabledMethods = new BitSet();
+    private static boolean enabled = true;
+    private static SwitchPoint switchPoint = new SwitchPoint();
+
+    static {
+        try {
+            RELINK = MethodHandles.lookup().findStatic(LoggingControl.class, "relink",
+                    MethodType.methodType(MethodHandle.class, ToggleableCallSite.class));
+        } catch (final NoSuchMethodException | IllegalAccessException _ex) {
+            throw new RuntimeException(_ex);
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Control(),
+                    new ObjectName(MXBEAN_NAME));
+        } catch (final JMException _ex) {
+            // INFO: The MXBean is registered only by the first copy of this class loaded in the JVM
+        }
+    }
+
+    private LoggingControl() {
+    }
+
+    /**
+     * @param name      of the method of <code>Logger</code> to be invoked.
+     * @param eventKind of the events logged by the call site.
+     * @param methodId  of the method containing the call site.  Empty if the call site is not specific to a method.
+     */
+    public static CallSite bootstrap(final MethodHandles.Lookup lookup, final String name, final MethodType type,
+                                     final String eventKind, final String methodId)
+            throws NoSuchMethodException, IllegalAccessException {
+        final MethodHandle _target = MethodHandles.publicLookup().findStatic(Logger.class, name, type);
+        final ToggleableCallSite _site = new ToggleableCallSite(_target, EventKind.valueOf(eventKind),
+                getMethodNumber(methodId));
+        relink(_site);
+        return _site;
+    }
+
+    /**
+     * @param loggerMethodName is the name of a method of <code>Logger</code>.
+     * @return the kind of events logged by the method.
+     * @throws IllegalArgumentException if the method does not log events.
+     */
+    public static EventKind getEventKind(final String loggerMethodName) {
+        switch (loggerMethodName) {
+            case "log":
+            case "logTestEntry":
+            case "logTestExit":
+                return EventKind.MARKER;
+            case "logMethodEntry":
+                return EventKind.METHOD_ENTRY;
+            case "logMethodExit":
+                return EventKind.METHOD_EXIT;
+            case "logArgument":
+                return EventKind.METHOD_ARGUMENT;
+            case "logReturn":
+                return EventKind.METHOD_RETURN;
+            case "logException":
+                return EventKind.METHOD_EXCEPTION;
+            case "logMethodCall":
+                return EventKind.METHOD_CALL;
+            case "logField":
+            case "logFieldRaw":
+                return EventKind.FIELD;
+            case "logArray":
+            case "logArrayAccessInLoop":
+            case "logArrayRange":
+            case "logArrayCopy":
+            case "logArrayCopyOf":
+                return EventKind.ARRAY;
+            case "logAllocation":
+            case "logArrayAllocation":
+            case "countAllocation":
+            case "countArrayAllocation":
+                return EventKind.ALLOCATION;
+            case "logLockRequest":
+            case "logLockAcquire":
+            case "logLockAttempt":
+            case "logLockRelease":
+            case "logMethodLockRelease":
+            case "logPark":
+                return EventKind.LOCK;
+            default:
+                throw new IllegalArgumentException("Not a logging method: " + loggerMethodName);
+        }
+    }
+
+    public static synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(final boolean enabled) {
+        LoggingControl.enabled = enabled;
+        invalidateCallSites();
+    }
+
+    public static synchronized boolean isEnabled(final EventKind eventKind) {
+        return !disabledEventKinds.contains(eventKind);
+    }
+
+    public static synchronized void setEnabled(final EventKind eventKind, final boolean enabled) {
+        if (enabled)
+            disabledEventKinds.remove(eventKind);
+        else
+            disabledEventKinds.add(eventKind);
+        invalidateCallSites();
+    }
+
+    public static synchronized boolean isEnabled(final int methodNumber) {
+        return !disabledMethods.get(methodNumber);
+    }
+
+    /**
+     * @param fromMethodNumber is the number of the first method in the range.
+     * @param toMethodNumber   is the number of the last method in the range.
+     */
+    public static synchronized void setEnabled(final int fromMethodNumber, final int toMethodNumber,
+                                               final boolean enabled) {
+        disabledMethods.set(fromMethodNumber, toMethodNumber + 1, !enabled);
+        invalidateCallSites();
+    }
+
+    static synchronized void configure(final Properties properties) {
+        enabled = !properties.getProperty("logging", "on").equals("off");
+        disabledEventKinds.clear();
+        for (final String _kind : properties.getProperty("disabledEvents", "").split(",")) {
+            if (!_kind.trim().isEmpty())
+                disabledEventKinds.add(EventKind.valueOf(_kind.trim()));
+        }
+        disabledMethods.clear();
+        for (final String _range : properties.getProperty("disabledMethods", "").split(",")) {
+            if (!_range.trim().isEmpty()) {
+                final String[] _tmp = _range.trim().split("-");
+                disabledMethods.set(Integer.parseInt(_tmp[0]), Integer.parseInt(_tmp[_tmp.length - 1]) + 1);
+            }
+        }
+        invalidateCallSites();
+    }
+
+    private static void invalidateCallSites() {
+        final SwitchPoint _tmp = switchPoint;
+        switchPoint = new SwitchPoint();
+        SwitchPoint.invalidateAll(new SwitchPoint[]{_tmp});
+    }
+
+    private static int getMethodNumber(final String methodId) {
+        final String _tmp = methodId.replaceFirst("^\\D*", "");
+        return _tmp.isEmpty() ? -1 : Integer.parseInt(_tmp);
+    }
+
+    /*
+     * INFO
+     *
+     * The returned target is linked until the current SwitchPoint is invalidated.  Subsequently, the call site is
+     * relinked (as per the new state) when it is executed.
+     */
+    private static synchronized MethodHandle relink(final ToggleableCallSite site) {
+        final boolean _enabled = enabled && !disabledEventKinds.contains(site.eventKind) &&
+                (site.methodNumber < 0 || !disabledMethods.get(site.methodNumber));
+        final MethodHandle _relink = MethodHandles.foldArguments(MethodHandles.exactInvoker(site.type()),
+                RELINK.bindTo(site));
+        final MethodHandle _target = switchPoint.guardWithTest(_enabled ? site.loggingTarget : site.noopTarget,
+                _relink);
+        site.setTarget(_target);
+        return _target;
+    }
+
+    public enum EventKind {
+        MARKER,
+        METHOD_ENTRY,
+        METHOD_EXIT,
+        METHOD_ARGUMENT,
+        METHOD_RETURN,
+        METHOD_EXCEPTION,
+        METHOD_CALL,
+        FIELD,
+        ARRAY,
+        ALLOCATION,
+        LOCK
+    }
+
+    private static final class ToggleableCallSite extends MutableCallSite {
+        final MethodHandle loggingTarget;
+        final MethodHandle noopTarget;
+        final EventKind eventKind;
+        final int methodNumber;
+
+        /*
+         * INFO
+         *
+         * Besides the logging methods, values are converted into strings (via Logger.toString) only to be logged.
+         * So, when disabled, conversions are replaced by a constant.
+         */
+        ToggleableCallSite(final MethodHandle loggingTarget, final EventKind eventKind, final int methodNumber) {
+            super(loggingTarget.type());
+            final MethodType _type = loggingTarget.type();
+            this.loggingTarget = loggingTarget;
+            this.noopTarget = _type.returnType() == void.class ? MethodHandles.empty(_type) :
+                    MethodHandles.dropArguments(MethodHandles.constant(String.class, UNLOGGED_VALUE), 0,
+                            _type.parameterList());
+            this.eventKind = eventKind;
+            this.methodNumber = methodNumber;
+        }
+    }
+
+    private static final class Control implements LoggingControlMXBean {
+        @Override
+        public boolean isEnabled() {
+            return LoggingControl.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean enabled) {
+            LoggingControl.setEnabled(enabled);
+        }
+
+        @Override
+        public String getDisabledEvents() {
+            synchronized (LoggingControl.class) {
+                return disabledEventKinds.toString();
+            }
+        }
+
+        @Override
+        public void enableEvents(final String eventKind) {
+            LoggingControl.setEnabled(EventKind.valueOf(eventKind), true);
+        }
+
+        @Override
+        public void disableEvents(final String eventKind) {
+            LoggingControl.setEnabled(EventKind.valueOf(eventKind), false);
+        }
+
+        @Override
+        public String getDisabledMethods() {
+            synchronized (LoggingControl.class) {
+                return disabledMethods.toString();
+            }
+        }
+
+        @Override
+        public void enableMethods(final int fromMethodNumber, final int toMethodNumber) {
+            LoggingControl.setEnabled(fromMethodNumber, toMethodNumber, true);
+        }
+
+        @Override
+        public void disableMethods(final int fromMethodNumber, final int toMethodNumber) {
+            LoggingControl.setEnabled(fromMethodNumber, toMethodNumber, false);
+        }
+    }
+}
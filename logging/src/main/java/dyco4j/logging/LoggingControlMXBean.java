@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+/**
+ * Management interface of {@link LoggingControl}.  Event kinds are names of {@link LoggingControl.EventKind}
+ * constants and method ranges are inclusive.
+ */
+public interface LoggingControlMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    String getDisabledEvents();
+
+    void enableEvents(String eventKind);
+
+    void disableEvents(String eventKind);
+
+    String getDisabledMethods();
+
+    void enableMethods(int fromMethodNumber, int toMethodNumber);
+
+    void disableMethods(int fromMethodNumber, int toMethodNumber);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Creates trace files for the segments of a trace.  A trace is segmented at markers, e.g., logged at the beginning
+ * of tests by the entry tool.  So, the events of each test are in a separate trace file.
+ * <p>
+ * Segment files are named after the trace file with the number of the segment as suffix, e.g.,
+ * <i>trace_42_123_1.gz</i> for <i>trace_42_123.gz</i>.  Each segment is listed (in the order of creation) along with
+ * its marker in an index file (in UTF-8) named after the trace file, e.g., <i>trace_42_123.idx</i>.
+ */
+final class TraceSegmenter {
+    private static final String TRACE_FILE_SUFFIX = ".gz";
+    /*
+     * INFO
+     *
+     * A segment (e.g., of a test) is much smaller than a trace.  So, segment writers use a small buffer instead of a
+     * buffer of the configured length (10MB by default) that would be allocated afresh at every marker.
+     */
+    static final int SEGMENT_BUFFER_LENGTH = 64 * 1024;
+    private final File folder;
+    private final String baseName;
+    private final int bufferLength;
+    private final PrintWriter indexWriter;
+    private int numOfSegments = 0;
+
+    TraceSegmenter(final File traceFile, final int bufferLength) throws IOException {
+        final String _name = traceFile.getName();
+        this.folder = traceFile.getParentFile();
+        this.baseName = _name.endsWith(TRACE_FILE_SUFFIX) ?
+                _name.substring(0, _name.length() - TRACE_FILE_SUFFIX.length()) : _name;
+        this.bufferLength = Math.min(bufferLength, SEGMENT_BUFFER_LENGTH);
+        this.indexWriter = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(folder, baseName + ".idx")), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param marker that starts the segment.
+     * @return the writer of the new segment.
+     */
+    PrintWriter startSegment(final String marker) throws IOException {
+        numOfSegments++;
+        final File _segmentFile = new File(folder, baseName + "_" + numOfSegments + TRACE_FILE_SUFFIX);
+        final PrintWriter _result = LoggerInitializer.createTraceWriter(_segmentFile, bufferLength);
+        // INFO: The index is flushed eagerly so that it lists the segments even if the JVM halts abruptly
+        indexWriter.println(_segmentFile.getName() + "," + marker);
+        indexWriter.flush();
+        return _result;
+    }
+
+    void close() {
+        indexWriter.close();
+    }
+}
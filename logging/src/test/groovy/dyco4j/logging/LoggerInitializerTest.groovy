@@ -11,6 +11,7 @@ package dyco4j.logging
 
 import org.junit.jupiter.api.Test
 
+import java.nio.file.Files
 import java.nio.file.Paths
 import java.util.zip.GZIPInputStream
 
@@ -56,12 +57,84 @@ final class LoggerInitializerTest {
         LoggerInitializer.initialized = false
     }
 
+    @Test
+    void testTerminateAndReinitialize() {
+        LoggerInitializer.initialized = false
+        LoggerInitializer.initialize()
+        final _traceFile1 = LoggerInitializer.traceFile
+        final _msg1 = "test terminate method"
+        Logger.log(_msg1)
+        LoggerInitializer.terminate()
+        assert !LoggerInitializer.initialized
+
+        LoggerInitializer.initialize()
+        assert LoggerInitializer.traceFile != _traceFile1
+        final _msg2 = "test initialize method after terminate method"
+        Logger.log(_msg2)
+        LoggerInitializer.terminate()
+
+        checkTraceFilesForLogs(_traceFile1, _msg1)
+        checkTraceFilesForLogs(_msg2)
+    }
+
+    @Test
+    void testInitializeWithNullTraceSink() {
+        LoggerInitializer.initialized = false
+        final _properties = new Properties()
+        _properties.setProperty("traceSink", "null")
+        LoggerInitializer.initialize(_properties)
+        assert LoggerInitializer.traceFile == null
+        Logger.log("test initialize method with null trace sink")
+        LoggerInitializer.terminate()
+        assert !LoggerInitializer.initialized
+    }
+
+    @Test
+    void testInitializeWithSegmentedTraces() {
+        LoggerInitializer.initialized = false
+        final _folder = Files.createTempDirectory("traces")
+        final _properties = new Properties()
+        _properties.setProperty("traceFolder", _folder.toString())
+        _properties.setProperty("segmentTraces", "true")
+        LoggerInitializer.initialize(_properties)
+        final _marker1 = "${Logger.MARKER_PREFIX}C/test1()V".toString()
+        final _marker2 = "${Logger.MARKER_PREFIX}C/test2()V".toString()
+        Logger.log("before tests")
+        Logger.log(_marker1)
+        Logger.log("in test1")
+        Logger.countAllocation("m1.0")
+        Logger.log(_marker2)
+        Logger.log("in test2")
+        assert Logger.logger.traceSegmenter.get().bufferLength == TraceSegmenter.SEGMENT_BUFFER_LENGTH
+        LoggerInitializer.terminate()
+
+        final _baseName = LoggerInitializer.traceFile.name - ".gz"
+        assert new File(_folder.toFile(), "${_baseName}.idx").readLines("UTF-8") ==
+                ["${_baseName}_1.gz,$_marker1", "${_baseName}_2.gz,$_marker2"]*.toString()
+        assert readLogs(LoggerInitializer.traceFile) == ["before tests"]
+        assert readLogs(new File(_folder.toFile(), "${_baseName}_1.gz")) ==
+                [_marker1, "in test1", "${Logger.ALLOCATION_COUNT_TAG},m1.0,1".toString()]
+        assert readLogs(new File(_folder.toFile(), "${_baseName}_2.gz")) == [_marker2, "in test2"]
+        _folder.toFile().deleteDir()
+    }
+
+    // Returns the logs in the trace file without the header and thread ids
+    private static readLogs(final File traceFile) {
+        try (final _stream = new GZIPInputStream(new FileInputStream(traceFile))) {
+            _stream.readLines().tail().collect { it.split(',', 2)[1] }
+        }
+    }
+
     private static void checkTraceFilesForLogs(final String expectedMessage) throws IOException {
-        final _traceFile = LoggerInitializer.traceFile
-        try (final _stream = new GZIPInputStream(new FileInputStream(_traceFile))) {
+        checkTraceFilesForLogs(LoggerInitializer.traceFile, expectedMessage)
+    }
+
+    private static void checkTraceFilesForLogs(final File traceFile, final String expectedMessage)
+            throws IOException {
+        try (final _stream = new GZIPInputStream(new FileInputStream(traceFile))) {
             final _line = _stream.readLines()[1]
             assert _line ==~ /^\d+,$expectedMessage$/: "expected log statement not found"
         }
-        assert _traceFile.delete(): "Could not delete trace file"
+        assert traceFile.delete(): "Could not delete trace file"
     }
 }
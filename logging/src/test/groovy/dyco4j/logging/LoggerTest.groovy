@@ -60,6 +60,179 @@ final class LoggerTest {
         assert _expected == getContent()[1]
     }
 
+    @Test
+    void testLogArrayAccessInLoop() {
+        final int[] _array1 = [1, 2, 3, 4]
+        final String[] _array2 = ["array"]
+        final _get = Logger.ArrayRangeAction.GETR.toString()
+        final _put = Logger.ArrayRangeAction.PUTR.toString()
+        (3..0).each { Logger.logArrayAccessInLoop(_array1, it, _get, "m1#0") }
+        Logger.logArrayAccessInLoop(_array2, 0, _put, "m1#0")
+        Logger.logArrayAccessInLoop(_array1, 2, _put, "m1#1")
+        Logger.log("test message")
+
+        final _tmp = getContent()
+        assert _tmp[1] == "${getCurrThreadId()},$_get,0,3,${Logger.toString(_array1)},4"
+        assert _tmp[2] == "${getCurrThreadId()},$_put,0,0,${Logger.toString(_array2)},1"
+        assert _tmp[3] == "${getCurrThreadId()},$_put,2,2,${Logger.toString(_array1)},1"
+        assert _tmp[4] == "${getCurrThreadId()},test message"
+    }
+
+    @Test
+    void testLogArrayAccessInLoopIsFlushedAtCleanup() {
+        final int[] _array = [1, 2]
+        final _get = Logger.ArrayRangeAction.GETR.toString()
+        final _thread = Thread.start { (0..1).each { Logger.logArrayAccessInLoop(_array, it, _get, "m1#0") } }
+        _thread.join()
+        Logger.cleanupForTest()
+
+        assert getContent()[1] == "${_thread.getId()},$_get,0,1,${Logger.toString(_array)},2"
+    }
+
+    @Test
+    void testArrayRangesAreRegisteredOnlyWhilePending() {
+        final int[] _array = [1, 2]
+        final _get = Logger.ArrayRangeAction.GETR.toString()
+        final _allArrayRanges = Logger.logger.allArrayRanges
+        Thread.start { Logger.log("test message") }.join()
+        assert _allArrayRanges.isEmpty()
+
+        Logger.logArrayAccessInLoop(_array, 0, _get, "m1#0")
+        assert _allArrayRanges.size() == 1
+        Logger.log("test message")
+        assert _allArrayRanges.isEmpty()
+        assert getContent()[2] == "${getCurrThreadId()},$_get,0,0,${Logger.toString(_array)},1"
+    }
+
+    @Test
+    void testLogAllocation() {
+        final int[][] _array = new int[3][2]
+        Logger.logAllocation("m1.0")
+        Logger.logArrayAllocation(_array, "m1.1")
+
+        final _tmp = getContent()
+        assert _tmp[1] == "${getCurrThreadId()},${Logger.ALLOCATION_TAG},m1.0"
+        assert _tmp[2] == "${getCurrThreadId()},${Logger.ALLOCATION_TAG},m1.1,${Logger.toString(_array)},3"
+    }
+
+    @Test
+    void testCountAllocationIsDumpedAtCleanup() {
+        final _thread = Thread.start {
+            Logger.countAllocation("m2.0")
+            Logger.countArrayAllocation(new int[0], "m1.1")
+        }
+        Logger.countAllocation("m2.0")
+        Logger.countArrayAllocation(new String[4], "m1.1")
+        _thread.join()
+        Logger.cleanupForTest()
+
+        final _tmp = getContent()
+        assert _tmp.length == 3
+        assert _tmp[1] == "${getCurrThreadId()},${Logger.ALLOCATION_COUNT_TAG},m1.1,2,4"
+        assert _tmp[2] == "${getCurrThreadId()},${Logger.ALLOCATION_COUNT_TAG},m2.0,2"
+    }
+
+    @Test
+    void testLogLockAcquireAndRelease() {
+        final _lock = new Object()
+        final _lockId = Logger.toString(_lock)
+        Logger.logLockRequest()
+        Logger.logLockAcquire(_lock, "m1@0", true)
+        Logger.logLockAcquire(_lock, "m2", false)
+        Logger.logMethodLockRelease("m2", true)
+        Logger.logLockRelease(_lock, true)
+        Logger.logLockRelease(new Object(), true)
+
+        final _tmp = getContent()
+        assert _tmp.length == 4
+        assert _tmp[1] ==~ /${getCurrThreadId()},${Logger.LOCK_ACQUIRE_TAG},$_lockId,m1@0,\d+/
+        assert _tmp[2] ==~ /${getCurrThreadId()},${Logger.LOCK_RELEASE_TAG},$_lockId,m2,\d+/
+        assert _tmp[3] ==~ /${getCurrThreadId()},${Logger.LOCK_RELEASE_TAG},$_lockId,m1@0,\d+/
+    }
+
+    @Test
+    void testLockStatsAreDumpedAtCleanup() {
+        final _lock = new Object()
+        Logger.logLockAttempt(_lock, false, "m1@1", false)
+        Logger.logLockRequest()
+        Thread.sleep(5)
+        Logger.logLockAttempt(_lock, true, "m1@1", false)
+        Thread.sleep(5)
+        Logger.logLockRelease(_lock, false)
+        Logger.logLockRequest()
+        Logger.logPark("m1@2", true)
+        Logger.cleanupForTest()
+
+        final _tmp = getContent()
+        assert _tmp.length == 4
+        assert _tmp[1] ==~ /${getCurrThreadId()},${Logger.LOCK_PARK_TAG},m1@2,\d+/
+        final _stats1 = _tmp[2].split(',')
+        assert _stats1[0..3] == ["${getCurrThreadId()}", Logger.LOCK_CONTENTION_TAG, Logger.NULL_VALUE, "m1@2"]
+        assert _stats1[4] == "1" && _stats1[7..8] == ["0", "0"]
+        final _stats2 = _tmp[3].split(',')
+        assert _stats2[1..4] == [Logger.LOCK_CONTENTION_TAG, Logger.toString(_lock), "m1@1", "1"]
+        assert (_stats2[5] as long) >= 5_000_000 && _stats2[5] == _stats2[6]
+        assert (_stats2[7] as long) >= 5_000_000 && _stats2[7] == _stats2[8]
+    }
+
+    @Test
+    void testProbesAreDumpedAtMarkersAndCleanup() {
+        final _probes = Logger.registerProbes("p/A", 3)
+        assert Logger.registerProbes("p/A", 3).is(_probes)
+        assert !Logger.registerProbes("p/A", 4).is(_probes)
+        Logger.registerProbes("p/B", 2)
+        _probes[0] = true
+        _probes[2] = true
+        Logger.log("${Logger.MARKER_PREFIX}t1")
+        _probes[1] = true
+        Logger.cleanupForTest()
+
+        final _tmp = getContent()
+        assert _tmp.length == 4
+        assert _tmp[1] == "${getCurrThreadId()},${Logger.COVERAGE_TAG},p/A,101"
+        assert _tmp[2] == "${getCurrThreadId()},${Logger.MARKER_PREFIX}t1"
+        assert _tmp[3] == "${getCurrThreadId()},${Logger.COVERAGE_TAG},p/A,010"
+        assert _probes == [false, false, false] as boolean[]
+    }
+
+    @Test
+    void testLogTestEntryAndExit() {
+        Logger.logTestEntry("p/A/t1()V")
+        Logger.logTestEntry("p/A/t2()V")
+        Logger.logTestExit("p/A/t2()V", "E", "F")
+        Logger.logTestExit("p/A/t1()V", "N", "T")
+        Logger.logTestExit("p/A/t3()V", "N", "T")
+
+        final _tmp = getContent()
+        assert _tmp.length == 6
+        assert _tmp[1] == "${getCurrThreadId()},${Logger.MARKER_PREFIX}p/A/t1()V"
+        assert _tmp[2] == "${getCurrThreadId()},${Logger.MARKER_PREFIX}p/A/t2()V"
+        final _tid = getCurrThreadId().toString()
+        final _exit2 = _tmp[3].split(',')
+        final _exit1 = _tmp[4].split(',')
+        assert _exit2[[0, 1, 2, 4]] == [_tid, Logger.MARKER_EXIT_PREFIX + "p/A/t2()V", "E", "F"]
+        assert _exit1[[0, 1, 2, 4]] == [_tid, Logger.MARKER_EXIT_PREFIX + "p/A/t1()V", "N", "T"]
+        assert Long.parseLong(_exit1[3]) >= Long.parseLong(_exit2[3])
+        assert Long.parseLong(_exit2[3]) >= 0
+        assert _tmp[5] == "${getCurrThreadId()},${Logger.MARKER_EXIT_PREFIX}p/A/t3()V,N,-1,T"
+    }
+
+    @Test
+    void testLogArrayCopy() {
+        final int[] _src = [1, 2, 3, 4]
+        final int[] _dest = [0, 0, 0]
+        Logger.logArrayCopy(_src, 1, _dest, 0, 3)
+        Logger.logArrayCopyOf(_src, 2, 8, _dest)
+        Logger.logArrayRange(_dest, 1, 1, Logger.ArrayRangeAction.PUTR.toString())
+
+        final _tmp = getContent()
+        assert _tmp.length == 5
+        assert _tmp[1] == "${getCurrThreadId()},GETR,1,3,${Logger.toString(_src)},3"
+        assert _tmp[2] == "${getCurrThreadId()},PUTR,0,2,${Logger.toString(_dest)},3"
+        assert _tmp[3] == "${getCurrThreadId()},GETR,2,3,${Logger.toString(_src)},2"
+        assert _tmp[4] == "${getCurrThreadId()},PUTR,0,1,${Logger.toString(_dest)},2"
+    }
+
     @Test
     void testLogException() {
         final _tmp = new RuntimeException()
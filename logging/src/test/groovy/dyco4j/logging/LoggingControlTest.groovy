@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2024, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.logging
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import javax.management.ObjectName
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.management.ManagementFactory
+
+final class LoggingControlTest {
+    private StringWriter logStore
+
+    @BeforeEach
+    void setUp() {
+        logStore = new StringWriter()
+        Logger.initialize(new PrintWriter(logStore))
+    }
+
+    @AfterEach
+    void tearDown() {
+        LoggingControl.configure(new Properties())
+        logStore.close()
+    }
+
+    private static createMethodEntryCallSite(final String methodId) {
+        LoggingControl.bootstrap(MethodHandles.lookup(), "logMethodEntry",
+                MethodType.methodType(void.class, String.class), LoggingControl.EventKind.METHOD_ENTRY.name(),
+                methodId).dynamicInvoker()
+    }
+
+    private getLogs() {
+        Logger.cleanupForTest()
+        logStore.toString().split(System.lineSeparator()).tail().collect { it.split(',', 2)[1] }
+    }
+
+    @Test
+    void testToggleGlobally() {
+        final _site = createMethodEntryCallSite("m3")
+        _site.invokeWithArguments("m3")
+        LoggingControl.setEnabled(false)
+        assert !LoggingControl.isEnabled()
+        _site.invokeWithArguments("m3")
+        LoggingControl.setEnabled(true)
+        _site.invokeWithArguments("m3")
+
+        // the second log of the message is recorded as the frequency of the message
+        assert getLogs() == ["${Logger.METHOD_ENTRY_TAG},m3", "${Logger.METHOD_ENTRY_TAG},m3,1"]
+    }
+
+    @Test
+    void testToggleEventKind() {
+        final _site = createMethodEntryCallSite("m3")
+        LoggingControl.setEnabled(LoggingControl.EventKind.METHOD_EXIT, false)
+        _site.invokeWithArguments("m3")
+        LoggingControl.setEnabled(LoggingControl.EventKind.METHOD_ENTRY, false)
+        assert !LoggingControl.isEnabled(LoggingControl.EventKind.METHOD_ENTRY)
+        _site.invokeWithArguments("m4")
+
+        assert getLogs() == ["${Logger.METHOD_ENTRY_TAG},m3"]
+    }
+
+    @Test
+    void testToggleMethodRange() {
+        final _site3 = createMethodEntryCallSite("m3")
+        final _site5 = createMethodEntryCallSite("m5")
+        final _siteOfHelper = createMethodEntryCallSite("")
+        LoggingControl.setEnabled(2, 4, false)
+        assert !LoggingControl.isEnabled(3)
+        assert LoggingControl.isEnabled(5)
+        _site3.invokeWithArguments("m3")
+        _site5.invokeWithArguments("m5")
+        _siteOfHelper.invokeWithArguments("m7")
+        LoggingControl.setEnabled(3, 3, true)
+        _site3.invokeWithArguments("m3")
+
+        assert getLogs() == ["${Logger.METHOD_ENTRY_TAG},m5", "${Logger.METHOD_ENTRY_TAG},m7",
+                             "${Logger.METHOD_ENTRY_TAG},m3"]
+    }
+
+    @Test
+    void testDisabledConversionYieldsUnloggedValue() {
+        final _site = LoggingControl.bootstrap(MethodHandles.lookup(), "toString",
+                MethodType.methodType(String.class, int.class), LoggingControl.EventKind.FIELD.name(),
+                "m1").dynamicInvoker()
+        assert _site.invokeWithArguments(3) == Logger.toString(3)
+        LoggingControl.setEnabled(LoggingControl.EventKind.FIELD, false)
+        assert _site.invokeWithArguments(3) == "*"
+    }
+
+    @Test
+    void testConfigure() {
+        final _site = createMethodEntryCallSite("m3")
+        final _properties = new Properties()
+        _properties.setProperty("disabledEvents", "FIELD, METHOD_ENTRY")
+        _properties.setProperty("disabledMethods", "1-2,8")
+        LoggingControl.configure(_properties)
+        assert LoggingControl.isEnabled()
+        assert !LoggingControl.isEnabled(LoggingControl.EventKind.FIELD)
+        assert !LoggingControl.isEnabled(2)
+        assert LoggingControl.isEnabled(3)
+        assert !LoggingControl.isEnabled(8)
+        _site.invokeWithArguments("m3")
+
+        _properties.setProperty("logging", "off")
+        _properties.remove("disabledEvents")
+        LoggingControl.configure(_properties)
+        assert !LoggingControl.isEnabled()
+        _site.invokeWithArguments("m3")
+
+        assert getLogs() == []
+    }
+
+    @Test
+    void testMXBean() {
+        final _site = createMethodEntryCallSite("m3")
+        final _server = ManagementFactory.getPlatformMBeanServer()
+        final _name = new ObjectName(LoggingControl.MXBEAN_NAME)
+        _server.invoke(_name, "disableEvents", [LoggingControl.EventKind.METHOD_ENTRY.name()] as Object[],
+                [String.name] as String[])
+        assert _server.getAttribute(_name, "DisabledEvents") == "[METHOD_ENTRY]"
+        _site.invokeWithArguments("m3")
+        _server.invoke(_name, "enableEvents", [LoggingControl.EventKind.METHOD_ENTRY.name()] as Object[],
+                [String.name] as String[])
+        _site.invokeWithArguments("m4")
+
+        assert getLogs() == ["${Logger.METHOD_ENTRY_TAG},m4"]
+    }
+
+    @Test
+    void testGetEventKind() {
+        assert LoggingControl.getEventKind("logArrayRange") == LoggingControl.EventKind.ARRAY
+        assert LoggingControl.getEventKind("logFieldRaw") == LoggingControl.EventKind.FIELD
+        assert LoggingControl.getEventKind("logTestExit") == LoggingControl.EventKind.MARKER
+        assert LoggingControl.getEventKind("countArrayAllocation") == LoggingControl.EventKind.ALLOCATION
+        assert LoggingControl.getEventKind("logLockRelease") == LoggingControl.EventKind.LOCK
+        try {
+            LoggingControl.getEventKind("toString")
+            assert false
+        } catch (final IllegalArgumentException _ex) {
+            assert _ex.message.contains("toString")
+        }
+    }
+}
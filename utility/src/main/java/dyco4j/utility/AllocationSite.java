@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.utility;
+
+/**
+ * An instruction that allocates an object or an array.
+ *
+ * @param line       of the instruction.  -1 if unknown.
+ * @param type       of the allocated object or array in JVM format, e.g., <code>java/lang/String</code> or
+ *                   <code>[[I</code>.
+ * @param dimensions of the array allocated by the instruction.  0 if the instruction allocates an object.
+ */
+public record AllocationSite(int line, String type, int dimensions) {
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.utility;
+
+/**
+ * A basic block of a method covered by a coverage probe.
+ *
+ * @param methodId of the method containing the block.
+ * @param line     of the first instruction of the block.  -1 if unknown.
+ */
+public record BasicBlock(String methodId, int line) {
+}
@@ -13,38 +13,69 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 public final class ProgramData {
+    public static final String JSON_EXTENSION = ".json";
     // INFO: Refer to ClassNameHelper for info about format of names
     final Map<String, String> fieldId2Name = new HashMap<>();
     final Map<String, String> shortFieldName2Id = new HashMap<>();
     final Map<String, String> methodId2Name = new HashMap<>();
     final Map<String, String> shortMethodName2Id = new HashMap<>();
     final Map<String, String> class2SuperClass = new HashMap<>();
-
-    // Returns null if dataFile is empty
+    // INFO: Interfaces directly implemented (or extended) by each class (or interface) with interfaces
+    final Map<String, List<String>> class2Interfaces = new HashMap<>();
+    // INFO: Methods that were not instrumented as they were deemed trivial, e.g., accessors
+    final Map<String, String> skippedMethodId2Reason = new HashMap<>();
+    // INFO: Methods in which redundant reads of fields were not instrumented
+    final Map<String, Integer> methodId2NumOfElidedFieldReads = new HashMap<>();
+    // INFO: Allocation sites in each method in the order of occurrence; refer to getAllocationSite for ids of sites
+    final Map<String, List<AllocationSite>> methodId2AllocationSites = new HashMap<>();
+    // INFO: Basic blocks in each class; the index of a block in the list is the id of its coverage probe
+    final Map<String, List<BasicBlock>> class2BasicBlocks = new HashMap<>();
+
+    /**
+     * Loads program data from a JSON file or a binary file (refer to {@link ProgramDataFile}).  The format of the file
+     * is detected from its contents.
+     *
+     * @return null if dataFile is empty.
+     */
     public static ProgramData loadData(final Path dataFile) throws IOException {
-        if (Files.exists(dataFile)) {
-            try (final Reader _rdr = new FileReader(dataFile.toFile())) {
+        if (ProgramDataFile.isProgramDataFile(dataFile))
+            // INFO: The file is not mapped so that it can be saved later (on Windows, mapped files cannot be replaced)
+            return ProgramDataFile.read(dataFile).toProgramData();
+        else if (Files.exists(dataFile)) {
+            try (final Reader _rdr = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8)) {
                 return new Gson().fromJson(_rdr, ProgramData.class);
             }
         } else
             return new ProgramData();
     }
 
+    /**
+     * Saves program data as JSON if the name of dataFile ends with <code>.json</code>.  Otherwise, program data is
+     * saved in the binary format by appending the changes to dataFile (refer to {@link ProgramDataFile}).  An existing
+     * JSON file is backed up (with <code>.bak</code> suffix) before it is overwritten.
+     */
     public static void saveData(final ProgramData staticData, final Path dataFile) throws IOException {
+        if (!dataFile.getFileName().toString().endsWith(JSON_EXTENSION)) {
+            ProgramDataFile.append(staticData, dataFile);
+            return;
+        }
+
         if (Files.exists(dataFile))
             Files.move(dataFile, Paths.get(dataFile + ".bak"), StandardCopyOption.REPLACE_EXISTING);
 
-        try (final Writer _wtr = new FileWriter(dataFile.toFile())) {
+        try (final Writer _wtr = Files.newBufferedWriter(dataFile, StandardCharsets.UTF_8)) {
             new GsonBuilder().setPrettyPrinting().create().toJson(staticData, _wtr);
         }
     }
@@ -69,6 +100,72 @@ public final class ProgramData {
         return Collections.unmodifiableMap(class2SuperClass);
     }
 
+    public Map<String, List<String>> getViewOfClass2Interfaces() {
+        return Collections.unmodifiableMap(class2Interfaces);
+    }
+
+    public void setInterfaces(final String className, final List<String> interfaces) {
+        if (interfaces.isEmpty())
+            class2Interfaces.remove(className);
+        else
+            class2Interfaces.put(className, List.copyOf(interfaces));
+    }
+
+    public Map<String, String> getViewOfSkippedMethodId2Reason() {
+        return Collections.unmodifiableMap(skippedMethodId2Reason);
+    }
+
+    public void addSkippedMethod(final String methodId, final String reason) {
+        skippedMethodId2Reason.put(methodId, reason);
+    }
+
+    public void removeSkippedMethod(final String methodId) {
+        skippedMethodId2Reason.remove(methodId);
+    }
+
+    public Map<String, Integer> getViewOfMethodId2NumOfElidedFieldReads() {
+        return Collections.unmodifiableMap(methodId2NumOfElidedFieldReads);
+    }
+
+    public void setNumOfElidedFieldReads(final String methodId, final int numOfElidedFieldReads) {
+        if (numOfElidedFieldReads > 0)
+            methodId2NumOfElidedFieldReads.put(methodId, numOfElidedFieldReads);
+        else
+            methodId2NumOfElidedFieldReads.remove(methodId);
+    }
+
+    public Map<String, List<AllocationSite>> getViewOfMethodId2AllocationSites() {
+        return Collections.unmodifiableMap(methodId2AllocationSites);
+    }
+
+    public void setAllocationSites(final String methodId, final List<AllocationSite> allocationSites) {
+        if (allocationSites.isEmpty())
+            methodId2AllocationSites.remove(methodId);
+        else
+            methodId2AllocationSites.put(methodId, List.copyOf(allocationSites));
+    }
+
+    /**
+     * @param allocationSiteId is of the form <code>&lt;method id&gt;.&lt;index of the site in the method&gt;</code>.
+     */
+    public Optional<AllocationSite> getAllocationSite(final String allocationSiteId) {
+        final int _tmp = allocationSiteId.lastIndexOf('.');
+        final List<AllocationSite> _sites = methodId2AllocationSites.get(allocationSiteId.substring(0, _tmp));
+        final int _index = Integer.parseInt(allocationSiteId.substring(_tmp + 1));
+        return _sites == null || _index >= _sites.size() ? Optional.empty() : Optional.of(_sites.get(_index));
+    }
+
+    public Map<String, List<BasicBlock>> getViewOfClass2BasicBlocks() {
+        return Collections.unmodifiableMap(class2BasicBlocks);
+    }
+
+    public void setBasicBlocks(final String className, final List<BasicBlock> basicBlocks) {
+        if (basicBlocks.isEmpty())
+            class2BasicBlocks.remove(className);
+        else
+            class2BasicBlocks.put(className, List.copyOf(basicBlocks));
+    }
+
     public String addClass2SuperClassMapping(final String className, final String superClassName) {
         return class2SuperClass.put(className, superClassName);
     }
@@ -105,7 +202,12 @@ public final class ProgramData {
                 !shortMethodName2Id.equals(_that.shortMethodName2Id))
             return false;
 
-        return class2SuperClass.equals(_that.class2SuperClass);
+        return class2SuperClass.equals(_that.class2SuperClass) &&
+                class2Interfaces.equals(_that.class2Interfaces) &&
+                skippedMethodId2Reason.equals(_that.skippedMethodId2Reason) &&
+                methodId2NumOfElidedFieldReads.equals(_that.methodId2NumOfElidedFieldReads) &&
+                methodId2AllocationSites.equals(_that.methodId2AllocationSites) &&
+                class2BasicBlocks.equals(_that.class2BasicBlocks);
     }
 
     @Override
@@ -115,6 +217,11 @@ public final class ProgramData {
         result = 31 * result + methodId2Name.hashCode();
         result = 31 * result + shortMethodName2Id.hashCode();
         result = 31 * result + class2SuperClass.hashCode();
+        result = 31 * result + class2Interfaces.hashCode();
+        result = 31 * result + skippedMethodId2Reason.hashCode();
+        result = 31 * result + methodId2NumOfElidedFieldReads.hashCode();
+        result = 31 * result + methodId2AllocationSites.hashCode();
+        result = 31 * result + class2BasicBlocks.hashCode();
         return result;
     }
 }
@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ *
+ */
+
+package dyco4j.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Program data in a compact binary format.  The file is memory-mapped and ids and names are resolved lazily, i.e.,
+ * without loading the entire program data.
+ * <p>
+ * The file is a header followed by segments.  Each segment contains a string table, a pool of the components of
+ * lists (e.g., allocation sites and basic blocks), and a table for each map of {@link ProgramData}.  The entries of
+ * each table are sorted by their keys and are indexed by a hash index.  Program data is saved by appending a segment
+ * with the entries that were added, changed, or removed since the last save.  So, the entries of later segments
+ * supersede the entries of earlier segments.
+ */
+public final class ProgramDataFile {
+    static final int MAX_SEGMENTS = 16;
+    private static final byte[] MAGIC = "DYCO4JPD".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+    // INFO: Value of entries removed from a table
+    private static final int REMOVED = -1;
+    // INFO: Value of entries with null strings, e.g., the super class of java/lang/Object
+    private static final int NULL = -2;
+    private static final Object TOMBSTONE = new Object();
+    private final List<Segment> segments;
+    // INFO: Size of the file without the trailing truncated segment, if any
+    private final long size;
+
+    private ProgramDataFile(final List<Segment> segments, final long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    public static boolean isProgramDataFile(final Path file) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) < HEADER_SIZE)
+            return false;
+
+        try (final InputStream _in = Files.newInputStream(file)) {
+            return Arrays.equals(_in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * The file is mapped into memory and the mapping remains valid after this method returns; hence, there is no need
+     * to close the returned object.  As the mapping is released only when the returned object is garbage collected,
+     * the file cannot be replaced or truncated (e.g., by saving program data) on some platforms, e.g., Windows, while
+     * the returned object is reachable.
+     */
+    public static ProgramDataFile open(final Path file) throws IOException {
+        return open(file, true);
+    }
+
+    /**
+     * Unlike {@link #open(Path)}, the file is read into memory instead of being mapped into memory.  So, the file can
+     * be replaced or truncated while the returned object is reachable.
+     */
+    static ProgramDataFile read(final Path file) throws IOException {
+        return open(file, false);
+    }
+
+    private static ProgramDataFile open(final Path file, final boolean mapped) throws IOException {
+        try (final FileChannel _channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long _fileSize = _channel.size();
+            final ByteBuffer _header = _fileSize < HEADER_SIZE ? ByteBuffer.allocate(HEADER_SIZE) :
+                    readFully(_channel, 0, HEADER_SIZE);
+            final byte[] _magic = new byte[MAGIC.length];
+            _header.get(0, _magic);
+            if (!Arrays.equals(_magic, MAGIC) || _header.getInt(MAGIC.length) != VERSION)
+                throw new IOException(MessageFormat.format("{0} is not a program data file of version {1}", file,
+                        VERSION));
+
+            final List<Segment> _segments = new ArrayList<>();
+            long _pos = HEADER_SIZE;
+            while (_pos + Integer.BYTES <= _fileSize) {
+                final int _length = readFully(_channel, _pos, Integer.BYTES).getInt(0);
+                // INFO: A truncated segment (e.g., due to an interrupted save) is ignored and overwritten later
+                if (_length <= 0 || _pos + Integer.BYTES + _length > _fileSize)
+                    break;
+
+                _segments.add(new Segment(mapped ?
+                        _channel.map(FileChannel.MapMode.READ_ONLY, _pos + Integer.BYTES, _length) :
+                        readFully(_channel, _pos + Integer.BYTES, _length)));
+                _pos += Integer.BYTES + _length;
+            }
+            return new ProgramDataFile(Collections.unmodifiableList(_segments), _pos);
+        }
+    }
+
+    /**
+     * Writes the given program data into a file with a single segment.  The given file is replaced only after the
+     * program data is written completely.
+     */
+    public static void write(final ProgramData programData, final Path file) throws IOException {
+        final Path _parent = file.toAbsolutePath().getParent();
+        final Path _tmpFile = Files.createTempFile(_parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (final DataOutputStream _out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(_tmpFile)))) {
+                _out.write(MAGIC);
+                _out.writeInt(VERSION);
+                writeSegment(_out, diff(new ProgramData(), programData));
+            }
+            Files.move(_tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(_tmpFile);
+        }
+    }
+
+    /**
+     * Appends a segment with the changes in the given program data (compared to the program data in the given file)
+     * to the given file.  If the file is not a program data file or it has too many segments, then the file is
+     * rewritten.
+     *
+     * @return true if the file was changed.
+     */
+    public static boolean append(final ProgramData programData, final Path file) throws IOException {
+        if (!isProgramDataFile(file)) {
+            write(programData, file);
+            return true;
+        }
+
+        // INFO: The file is not mapped as it is truncated or replaced below
+        final ProgramDataFile _programDataFile = read(file);
+        final ProgramData _oldProgramData = _programDataFile.toProgramData();
+        if (_oldProgramData.equals(programData))
+            return false;
+
+        if (_programDataFile.segments.size() >= MAX_SEGMENTS) {
+            write(programData, file);
+            return true;
+        }
+
+        try (final FileChannel _channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            _channel.truncate(_programDataFile.size);
+            _channel.position(_programDataFile.size);
+            // INFO: The stream is not closed as closing it closes the channel before it is forced
+            final DataOutputStream _out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(_channel)));
+            writeSegment(_out, diff(_oldProgramData, programData));
+            _out.flush();
+            _channel.force(false);
+        }
+        return true;
+    }
+
+    public Optional<String> getFieldName(final String fieldId) {
+        return lookup(Table.FIELD_ID_2_NAME, fieldId).map(String.class::cast);
+    }
+
+    public Optional<String> getFieldId(final String shortFieldName) {
+        return lookup(Table.SHORT_FIELD_NAME_2_ID, shortFieldName).map(String.class::cast);
+    }
+
+    public Optional<String> getMethodName(final String methodId) {
+        return lookup(Table.METHOD_ID_2_NAME, methodId).map(String.class::cast);
+    }
+
+    public Optional<String> getMethodId(final String shortMethodName) {
+        return lookup(Table.SHORT_METHOD_NAME_2_ID, shortMethodName).map(String.class::cast);
+    }
+
+    /**
+     * @param allocationSiteId is of the form <code>&lt;method id&gt;.&lt;index of the site in the method&gt;</code>.
+     */
+    public Optional<AllocationSite> getAllocationSite(final String allocationSiteId) {
+        final int _tmp = allocationSiteId.lastIndexOf('.');
+        final int _index = Integer.parseInt(allocationSiteId.substring(_tmp + 1));
+        return lookup(Table.METHOD_ID_2_ALLOCATION_SITES, allocationSiteId.substring(0, _tmp))
+                .map(o -> (List<?>) o)
+                .filter(l -> _index < l.size())
+                .map(l -> (AllocationSite) l.get(_index));
+    }
+
+    public List<BasicBlock> getBasicBlocks(final String className) {
+        return lookup(Table.CLASS_2_BASIC_BLOCKS, className).map(o -> (List<?>) o)
+                .map(l -> l.stream().map(BasicBlock.class::cast).toList()).orElse(List.of());
+    }
+
+    /**
+     * @return the entire program data in the file.
+     */
+    public ProgramData toProgramData() {
+        final ProgramData _programData = new ProgramData();
+        for (final Segment _segment : segments) {
+            for (final Table _table : Table.values()) {
+                final Map<String, Object> _map = _table.getMap(_programData);
+                final int _size = _segment.getSize(_table);
+                for (int _i = 0; _i < _size; _i++) {
+                    final String _key = _segment.getString(_segment.getKey(_table, _i));
+                    final int _value = _segment.getValue(_table, _i);
+                    if (_value == REMOVED)
+                        _map.remove(_key);
+                    else
+                        _map.put(_key, _table.kind.decode(_segment, _value));
+                }
+            }
+        }
+        return _programData;
+    }
+
+    int getNumOfSegments() {
+        return segments.size();
+    }
+
+    private Optional<Object> lookup(final Table table, final String key) {
+        final byte[] _key = key.getBytes(StandardCharsets.UTF_8);
+        for (int _i = segments.size() - 1; _i >= 0; _i--) {
+            final Segment _segment = segments.get(_i);
+            final int _entry = _segment.find(table, _key);
+            if (_entry >= 0) {
+                final int _value = _segment.getValue(table, _entry);
+                return _value == REMOVED ? Optional.empty() : Optional.ofNullable(table.kind.decode(_segment,
+                        _value));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int size)
+            throws IOException {
+        final ByteBuffer _buffer = ByteBuffer.allocate(size);
+        while (_buffer.hasRemaining()) {
+            if (channel.read(_buffer, position + _buffer.position()) < 0)
+                throw new IOException("Unexpected end of program data file");
+        }
+        return _buffer;
+    }
+
+    // Returns the entries (of each table) that were added, changed, or removed (as tombstones) in the new data
+    private static Map<Table, Map<String, Object>> diff(final ProgramData oldData, final ProgramData newData) {
+        final Map<Table, Map<String, Object>> _table2entries = new EnumMap<>(Table.class);
+        for (final Table _table : Table.values()) {
+            final Map<String, Object> _oldMap = _table.getMap(oldData);
+            final Map<String, Object> _newMap = _table.getMap(newData);
+            final Map<String, Object> _entries = new TreeMap<>();
+            _newMap.forEach((k, v) -> {
+                if (!_oldMap.containsKey(k) || !Objects.equals(_oldMap.get(k), v))
+                    _entries.put(k, v);
+            });
+            _oldMap.keySet().stream().filter(k -> !_newMap.containsKey(k)).forEach(k -> _entries.put(k, TOMBSTONE));
+            _table2entries.put(_table, _entries);
+        }
+        return _table2entries;
+    }
+
+    /*
+     * INFO
+     *
+     * A segment is laid out as follows (all numbers are big-endian ints).
+     *  - length of the segment (excluding this number)
+     *  - number of strings S, offsets of the strings (S + 1 numbers), and UTF-8 encoded strings
+     *  - size of the pool P and P numbers
+     *  - for each table: number of entries N, keys (N string indices), values (N numbers), capacity of the hash
+     *    index C (a power of 2), and C slots (entry index + 1 or 0 if empty)
+     */
+    private static void writeSegment(final DataOutputStream out, final Map<Table, Map<String, Object>> table2entries)
+            throws IOException {
+        final SegmentWriter _writer = new SegmentWriter();
+        final Map<Table, int[][]> _table2keysAndValues = new EnumMap<>(Table.class);
+        for (final Table _table : Table.values()) {
+            final Map<String, Object> _entries = table2entries.get(_table);
+            final int[] _keys = new int[_entries.size()];
+            final int[] _values = new int[_entries.size()];
+            int _i = 0;
+            for (final Map.Entry<String, Object> _e : _entries.entrySet()) {
+                _keys[_i] = _writer.addString(_e.getKey());
+                _values[_i] = _e.getValue() == TOMBSTONE ? REMOVED : _table.kind.encode(_writer, _e.getValue());
+                _i++;
+            }
+            _table2keysAndValues.put(_table, new int[][]{_keys, _values, _writer.createHashIndex(_keys)});
+        }
+
+        long _length = Integer.BYTES * (2L + _writer.strings.size()) + _writer.numOfStringBytes +
+                Integer.BYTES * (1L + _writer.poolSize);
+        for (final int[][] _tmp : _table2keysAndValues.values())
+            _length += Integer.BYTES * (2L + _tmp[0].length + _tmp[1].length + _tmp[2].length);
+        if (_length > Integer.MAX_VALUE)
+            throw new IOException(MessageFormat.format("Segment of {0} bytes is too large", _length));
+
+        out.writeInt((int) _length);
+        out.writeInt(_writer.strings.size());
+        int _offset = 0;
+        out.writeInt(_offset);
+        for (final byte[] _string : _writer.strings) {
+            _offset += _string.length;
+            out.writeInt(_offset);
+        }
+        for (final byte[] _string : _writer.strings)
+            out.write(_string);
+        out.writeInt(_writer.poolSize);
+        for (int _i = 0; _i < _writer.poolSize; _i++)
+            out.writeInt(_writer.pool[_i]);
+        for (final int[][] _tmp : _table2keysAndValues.values()) {
+            out.writeInt(_tmp[0].length);
+            for (final int _key : _tmp[0])
+                out.writeInt(_key);
+            for (final int _value : _tmp[1])
+                out.writeInt(_value);
+            out.writeInt(_tmp[2].length);
+            for (final int _slot : _tmp[2])
+                out.writeInt(_slot);
+        }
+    }
+
+    private static int hash(final byte[] bytes) {
+        final int _h = Arrays.hashCode(bytes);
+        return _h ^ (_h >>> 16);
+    }
+
+    private enum ValueKind {
+        STRING {
+            int encode(final SegmentWriter writer, final Object value) {
+                return value == null ? NULL : writer.addString((String) value);
+            }
+
+            Object decode(final Segment segment, final int value) {
+                return value == NULL ? null : segment.getString(value);
+            }
+        },
+        INT {
+            int encode(final SegmentWriter writer, final Object value) {
+                return (Integer) value;
+            }
+
+            Object decode(final Segment segment, final int value) {
+                return value;
+            }
+        },
+        // INFO: Stored in the pool as the number of strings followed by the strings
+        STRINGS {
+            int encode(final SegmentWriter writer, final Object value) {
+                final List<?> _strings = (List<?>) value;
+                final int _offset = writer.addToPool(_strings.size());
+                for (final Object _string : _strings)
+                    writer.addToPool(writer.addString((String) _string));
+                return _offset;
+            }
+
+            Object decode(final Segment segment, final int value) {
+                final List<String> _strings = new ArrayList<>();
+                for (int _i = 1; _i <= segment.getFromPool(value); _i++)
+                    _strings.add(segment.getString(segment.getFromPool(value + _i)));
+                return List.copyOf(_strings);
+            }
+        },
+        // INFO: Stored in the pool as the number of sites followed by the line, type, and dimensions of each site
+        ALLOCATION_SITES {
+            int encode(final SegmentWriter writer, final Object value) {
+                final List<?> _sites = (List<?>) value;
+                final int _offset = writer.addToPool(_sites.size());
+                for (final Object _tmp : _sites) {
+                    final AllocationSite _site = (AllocationSite) _tmp;
+                    writer.addToPool(_site.line());
+                    writer.addToPool(writer.addString(_site.type()));
+                    writer.addToPool(_site.dimensions());
+                }
+                return _offset;
+            }
+
+            Object decode(final Segment segment, final int value) {
+                final List<AllocationSite> _sites = new ArrayList<>();
+                for (int _i = 0, _pos = value + 1; _i < segment.getFromPool(value); _i++, _pos += 3)
+                    _sites.add(new AllocationSite(segment.getFromPool(_pos),
+                            segment.getString(segment.getFromPool(_pos + 1)), segment.getFromPool(_pos + 2)));
+                return List.copyOf(_sites);
+            }
+        },
+        // INFO: Stored in the pool as the number of blocks followed by the method id and line of each block
+        BASIC_BLOCKS {
+            int encode(final SegmentWriter writer, final Object value) {
+                final List<?> _blocks = (List<?>) value;
+                final int _offset = writer.addToPool(_blocks.size());
+                for (final Object _tmp : _blocks) {
+                    final BasicBlock _block = (BasicBlock) _tmp;
+                    writer.addToPool(writer.addString(_block.methodId()));
+                    writer.addToPool(_block.line());
+                }
+                return _offset;
+            }
+
+            Object decode(final Segment segment, final int value) {
+                final List<BasicBlock> _blocks = new ArrayList<>();
+                for (int _i = 0, _pos = value + 1; _i < segment.getFromPool(value); _i++, _pos += 2)
+                    _blocks.add(new BasicBlock(segment.getString(segment.getFromPool(_pos)),
+                            segment.getFromPool(_pos + 1)));
+                return List.copyOf(_blocks);
+            }
+        };
+
+        abstract int encode(SegmentWriter writer, Object value);
+
+        abstract Object decode(Segment segment, int value);
+    }
+
+    // INFO: The order of the tables is the order of the tables in a segment
+    private enum Table {
+        FIELD_ID_2_NAME(ValueKind.STRING, d -> d.fieldId2Name),
+        SHORT_FIELD_NAME_2_ID(ValueKind.STRING, d -> d.shortFieldName2Id),
+        METHOD_ID_2_NAME(ValueKind.STRING, d -> d.methodId2Name),
+        SHORT_METHOD_NAME_2_ID(ValueKind.STRING, d -> d.shortMethodName2Id),
+        CLASS_2_SUPER_CLASS(ValueKind.STRING, d -> d.class2SuperClass),
+        CLASS_2_INTERFACES(ValueKind.STRINGS, d -> d.class2Interfaces),
+        SKIPPED_METHOD_ID_2_REASON(ValueKind.STRING, d -> d.skippedMethodId2Reason),
+        METHOD_ID_2_NUM_OF_ELIDED_FIELD_READS(ValueKind.INT, d -> d.methodId2NumOfElidedFieldReads),
+        METHOD_ID_2_ALLOCATION_SITES(ValueKind.ALLOCATION_SITES, d -> d.methodId2AllocationSites),
+        CLASS_2_BASIC_BLOCKS(ValueKind.BASIC_BLOCKS, d -> d.class2BasicBlocks);
+
+        final ValueKind kind;
+        private final Function<ProgramData, Map<String, ?>> accessor;
+
+        Table(final ValueKind kind, final Function<ProgramData, Map<String, ?>> accessor) {
+            this.kind = kind;
+            this.accessor = accessor;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> getMap(final ProgramData programData) {
+            return (Map<String, Object>) accessor.apply(programData);
+        }
+    }
+
+    private static final class Segment {
+        private final ByteBuffer buffer;
+        private final int offsetsPos;
+        private final int stringsPos;
+        private final int poolPos;
+        private final int[] tablePos = new int[Table.values().length];
+
+        Segment(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            final int _numOfStrings = buffer.getInt(0);
+            this.offsetsPos = Integer.BYTES;
+            this.stringsPos = offsetsPos + Integer.BYTES * (_numOfStrings + 1);
+            final int _poolSizePos = stringsPos + buffer.getInt(offsetsPos + Integer.BYTES * _numOfStrings);
+            this.poolPos = _poolSizePos + Integer.BYTES;
+            int _pos = poolPos + Integer.BYTES * buffer.getInt(_poolSizePos);
+            for (final Table _table : Table.values()) {
+                tablePos[_table.ordinal()] = _pos;
+                _pos += Integer.BYTES * (1 + 2 * buffer.getInt(_pos));
+                _pos += Integer.BYTES * (1 + buffer.getInt(_pos));
+            }
+        }
+
+        int getSize(final Table table) {
+            return buffer.getInt(tablePos[table.ordinal()]);
+        }
+
+        int getKey(final Table table, final int entry) {
+            return buffer.getInt(tablePos[table.ordinal()] + Integer.BYTES * (1 + entry));
+        }
+
+        int getValue(final Table table, final int entry) {
+            return buffer.getInt(tablePos[table.ordinal()] + Integer.BYTES * (1 + getSize(table) + entry));
+        }
+
+        int getFromPool(final int index) {
+            return buffer.getInt(poolPos + Integer.BYTES * index);
+        }
+
+        String getString(final int index) {
+            return new String(getStringBytes(index), StandardCharsets.UTF_8);
+        }
+
+        // Returns the index of the entry with the given key or -1 if there is no such entry
+        int find(final Table table, final byte[] key) {
+            final int _capacityPos = tablePos[table.ordinal()] + Integer.BYTES * (1 + 2 * getSize(table));
+            final int _capacity = buffer.getInt(_capacityPos);
+            if (_capacity == 0)
+                return -1;
+
+            for (int _i = hash(key) & (_capacity - 1); ; _i = (_i + 1) & (_capacity - 1)) {
+                final int _slot = buffer.getInt(_capacityPos + Integer.BYTES * (1 + _i));
+                if (_slot == 0)
+                    return -1;
+                if (Arrays.equals(getStringBytes(getKey(table, _slot - 1)), key))
+                    return _slot - 1;
+            }
+        }
+
+        private byte[] getStringBytes(final int index) {
+            final int _start = buffer.getInt(offsetsPos + Integer.BYTES * index);
+            final int _end = buffer.getInt(offsetsPos + Integer.BYTES * (index + 1));
+            final byte[] _bytes = new byte[_end - _start];
+            buffer.get(stringsPos + _start, _bytes);
+            return _bytes;
+        }
+    }
+
+    private static final class SegmentWriter {
+        private final Map<String, Integer> string2index = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private long numOfStringBytes;
+        private int[] pool = new int[16];
+        private int poolSize;
+
+        int addString(final String string) {
+            return string2index.computeIfAbsent(string, s -> {
+                final byte[] _bytes = s.getBytes(StandardCharsets.UTF_8);
+                strings.add(_bytes);
+                numOfStringBytes += _bytes.length;
+                return strings.size() - 1;
+            });
+        }
+
+        // Returns the index of the given number in the pool
+        int addToPool(final int number) {
+            if (poolSize == pool.length)
+                pool = Arrays.copyOf(pool, pool.length * 2);
+            pool[poolSize] = number;
+            return poolSize++;
+        }
+
+        // INFO: The capacity of the hash index is at least twice the number of keys and the slots are linearly probed
+        int[] createHashIndex(final int[] keys) {
+            if (keys.length == 0)
+                return new int[0];
+
+            final int[] _slots = new int[Integer.highestOneBit(2 * keys.length - 1) << 1];
+            for (int _i = 0; _i < keys.length; _i++) {
+                int _j = hash(strings.get(keys[_i])) & (_slots.length - 1);
+                while (_slots[_j] != 0)
+                    _j = (_j + 1) & (_slots.length - 1);
+                _slots[_j] = _i + 1;
+            }
+            return _slots;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016, Venkatesh-Prasad Ranganath
+ *
+ * BSD 3-clause License
+ *
+ * Author: Venkatesh-Prasad Ranganath (rvprasad)
+ */
+
+package dyco4j.utility
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ProgramDataFileTest {
+    private Path dataFile
+
+    private static ProgramData createProgramData() {
+        final _tmp1 = new ProgramData()
+        _tmp1.addClass2SuperClassMapping('a', 'b')
+        _tmp1.addClass2SuperClassMapping('java/lang/Object', null)
+        _tmp1.setInterfaces('a', ['i', 'j'])
+        _tmp1.addNewField('sf1', 'f1', 'f')
+        _tmp1.addNewMethod('sm1', 'm1', 'm')
+        _tmp1.addNewMethod('sm2', 'm2é', 'm')
+        _tmp1.addSkippedMethod('m0', 'accessor')
+        _tmp1.setNumOfElidedFieldReads('m1', 2)
+        _tmp1.setAllocationSites('m0', [new AllocationSite(7, 'java/lang/Object', 0),
+                                        new AllocationSite(-1, '[[I', 2)])
+        _tmp1.setBasicBlocks('a', [new BasicBlock('m0', 7), new BasicBlock('m1', -1)])
+        return _tmp1
+    }
+
+    @BeforeEach
+    void createDataFile() {
+        dataFile = Files.createTempFile('pre', '.bin')
+        Files.delete(dataFile)
+    }
+
+    @AfterEach
+    void deleteDataFile() {
+        Files.deleteIfExists(dataFile)
+    }
+
+    @Test
+    void writeAndReadNonEmptyDataObject() {
+        final _programData = createProgramData()
+        ProgramDataFile.write(_programData, dataFile)
+        assert ProgramDataFile.isProgramDataFile(dataFile)
+        assert ProgramDataFile.open(dataFile).toProgramData() == _programData
+    }
+
+    @Test
+    void writeAndReadEmptyDataObject() {
+        ProgramDataFile.write(new ProgramData(), dataFile)
+        final _programDataFile = ProgramDataFile.open(dataFile)
+        assert _programDataFile.toProgramData() == new ProgramData()
+        assert _programDataFile.getMethodName('m0').empty
+    }
+
+    @Test
+    void lookupWithoutLoading() {
+        ProgramDataFile.write(createProgramData(), dataFile)
+        final _programDataFile = ProgramDataFile.open(dataFile)
+        assert _programDataFile.getFieldName('f0') == Optional.of('f1')
+        assert _programDataFile.getFieldId('sf1') == Optional.of('f0')
+        assert _programDataFile.getMethodName('m1') == Optional.of('m2é')
+        assert _programDataFile.getMethodId('sm1') == Optional.of('m0')
+        assert _programDataFile.getMethodName('m2').empty
+        assert _programDataFile.getFieldId('sm1').empty
+        assert _programDataFile.getAllocationSite('m0.1') == Optional.of(new AllocationSite(-1, '[[I', 2))
+        assert _programDataFile.getAllocationSite('m0.2').empty
+        assert _programDataFile.getAllocationSite('m1.0').empty
+        assert _programDataFile.getBasicBlocks('a') == [new BasicBlock('m0', 7), new BasicBlock('m1', -1)]
+        assert _programDataFile.getBasicBlocks('b').empty
+    }
+
+    @Test
+    void lookupInLargeDataObject() {
+        final _programData = new ProgramData()
+        (0..<5000).each { _programData.addNewMethod("s$it".toString(), "n$it".toString(), 'm') }
+        ProgramDataFile.write(_programData, dataFile)
+        final _programDataFile = ProgramDataFile.open(dataFile)
+        (0..<5000).each {
+            assert _programDataFile.getMethodId("s$it") == Optional.of("m$it".toString())
+            assert _programDataFile.getMethodName("m$it") == Optional.of("n$it".toString())
+        }
+        assert _programDataFile.getMethodName('m5000').empty
+    }
+
+    @Test
+    void appendChanges() {
+        final _programData = createProgramData()
+        assert ProgramDataFile.append(_programData, dataFile)
+        assert !ProgramDataFile.append(_programData, dataFile)
+        final _size = Files.size(dataFile)
+
+        _programData.addNewMethod('sm3', 'm3', 'm')
+        _programData.removeSkippedMethod('m0')
+        _programData.setNumOfElidedFieldReads('m1', 3)
+        _programData.setBasicBlocks('a', [])
+        _programData.setInterfaces('a', ['j'])
+        assert ProgramDataFile.append(_programData, dataFile)
+
+        final _programDataFile = ProgramDataFile.open(dataFile)
+        assert _programDataFile.numOfSegments == 2
+        assert Files.size(dataFile) - _size < _size
+        assert _programDataFile.toProgramData() == _programData
+        assert _programDataFile.getMethodName('m2') == Optional.of('m3')
+        assert _programDataFile.getMethodName('m0') == Optional.of('m1')
+        assert _programDataFile.getBasicBlocks('a').empty
+    }
+
+    @Test
+    void appendCompactsFileWithTooManySegments() {
+        final _programData = new ProgramData()
+        (0..ProgramDataFile.MAX_SEGMENTS).each {
+            _programData.addNewMethod("s$it".toString(), "n$it".toString(), 'm')
+            ProgramDataFile.append(_programData, dataFile)
+        }
+
+        final _programDataFile = ProgramDataFile.open(dataFile)
+        assert _programDataFile.numOfSegments == 1
+        assert _programDataFile.toProgramData() == _programData
+    }
+
+    @Test
+    void truncatedSegmentIsIgnoredAndOverwritten() {
+        final _programData = createProgramData()
+        ProgramDataFile.append(_programData, dataFile)
+        final _bytes = Files.readAllBytes(dataFile)
+        dataFile.bytes = ((_bytes as List) + (_bytes as List)[12..<(_bytes.length - 5)]) as byte[]
+        assert ProgramDataFile.open(dataFile).numOfSegments == 1
+        assert ProgramDataFile.open(dataFile).toProgramData() == _programData
+
+        _programData.addNewField('sf2', 'f2', 'f')
+        assert ProgramDataFile.append(_programData, dataFile)
+        assert ProgramDataFile.open(dataFile).numOfSegments == 2
+        assert ProgramDataFile.open(dataFile).toProgramData() == _programData
+    }
+
+    @Test
+    void openNonProgramDataFile() {
+        dataFile.text = '{}'
+        assert !ProgramDataFile.isProgramDataFile(dataFile)
+        try {
+            ProgramDataFile.open(dataFile)
+            assert false
+        } catch (final IOException _ex) {
+            assert _ex.message.contains(dataFile.toString())
+        }
+    }
+
+    @Test
+    void saveAndLoadViaProgramData() {
+        final _programData = createProgramData()
+        ProgramData.saveData(_programData, dataFile)
+        assert ProgramDataFile.isProgramDataFile(dataFile)
+        assert ProgramData.loadData(dataFile) == _programData
+
+        // JSON export (which drops null super classes)
+        _programData.class2SuperClass.remove('java/lang/Object')
+        final _jsonFile = Path.of(dataFile.toString() + ProgramData.JSON_EXTENSION)
+        try {
+            ProgramData.saveData(ProgramData.loadData(dataFile), _jsonFile)
+            assert _jsonFile.getText('UTF-8').startsWith('{')
+            assert ProgramData.loadData(_jsonFile) == _programData
+        } finally {
+            Files.deleteIfExists(_jsonFile)
+        }
+    }
+
+    @Test
+    void loadAndSaveInSameProcess() {
+        final _programData = createProgramData()
+        ProgramData.saveData(_programData, dataFile)
+        assert ProgramDataFile.open(dataFile).segments.every { it.buffer.direct }
+        assert ProgramDataFile.read(dataFile).segments.every { !it.buffer.direct }
+
+        // loaded data does not hold mappings of the file that is later truncated and replaced by saves
+        (0..ProgramDataFile.MAX_SEGMENTS).each {
+            final _loadedData = ProgramData.loadData(dataFile)
+            _loadedData.addNewMethod("s$it".toString(), "n$it".toString(), 'm')
+            ProgramData.saveData(_loadedData, dataFile)
+            _programData.addNewMethod("s$it".toString(), "n$it".toString(), 'm')
+        }
+        assert ProgramData.loadData(dataFile) == _programData
+    }
+}
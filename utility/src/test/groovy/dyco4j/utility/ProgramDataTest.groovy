@@ -17,10 +17,16 @@ class ProgramDataTest {
     private static ProgramData createProgramData() {
         final _tmp1 = new ProgramData()
         _tmp1.class2SuperClass['a'] = 'b'
+        _tmp1.class2Interfaces['a'] = ['i', 'j']
         _tmp1.fieldId2Name['98'] = 'f1'
         _tmp1.shortFieldName2Id['sf1'] = '98'
         _tmp1.methodId2Name['23'] = 'm1'
         _tmp1.shortMethodName2Id['sm1'] = '23'
+        _tmp1.skippedMethodId2Reason['23'] = 'accessor'
+        _tmp1.methodId2NumOfElidedFieldReads['23'] = 2
+        _tmp1.methodId2AllocationSites['23'] = [new AllocationSite(7, 'java/lang/Object', 0),
+                                                new AllocationSite(-1, '[[I', 2)]
+        _tmp1.class2BasicBlocks['a'] = [new BasicBlock('23', 7), new BasicBlock('23', -1)]
         return _tmp1
     }
 
@@ -31,6 +37,16 @@ class ProgramDataTest {
         assert _programData.getViewOfClass2SuperClass() == ['a': 'b', 'c': 'd']
     }
 
+    @Test
+    void testSettingInterfaces() {
+        final _programData = createProgramData()
+        _programData.setInterfaces('c', ['k'])
+        assert _programData.getViewOfClass2Interfaces() == ['a': ['i', 'j'], 'c': ['k']]
+
+        _programData.setInterfaces('a', [])
+        assert _programData.getViewOfClass2Interfaces() == ['c': ['k']]
+    }
+
     @Test
     void testFieldAddition() {
         final _shortField = 'shortField'
@@ -63,6 +79,52 @@ class ProgramDataTest {
         assert _methodId2Name == [(_methodId.get()): (_longMethod), '23': 'm1']
     }
 
+    @Test
+    void testSkippedMethodAdditionAndRemoval() {
+        final _programData = createProgramData()
+        _programData.addSkippedMethod('24', 'bridge')
+        assert _programData.getViewOfSkippedMethodId2Reason() == ['23': 'accessor', '24': 'bridge']
+
+        _programData.removeSkippedMethod('23')
+        assert _programData.getViewOfSkippedMethodId2Reason() == ['24': 'bridge']
+    }
+
+    @Test
+    void testSettingNumOfElidedFieldReads() {
+        final _programData = createProgramData()
+        _programData.setNumOfElidedFieldReads('24', 3)
+        assert _programData.getViewOfMethodId2NumOfElidedFieldReads() == ['23': 2, '24': 3]
+
+        _programData.setNumOfElidedFieldReads('23', 0)
+        assert _programData.getViewOfMethodId2NumOfElidedFieldReads() == ['24': 3]
+    }
+
+    @Test
+    void testSettingAllocationSites() {
+        final _programData = createProgramData()
+        final _site = new AllocationSite(3, '[Ljava/lang/String;', 1)
+        _programData.setAllocationSites('24', [_site])
+        assert _programData.getViewOfMethodId2AllocationSites().keySet() == ['23', '24'] as Set
+        assert _programData.getAllocationSite('24.0') == Optional.of(_site)
+        assert _programData.getAllocationSite('23.1') == Optional.of(new AllocationSite(-1, '[[I', 2))
+        assert _programData.getAllocationSite('23.2').empty
+
+        _programData.setAllocationSites('23', [])
+        assert _programData.getViewOfMethodId2AllocationSites().keySet() == ['24'] as Set
+        assert _programData.getAllocationSite('23.0').empty
+    }
+
+    @Test
+    void testSettingBasicBlocks() {
+        final _programData = createProgramData()
+        _programData.setBasicBlocks('c', [new BasicBlock('24', 3)])
+        assert _programData.getViewOfClass2BasicBlocks() == ['a': [new BasicBlock('23', 7), new BasicBlock('23', -1)],
+                                                             'c': [new BasicBlock('24', 3)]]
+
+        _programData.setBasicBlocks('a', [])
+        assert _programData.getViewOfClass2BasicBlocks().keySet() == ['c'] as Set
+    }
+
     @Test
     void writeAndReadNonEmptyDataObject() {
         final _programData = createProgramData()